@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost.asyncstorage;
+
+import com.microsoft.azure.eventprocessorhost.Checkpoint;
+import com.microsoft.azure.eventprocessorhost.CompleteLease;
+import com.microsoft.azure.storage.blob.BlockBlobURL;
+
+// Serializes exactly like AzureBlobLease, so hosts using either lease manager can share a lease store.
+final class AzureAsyncBlobLease extends CompleteLease {
+    private final transient BlockBlobURL blobURL; // do not serialize
+    private String offset = null; // null means checkpoint is uninitialized
+    private long sequenceNumber = 0;
+    private String token = null;
+
+    // not intended to be used; built for GSon
+    @SuppressWarnings("unused")
+    private AzureAsyncBlobLease() {
+        super();
+        this.blobURL = null; // so that we can mark blobURL as final
+    }
+
+    AzureAsyncBlobLease(String partitionId, BlockBlobURL blobURL) {
+        super(partitionId);
+        this.blobURL = blobURL;
+    }
+
+    AzureAsyncBlobLease(AzureAsyncBlobLease source) {
+        super(source);
+        this.offset = source.offset;
+        this.sequenceNumber = source.sequenceNumber;
+        this.blobURL = source.blobURL;
+        this.token = source.token;
+    }
+
+    AzureAsyncBlobLease(AzureAsyncBlobLease source, BlockBlobURL blobURL) {
+        super(source);
+        this.offset = source.offset;
+        this.sequenceNumber = source.sequenceNumber;
+        this.blobURL = blobURL;
+        this.token = source.token;
+    }
+
+    BlockBlobURL getBlobURL() {
+        return this.blobURL;
+    }
+
+    String getOffset() {
+        return this.offset;
+    }
+
+    void setOffset(String offset) {
+        this.offset = offset;
+    }
+
+    long getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    String getToken() {
+        return this.token;
+    }
+
+    void setToken(String token) {
+        this.token = token;
+    }
+
+    Checkpoint getCheckpoint() {
+        return new Checkpoint(this.getPartitionId(), this.offset, this.sequenceNumber);
+    }
+}
@@ -0,0 +1,630 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost.asyncstorage;
+
+import com.google.gson.Gson;
+import com.microsoft.azure.eventprocessorhost.BaseLease;
+import com.microsoft.azure.eventprocessorhost.Checkpoint;
+import com.microsoft.azure.eventprocessorhost.CompleteLease;
+import com.microsoft.azure.eventprocessorhost.EventProcessorHost;
+import com.microsoft.azure.eventprocessorhost.EventProcessorHostActionStrings;
+import com.microsoft.azure.eventprocessorhost.ICheckpointManager;
+import com.microsoft.azure.eventprocessorhost.IHostAwareManager;
+import com.microsoft.azure.eventprocessorhost.ILeaseManager;
+import com.microsoft.azure.eventprocessorhost.ManagerContext;
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.StorageCredentials;
+import com.microsoft.azure.storage.StorageCredentialsAccountAndKey;
+import com.microsoft.azure.storage.StorageCredentialsSharedAccessSignature;
+import com.microsoft.azure.storage.blob.AnonymousCredentials;
+import com.microsoft.azure.storage.blob.BlobAccessConditions;
+import com.microsoft.azure.storage.blob.BlobListingDetails;
+import com.microsoft.azure.storage.blob.BlockBlobURL;
+import com.microsoft.azure.storage.blob.ContainerURL;
+import com.microsoft.azure.storage.blob.ICredentials;
+import com.microsoft.azure.storage.blob.ListBlobsOptions;
+import com.microsoft.azure.storage.blob.Metadata;
+import com.microsoft.azure.storage.blob.PipelineOptions;
+import com.microsoft.azure.storage.blob.SharedKeyCredentials;
+import com.microsoft.azure.storage.blob.StorageURL;
+import com.microsoft.azure.storage.blob.models.BlobItem;
+import com.microsoft.azure.storage.blob.models.ContainerListBlobFlatSegmentResponse;
+import com.microsoft.azure.storage.blob.models.LeaseAccessConditions;
+import com.microsoft.azure.storage.blob.models.LeaseStateType;
+import com.microsoft.azure.storage.blob.models.ModifiedAccessConditions;
+import com.microsoft.azure.storage.blob.models.StorageErrorCode;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.http.HttpClient;
+import com.microsoft.rest.v2.util.FlowableUtil;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Lease and checkpoint manager which keeps leases and checkpoints in Azure Storage block blobs, like the built-in
+ * manager EventProcessorHost uses when given a storage connection string, but which talks to Azure Storage through the
+ * non-blocking azure-storage-blob client. No thread is held while a storage request is in progress, so scanning,
+ * acquiring and renewing the leases of many partitions does not tie up the host's executor.
+ * <p>
+ * Leases and checkpoints are stored exactly as the built-in manager stores them, so hosts using either manager can
+ * share a lease store. Pass an instance as both the checkpoint manager and the lease manager to the EventProcessorHost
+ * constructor; the host initializes it when the event processor is registered. Azure Storage leases last at most 60
+ * seconds, so the lease duration in the host's PartitionManagerOptions must not be longer.
+ * <p>
+ * The storage connection string is read as the built-in manager reads it, and must have an account key or a shared
+ * access signature.
+ */
+public final class AzureStorageAsyncCheckpointLeaseManager implements ICheckpointManager, ILeaseManager, IHostAwareManager {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(AzureStorageAsyncCheckpointLeaseManager.class);
+    private static final int MAX_LEASE_DURATION_IN_SECONDS = 60; // as in AzureStoragePartitionManagerOptions
+    private static final String ERROR_CODE_HEADER = "x-ms-error-code";
+    private static final String METADATA_OWNER_NAME = "OWNINGHOST"; // as in AzureStorageCheckpointLeaseManager
+
+    private final String storageConnectionString;
+    private final String storageBlobPrefix;
+    private final HttpClient httpClient;
+    private ManagerContext context;
+    private String storageContainerName;
+    private ContainerURL containerURL;
+    private String consumerGroupDirectory;
+    private Gson gson;
+
+    private Hashtable<String, Checkpoint> latestCheckpoint = new Hashtable<String, Checkpoint>();
+
+    /***
+     * Create a manager which stores leases and checkpoints in the given Azure Storage container.
+     *
+     * @param storageConnectionString connection string of the Azure Storage account, with either an account key or a SAS
+     * @param storageContainerName    container name, or null to use the event hub path
+     */
+    public AzureStorageAsyncCheckpointLeaseManager(String storageConnectionString, String storageContainerName) {
+        this(storageConnectionString, storageContainerName, "");
+    }
+
+    /***
+     * Create a manager which stores leases and checkpoints in the given Azure Storage container.
+     *
+     * @param storageConnectionString connection string of the Azure Storage account, with either an account key or a SAS
+     * @param storageContainerName    container name, or null to use the event hub path
+     * @param storageBlobPrefix       prefix used when naming blobs within the storage container
+     */
+    public AzureStorageAsyncCheckpointLeaseManager(String storageConnectionString, String storageContainerName, String storageBlobPrefix) {
+        this(storageConnectionString, storageContainerName, storageBlobPrefix, null);
+    }
+
+    // httpClient is null except in tests, for the default client.
+    AzureStorageAsyncCheckpointLeaseManager(String storageConnectionString, String storageContainerName, String storageBlobPrefix,
+            HttpClient httpClient) {
+        if ((storageConnectionString == null) || storageConnectionString.trim().isEmpty()) {
+            throw new IllegalArgumentException("Provide valid Azure Storage connection string when using Azure Storage");
+        }
+        this.storageConnectionString = storageConnectionString;
+
+        if ((storageContainerName != null) && storageContainerName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Azure Storage container name must be a valid container name or null to use the default");
+        }
+        this.storageContainerName = storageContainerName;
+
+        this.storageBlobPrefix = (storageBlobPrefix != null) ? storageBlobPrefix.trim() : "";
+        this.httpClient = httpClient;
+    }
+
+    /***
+     * Called by the host when the event processor is registered.
+     *
+     * @param context Details of the host
+     * @throws InvalidKeyException   If the account key in the connection string is invalid
+     * @throws URISyntaxException    If the connection string is invalid
+     * @throws MalformedURLException If the blob endpoint is not a valid URL
+     */
+    @Override
+    public void initialize(ManagerContext context) throws InvalidKeyException, URISyntaxException, MalformedURLException {
+        this.context = context;
+
+        if (this.context.getLeaseDurationInSeconds() > MAX_LEASE_DURATION_IN_SECONDS) {
+            throw new IllegalArgumentException("Lease duration cannot be more than " + MAX_LEASE_DURATION_IN_SECONDS + " seconds");
+        }
+
+        if (this.storageContainerName == null) {
+            this.storageContainerName = this.context.getEventHubPath();
+        }
+
+        // Validate that the event hub name is also a legal storage container name. Same rules and message as
+        // AzureStorageCheckpointLeaseManager.
+        Pattern p = Pattern.compile("^(?-i)(?:[a-z0-9]|(?<=[0-9a-z])-(?=[0-9a-z])){3,63}$");
+        Matcher m = p.matcher(this.storageContainerName);
+        if (!m.find()) {
+            throw new IllegalArgumentException("EventHub names must conform to the following rules to be able to use it with EventProcessorHost: "
+                    + "Must start with a letter or number, and can contain only letters, numbers, and the dash (-) character. "
+                    + "Every dash (-) character must be immediately preceded and followed by a letter or number; consecutive dashes are not permitted in container names. "
+                    + "All letters in a container name must be lowercase. "
+                    + "Must be from 3 to 63 characters long.");
+        }
+
+        CloudStorageAccount storageAccount = CloudStorageAccount.parse(this.storageConnectionString);
+        String containerUrl = storageAccount.getBlobEndpoint().toString().replaceAll("/+$", "") + "/" + this.storageContainerName;
+
+        ICredentials pipelineCredentials = null;
+        StorageCredentials credentials = storageAccount.getCredentials();
+        if (credentials instanceof StorageCredentialsAccountAndKey) {
+            pipelineCredentials = new SharedKeyCredentials(credentials.getAccountName(),
+                    ((StorageCredentialsAccountAndKey) credentials).exportBase64EncodedKey());
+        } else if (credentials instanceof StorageCredentialsSharedAccessSignature) {
+            containerUrl += "?" + ((StorageCredentialsSharedAccessSignature) credentials).getToken();
+            pipelineCredentials = new AnonymousCredentials();
+        } else {
+            throw new IllegalArgumentException("Azure Storage connection string must contain an AccountName and AccountKey, or a SharedAccessSignature");
+        }
+
+        PipelineOptions pipelineOptions = new PipelineOptions();
+        if (this.httpClient != null) {
+            pipelineOptions.withClient(this.httpClient);
+        }
+        this.containerURL = new ContainerURL(new URL(containerUrl), StorageURL.createPipeline(pipelineCredentials, pipelineOptions));
+
+        // Blobs live in a virtual directory named after the consumer group, as with AzureStorageCheckpointLeaseManager.
+        this.consumerGroupDirectory = this.storageBlobPrefix + this.context.getConsumerGroupName() + "/";
+
+        this.gson = new Gson();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkpointStoreExists() {
+        return storeExistsInternal(getCheckpointTimeoutInSeconds(), EventProcessorHostActionStrings.CHECKING_CHECKPOINT_STORE,
+                "Failure while checking checkpoint store existence");
+    }
+
+    //
+    // In this implementation, checkpoints are data that's actually in the lease blob, so checkpoint operations
+    // turn into lease operations under the covers.
+    //
+
+    @Override
+    public CompletableFuture<Void> createCheckpointStoreIfNotExists() {
+        // Only called after createLeaseStoreIfNotExists, and it is the same store.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteCheckpointStore() {
+        return deleteStoreInternal(getCheckpointTimeoutInSeconds());
+    }
+
+    @Override
+    public CompletableFuture<Checkpoint> getCheckpoint(String partitionId) {
+        Maybe<Checkpoint> checkpoint = downloadLease(blobURLFor(partitionId))
+                .filter((lease) -> (lease.getOffset() != null) && !lease.getOffset().isEmpty()) // else no checkpoint stored for this partition
+                .map((lease) -> lease.getCheckpoint());
+        return toFuture(checkpoint, getCheckpointTimeoutInSeconds(), EventProcessorHostActionStrings.GETTING_CHECKPOINT,
+                withHostAndPartition(partitionId, "Failure while getting checkpoint"));
+    }
+
+    @Override
+    public CompletableFuture<Void> createAllCheckpointsIfNotExists(List<String> partitionIds) {
+        // Checkpoints are in the lease blobs, which createAllLeasesIfNotExists has already created.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateCheckpoint(CompleteLease lease, Checkpoint checkpoint) {
+        AzureAsyncBlobLease updatedLease = new AzureAsyncBlobLease((AzureAsyncBlobLease) lease);
+        TRACE_LOGGER.debug(withHostAndPartition(checkpoint.getPartitionId(),
+                "Checkpointing at " + checkpoint.getOffset() + " // " + checkpoint.getSequenceNumber()));
+        updatedLease.setOffset(checkpoint.getOffset());
+        updatedLease.setSequenceNumber(checkpoint.getSequenceNumber());
+
+        // A single upload conditioned on the lease id - see AzureStorageCheckpointLeaseManager.uploadCheckpointInternal.
+        Maybe<Void> update = uploadLease(updatedLease, leaseCondition(updatedLease.getToken()), UploadActivity.Update)
+                .onErrorResumeNext((Throwable e) -> {
+                    if (wasLeaseLost(e) || hasErrorCode(e, StorageErrorCode.LEASE_NOT_PRESENT_WITH_BLOB_OPERATION)) {
+                        TRACE_LOGGER.warn(withHostAndPartition(lease, "Lease lost"));
+                        return Completable.error(new RuntimeException("Lease lost while updating checkpoint"));
+                    }
+                    return Completable.error(e);
+                })
+                .toMaybe();
+        return toFuture(update, getCheckpointTimeoutInSeconds(), EventProcessorHostActionStrings.UPDATING_CHECKPOINT,
+                withHostAndPartition(lease, "Failure updating checkpoint"));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteCheckpoint(String partitionId) {
+        // Not currently used by EventProcessorHost.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    //
+    // Lease operations.
+    //
+
+    @Override
+    public int getLeaseDurationInMilliseconds() {
+        return this.context.getLeaseDurationInSeconds() * 1000;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> leaseStoreExists() {
+        return storeExistsInternal(getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.CHECKING_LEASE_STORE,
+                "Failure while checking lease store existence");
+    }
+
+    private CompletableFuture<Boolean> storeExistsInternal(int timeoutInSeconds, String action, String trace) {
+        Maybe<Boolean> exists = this.containerURL.getProperties(null, null)
+                .map((response) -> Boolean.TRUE)
+                .onErrorResumeNext((Throwable e) -> (statusCode(e) == 404) ? Single.just(Boolean.FALSE) : Single.error(e))
+                .toMaybe();
+        return toFuture(exists, timeoutInSeconds, action, withHost(trace));
+    }
+
+    @Override
+    public CompletableFuture<Void> createLeaseStoreIfNotExists() {
+        Maybe<Void> create = this.containerURL.create(null, null, null)
+                .ignoreElement()
+                // the container already existing is fine
+                .onErrorResumeNext((Throwable e) -> hasErrorCode(e, StorageErrorCode.CONTAINER_ALREADY_EXISTS) ? Completable.complete() : Completable.error(e))
+                .doOnComplete(() -> TRACE_LOGGER.info(withHost("Created lease store OK or it already existed")))
+                .toMaybe();
+        return toFuture(create, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.CREATING_LEASE_STORE,
+                withHost("Failure while creating lease store"));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteLeaseStore() {
+        return deleteStoreInternal(getLeaseTimeoutInSeconds());
+    }
+
+    private CompletableFuture<Void> deleteStoreInternal(int timeoutInSeconds) {
+        Maybe<Void> delete = listBlobs("", false)
+                .flatMapCompletable((item) -> this.containerURL.createBlobURL(item.name()).delete(null, null, null)
+                        .ignoreElement()
+                        .onErrorResumeNext((Throwable e) -> (statusCode(e) == 404) ? Completable.complete() : Completable.error(e)))
+                .andThen(this.containerURL.delete(null, null).ignoreElement())
+                .onErrorResumeNext((Throwable e) -> (statusCode(e) == 404) ? Completable.complete() : Completable.error(e))
+                .toMaybe();
+        return toFuture(delete, timeoutInSeconds, EventProcessorHostActionStrings.DELETING_LEASE,
+                withHost("Failure while deleting lease store"));
+    }
+
+    @Override
+    public CompletableFuture<CompleteLease> getLease(String partitionId) {
+        Maybe<CompleteLease> lease = downloadLease(blobURLFor(partitionId)).map((downloaded) -> (CompleteLease) downloaded);
+        return toFuture(lease, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.GETTING_LEASE,
+                withHostAndPartition(partitionId, "Failure while getting lease details"));
+    }
+
+    @Override
+    public CompletableFuture<List<BaseLease>> getAllLeases() {
+        Maybe<List<BaseLease>> leases = listBlobs(this.consumerGroupDirectory, true)
+                .map((item) -> new BaseLease(partitionIdOf(item.name()), ownerOf(item.metadata()),
+                        LeaseStateType.LEASED.equals(item.properties().leaseState())))
+                .toList()
+                .toMaybe();
+        return toFuture(leases, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.GETTING_LEASE,
+                withHost("Failure while getting lease state details"));
+    }
+
+    @Override
+    public CompletableFuture<Void> createAllLeasesIfNotExists(List<String> partitionIds) {
+        // Optimization: count the blobs currently existing in the directory. If there are the
+        // expected number of blobs, then we can skip doing the creates. Otherwise create them all at once.
+        Maybe<Void> creates = listBlobs(this.consumerGroupDirectory, false)
+                .count()
+                .flatMapCompletable((blobCount) -> (blobCount == partitionIds.size())
+                        ? Completable.complete()
+                        : Flowable.fromIterable(partitionIds).flatMapCompletable((id) -> createLeaseIfNotExistsInternal(id).ignoreElement()))
+                .toMaybe();
+        return toFuture(creates, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.CREATING_LEASES,
+                withHost("Exception creating leases - leaseContainerName: " + this.storageContainerName + " consumerGroupName: "
+                        + this.context.getConsumerGroupName() + " storageBlobPrefix: " + this.storageBlobPrefix));
+    }
+
+    private Maybe<AzureAsyncBlobLease> createLeaseIfNotExistsInternal(String partitionId) {
+        BlockBlobURL blobURL = blobURLFor(partitionId);
+        AzureAsyncBlobLease newLease = new AzureAsyncBlobLease(partitionId, blobURL);
+        BlobAccessConditions ifNotExists = new BlobAccessConditions()
+                .withModifiedAccessConditions(new ModifiedAccessConditions().withIfNoneMatch("*"));
+        return uploadLease(newLease, ifNotExists, UploadActivity.Create)
+                .doOnComplete(() -> TRACE_LOGGER.info(withHostAndPartition(partitionId,
+                        "CreateLeaseIfNotExist OK - leaseContainerName: " + this.storageContainerName + " consumerGroupName: "
+                                + this.context.getConsumerGroupName() + " storageBlobPrefix: " + this.storageBlobPrefix)))
+                .toSingleDefault(newLease)
+                .toMaybe()
+                .onErrorResumeNext((Throwable e) -> {
+                    // LeaseIdMissing occurs when somebody else already has leased the blob
+                    if (hasErrorCode(e, StorageErrorCode.BLOB_ALREADY_EXISTS) || hasErrorCode(e, StorageErrorCode.LEASE_ID_MISSING)) {
+                        TRACE_LOGGER.info(withHostAndPartition(partitionId, "Lease already exists"));
+                        return downloadLease(blobURL);
+                    }
+                    return Maybe.error(e);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteLease(CompleteLease lease) {
+        TRACE_LOGGER.info(withHostAndPartition(lease, "Deleting lease"));
+        Maybe<Void> delete = ((AzureAsyncBlobLease) lease).getBlobURL().delete(null, null, null)
+                .ignoreElement()
+                .onErrorResumeNext((Throwable e) -> (statusCode(e) == 404) ? Completable.complete() : Completable.error(e))
+                .toMaybe();
+        return toFuture(delete, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.DELETING_LEASE,
+                withHostAndPartition(lease, "Exception deleting lease"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acquireLease(CompleteLease lease) {
+        return toFuture(acquireLeaseInternal((AzureAsyncBlobLease) lease).toMaybe(), getLeaseTimeoutInSeconds(),
+                EventProcessorHostActionStrings.ACQUIRING_LEASE, withHostAndPartition(lease, "Failure acquiring lease"));
+    }
+
+    private Single<Boolean> acquireLeaseInternal(AzureAsyncBlobLease lease) {
+        TRACE_LOGGER.debug(withHostAndPartition(lease, "Acquiring lease"));
+
+        BlockBlobURL blobURL = lease.getBlobURL();
+        String newLeaseId = EventProcessorHost.safeCreateUUID();
+        if ((newLeaseId == null) || newLeaseId.isEmpty()) {
+            throw new IllegalArgumentException("acquireLease: newLeaseId really is " + ((newLeaseId == null) ? "null" : "empty"));
+        }
+
+        return blobURL.getProperties(null, null)
+                .flatMapMaybe((properties) -> {
+                    if (LeaseStateType.LEASED.equals(properties.headers().leaseState())) {
+                        TRACE_LOGGER.debug(withHostAndPartition(lease, "changeLease"));
+                        if ((lease.getToken() == null) || lease.getToken().isEmpty()) {
+                            // Leased by another host since this one scanned the leases - see AzureStorageCheckpointLeaseManager.acquireLeaseInternal.
+                            return Maybe.<String>empty();
+                        }
+                        return blobURL.changeLease(lease.getToken(), newLeaseId, null, null).map((response) -> response.headers().leaseId()).toMaybe();
+                    } else {
+                        TRACE_LOGGER.debug(withHostAndPartition(lease, "acquireLease"));
+                        return blobURL.acquireLease(newLeaseId, this.context.getLeaseDurationInSeconds(), null, null)
+                                .map((response) -> response.headers().leaseId()).toMaybe();
+                    }
+                })
+                .flatMapSingleElement((newToken) -> {
+                    lease.setToken(newToken);
+                    lease.setOwner(this.context.getHostName());
+                    lease.incrementEpoch(); // Increment epoch each time lease is acquired or stolen by a new host
+                    // The upload also sets the owner metadata, so that getAllLeases can see the owner without downloading.
+                    return uploadLease(lease, leaseCondition(lease.getToken()), UploadActivity.Acquire).toSingleDefault(Boolean.TRUE);
+                })
+                .toSingle(Boolean.FALSE) // no new token, see above
+                .onErrorResumeNext((Throwable e) -> wasLeaseLost(e) ? Single.just(Boolean.FALSE) : Single.error(e));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> renewLease(CompleteLease lease) {
+        return toFuture(renewLeaseInternal((AzureAsyncBlobLease) lease).toMaybe(), getLeaseTimeoutInSeconds(),
+                EventProcessorHostActionStrings.RENEWING_LEASE, withHostAndPartition(lease, "Failure renewing lease"));
+    }
+
+    private Single<Boolean> renewLeaseInternal(AzureAsyncBlobLease lease) {
+        TRACE_LOGGER.debug(withHostAndPartition(lease, "Renewing lease"));
+        return lease.getBlobURL().renewLease(lease.getToken(), null, null)
+                .map((response) -> Boolean.TRUE)
+                .onErrorResumeNext((Throwable e) -> wasLeaseLost(e) ? Single.just(Boolean.FALSE) : Single.error(e));
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseLease(CompleteLease lease) {
+        TRACE_LOGGER.debug(withHostAndPartition(lease, "Releasing lease"));
+
+        AzureAsyncBlobLease inLease = (AzureAsyncBlobLease) lease;
+        String leaseId = inLease.getToken();
+        AzureAsyncBlobLease releasedCopy = new AzureAsyncBlobLease(inLease);
+        releasedCopy.setToken("");
+        releasedCopy.setOwner("");
+        // The upload without an owner also clears the owner metadata.
+        Maybe<Void> release = uploadLease(releasedCopy, leaseCondition(leaseId), UploadActivity.Release)
+                .andThen(inLease.getBlobURL().releaseLease(leaseId, null, null).ignoreElement())
+                // If the lease was already lost, then the intent of releasing it has been achieved.
+                .onErrorResumeNext((Throwable e) -> wasLeaseLost(e) ? Completable.complete() : Completable.error(e))
+                .toMaybe();
+        return toFuture(release, getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.RELEASING_LEASE,
+                withHostAndPartition(lease, "Failure releasing lease"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateLease(CompleteLease lease) {
+        AzureAsyncBlobLease azLease = (AzureAsyncBlobLease) lease;
+        TRACE_LOGGER.debug(withHostAndPartition(lease, "Updating lease"));
+
+        Single<Boolean> update = null;
+        String token = azLease.getToken();
+        if ((token == null) || (token.length() == 0)) {
+            update = Single.just(Boolean.FALSE);
+        } else {
+            // Renew the lease to make sure the update will go through.
+            update = renewLeaseInternal(azLease).flatMap((renewed) -> !renewed
+                    ? Single.just(Boolean.FALSE)
+                    : uploadLease(azLease, leaseCondition(token), UploadActivity.Update)
+                            .toSingleDefault(Boolean.TRUE)
+                            .onErrorResumeNext((Throwable e) -> wasLeaseLost(e) ? Single.just(Boolean.FALSE) : Single.error(e)));
+        }
+
+        return toFuture(update.toMaybe(), getLeaseTimeoutInSeconds(), EventProcessorHostActionStrings.UPDATING_LEASE,
+                withHostAndPartition(lease, "Failure updating lease"));
+    }
+
+    //
+    // Storage helpers.
+    //
+
+    private BlockBlobURL blobURLFor(String partitionId) {
+        return this.containerURL.createBlockBlobURL(this.consumerGroupDirectory + partitionId);
+    }
+
+    // Missing blob means no lease, hence the Maybe.
+    private Maybe<AzureAsyncBlobLease> downloadLease(BlockBlobURL blobURL) {
+        return blobURL.download(null, null, false, null)
+                .flatMap((response) -> FlowableUtil.collectBytesInArray(response.body(null)))
+                .map((bytes) -> {
+                    String jsonLease = new String(bytes, StandardCharsets.UTF_8);
+                    TRACE_LOGGER.debug(withHost("Raw JSON downloaded: " + jsonLease));
+                    AzureAsyncBlobLease blobLease = new AzureAsyncBlobLease(this.gson.fromJson(jsonLease, AzureAsyncBlobLease.class), blobURL);
+                    if (blobLease.getOffset() != null) {
+                        this.latestCheckpoint.put(blobLease.getPartitionId(), blobLease.getCheckpoint());
+                    }
+                    return blobLease;
+                })
+                .toMaybe()
+                .onErrorResumeNext((Throwable e) -> (statusCode(e) == 404) ? Maybe.<AzureAsyncBlobLease>empty() : Maybe.error(e));
+    }
+
+    private Completable uploadLease(AzureAsyncBlobLease lease, BlobAccessConditions conditions, UploadActivity activity) {
+        return Completable.defer(() -> {
+            if (activity != UploadActivity.Create) {
+                // Don't write stale checkpoint data - see AzureStorageCheckpointLeaseManager.uploadLease.
+                Checkpoint cached = this.latestCheckpoint.get(lease.getPartitionId()); // HASHTABLE
+                if ((cached != null) && ((cached.getSequenceNumber() > lease.getSequenceNumber()) || (lease.getOffset() == null))) {
+                    lease.setOffset(cached.getOffset());
+                    lease.setSequenceNumber(cached.getSequenceNumber());
+                    TRACE_LOGGER.debug(withHostAndPartition(lease,
+                            "Replacing stale offset/seqno while uploading lease"));
+                } else if (lease.getOffset() != null) {
+                    this.latestCheckpoint.put(lease.getPartitionId(), lease.getCheckpoint());
+                }
+            }
+
+            // Put Blob replaces the metadata, so every upload carries the owner of an owned lease.
+            Metadata metadata = new Metadata();
+            if ((activity != UploadActivity.Create) && (lease.getOwner() != null) && !lease.getOwner().isEmpty()) {
+                metadata.put(METADATA_OWNER_NAME, lease.getOwner());
+            }
+
+            String jsonLease = this.gson.toJson(lease);
+            byte[] bytes = jsonLease.getBytes(StandardCharsets.UTF_8);
+            return lease.getBlobURL().upload(Flowable.just(ByteBuffer.wrap(bytes)), bytes.length, null, metadata, conditions, null)
+                    .ignoreElement()
+                    .doOnComplete(() -> TRACE_LOGGER.debug(withHostAndPartition(lease,
+                            "Raw JSON uploading for " + activity + ": " + jsonLease)));
+        });
+    }
+
+    // One segment after another, by repeating the request rather than by recursing, so that the stack does not grow
+    // with the number of segments.
+    private Flowable<BlobItem> listBlobs(String prefix, boolean includeMetadata) {
+        ListBlobsOptions options = new ListBlobsOptions()
+                .withPrefix(prefix)
+                .withDetails(new BlobListingDetails().withMetadata(includeMetadata));
+        return Flowable.defer(() -> {
+            AtomicReference<String> marker = new AtomicReference<String>();
+            return Single.defer(() -> this.containerURL.listBlobsFlatSegment(marker.get(), options, null))
+                    .doOnSuccess((response) -> marker.set(response.body().nextMarker()))
+                    .repeatUntil(() -> (marker.get() == null) || marker.get().isEmpty())
+                    .concatMapIterable((response) -> blobsOf(response));
+        });
+    }
+
+    private static List<BlobItem> blobsOf(ContainerListBlobFlatSegmentResponse response) {
+        return ((response.body().segment() == null) || (response.body().segment().blobItems() == null))
+                ? Collections.<BlobItem>emptyList() : response.body().segment().blobItems();
+    }
+
+    private static String partitionIdOf(String blobName) {
+        return blobName.substring(blobName.lastIndexOf('/') + 1);
+    }
+
+    private static String ownerOf(Map<String, String> metadata) {
+        if (metadata != null) {
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                if (METADATA_OWNER_NAME.equalsIgnoreCase(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static BlobAccessConditions leaseCondition(String leaseId) {
+        return new BlobAccessConditions().withLeaseAccessConditions(new LeaseAccessConditions().withLeaseId(leaseId));
+    }
+
+    private static int statusCode(Throwable e) {
+        return ((e instanceof RestException) && (((RestException) e).response() != null)) ? ((RestException) e).response().statusCode() : -1;
+    }
+
+    private static boolean hasErrorCode(Throwable e, StorageErrorCode errorCode) {
+        if ((e instanceof RestException) && (((RestException) e).response() != null)) {
+            return errorCode.toString().equals(((RestException) e).response().headers().value(ERROR_CODE_HEADER));
+        }
+        return false;
+    }
+
+    // Same error codes as AzureStorageCheckpointLeaseManager.wasLeaseLost.
+    private static boolean wasLeaseLost(Throwable e) {
+        int statusCode = statusCode(e);
+        return ((statusCode == 409) || (statusCode == 412))
+                && (hasErrorCode(e, StorageErrorCode.LEASE_LOST)
+                        || hasErrorCode(e, StorageErrorCode.LEASE_ID_MISMATCH_WITH_LEASE_OPERATION)
+                        || hasErrorCode(e, StorageErrorCode.LEASE_ID_MISMATCH_WITH_BLOB_OPERATION)
+                        || hasErrorCode(e, StorageErrorCode.LEASE_ALREADY_PRESENT));
+    }
+
+    private int getLeaseTimeoutInSeconds() {
+        return this.context.getLeaseDurationInSeconds();
+    }
+
+    private int getCheckpointTimeoutInSeconds() {
+        return this.context.getCheckpointTimeoutInSeconds();
+    }
+
+    // Log messages in the same form as the host's own.
+    private String withHost(String logMessage) {
+        return "host " + this.context.getHostName() + ": " + logMessage;
+    }
+
+    private String withHostAndPartition(String partitionId, String logMessage) {
+        return withHost(partitionId + ": " + logMessage);
+    }
+
+    private String withHostAndPartition(BaseLease lease, String logMessage) {
+        return withHostAndPartition(lease.getPartitionId(), logMessage);
+    }
+
+    // Storage responses arrive on the HTTP client's I/O threads. Complete the futures on the host's executor instead,
+    // so that whatever the caller chained onto them never runs on - and never blocks - an I/O thread.
+    private <T> CompletableFuture<T> toFuture(Maybe<T> operation, int timeoutInSeconds, String action, String failureTrace) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        operation.timeout(timeoutInSeconds, TimeUnit.SECONDS).subscribe(
+            (result) -> completeOnExecutor(() -> future.complete(result)),
+            (error) -> {
+                TRACE_LOGGER.warn(failureTrace, error);
+                completeOnExecutor(() -> future.completeExceptionally(new CompletionException(action, error)));
+            },
+            () -> completeOnExecutor(() -> future.complete(null)));
+        return future;
+    }
+
+    private void completeOnExecutor(Runnable completion) {
+        try {
+            this.context.getExecutor().execute(completion);
+        } catch (RejectedExecutionException e) {
+            // Host is shutting down, complete right here rather than never.
+            completion.run();
+        }
+    }
+
+    private enum UploadActivity { Create, Acquire, Release, Update }
+}
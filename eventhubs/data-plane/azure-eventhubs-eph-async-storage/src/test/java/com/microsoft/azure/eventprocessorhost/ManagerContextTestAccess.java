@@ -0,0 +1,17 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+/**
+ * Hands the tests of this module the context a host passes to IHostAwareManager.initialize, without registering an
+ * event processor - which would start connecting to the event hub.
+ */
+public final class ManagerContextTestAccess {
+    private ManagerContextTestAccess() {
+    }
+
+    public static ManagerContext of(EventProcessorHost host) {
+        return new ManagerContext(host.getHostContext());
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost.asyncstorage;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.eventprocessorhost.BaseLease;
+import com.microsoft.azure.eventprocessorhost.Checkpoint;
+import com.microsoft.azure.eventprocessorhost.CompleteLease;
+import com.microsoft.azure.eventprocessorhost.EventProcessorHost;
+import com.microsoft.azure.eventprocessorhost.ManagerContextTestAccess;
+import com.microsoft.azure.eventprocessorhost.PartitionManagerOptions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class AzureStorageAsyncCheckpointLeaseManagerTest {
+    private static final String ACCOUNT_KEY_CONNECTION_STRING =
+            "DefaultEndpointsProtocol=https;AccountName=fakeaccount;AccountKey=dGhpcyBpcyBub3QgYSB2YWxpZCBrZXkgLi4uLi4uLi4=;EndpointSuffix=core.windows.net";
+    private static final String SAS_CONNECTION_STRING =
+            "BlobEndpoint=https://sasaccount.blob.core.windows.net/;SharedAccessSignature=sv=2018-03-28&sig=fakesignature";
+    private static final String EVENT_HUB_CONNECTION_STRING =
+            "Endpoint=sb://doesnotexist.servicebus.windows.net/;SharedAccessKeyName=doesnotexist;SharedAccessKey=dGhpcyBpcyBub3QgYSB2YWxpZCBrZXkgLi4uLi4uLi4=;EntityPath=doesnotexist";
+    private static final List<String> PARTITION_IDS = Arrays.asList("0", "1", "2", "3", "4");
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void connectionStringWithAccountKeyAddressesTheAccountsBlobEndpoint() throws Exception {
+        FakeBlobService service = new FakeBlobService(10);
+        AzureStorageAsyncCheckpointLeaseManager manager = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host1");
+
+        manager.createLeaseStoreIfNotExists().get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(service.containerExists());
+        Assert.assertTrue(manager.leaseStoreExists().get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(service.requestUrls().get(0).startsWith("https://fakeaccount.blob.core.windows.net/leases"));
+    }
+
+    @Test
+    public void connectionStringWithSharedAccessSignatureSendsTheSignature() throws Exception {
+        FakeBlobService service = new FakeBlobService(10);
+        AzureStorageAsyncCheckpointLeaseManager manager = createManager(service, SAS_CONNECTION_STRING, "host1");
+
+        Assert.assertFalse(manager.leaseStoreExists().get(10, TimeUnit.SECONDS));
+        String url = service.requestUrls().get(0);
+        Assert.assertTrue(url, url.startsWith("https://sasaccount.blob.core.windows.net/leases"));
+        Assert.assertTrue(url, url.contains("sig=fakesignature"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void connectionStringWithoutCredentialsIsRejected() throws Exception {
+        createManager(new FakeBlobService(10), "BlobEndpoint=https://fakeaccount.blob.core.windows.net/", "host1");
+    }
+
+    @Test
+    public void leaseDurationLongerThanStorageAllowsIsRejected() throws Exception {
+        PartitionManagerOptions options = new PartitionManagerOptions();
+        options.setLeaseDurationInSeconds(61);
+        try {
+            createManager(new FakeBlobService(10), ACCOUNT_KEY_CONNECTION_STRING, "host1", options);
+            Assert.fail("initialize should reject a lease duration of more than 60 seconds");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("60 seconds"));
+        }
+    }
+
+    @Test
+    public void leasesAreListedAcrossSegments() throws Exception {
+        FakeBlobService service = new FakeBlobService(2);
+        AzureStorageAsyncCheckpointLeaseManager first = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host1");
+        AzureStorageAsyncCheckpointLeaseManager second = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host2");
+        first.createLeaseStoreIfNotExists().get(10, TimeUnit.SECONDS);
+        first.createAllLeasesIfNotExists(PARTITION_IDS).get(10, TimeUnit.SECONDS);
+
+        Assert.assertTrue(first.acquireLease(first.getLease("0").get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(second.acquireLease(second.getLease("3").get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(second.acquireLease(second.getLease("4").get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS));
+
+        int listRequestsBefore = service.listRequests();
+        Map<String, BaseLease> leases = new HashMap<String, BaseLease>();
+        for (BaseLease lease : first.getAllLeases().get(10, TimeUnit.SECONDS)) {
+            leases.put(lease.getPartitionId(), lease);
+        }
+        Assert.assertEquals(3, service.listRequests() - listRequestsBefore);
+
+        Assert.assertEquals(PARTITION_IDS.size(), leases.size());
+        Assert.assertTrue(leases.get("0").isOwnedBy("host1"));
+        Assert.assertFalse(leases.get("1").getIsOwned());
+        Assert.assertFalse(leases.get("2").getIsOwned());
+        Assert.assertTrue(leases.get("3").isOwnedBy("host2"));
+        Assert.assertTrue(leases.get("4").isOwnedBy("host2"));
+
+        // all leases already exist, so the second host does not create them again
+        second.createAllLeasesIfNotExists(PARTITION_IDS).get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(second.getLease("3").get(10, TimeUnit.SECONDS).isOwnedBy("host2"));
+    }
+
+    @Test
+    public void checkpointIsStoredInTheLeaseBlobLikeTheBuiltInManager() throws Exception {
+        FakeBlobService service = new FakeBlobService(10);
+        AzureStorageAsyncCheckpointLeaseManager manager = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host1");
+        manager.createLeaseStoreIfNotExists().get(10, TimeUnit.SECONDS);
+        manager.createAllLeasesIfNotExists(PARTITION_IDS).get(10, TimeUnit.SECONDS);
+
+        CompleteLease lease = manager.getLease("1").get(10, TimeUnit.SECONDS);
+        Assert.assertNull(manager.getCheckpoint("1").get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(manager.acquireLease(lease).get(10, TimeUnit.SECONDS));
+        manager.updateCheckpoint(lease, new Checkpoint("1", "1234", 56)).get(10, TimeUnit.SECONDS);
+
+        Checkpoint checkpoint = manager.getCheckpoint("1").get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("1234", checkpoint.getOffset());
+        Assert.assertEquals(56, checkpoint.getSequenceNumber());
+        Assert.assertEquals("host1", service.metadata("$Default/1").get("OWNINGHOST"));
+
+        // same fields as AzureBlobLease
+        JsonObject json = new JsonParser().parse(service.content("$Default/1")).getAsJsonObject();
+        Assert.assertEquals("1", json.get("partitionId").getAsString());
+        Assert.assertEquals("host1", json.get("owner").getAsString());
+        Assert.assertEquals(0, json.get("epoch").getAsLong()); // -1 until first acquired
+        Assert.assertEquals("1234", json.get("offset").getAsString());
+        Assert.assertEquals(56, json.get("sequenceNumber").getAsLong());
+        Assert.assertFalse(json.get("token").getAsString().isEmpty());
+
+        // releasing keeps the checkpoint and clears the owner
+        manager.releaseLease(lease).get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(service.metadata("$Default/1").isEmpty());
+        Assert.assertEquals("", manager.getLease("1").get(10, TimeUnit.SECONDS).getOwner());
+        Assert.assertEquals("1234", manager.getCheckpoint("1").get(10, TimeUnit.SECONDS).getOffset());
+    }
+
+    @Test
+    public void checkpointFailsAndRenewReportsLossOnceTheLeaseIsLost() throws Exception {
+        FakeBlobService service = new FakeBlobService(10);
+        AzureStorageAsyncCheckpointLeaseManager manager = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host1");
+        manager.createLeaseStoreIfNotExists().get(10, TimeUnit.SECONDS);
+        manager.createAllLeasesIfNotExists(PARTITION_IDS).get(10, TimeUnit.SECONDS);
+
+        CompleteLease lease = manager.getLease("2").get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(manager.acquireLease(lease).get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(manager.renewLease(lease).get(10, TimeUnit.SECONDS));
+
+        service.stealLease("$Default/2");
+        Assert.assertFalse(manager.renewLease(lease).get(10, TimeUnit.SECONDS));
+        try {
+            manager.updateCheckpoint(lease, new Checkpoint("2", "99", 9)).get(10, TimeUnit.SECONDS);
+            Assert.fail("updateCheckpoint should fail once the lease is lost");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(String.valueOf(e.getCause()), String.valueOf(e.getCause()).contains("Lease lost"));
+        }
+        Assert.assertNull(manager.getCheckpoint("2").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void deleteLeaseStoreDeletesEveryBlobAndTheContainer() throws Exception {
+        FakeBlobService service = new FakeBlobService(2);
+        AzureStorageAsyncCheckpointLeaseManager manager = createManager(service, ACCOUNT_KEY_CONNECTION_STRING, "host1");
+        manager.createLeaseStoreIfNotExists().get(10, TimeUnit.SECONDS);
+        manager.createAllLeasesIfNotExists(PARTITION_IDS).get(10, TimeUnit.SECONDS);
+
+        manager.deleteLeaseStore().get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(service.containerExists());
+        List<String> deletedBlobs = new ArrayList<String>();
+        for (String url : service.requestUrls()) {
+            if (url.contains("/leases/")) {
+                deletedBlobs.add(url);
+            }
+        }
+        Assert.assertTrue(deletedBlobs.size() >= PARTITION_IDS.size());
+        Assert.assertFalse(manager.leaseStoreExists().get(10, TimeUnit.SECONDS));
+    }
+
+    private AzureStorageAsyncCheckpointLeaseManager createManager(FakeBlobService service, String storageConnectionString,
+            String hostName) throws Exception {
+        return createManager(service, storageConnectionString, hostName, new PartitionManagerOptions());
+    }
+
+    private AzureStorageAsyncCheckpointLeaseManager createManager(FakeBlobService service, String storageConnectionString,
+            String hostName, PartitionManagerOptions options) throws Exception {
+        AzureStorageAsyncCheckpointLeaseManager manager =
+                new AzureStorageAsyncCheckpointLeaseManager(storageConnectionString, "leases", "", service);
+        EventProcessorHost host = new EventProcessorHost(hostName, "doesnotexist", "$Default", EVENT_HUB_CONNECTION_STRING,
+                manager, manager, this.executor, null);
+        host.setPartitionManagerOptions(options);
+        manager.initialize(ManagerContextTestAccess.of(host));
+        return manager;
+    }
+}
@@ -0,0 +1,323 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost.asyncstorage;
+
+import com.microsoft.rest.v2.http.HttpClient;
+import com.microsoft.rest.v2.http.HttpHeader;
+import com.microsoft.rest.v2.http.HttpHeaders;
+import com.microsoft.rest.v2.http.HttpMethod;
+import com.microsoft.rest.v2.http.HttpRequest;
+import com.microsoft.rest.v2.http.HttpResponse;
+import com.microsoft.rest.v2.util.FlowableUtil;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A single in-memory blob container, answering the requests AzureStorageAsyncCheckpointLeaseManager sends. Listings are
+ * returned pageSize blobs at a time, so that they take several segments.
+ */
+final class FakeBlobService extends HttpClient {
+    private static final String DATE = "Mon, 01 Jan 2018 00:00:00 GMT";
+
+    private final int pageSize;
+    private final List<String> requestUrls = new ArrayList<String>();
+    private final TreeMap<String, Blob> blobs = new TreeMap<String, Blob>();
+    private boolean containerExists = false;
+    private int listRequests = 0;
+
+    FakeBlobService(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    synchronized List<String> requestUrls() {
+        return new ArrayList<String>(this.requestUrls);
+    }
+
+    synchronized int listRequests() {
+        return this.listRequests;
+    }
+
+    synchronized boolean containerExists() {
+        return this.containerExists;
+    }
+
+    synchronized String content(String blobName) {
+        Blob blob = this.blobs.get(blobName);
+        return (blob == null) ? null : new String(blob.content, StandardCharsets.UTF_8);
+    }
+
+    synchronized Map<String, String> metadata(String blobName) {
+        return this.blobs.get(blobName).metadata;
+    }
+
+    // As if another host had taken the lease over.
+    synchronized void stealLease(String blobName) {
+        this.blobs.get(blobName).leaseId = "stolen";
+    }
+
+    @Override
+    public Single<HttpResponse> sendRequestAsync(HttpRequest request) {
+        return FlowableUtil.collectBytesInArray((request.body() == null) ? Flowable.<ByteBuffer>empty() : request.body())
+                .map((body) -> handle(request, body));
+    }
+
+    private synchronized HttpResponse handle(HttpRequest request, byte[] body) throws UnsupportedEncodingException {
+        this.requestUrls.add(request.url().toString());
+
+        // path is /container or /container/blob/name
+        String path = URLDecoder.decode(request.url().getPath().replace("+", "%2B"), "UTF-8").substring(1);
+        int slash = path.indexOf('/');
+        String blobName = (slash < 0) ? null : path.substring(slash + 1);
+        Map<String, String> query = parseQuery(request.url().getQuery());
+        HttpMethod method = request.httpMethod();
+
+        if (blobName == null) {
+            if ("list".equals(query.get("comp"))) {
+                return list(query);
+            } else if (method == HttpMethod.PUT) {
+                if (this.containerExists) {
+                    return error(409, "ContainerAlreadyExists");
+                }
+                this.containerExists = true;
+                return response(201, new HttpHeaders(), null);
+            } else if (method == HttpMethod.DELETE) {
+                if (!this.containerExists) {
+                    return error(404, "ContainerNotFound");
+                }
+                this.containerExists = false;
+                this.blobs.clear();
+                return response(202, new HttpHeaders(), null);
+            }
+            return this.containerExists ? response(200, new HttpHeaders(), null) : error(404, "ContainerNotFound");
+        }
+
+        Blob blob = this.blobs.get(blobName);
+        String leaseId = request.headers().value("x-ms-lease-id");
+        if ("lease".equals(query.get("comp"))) {
+            return lease(blob, request.headers());
+        } else if (method == HttpMethod.PUT) {
+            if ("*".equals(request.headers().value("If-None-Match")) && (blob != null)) {
+                return error(409, "BlobAlreadyExists");
+            }
+            HttpResponse leaseError = checkLease(blob, leaseId);
+            if (leaseError != null) {
+                return leaseError;
+            }
+            Blob uploaded = new Blob(body, (blob == null) ? null : blob.leaseId);
+            for (HttpHeader header : request.headers()) {
+                if (header.name().toLowerCase().startsWith("x-ms-meta-")) {
+                    uploaded.metadata.put(header.name().substring("x-ms-meta-".length()), header.value());
+                }
+            }
+            this.blobs.put(blobName, uploaded);
+            return response(201, blobHeaders(uploaded), null);
+        } else if (blob == null) {
+            return error(404, "BlobNotFound");
+        } else if (method == HttpMethod.DELETE) {
+            HttpResponse leaseError = checkLease(blob, leaseId);
+            if (leaseError != null) {
+                return leaseError;
+            }
+            this.blobs.remove(blobName);
+            return response(202, new HttpHeaders(), null);
+        } else if (method == HttpMethod.HEAD) {
+            return response(200, blobHeaders(blob), null);
+        }
+        return response(200, blobHeaders(blob), blob.content);
+    }
+
+    private HttpResponse lease(Blob blob, HttpHeaders headers) {
+        if (blob == null) {
+            return error(404, "BlobNotFound");
+        }
+
+        String action = headers.value("x-ms-lease-action");
+        String leaseId = headers.value("x-ms-lease-id");
+        if ("acquire".equals(action)) {
+            if (blob.leaseId != null) {
+                return error(409, "LeaseAlreadyPresent");
+            }
+            blob.leaseId = headers.value("x-ms-proposed-lease-id");
+            return response(201, leaseHeaders(blob.leaseId), null);
+        }
+
+        if (blob.leaseId == null) {
+            return error(409, "LeaseNotPresentWithLeaseOperation");
+        } else if (!blob.leaseId.equals(leaseId)) {
+            return error(409, "LeaseIdMismatchWithLeaseOperation");
+        } else if ("change".equals(action)) {
+            blob.leaseId = headers.value("x-ms-proposed-lease-id");
+        } else if ("release".equals(action)) {
+            blob.leaseId = null;
+        }
+        return response(200, leaseHeaders(blob.leaseId), null);
+    }
+
+    private static HttpResponse checkLease(Blob blob, String leaseId) {
+        if ((blob == null) || (blob.leaseId == null)) {
+            return (leaseId == null) ? null : error(412, "LeaseNotPresentWithBlobOperation");
+        } else if (leaseId == null) {
+            return error(412, "LeaseIdMissing");
+        }
+        return blob.leaseId.equals(leaseId) ? null : error(412, "LeaseIdMismatchWithBlobOperation");
+    }
+
+    private HttpResponse list(Map<String, String> query) {
+        this.listRequests++;
+        if (!this.containerExists) {
+            return error(404, "ContainerNotFound");
+        }
+
+        String prefix = query.containsKey("prefix") ? query.get("prefix") : "";
+        String marker = query.get("marker");
+        boolean includeMetadata = (query.get("include") != null) && query.get("include").contains("metadata");
+
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><EnumerationResults><Blobs>");
+        String nextMarker = null;
+        int listed = 0;
+        for (Map.Entry<String, Blob> entry : this.blobs.tailMap((marker == null) ? "" : marker, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            if (listed == this.pageSize) {
+                nextMarker = entry.getKey();
+                break;
+            }
+            listed++;
+
+            Blob blob = entry.getValue();
+            xml.append("<Blob><Name>").append(entry.getKey()).append("</Name><Properties>")
+                    .append("<Last-Modified>").append(DATE).append("</Last-Modified><Etag>0x1</Etag>")
+                    .append("<Content-Length>").append(blob.content.length).append("</Content-Length>")
+                    .append("<BlobType>BlockBlob</BlobType>")
+                    .append("<LeaseStatus>").append((blob.leaseId == null) ? "unlocked" : "locked").append("</LeaseStatus>")
+                    .append("<LeaseState>").append((blob.leaseId == null) ? "available" : "leased").append("</LeaseState>")
+                    .append("</Properties>");
+            if (includeMetadata) {
+                xml.append("<Metadata>");
+                for (Map.Entry<String, String> metadata : blob.metadata.entrySet()) {
+                    xml.append('<').append(metadata.getKey()).append('>').append(metadata.getValue())
+                            .append("</").append(metadata.getKey()).append('>');
+                }
+                xml.append("</Metadata>");
+            }
+            xml.append("</Blob>");
+        }
+        xml.append("</Blobs><NextMarker>").append((nextMarker == null) ? "" : nextMarker).append("</NextMarker></EnumerationResults>");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/xml");
+        return response(200, headers, xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpHeaders blobHeaders(Blob blob) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("ETag", "\"0x1\"");
+        headers.set("Last-Modified", DATE);
+        headers.set("Content-Length", String.valueOf(blob.content.length));
+        headers.set("x-ms-blob-type", "BlockBlob");
+        headers.set("x-ms-lease-status", (blob.leaseId == null) ? "unlocked" : "locked");
+        headers.set("x-ms-lease-state", (blob.leaseId == null) ? "available" : "leased");
+        for (Map.Entry<String, String> metadata : blob.metadata.entrySet()) {
+            headers.set("x-ms-meta-" + metadata.getKey(), metadata.getValue());
+        }
+        return headers;
+    }
+
+    private static HttpHeaders leaseHeaders(String leaseId) {
+        HttpHeaders headers = new HttpHeaders();
+        if (leaseId != null) {
+            headers.set("x-ms-lease-id", leaseId);
+        }
+        return headers;
+    }
+
+    private static HttpResponse error(int statusCode, String errorCode) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ms-error-code", errorCode);
+        headers.set("Content-Type", "application/xml");
+        String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?><Error><Code>" + errorCode + "</Code><Message>" + errorCode + "</Message></Error>";
+        return response(statusCode, headers, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpResponse response(int statusCode, HttpHeaders headers, byte[] body) {
+        return new FakeResponse(statusCode, headers, (body == null) ? new byte[0] : body);
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parsed = new HashMap<String, String>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parsed.put(parameter.substring(0, separator), URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static final class Blob {
+        final byte[] content;
+        final Map<String, String> metadata = new TreeMap<String, String>();
+        String leaseId;
+
+        Blob(byte[] content, String leaseId) {
+            this.content = content;
+            this.leaseId = leaseId;
+        }
+    }
+
+    private static final class FakeResponse extends HttpResponse {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        FakeResponse(int statusCode, HttpHeaders headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return this.statusCode;
+        }
+
+        @Override
+        public String headerValue(String name) {
+            return this.headers.value(name);
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return this.headers;
+        }
+
+        @Override
+        public Flowable<ByteBuffer> body() {
+            return (this.body.length == 0) ? Flowable.<ByteBuffer>empty() : Flowable.just(ByteBuffer.wrap(this.body));
+        }
+
+        @Override
+        public Single<byte[]> bodyAsByteArray() {
+            return Single.just(this.body);
+        }
+
+        @Override
+        public Single<String> bodyAsString() {
+            return Single.just(new String(this.body, StandardCharsets.UTF_8));
+        }
+    }
+}
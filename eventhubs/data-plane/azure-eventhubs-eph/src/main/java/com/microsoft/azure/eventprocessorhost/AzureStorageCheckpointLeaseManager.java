@@ -186,7 +186,7 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
         CompletableFuture<Void> future = null;
 
         try {
-            if (updateLeaseInternal(updatedLease, this.checkpointOperationOptions)) {
+            if (uploadCheckpointInternal(updatedLease)) {
                 future = CompletableFuture.completedFuture(null);
             } else {
                 TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(lease, "Lease lost"));
@@ -618,6 +618,31 @@ class AzureStorageCheckpointLeaseManager implements ICheckpointManager, ILeaseMa
         return result;
     }
 
+    // A checkpoint is written with a single upload conditioned on the lease id: the service accepts it only while the
+    // lease is still held by this host, so there is no need to renew first. Keeping the lease alive is the job of the
+    // lease renewal in PartitionManager.
+    private boolean uploadCheckpointInternal(AzureBlobLease lease) throws StorageException, IOException {
+        String token = lease.getToken();
+        if ((token == null) || (token.length() == 0)) {
+            return false;
+        }
+
+        boolean result = true;
+        try {
+            uploadLease(lease, lease.getBlob(), AccessCondition.generateLeaseCondition(token), UploadActivity.Update, this.checkpointOperationOptions);
+        } catch (StorageException se) {
+            // Without the renew, an expired lease shows up here as no lease present rather than as a failed renew.
+            if (wasLeaseLost(se, lease.getPartitionId()) || ((se.getExtendedErrorInformation() != null)
+                    && StorageErrorCodeStrings.LEASE_NOT_PRESENT_WITH_BLOB_OPERATION.equals(se.getExtendedErrorInformation().getErrorCode()))) {
+                result = false;
+            } else {
+                throw se;
+            }
+        }
+
+        return result;
+    }
+
     private AzureBlobLease downloadLease(CloudBlockBlob blob, BlobRequestOptions options) throws StorageException, IOException {
         String jsonLease = blob.downloadText(null, null, options, null);
         TRACE_LOGGER.debug(this.hostContext.withHost("Raw JSON downloaded: " + jsonLease));
@@ -0,0 +1,395 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/***
+ * Append-only log of checkpoints in a memory-mapped file, shared by all the processes on the machine which use the
+ * same FileCheckpointLeaseManager directory.
+ * <p>
+ * Every update appends a record and then advances the write position in the file header, while holding a
+ * LocalFileLock, so a record is only ever seen complete. Each process keeps the latest checkpoint of every partition in
+ * memory and, before each read or append, replays the records other processes have appended since.
+ * <p>
+ * The log is a series of generations, each a file named after the log with the generation number appended; the one
+ * with the highest number is the current one. When it is full, it is marked as superseded, so that processes which
+ * still have it mapped switch to the next, and the latest checkpoints are then written to the next generation, twice
+ * as large as they need, so compaction happens every so many updates. A generation is never replaced or written after
+ * it is superseded - only deleted, once nobody has it mapped any more, as Windows does not delete a mapped file. Should
+ * the compacting process go down before the next generation is in place, the next process to find the current
+ * generation marked as superseded takes it back.
+ * <p>
+ * Writes to the mapped file survive the process crashing. They are forced to the disk at most syncIntervalInMillis
+ * after they are made - on the next append, or else by a sync scheduled on the host's executor - when the log is
+ * compacted, and when it is closed.
+ */
+final class CheckpointLog {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(CheckpointLog.class);
+    private static final int MAGIC = 0x45504843; // "EPHC"
+    private static final int VERSION = 1;
+    private static final int MAGIC_POSITION = 0;
+    private static final int VERSION_POSITION = 4;
+    private static final int SUPERSEDED_POSITION = 8;
+    private static final int WRITE_POSITION_POSITION = 16;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_OVERHEAD = 8; // payload length and checksum
+    private static final short TOMBSTONE = -1; // offset length of a record which deletes the checkpoint
+    private static final Pattern GENERATION_SUFFIX = Pattern.compile("[0-9]+");
+
+    private final Path file;
+    private final LocalFileLock lock;
+    private final int minimumCapacity;
+    private final long syncIntervalInMillis;
+    private final ScheduledExecutorService executor;
+    private final HashMap<String, Checkpoint> latest = new HashMap<String, Checkpoint>();
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer mapped = null;
+    private long generation = -1;
+    private int readPosition = HEADER_SIZE;
+    private long lastSyncMillis = 0;
+    private boolean unsynced = false;
+    private boolean syncScheduled = false;
+    private int compactions = 0;
+
+    CheckpointLog(Path file, LocalFileLock lock, int minimumCapacity, long syncIntervalInMillis, ScheduledExecutorService executor) {
+        this.file = file;
+        this.lock = lock;
+        this.minimumCapacity = minimumCapacity;
+        this.syncIntervalInMillis = syncIntervalInMillis;
+        this.executor = executor;
+    }
+
+    boolean exists() throws IOException {
+        return currentGeneration() >= 0;
+    }
+
+    synchronized void createIfNotExists() throws IOException {
+        this.lock.run(() -> {
+            if (currentGeneration() < 0) {
+                writeNewFile(0, new HashMap<String, Checkpoint>(), this.minimumCapacity);
+            }
+        });
+    }
+
+    synchronized void delete() throws IOException {
+        this.lock.run(() -> {
+            if (this.mapped != null) {
+                markSuperseded(this.mapped);
+                dropCurrent();
+            }
+            for (Path generationFile : generationFiles().values()) {
+                Files.deleteIfExists(generationFile);
+            }
+            Files.deleteIfExists(compactingFile());
+            this.latest.clear();
+        });
+    }
+
+    synchronized Checkpoint get(String partitionId) throws IOException {
+        return this.lock.call(() -> {
+            catchUp();
+            Checkpoint found = this.latest.get(partitionId);
+            return (found != null) ? new Checkpoint(found) : null;
+        });
+    }
+
+    synchronized void put(Checkpoint checkpoint) throws IOException {
+        if (checkpoint.getOffset() == null) {
+            throw new IllegalArgumentException("Checkpoint must have an offset");
+        }
+        append(checkpoint.getPartitionId(), checkpoint.getOffset(), checkpoint.getSequenceNumber());
+    }
+
+    synchronized void remove(String partitionId) throws IOException {
+        append(partitionId, null, 0);
+    }
+
+    synchronized void close() throws IOException {
+        if (this.mapped != null) {
+            this.mapped.force();
+            this.unsynced = false;
+            dropCurrent();
+        }
+    }
+
+    synchronized int getCompactionCount() {
+        return this.compactions;
+    }
+
+    private void append(String partitionId, String offset, long sequenceNumber) throws IOException {
+        byte[] partitionBytes = partitionId.getBytes(StandardCharsets.UTF_8);
+        byte[] offsetBytes = (offset != null) ? offset.getBytes(StandardCharsets.UTF_8) : null;
+        int payloadLength = 2 + partitionBytes.length + 8 + 2 + ((offsetBytes != null) ? offsetBytes.length : 0);
+
+        this.lock.run(() -> {
+            catchUp();
+            if (this.readPosition + RECORD_OVERHEAD + payloadLength > this.mapped.capacity()) {
+                compact(RECORD_OVERHEAD + payloadLength);
+            }
+
+            ByteBuffer record = this.mapped.duplicate();
+            record.position(this.readPosition + RECORD_OVERHEAD);
+            record.putShort((short) partitionBytes.length);
+            record.put(partitionBytes);
+            record.putLong(sequenceNumber);
+            if (offsetBytes != null) {
+                record.putShort((short) offsetBytes.length);
+                record.put(offsetBytes);
+            } else {
+                record.putShort(TOMBSTONE);
+            }
+            this.mapped.putInt(this.readPosition, payloadLength);
+            this.mapped.putInt(this.readPosition + 4, checksum(this.readPosition + RECORD_OVERHEAD, payloadLength));
+
+            // Only now is the record there for other processes to see.
+            this.readPosition += RECORD_OVERHEAD + payloadLength;
+            this.mapped.putLong(WRITE_POSITION_POSITION, this.readPosition);
+            apply(partitionId, offset, sequenceNumber);
+        });
+
+        this.unsynced = true;
+        long sinceSync = System.currentTimeMillis() - this.lastSyncMillis;
+        if (sinceSync >= this.syncIntervalInMillis) {
+            sync();
+        } else if (!this.syncScheduled) {
+            try {
+                this.executor.schedule(() -> syncScheduled(), this.syncIntervalInMillis - sinceSync, TimeUnit.MILLISECONDS);
+                this.syncScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // The host is shutting down, and will close the log, but do not count on it.
+                sync();
+            }
+        }
+    }
+
+    private synchronized void syncScheduled() {
+        this.syncScheduled = false;
+        sync();
+    }
+
+    // Needs no file lock: it only writes this process's view of the file to the disk.
+    private void sync() {
+        if (this.unsynced && (this.mapped != null)) {
+            this.mapped.force();
+        }
+        this.unsynced = false;
+        this.lastSyncMillis = System.currentTimeMillis();
+    }
+
+    // Called holding the lock. Maps the current generation if need be, then replays what other processes have
+    // appended.
+    private void catchUp() throws IOException {
+        if ((this.mapped != null) && (this.mapped.getInt(SUPERSEDED_POSITION) != 0)) {
+            // Compacted by another process, which has written what this process appended to the next generation.
+            dropCurrent();
+        }
+        if (this.mapped == null) {
+            long current = currentGeneration();
+            if (current < 0) {
+                throw new IOException("Checkpoint store does not exist: " + this.file);
+            }
+            this.mapped = map(generationFile(current));
+            this.generation = current;
+            this.latest.clear();
+            this.readPosition = HEADER_SIZE;
+            if (this.mapped.getInt(MAGIC_POSITION) != MAGIC) {
+                dropCurrent();
+                throw new IOException("Not a checkpoint log: " + generationFile(current));
+            }
+            if (this.mapped.getInt(SUPERSEDED_POSITION) != 0) {
+                TRACE_LOGGER.warn("Checkpoint log " + generationFile(current) + " was superseded by a compaction which did not finish, taking it back");
+                this.mapped.putInt(SUPERSEDED_POSITION, 0);
+                this.mapped.force();
+            }
+        }
+
+        int writePosition = (int) this.mapped.getLong(WRITE_POSITION_POSITION);
+        while (this.readPosition < writePosition) {
+            int payloadLength = this.mapped.getInt(this.readPosition);
+            int payloadPosition = this.readPosition + RECORD_OVERHEAD;
+            if ((payloadLength <= 0) || ((payloadPosition + payloadLength) > writePosition)
+                    || (this.mapped.getInt(this.readPosition + 4) != checksum(payloadPosition, payloadLength))) {
+                // Only possible if the machine went down before the file was forced to the disk.
+                TRACE_LOGGER.warn("Checkpoint log " + generationFile(this.generation) + " has a damaged record at " + this.readPosition + ", dropping the rest of the log");
+                this.mapped.putLong(WRITE_POSITION_POSITION, this.readPosition);
+                break;
+            }
+
+            ByteBuffer record = this.mapped.duplicate();
+            record.position(payloadPosition);
+            String partitionId = readString(record, record.getShort());
+            long sequenceNumber = record.getLong();
+            short offsetLength = record.getShort();
+            apply(partitionId, (offsetLength == TOMBSTONE) ? null : readString(record, offsetLength), sequenceNumber);
+            this.readPosition = payloadPosition + payloadLength;
+        }
+    }
+
+    private void compact(int roomNeeded) throws IOException {
+        int liveSize = HEADER_SIZE + roomNeeded;
+        for (Checkpoint checkpoint : this.latest.values()) {
+            liveSize += recordSize(checkpoint);
+        }
+        int capacity = this.minimumCapacity;
+        while (capacity < (2 * liveSize)) {
+            capacity *= 2;
+        }
+
+        // Superseded before the next generation exists, so no other process can append to this one after it is
+        // compacted; if this process goes down in between, the next one to map this generation takes it back.
+        long next = this.generation + 1;
+        markSuperseded(this.mapped);
+        dropCurrent();
+        writeNewFile(next, this.latest, capacity);
+
+        this.mapped = map(generationFile(next));
+        this.generation = next;
+        this.readPosition = (int) this.mapped.getLong(WRITE_POSITION_POSITION);
+        this.unsynced = false;
+        this.lastSyncMillis = System.currentTimeMillis();
+        this.compactions++;
+        TRACE_LOGGER.debug("Compacted checkpoint log " + this.file + " to " + this.latest.size() + " checkpoints, capacity " + capacity);
+
+        for (Map.Entry<Long, Path> older : generationFiles().headMap(next).entrySet()) {
+            try {
+                Files.deleteIfExists(older.getValue());
+            } catch (IOException e) {
+                // Still mapped on Windows - by another process, or by this one until the garbage collector releases
+                // the mapping. Deleted by a later compaction.
+                TRACE_LOGGER.debug("Could not delete superseded checkpoint log " + older.getValue(), e);
+            }
+        }
+    }
+
+    // Written to another file first and then renamed, so a generation is never seen incomplete.
+    private void writeNewFile(long newGeneration, Map<String, Checkpoint> checkpoints, int capacity) throws IOException {
+        Path compacting = compactingFile();
+        Files.deleteIfExists(compacting);
+        try (FileChannel channel = FileChannel.open(compacting, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            int position = HEADER_SIZE;
+            for (Checkpoint checkpoint : checkpoints.values()) {
+                byte[] partitionBytes = checkpoint.getPartitionId().getBytes(StandardCharsets.UTF_8);
+                byte[] offsetBytes = checkpoint.getOffset().getBytes(StandardCharsets.UTF_8);
+                int payloadLength = 2 + partitionBytes.length + 8 + 2 + offsetBytes.length;
+                buffer.position(position + RECORD_OVERHEAD);
+                buffer.putShort((short) partitionBytes.length);
+                buffer.put(partitionBytes);
+                buffer.putLong(checkpoint.getSequenceNumber());
+                buffer.putShort((short) offsetBytes.length);
+                buffer.put(offsetBytes);
+                buffer.putInt(position, payloadLength);
+                buffer.putInt(position + 4, checksum(buffer, position + RECORD_OVERHEAD, payloadLength));
+                position += RECORD_OVERHEAD + payloadLength;
+            }
+            buffer.putInt(MAGIC_POSITION, MAGIC);
+            buffer.putInt(VERSION_POSITION, VERSION);
+            buffer.putInt(SUPERSEDED_POSITION, 0);
+            buffer.putLong(WRITE_POSITION_POSITION, position);
+            buffer.force();
+        }
+        Files.move(compacting, generationFile(newGeneration), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path generationFile(long fileGeneration) {
+        return this.file.resolveSibling(this.file.getFileName() + "." + fileGeneration);
+    }
+
+    private Path compactingFile() {
+        return this.file.resolveSibling(this.file.getFileName() + ".compacting");
+    }
+
+    private long currentGeneration() throws IOException {
+        TreeMap<Long, Path> generations = generationFiles();
+        return generations.isEmpty() ? -1 : generations.lastKey();
+    }
+
+    private TreeMap<Long, Path> generationFiles() throws IOException {
+        TreeMap<Long, Path> generations = new TreeMap<Long, Path>();
+        String prefix = this.file.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.file.getParent(), prefix + "*")) {
+            for (Path generationFile : files) {
+                String suffix = generationFile.getFileName().toString().substring(prefix.length());
+                if (GENERATION_SUFFIX.matcher(suffix).matches()) {
+                    generations.put(Long.parseLong(suffix), generationFile);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No directory, no log.
+        }
+        return generations;
+    }
+
+    // The mapping itself is released when the buffer is garbage collected: unmapping it by hand would crash the JVM
+    // on any later access to the buffer, rather than throw.
+    private void dropCurrent() {
+        this.mapped = null;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    private static void markSuperseded(MappedByteBuffer buffer) {
+        buffer.putInt(SUPERSEDED_POSITION, 1);
+        buffer.force();
+    }
+
+    private void apply(String partitionId, String offset, long sequenceNumber) {
+        if (offset == null) {
+            this.latest.remove(partitionId);
+        } else {
+            this.latest.put(partitionId, new Checkpoint(partitionId, offset, sequenceNumber));
+        }
+    }
+
+    private static int recordSize(Checkpoint checkpoint) {
+        return RECORD_OVERHEAD + 2 + checkpoint.getPartitionId().getBytes(StandardCharsets.UTF_8).length + 8 + 2
+                + checkpoint.getOffset().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int position, int length) {
+        return checksum(this.mapped, position, length);
+    }
+
+    private int checksum(ByteBuffer buffer, int position, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(position);
+        payload.limit(position + length);
+        this.crc.reset();
+        this.crc.update(payload);
+        return (int) this.crc.getValue();
+    }
+}
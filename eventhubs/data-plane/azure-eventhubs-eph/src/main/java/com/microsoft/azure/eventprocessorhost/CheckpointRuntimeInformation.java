@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/***
+ * Checkpointing progress of a partition - how far the persisted checkpoint lags behind the events received, and how
+ * the checkpoint writes are doing. Available from PartitionContext.getCheckpointRuntimeInformation().
+ */
+public final class CheckpointRuntimeInformation {
+    private final String partitionId;
+
+    private volatile long lastReceivedSequenceNumber = -1;
+    private volatile long lastRequestedSequenceNumber = -1;
+    private volatile long lastPersistedSequenceNumber = -1;
+    private volatile Instant lastPersistedTime = null;
+    private volatile Duration lastWriteDuration = Duration.ZERO;
+    private volatile long writeCount = 0;
+    private volatile long coalescedCount = 0;
+    private volatile long failedWriteCount = 0;
+
+    CheckpointRuntimeInformation(String partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    /***
+     * Get the id of the partition this information belongs to.
+     *
+     * @return partition id
+     */
+    public String getPartitionId() {
+        return this.partitionId;
+    }
+
+    /***
+     * Get the sequence number of the last event handed to the event processor, or -1 if none yet.
+     *
+     * @return last received sequence number
+     */
+    public long getLastReceivedSequenceNumber() {
+        return this.lastReceivedSequenceNumber;
+    }
+
+    /***
+     * Get the sequence number of the latest checkpoint asked for, or -1 if none yet.
+     *
+     * @return last requested checkpoint sequence number
+     */
+    public long getLastRequestedSequenceNumber() {
+        return this.lastRequestedSequenceNumber;
+    }
+
+    /***
+     * Get the sequence number of the latest checkpoint written to the store by this host, or -1 if none yet.
+     *
+     * @return last persisted checkpoint sequence number
+     */
+    public long getLastPersistedSequenceNumber() {
+        return this.lastPersistedSequenceNumber;
+    }
+
+    /***
+     * Get the number of received events past the last persisted checkpoint - the events which would be processed
+     * again if processing of the partition restarted now. Counts from the first received event until a checkpoint
+     * has been persisted.
+     *
+     * @return checkpoint lag in events
+     */
+    public long getLagInEvents() {
+        long received = this.lastReceivedSequenceNumber;
+        if (received < 0) {
+            return 0;
+        }
+
+        long persisted = this.lastPersistedSequenceNumber;
+        return Math.max(0, persisted < 0 ? received + 1 : received - persisted);
+    }
+
+    /***
+     * Get the time the last checkpoint write by this host completed successfully, or null if none yet.
+     *
+     * @return time of the last persisted checkpoint
+     */
+    public Instant getLastPersistedTime() {
+        return this.lastPersistedTime;
+    }
+
+    /***
+     * Get how long the last checkpoint write took, successful or not.
+     *
+     * @return duration of the last checkpoint write
+     */
+    public Duration getLastWriteDuration() {
+        return this.lastWriteDuration;
+    }
+
+    /***
+     * Get the number of checkpoint writes made, successful or not.
+     *
+     * @return number of checkpoint writes
+     */
+    public long getWriteCount() {
+        return this.writeCount;
+    }
+
+    /***
+     * Get the number of checkpoints which were not written because a later checkpoint replaced them before their write.
+     *
+     * @return number of coalesced checkpoints
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount;
+    }
+
+    /***
+     * Get the number of checkpoint writes which failed.
+     *
+     * @return number of failed checkpoint writes
+     */
+    public long getFailedWriteCount() {
+        return this.failedWriteCount;
+    }
+
+    void setLastReceivedSequenceNumber(long sequenceNumber) {
+        this.lastReceivedSequenceNumber = sequenceNumber;
+    }
+
+    // Called by CheckpointWriter under its lock, hence the unsynchronized read-modify-writes.
+    void onRequested(long sequenceNumber, boolean coalesced) {
+        this.lastRequestedSequenceNumber = sequenceNumber;
+        if (coalesced) {
+            this.coalescedCount++;
+        }
+    }
+
+    void onWritten(long sequenceNumber, Duration writeDuration, boolean succeeded) {
+        this.writeCount++;
+        this.lastWriteDuration = writeDuration;
+        if (succeeded) {
+            this.lastPersistedSequenceNumber = sequenceNumber;
+            this.lastPersistedTime = Instant.now();
+        } else {
+            this.failedWriteCount++;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Writes the checkpoints of one partition through the checkpoint manager, at most one write at a time.
+ * <p>
+ * A checkpoint asked for while a write is in progress, or sooner than the checkpoint interval after the last write
+ * started, waits; if another one comes along meanwhile it replaces the waiting one, as only the latest position
+ * matters. Every caller's future completes with the result of the write which covered its checkpoint.
+ * With an interval of 0 a write starts right away on the calling thread whenever no other write is in progress,
+ * which is what checkpointing did before there was a writer. Otherwise writes are started from the host's executor.
+ */
+final class CheckpointWriter {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(CheckpointWriter.class);
+
+    private final HostContext hostContext;
+    private final String partitionId;
+    private final long intervalInNanos;
+    private final CheckpointRuntimeInformation runtimeInformation;
+    private final Object stateLock = new Object();
+
+    // Guarded by stateLock.
+    private CompleteLease pendingLease = null;
+    private Checkpoint pendingCheckpoint = null;
+    private List<CompletableFuture<Void>> pendingFutures = new ArrayList<CompletableFuture<Void>>();
+    private boolean writing = false;
+    private long lastWriteStartNanos = 0;
+    private boolean written = false;
+
+    CheckpointWriter(HostContext hostContext, String partitionId, int intervalInMillis, CheckpointRuntimeInformation runtimeInformation) {
+        this.hostContext = hostContext;
+        this.partitionId = partitionId;
+        this.intervalInNanos = TimeUnit.MILLISECONDS.toNanos(intervalInMillis);
+        this.runtimeInformation = runtimeInformation;
+    }
+
+    CompletableFuture<Void> write(CompleteLease lease, Checkpoint checkpoint) {
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        boolean startWrite = false;
+        synchronized (this.stateLock) {
+            this.runtimeInformation.onRequested(checkpoint.getSequenceNumber(), this.pendingCheckpoint != null);
+            this.pendingLease = lease;
+            this.pendingCheckpoint = checkpoint;
+            this.pendingFutures.add(result);
+            if (!this.writing) {
+                this.writing = true;
+                startWrite = true;
+            }
+        }
+
+        if (startWrite) {
+            scheduleWrite();
+        }
+
+        return result;
+    }
+
+    // Only ever called by whoever set writing, so there is one write - or one scheduled write - at a time.
+    private void scheduleWrite() {
+        long delayInNanos = 0;
+        if (this.intervalInNanos > 0) {
+            synchronized (this.stateLock) {
+                if (this.written) {
+                    delayInNanos = this.lastWriteStartNanos + this.intervalInNanos - System.nanoTime();
+                }
+            }
+        }
+
+        if (this.intervalInNanos == 0) {
+            startWrite();
+        } else {
+            try {
+                this.hostContext.getExecutor().schedule(this::startWrite, Math.max(0, delayInNanos), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(this.partitionId, "Could not schedule checkpoint write"), e);
+                List<CompletableFuture<Void>> failed = null;
+                synchronized (this.stateLock) {
+                    failed = takePending();
+                    this.writing = false;
+                }
+                Exception wrapped = LoggingUtils.wrapException(e, EventProcessorHostActionStrings.UPDATING_CHECKPOINT);
+                for (CompletableFuture<Void> future : failed) {
+                    future.completeExceptionally(wrapped);
+                }
+            }
+        }
+    }
+
+    private void startWrite() {
+        CompleteLease lease = null;
+        Checkpoint checkpoint = null;
+        List<CompletableFuture<Void>> futures = null;
+        long startNanos = System.nanoTime();
+        synchronized (this.stateLock) {
+            lease = this.pendingLease;
+            checkpoint = this.pendingCheckpoint;
+            futures = takePending();
+            this.lastWriteStartNanos = startNanos;
+            this.written = true;
+        }
+
+        if (futures.size() > 1) {
+            TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(this.partitionId,
+                    "Coalesced " + futures.size() + " checkpoints into " + checkpoint.getOffset() + "//" + checkpoint.getSequenceNumber()));
+        }
+
+        CompletableFuture<Void> writeFuture = null;
+        try {
+            writeFuture = this.hostContext.getCheckpointManager().updateCheckpoint(lease, checkpoint);
+        } catch (Exception e) {
+            writeFuture = new CompletableFuture<Void>();
+            writeFuture.completeExceptionally(LoggingUtils.wrapException(e, EventProcessorHostActionStrings.UPDATING_CHECKPOINT));
+        }
+
+        final Checkpoint writtenCheckpoint = checkpoint;
+        final List<CompletableFuture<Void>> writtenFutures = futures;
+        writeFuture.whenComplete((empty, e) -> onWriteComplete(writtenCheckpoint, writtenFutures, startNanos, e));
+    }
+
+    private void onWriteComplete(Checkpoint checkpoint, List<CompletableFuture<Void>> futures, long startNanos, Throwable error) {
+        boolean writeAgain = false;
+        synchronized (this.stateLock) {
+            this.runtimeInformation.onWritten(checkpoint.getSequenceNumber(), Duration.ofNanos(System.nanoTime() - startNanos), error == null);
+            if (this.pendingCheckpoint != null) {
+                writeAgain = true;
+            } else {
+                this.writing = false;
+            }
+        }
+
+        for (CompletableFuture<Void> future : futures) {
+            if (error == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+
+        if (writeAgain) {
+            scheduleWrite();
+        }
+    }
+
+    // Must be called with stateLock held.
+    private List<CompletableFuture<Void>> takePending() {
+        List<CompletableFuture<Void>> taken = this.pendingFutures;
+        this.pendingFutures = new ArrayList<CompletableFuture<Void>>();
+        this.pendingLease = null;
+        this.pendingCheckpoint = null;
+        return taken;
+    }
+}
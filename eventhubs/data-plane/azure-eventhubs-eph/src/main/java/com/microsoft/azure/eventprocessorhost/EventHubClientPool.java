@@ -0,0 +1,201 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/***
+ * Small, fixed-size set of EventHubClients - and hence AMQP connections - shared by all the partition pumps of a host.
+ * Each pump still gets its own AMQP session and receiver link on the shared connection, so a receiver failure only
+ * affects the pump which owns it. A pump borrows the least used client; clients are created on first use and stay
+ * open until the pool is closed, so partitions moving between hosts don't pay for a new connection.
+ *
+ * Every connection has one reactor thread, which all the pumps sharing it take turns on. A pool size of 0 gives every
+ * pump a dedicated client instead, created when it is borrowed and closed when it is given back.
+ */
+class EventHubClientPool {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(EventHubClientPool.class);
+    private final HostContext hostContext;
+    private final PooledClient[] pooledClients;
+    private final List<CompletableFuture<EventHubClient>> dedicatedClients; // guarded by pooledClients
+    private boolean isClosed = false; // guarded by pooledClients
+
+    EventHubClientPool(HostContext hostContext, int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Pool size must not be negative");
+        }
+
+        this.hostContext = hostContext;
+        this.pooledClients = new PooledClient[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            this.pooledClients[i] = new PooledClient(i);
+        }
+        this.dedicatedClients = new ArrayList<CompletableFuture<EventHubClient>>();
+    }
+
+    /***
+     * Borrows a client. The returned future is private to the caller - cancelling it doesn't affect the other borrowers
+     * of the same client. Every client obtained from here must be given back via release.
+     *
+     * @return future which completes with the client, or exceptionally if the client could not be created
+     */
+    CompletableFuture<EventHubClient> acquire() {
+        final PooledClient pooledClient;
+        final CompletableFuture<EventHubClient> sharedFuture;
+        synchronized (this.pooledClients) {
+            if (this.isClosed) {
+                final CompletableFuture<EventHubClient> closedFuture = new CompletableFuture<EventHubClient>();
+                closedFuture.completeExceptionally(new IllegalStateException("EventHubClient pool is closed"));
+                return closedFuture;
+            }
+
+            if (this.pooledClients.length == 0) {
+                return acquireDedicated();
+            }
+
+            PooledClient leastUsed = this.pooledClients[0];
+            for (PooledClient candidate : this.pooledClients) {
+                if (candidate.references < leastUsed.references) {
+                    leastUsed = candidate;
+                }
+            }
+
+            pooledClient = leastUsed;
+            if (pooledClient.clientFuture == null || pooledClient.clientFuture.isCompletedExceptionally()) {
+                TRACE_LOGGER.info(this.hostContext.withHost("Creating pooled EH client " + pooledClient.index));
+                pooledClient.clientFuture = createClientTestHook();
+            }
+
+            pooledClient.references++;
+            sharedFuture = pooledClient.clientFuture;
+        }
+
+        final CompletableFuture<EventHubClient> borrowedFuture = sharedFuture.thenApply((client) -> client);
+        borrowedFuture.whenComplete((client, e) -> {
+            if (e != null) {
+                // the borrower never gets the client, so it can't give it back
+                releaseReference(pooledClient);
+            }
+        });
+
+        return borrowedFuture;
+    }
+
+    // guarded by pooledClients
+    private CompletableFuture<EventHubClient> acquireDedicated() {
+        final CompletableFuture<EventHubClient> clientFuture = createClientTestHook();
+        this.dedicatedClients.add(clientFuture);
+
+        final CompletableFuture<EventHubClient> borrowedFuture = clientFuture.thenApply((client) -> client);
+        borrowedFuture.whenComplete((client, e) -> {
+            if (e != null) {
+                synchronized (this.pooledClients) {
+                    this.dedicatedClients.remove(clientFuture);
+                }
+            }
+        });
+
+        return borrowedFuture;
+    }
+
+    /***
+     * Gives back a client obtained from acquire. A pooled client stays open for the next borrower; a dedicated client
+     * is closed.
+     *
+     * @param client client to give back
+     */
+    void release(EventHubClient client) {
+        synchronized (this.pooledClients) {
+            for (PooledClient pooledClient : this.pooledClients) {
+                if (pooledClient.clientFuture != null && pooledClient.clientFuture.getNow(null) == client) {
+                    pooledClient.references--;
+                    return;
+                }
+            }
+
+            for (CompletableFuture<EventHubClient> dedicatedClient : this.dedicatedClients) {
+                if (dedicatedClient.getNow(null) == client) {
+                    this.dedicatedClients.remove(dedicatedClient);
+                    closeClient(dedicatedClient, "dedicated");
+                    return;
+                }
+            }
+        }
+
+        TRACE_LOGGER.debug(this.hostContext.withHost("Released EH client does not belong to the pool"));
+    }
+
+    /***
+     * Closes all the clients, pooled or dedicated. Any pumps still using them see their receivers fail.
+     *
+     * @return future which completes once all clients are closed; never completes exceptionally
+     */
+    CompletableFuture<Void> close() {
+        final List<CompletableFuture<Void>> closing = new ArrayList<CompletableFuture<Void>>();
+        synchronized (this.pooledClients) {
+            this.isClosed = true;
+            for (PooledClient pooledClient : this.pooledClients) {
+                if (pooledClient.clientFuture != null) {
+                    closing.add(closeClient(pooledClient.clientFuture, "pooled " + pooledClient.index));
+                    pooledClient.clientFuture = null;
+                }
+            }
+
+            for (CompletableFuture<EventHubClient> dedicatedClient : this.dedicatedClients) {
+                closing.add(closeClient(dedicatedClient, "dedicated"));
+            }
+            this.dedicatedClients.clear();
+        }
+
+        return CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[closing.size()]));
+    }
+
+    private CompletableFuture<Void> closeClient(CompletableFuture<EventHubClient> clientFuture, String description) {
+        return clientFuture
+                .thenComposeAsync((client) -> client.close(), this.hostContext.getExecutor())
+                .handleAsync((empty, e) -> {
+                    if (e != null) {
+                        TRACE_LOGGER.warn(this.hostContext.withHost("Closing " + description + " EH client failed."),
+                                LoggingUtils.unwrapException(e, null));
+                    }
+                    return null; // stop propagation of exceptions
+                }, this.hostContext.getExecutor());
+    }
+
+    CompletableFuture<EventHubClient> createClientTestHook() {
+        CompletableFuture<EventHubClient> clientFuture = null;
+        try {
+            clientFuture = EventHubClient.create(this.hostContext.getEventHubConnectionString(),
+                    this.hostContext.getRetryPolicy(), this.hostContext.getExecutor());
+        } catch (EventHubException | IOException e) {
+            clientFuture = new CompletableFuture<EventHubClient>();
+            clientFuture.completeExceptionally(e);
+        }
+        return clientFuture;
+    }
+
+    private void releaseReference(PooledClient pooledClient) {
+        synchronized (this.pooledClients) {
+            pooledClient.references--;
+        }
+    }
+
+    private static final class PooledClient {
+        private final int index;
+        private CompletableFuture<EventHubClient> clientFuture = null;
+        private int references = 0;
+
+        PooledClient(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -485,12 +485,37 @@ public final class EventProcessorHost {
                 throw new RuntimeException("Failure initializing Storage lease manager", e);
             }
         }
+        initializeHostAwareManager(this.hostContext.getLeaseManager());
+        if (this.hostContext.getCheckpointManager() != this.hostContext.getLeaseManager()) {
+            initializeHostAwareManager(this.hostContext.getCheckpointManager());
+        }
 
         TRACE_LOGGER.info(this.hostContext.withHost("Starting event processing."));
 
         return this.partitionManager.initialize();
     }
 
+    private void initializeHostAwareManager(Object manager) {
+        if (manager instanceof IHostAwareManager) {
+            try {
+                ((IHostAwareManager) manager).initialize(new ManagerContext(this.hostContext));
+            } catch (Exception e) {
+                TRACE_LOGGER.error(this.hostContext.withHost("Failure initializing " + manager.getClass().getName()));
+                throw new RuntimeException("Failure initializing lease or checkpoint manager", e);
+            }
+        }
+    }
+
+    private void closeHostAwareManager(Object manager) {
+        if (manager instanceof IHostAwareManager) {
+            try {
+                ((IHostAwareManager) manager).close();
+            } catch (Exception e) {
+                TRACE_LOGGER.warn(this.hostContext.withHost("Failure closing " + manager.getClass().getName()), e);
+            }
+        }
+    }
+
     /**
      * Stop processing events and shut down this host instance.
      *
@@ -503,6 +528,12 @@ public final class EventProcessorHost {
             // PartitionManager is created in constructor. If this object exists, then
             // this.partitionManager is not null.
             this.unregistered = this.partitionManager.stopPartitions();
+            this.unregistered = this.unregistered.whenCompleteAsync((empty, e) -> {
+                closeHostAwareManager(this.hostContext.getLeaseManager());
+                if (this.hostContext.getCheckpointManager() != this.hostContext.getLeaseManager()) {
+                    closeHostAwareManager(this.hostContext.getCheckpointManager());
+                }
+            }, this.executorService);
 
             // If we own the executor, stop it also.
             // Owned executor is also created in constructor.
@@ -19,6 +19,7 @@ public final class EventProcessorHostActionStrings {
     public static final String CREATING_EVENT_PROCESSOR = "Creating Event Processor";
     public static final String CREATING_LEASES = "Creating Leases";
     public static final String CREATING_LEASE_STORE = "Creating Lease Store";
+    public static final String DELETING_CHECKPOINT_STORE = "Deleting Checkpoint Store";
     public static final String DELETING_LEASE = "Deleting Lease";
     public static final String GETTING_CHECKPOINT = "Getting Checkpoint Details";
     public static final String GETTING_LEASE = "Getting Lease Details";
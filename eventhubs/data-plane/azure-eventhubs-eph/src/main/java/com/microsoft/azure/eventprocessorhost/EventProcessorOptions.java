@@ -8,6 +8,7 @@ import com.microsoft.azure.eventhubs.PartitionReceiver;
 
 import java.time.Duration;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -21,6 +22,9 @@ public final class EventProcessorOptions {
     private int maxBatchSize = 10;
     private int prefetchCount = 300;
     private Duration receiveTimeOut = Duration.ofMinutes(1);
+    private int maxConcurrentProcessing = 0;
+    private int maxQueuedBatchesPerPartition = 2;
+    private ExecutorService processingExecutor = null;
     private Function<String, EventPosition> initialPositionProvider = (partitionId) -> {
         return EventPosition.fromStartOfStream();
     };
@@ -39,6 +43,9 @@ public final class EventProcessorOptions {
      * InitialPositionProvider: uses the last checkpoint, or START_OF_STREAM
      * InvokeProcessorAfterReceiveTimeout: false
      * ReceiverRuntimeMetricEnabled: false
+     * MaxConcurrentProcessing: 0 (onEvents is called on the receive threads)
+     * MaxQueuedBatchesPerPartition: 2
+     * ProcessingExecutor: null
      * </pre>
      *
      * @return an EventProcessorOptions instance with all options set to the default values
@@ -202,6 +209,82 @@ public final class EventProcessorOptions {
         this.receiverRuntimeMetricEnabled = value;
     }
 
+    /**
+     * Returns the maximum number of partitions whose IEventProcessor.onEvents calls run at the same time, or 0 if
+     * onEvents is called directly on the thread which received the batch.
+     *
+     * @return the maximum number of concurrent onEvents calls, or 0
+     */
+    public int getMaxConcurrentProcessing() {
+        return this.maxConcurrentProcessing;
+    }
+
+    /**
+     * Sets the maximum number of partitions whose IEventProcessor.onEvents calls run at the same time.
+     * <p>
+     * With the default of 0, onEvents is called on the thread which received the batch, which is shared with the
+     * receives of other partitions and with lease management. Above 0, the calls are handed to a worker pool of this
+     * size instead, so that CPU-heavy processing cannot hold up receiving or lease renewal, and a slow partition can
+     * only hold up the others by taking one of the workers. Calls for one partition are still made one at a time and
+     * in the order the events were received.
+     *
+     * @param maxConcurrentProcessing the maximum number of concurrent onEvents calls, or 0
+     */
+    public void setMaxConcurrentProcessing(int maxConcurrentProcessing) {
+        if (maxConcurrentProcessing < 0) {
+            throw new IllegalArgumentException("MaxConcurrentProcessing must not be negative");
+        }
+        this.maxConcurrentProcessing = maxConcurrentProcessing;
+    }
+
+    /**
+     * Returns how many received batches may wait for onEvents per partition when MaxConcurrentProcessing is above 0.
+     *
+     * @return the maximum number of waiting batches per partition
+     */
+    public int getMaxQueuedBatchesPerPartition() {
+        return this.maxQueuedBatchesPerPartition;
+    }
+
+    /**
+     * Sets how many received batches may wait for onEvents per partition when MaxConcurrentProcessing is above 0.
+     * When a partition has this many batches waiting, receiving from it pauses until onEvents catches up, and the
+     * events stay in the prefetch buffer. PartitionContext.getQueuedBatchCount shows the current count.
+     * <p>
+     * The default is 2.
+     *
+     * @param maxQueuedBatchesPerPartition the maximum number of waiting batches per partition, at least 1
+     */
+    public void setMaxQueuedBatchesPerPartition(int maxQueuedBatchesPerPartition) {
+        if (maxQueuedBatchesPerPartition < 1) {
+            throw new IllegalArgumentException("MaxQueuedBatchesPerPartition must be at least 1");
+        }
+        this.maxQueuedBatchesPerPartition = maxQueuedBatchesPerPartition;
+    }
+
+    /**
+     * Returns the user-supplied executor which runs onEvents when MaxConcurrentProcessing is above 0, or null.
+     *
+     * @return the processing executor, or null
+     */
+    public ExecutorService getProcessingExecutor() {
+        return this.processingExecutor;
+    }
+
+    /**
+     * Sets the executor which runs onEvents when MaxConcurrentProcessing is above 0. The host never runs more than
+     * MaxConcurrentProcessing tasks on it at a time, and does not shut it down. This allows, for example, an executor
+     * which runs each task on a new virtual thread.
+     * <p>
+     * The default is null, in which case the host creates a fixed pool of MaxConcurrentProcessing threads, which it
+     * shuts down when it is unregistered.
+     *
+     * @param processingExecutor the processing executor, or null
+     */
+    public void setProcessingExecutor(ExecutorService processingExecutor) {
+        this.processingExecutor = processingExecutor;
+    }
+
     void notifyOfException(String hostname, Exception exception, String action) {
         notifyOfException(hostname, exception, action, ExceptionReceivedEventArgs.NO_ASSOCIATED_PARTITION);
     }
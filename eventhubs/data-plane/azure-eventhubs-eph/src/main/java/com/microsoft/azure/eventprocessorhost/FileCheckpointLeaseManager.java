@@ -0,0 +1,513 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/***
+ * Lease and checkpoint manager which keeps leases and checkpoints in files in a local directory, for hosts which all
+ * run on one machine - a single host, or tests - and do not want to pay the latency of a remote store for every
+ * checkpoint. Unlike InMemoryLeaseManager and InMemoryCheckpointManager, the leases and checkpoints survive the
+ * process, and are shared by every process using the same directory.
+ * <p>
+ * Checkpoints are appended to a memory-mapped log, which is compacted when it fills up, so an update costs a lock, a
+ * read of the lease table version to make sure the lease table this process has cached is current - it is re-read
+ * only when another lease operation rewrote it - and a memory write rather than a file write: tens of thousands of
+ * checkpoints per second are no problem. They survive a crash of the process at once, and a crash of the
+ * machine once forced to the disk, which happens at most checkpointSyncIntervalInMillis after the update.
+ * <p>
+ * Leases live in a small table which is rewritten, under an exclusive file lock, each time a lease is acquired, renewed
+ * or released. A lease expires if it is not renewed within the lease duration, like a blob lease. The leases of all the
+ * partitions a host owns are renewed with one rewrite, as this manager is an IBulkLeaseManager.
+ * <p>
+ * The files for a consumer group are kept in a directory named after the event hub and the consumer group under the
+ * given directory. Pass an instance as both the checkpoint manager and the lease manager to the EventProcessorHost
+ * constructor; the host initializes it when the event processor is registered. The directory must be on a local file
+ * system, as file locks are not dependable on network file systems.
+ */
+public final class FileCheckpointLeaseManager implements ICheckpointManager, IBulkLeaseManager, IHostAwareManager {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(FileCheckpointLeaseManager.class);
+    private static final String LOCK_FILE_NAME = "store.lock";
+    private static final String LEASE_TABLE_NAME = "leases.json";
+    private static final String LEASE_VERSION_NAME = "leases.version";
+    private static final String CHECKPOINT_LOG_NAME = "checkpoints.log";
+    private static final long LEASE_LOCK_REGION = 0;
+    private static final long CHECKPOINT_LOCK_REGION = 1;
+    private static final int DEFAULT_LOG_CAPACITY = 1024 * 1024;
+    private static final long DEFAULT_CHECKPOINT_SYNC_INTERVAL_IN_MILLIS = 1000;
+
+    private final Path baseDirectory;
+    private final int logCapacity;
+    private final long checkpointSyncIntervalInMillis;
+    private final Gson gson = new Gson();
+    // Token of each lease this host holds, as far as it knows, so that a checkpoint update can be refused without
+    // reading the lease table if the lease has been lost.
+    private final ConcurrentHashMap<String, String> heldTokens = new ConcurrentHashMap<String, String>();
+    private HostContext hostContext;
+    private Path storeDirectory;
+    private LocalFileLock leaseLock;
+    private LocalFileLock checkpointLock;
+    private CheckpointLog checkpointLog;
+    // The lease table as last read or written by this manager, and the version of the table it is. Only used holding
+    // the lease lock.
+    private FileChannel leaseVersionChannel;
+    private TreeMap<String, FileLease> cachedLeaseTable = null;
+    private long cachedLeaseVersion = -1;
+
+    /***
+     * Create a manager which stores leases and checkpoints under the given directory, forcing checkpoints to the disk
+     * at most a second after they are made.
+     *
+     * @param directory directory for the lease and checkpoint files, created if it does not exist
+     */
+    public FileCheckpointLeaseManager(String directory) {
+        this(directory, DEFAULT_CHECKPOINT_SYNC_INTERVAL_IN_MILLIS);
+    }
+
+    /***
+     * Create a manager which stores leases and checkpoints under the given directory.
+     *
+     * @param directory                      directory for the lease and checkpoint files, created if it does not exist
+     * @param checkpointSyncIntervalInMillis how long a checkpoint may stay in memory before being forced to the disk,
+     *                                       0 to force every checkpoint as it is made
+     */
+    public FileCheckpointLeaseManager(String directory, long checkpointSyncIntervalInMillis) {
+        this(directory, checkpointSyncIntervalInMillis, DEFAULT_LOG_CAPACITY);
+    }
+
+    // For testing, so that a few updates are enough to compact the log.
+    FileCheckpointLeaseManager(String directory, long checkpointSyncIntervalInMillis, int logCapacity) {
+        if ((directory == null) || directory.trim().isEmpty()) {
+            throw new IllegalArgumentException("Provide a directory for the lease and checkpoint files");
+        }
+        if (checkpointSyncIntervalInMillis < 0) {
+            throw new IllegalArgumentException("Checkpoint sync interval must not be negative");
+        }
+        this.baseDirectory = Paths.get(directory);
+        this.checkpointSyncIntervalInMillis = checkpointSyncIntervalInMillis;
+        this.logCapacity = logCapacity;
+    }
+
+    /***
+     * Called by the host when the event processor is registered.
+     *
+     * @param context Details of the host
+     * @throws IOException If the directory or the lock file cannot be created
+     */
+    @Override
+    public void initialize(ManagerContext context) throws IOException {
+        this.hostContext = context.getHostContext();
+        this.storeDirectory = this.baseDirectory.resolve(this.hostContext.getEventHubPath()).resolve(this.hostContext.getConsumerGroupName());
+        Files.createDirectories(this.storeDirectory);
+        Path lockFile = this.storeDirectory.resolve(LOCK_FILE_NAME);
+        this.leaseLock = new LocalFileLock(lockFile, LEASE_LOCK_REGION);
+        this.checkpointLock = new LocalFileLock(lockFile, CHECKPOINT_LOCK_REGION);
+        this.leaseVersionChannel = FileChannel.open(this.storeDirectory.resolve(LEASE_VERSION_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointLog = new CheckpointLog(this.storeDirectory.resolve(CHECKPOINT_LOG_NAME), this.checkpointLock,
+                this.logCapacity, this.checkpointSyncIntervalInMillis, this.hostContext.getExecutor());
+    }
+
+    /***
+     * Called by the host when it has stopped processing. Forces the checkpoints to the disk and closes the files.
+     */
+    @Override
+    public void close() {
+        if (this.checkpointLog == null) {
+            return;
+        }
+        try {
+            this.checkpointLog.close();
+            this.leaseLock.close();
+            this.checkpointLock.close();
+            this.leaseVersionChannel.close();
+        } catch (IOException e) {
+            TRACE_LOGGER.warn(this.hostContext.withHost("Failure closing lease and checkpoint files"), e);
+        }
+    }
+
+    // For testing.
+    int getCheckpointLogCompactionCount() {
+        return this.checkpointLog.getCompactionCount();
+    }
+
+    //
+    // Checkpoint operations. These touch the mapped log, and at most read the small lease table, so they run on the
+    // caller's thread.
+    //
+
+    @Override
+    public CompletableFuture<Boolean> checkpointStoreExists() {
+        CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        try {
+            result.complete(this.checkpointLog.exists());
+        } catch (IOException e) {
+            TRACE_LOGGER.warn(this.hostContext.withHost("Failure checking checkpoint store existence"), e);
+            result.completeExceptionally(LoggingUtils.wrapException(e, EventProcessorHostActionStrings.CHECKING_CHECKPOINT_STORE));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> createCheckpointStoreIfNotExists() {
+        return runNow(() -> this.checkpointLog.createIfNotExists(), EventProcessorHostActionStrings.CREATING_CHECKPOINT_STORE,
+                this.hostContext.withHost("Failure creating checkpoint store"));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteCheckpointStore() {
+        return runNow(() -> this.checkpointLog.delete(), EventProcessorHostActionStrings.DELETING_CHECKPOINT_STORE,
+                this.hostContext.withHost("Failure deleting checkpoint store"));
+    }
+
+    @Override
+    public CompletableFuture<Checkpoint> getCheckpoint(String partitionId) {
+        CompletableFuture<Checkpoint> result = new CompletableFuture<Checkpoint>();
+        try {
+            result.complete(this.checkpointLog.get(partitionId));
+        } catch (IOException e) {
+            TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(partitionId, "Failure getting checkpoint"), e);
+            result.completeExceptionally(LoggingUtils.wrapException(e, EventProcessorHostActionStrings.GETTING_CHECKPOINT));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> createAllCheckpointsIfNotExists(List<String> partitionIds) {
+        // A partition without a checkpoint needs no holder in the log.
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateCheckpoint(CompleteLease lease, Checkpoint checkpoint) {
+        FileLease fileLease = (FileLease) lease;
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        if (!fileLease.getToken().equals(this.heldTokens.get(lease.getPartitionId()))) {
+            result.completeExceptionally(new LeaseLostException(lease, "Lease lost"));
+            return result;
+        }
+        try {
+            // Another process may have taken the lease since this host last renewed it, so the lease table decides.
+            // Holding the lease lock keeps the lease from being taken until the checkpoint is in the log.
+            boolean stillHeld = this.leaseLock.call(() -> {
+                FileLease stored = currentLeaseTable().get(lease.getPartitionId());
+                if ((stored == null) || !holds(stored, fileLease)) {
+                    return false;
+                }
+                this.checkpointLog.put(checkpoint);
+                return true;
+            });
+            if (stillHeld) {
+                result.complete(null);
+            } else {
+                this.heldTokens.remove(lease.getPartitionId(), fileLease.getToken());
+                result.completeExceptionally(new LeaseLostException(lease, "Lease lost"));
+            }
+        } catch (IOException e) {
+            TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(checkpoint.getPartitionId(), "Failure updating checkpoint"), e);
+            result.completeExceptionally(LoggingUtils.wrapException(e, EventProcessorHostActionStrings.UPDATING_CHECKPOINT));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteCheckpoint(String partitionId) {
+        return runNow(() -> this.checkpointLog.remove(partitionId), EventProcessorHostActionStrings.UPDATING_CHECKPOINT,
+                this.hostContext.withHostAndPartition(partitionId, "Failure deleting checkpoint"));
+    }
+
+    //
+    // Lease operations. These read and rewrite the lease table, so they run on the host's executor.
+    //
+
+    @Override
+    public int getLeaseDurationInMilliseconds() {
+        return this.hostContext.getPartitionManagerOptions().getLeaseDurationInSeconds() * 1000;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> leaseStoreExists() {
+        return CompletableFuture.completedFuture(Files.exists(this.storeDirectory.resolve(LEASE_TABLE_NAME)));
+    }
+
+    @Override
+    public CompletableFuture<Void> createLeaseStoreIfNotExists() {
+        return inLeaseTable((table) -> null, true, EventProcessorHostActionStrings.CREATING_LEASE_STORE,
+                this.hostContext.withHost("Failure creating lease store"));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteLeaseStore() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                this.leaseLock.run(() -> {
+                    writeLeaseVersion(readLeaseVersion() + 1);
+                    Files.deleteIfExists(this.storeDirectory.resolve(LEASE_TABLE_NAME));
+                    this.cachedLeaseTable = null;
+                    this.heldTokens.clear();
+                });
+            } catch (IOException e) {
+                TRACE_LOGGER.warn(this.hostContext.withHost("Failure deleting lease store"), e);
+                throw LoggingUtils.wrapException(e, EventProcessorHostActionStrings.DELETING_LEASE);
+            }
+        }, this.hostContext.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<CompleteLease> getLease(String partitionId) {
+        return inLeaseTable((table) -> {
+            FileLease stored = table.get(partitionId);
+            return (stored != null) ? new FileLease(stored) : null;
+        }, false, EventProcessorHostActionStrings.GETTING_LEASE, this.hostContext.withHostAndPartition(partitionId, "Failure getting lease details"));
+    }
+
+    @Override
+    public CompletableFuture<List<BaseLease>> getAllLeases() {
+        return inLeaseTable((table) -> {
+            long now = System.currentTimeMillis();
+            ArrayList<BaseLease> infos = new ArrayList<BaseLease>();
+            for (FileLease stored : table.values()) {
+                infos.add(new BaseLease(stored.getPartitionId(), stored.getOwner(), !stored.isExpiredAt(now)));
+            }
+            return infos;
+        }, false, EventProcessorHostActionStrings.GETTING_LEASE, this.hostContext.withHost("Failure getting lease state details"));
+    }
+
+    @Override
+    public CompletableFuture<Void> createAllLeasesIfNotExists(List<String> partitionIds) {
+        return inLeaseTable((table) -> {
+            for (String partitionId : partitionIds) {
+                table.putIfAbsent(partitionId, new FileLease(partitionId));
+            }
+            return null;
+        }, true, EventProcessorHostActionStrings.CREATING_LEASES, this.hostContext.withHost("Failure creating leases"));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteLease(CompleteLease lease) {
+        TRACE_LOGGER.info(this.hostContext.withHostAndPartition(lease, "Deleting lease"));
+        return inLeaseTable((table) -> {
+            table.remove(lease.getPartitionId());
+            this.heldTokens.remove(lease.getPartitionId());
+            return null;
+        }, true, EventProcessorHostActionStrings.DELETING_LEASE, this.hostContext.withHostAndPartition(lease, "Exception deleting lease"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acquireLease(CompleteLease lease) {
+        FileLease fileLease = (FileLease) lease;
+        TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(lease, "Acquiring lease"));
+        return inLeaseTable((table) -> {
+            FileLease stored = table.get(lease.getPartitionId());
+            if (stored == null) {
+                return false;
+            }
+            // Like a conditional write: fail if the lease has been acquired by someone else since the caller read it,
+            // unless that has expired since.
+            boolean unchanged = stored.getToken().equals(fileLease.getToken());
+            if (!unchanged && !stored.isExpiredAt(System.currentTimeMillis())) {
+                return false;
+            }
+            stored.setToken(EventProcessorHost.safeCreateUUID());
+            stored.setOwner(this.hostContext.getHostName());
+            stored.setExpirationTime(System.currentTimeMillis() + getLeaseDurationInMilliseconds());
+            stored.incrementEpoch(); // Increment epoch each time lease is acquired or stolen by a new host
+            copyInto(stored, fileLease);
+            this.heldTokens.put(lease.getPartitionId(), stored.getToken());
+            return true;
+        }, true, EventProcessorHostActionStrings.ACQUIRING_LEASE, this.hostContext.withHostAndPartition(lease, "Failure acquiring lease"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> renewLease(CompleteLease lease) {
+        return inLeaseTable((table) -> renewInTable(table, (FileLease) lease), true, EventProcessorHostActionStrings.RENEWING_LEASE,
+                this.hostContext.withHostAndPartition(lease, "Failure renewing lease"));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> renewLeases(List<CompleteLease> leases) {
+        return inLeaseTable((table) -> {
+            HashMap<String, Boolean> results = new HashMap<String, Boolean>();
+            for (CompleteLease lease : leases) {
+                results.put(lease.getPartitionId(), renewInTable(table, (FileLease) lease));
+            }
+            return results;
+        }, true, EventProcessorHostActionStrings.RENEWING_LEASE, this.hostContext.withHost("Failure renewing leases"));
+    }
+
+    // Like a blob lease, renewing succeeds even after the lease expired, as long as nobody else acquired it.
+    private boolean renewInTable(TreeMap<String, FileLease> table, FileLease lease) {
+        FileLease stored = table.get(lease.getPartitionId());
+        if ((stored == null) || !holds(stored, lease)) {
+            this.heldTokens.remove(lease.getPartitionId(), lease.getToken());
+            return false;
+        }
+        stored.setExpirationTime(System.currentTimeMillis() + getLeaseDurationInMilliseconds());
+        lease.setExpirationTime(stored.getExpirationTime());
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseLease(CompleteLease lease) {
+        FileLease fileLease = (FileLease) lease;
+        TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(lease, "Releasing lease"));
+        return inLeaseTable((table) -> {
+            FileLease stored = table.get(lease.getPartitionId());
+            // If the lease was already lost, then the intent of releasing it has been achieved.
+            if ((stored != null) && holds(stored, fileLease)) {
+                stored.setToken("");
+                stored.setOwner("");
+                stored.setExpirationTime(0);
+            }
+            this.heldTokens.remove(lease.getPartitionId(), fileLease.getToken());
+            return null;
+        }, true, EventProcessorHostActionStrings.RELEASING_LEASE, this.hostContext.withHostAndPartition(lease, "Failure releasing lease"));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateLease(CompleteLease lease) {
+        TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(lease, "Updating lease"));
+        return inLeaseTable((table) -> {
+            // Renew the lease so it does not expire in the middle, then copy what the host may change.
+            if (!renewInTable(table, (FileLease) lease)) {
+                return false;
+            }
+            table.get(lease.getPartitionId()).setEpoch(lease.getEpoch());
+            return true;
+        }, true, EventProcessorHostActionStrings.UPDATING_LEASE, this.hostContext.withHostAndPartition(lease, "Failure updating lease"));
+    }
+
+    //
+    // Lease table helpers.
+    //
+
+    private static boolean holds(FileLease stored, FileLease lease) {
+        return !stored.getToken().isEmpty() && stored.getToken().equals(lease.getToken());
+    }
+
+    private static void copyInto(FileLease stored, FileLease lease) {
+        lease.setToken(stored.getToken());
+        lease.setOwner(stored.getOwner());
+        lease.setExpirationTime(stored.getExpirationTime());
+        lease.setEpoch(stored.getEpoch());
+    }
+
+    // Runs the operation on the lease table on the host's executor, holding the lease lock, and writes the table back
+    // afterwards if the operation may have changed it.
+    private <T> CompletableFuture<T> inLeaseTable(Function<TreeMap<String, FileLease>, T> operation, boolean writeBack, String action, String trace) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.leaseLock.call(() -> {
+                    Path tableFile = this.storeDirectory.resolve(LEASE_TABLE_NAME);
+                    TreeMap<String, FileLease> table = readLeaseTable(tableFile);
+                    T result = operation.apply(table);
+                    if (writeBack) {
+                        writeLeaseTable(tableFile, table);
+                    }
+                    return result;
+                });
+            } catch (IOException e) {
+                TRACE_LOGGER.warn(trace, e);
+                throw LoggingUtils.wrapException(e, action);
+            }
+        }, this.hostContext.getExecutor());
+    }
+
+    // Called holding the lease lock. Returns the cached lease table, unless another manager has rewritten the table
+    // since. Callers must not change it.
+    private TreeMap<String, FileLease> currentLeaseTable() throws IOException {
+        long version = readLeaseVersion();
+        if ((this.cachedLeaseTable == null) || (version != this.cachedLeaseVersion)) {
+            this.cachedLeaseTable = readLeaseTable(this.storeDirectory.resolve(LEASE_TABLE_NAME));
+            this.cachedLeaseVersion = version;
+        }
+        return this.cachedLeaseTable;
+    }
+
+    private TreeMap<String, FileLease> readLeaseTable(Path tableFile) throws IOException {
+        TreeMap<String, FileLease> table = new TreeMap<String, FileLease>();
+        if (Files.exists(tableFile)) {
+            FileLease[] leases = this.gson.fromJson(new String(Files.readAllBytes(tableFile), StandardCharsets.UTF_8), FileLease[].class);
+            if (leases != null) {
+                for (FileLease lease : leases) {
+                    table.put(lease.getPartitionId(), lease);
+                }
+            }
+        }
+        return table;
+    }
+
+    // Written to a temporary file first and renamed over the table, so a crash cannot leave half a table behind. The
+    // version is advanced first, so that a crash cannot leave a new table behind with the version of the old one.
+    private void writeLeaseTable(Path tableFile, TreeMap<String, FileLease> table) throws IOException {
+        long version = readLeaseVersion() + 1;
+        writeLeaseVersion(version);
+        byte[] json = this.gson.toJson(table.values().toArray(new FileLease[table.size()])).getBytes(StandardCharsets.UTF_8);
+        Path temporary = tableFile.resolveSibling(LEASE_TABLE_NAME + ".writing");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(json);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, tableFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.cachedLeaseTable = table;
+        this.cachedLeaseVersion = version;
+    }
+
+    // The version is not forced to the disk: it only has to be current for the processes running now.
+    private long readLeaseVersion() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        while (buffer.hasRemaining() && (this.leaseVersionChannel.read(buffer, buffer.position()) > 0)) {
+            // Read until the whole version is in, or the file ends - it is empty until the table is first written.
+        }
+        return buffer.hasRemaining() ? 0 : buffer.getLong(0);
+    }
+
+    private void writeLeaseVersion(long version) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, version);
+        while (buffer.hasRemaining()) {
+            this.leaseVersionChannel.write(buffer, buffer.position());
+        }
+    }
+
+    private CompletableFuture<Void> runNow(FileAction fileAction, String action, String trace) {
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        try {
+            fileAction.run();
+            result.complete(null);
+        } catch (IOException e) {
+            TRACE_LOGGER.warn(trace, e);
+            result.completeExceptionally(LoggingUtils.wrapException(e, action));
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface FileAction {
+        void run() throws IOException;
+    }
+}
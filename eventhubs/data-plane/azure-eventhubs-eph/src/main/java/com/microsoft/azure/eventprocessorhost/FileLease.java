@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+// A lease as FileCheckpointLeaseManager keeps it in the lease table. The token changes each time the lease is
+// acquired, so a host can tell whether it still holds the lease it acquired, even if it acquired it again since.
+final class FileLease extends CompleteLease {
+    private String token = "";
+    private long expirationTimeMillis = 0;
+
+    // not intended to be used; built for GSon
+    @SuppressWarnings("unused")
+    private FileLease() {
+        super();
+    }
+
+    FileLease(String partitionId) {
+        super(partitionId);
+        this.epoch = 0;
+    }
+
+    FileLease(FileLease source) {
+        super(source);
+        this.token = source.token;
+        this.expirationTimeMillis = source.expirationTimeMillis;
+    }
+
+    String getToken() {
+        return this.token;
+    }
+
+    void setToken(String token) {
+        this.token = token;
+    }
+
+    long getExpirationTime() {
+        return this.expirationTimeMillis;
+    }
+
+    void setExpirationTime(long expireAtMillis) {
+        this.expirationTimeMillis = expireAtMillis;
+    }
+
+    boolean isExpiredAt(long nowMillis) {
+        return (getOwner() == null) || getOwner().isEmpty() || (nowMillis >= this.expirationTimeMillis);
+    }
+
+    @Override
+    String getStateDebug() {
+        return "owner " + getOwner() + " token " + this.token + " expires " + this.expirationTimeMillis + " epoch " + getEpoch();
+    }
+}
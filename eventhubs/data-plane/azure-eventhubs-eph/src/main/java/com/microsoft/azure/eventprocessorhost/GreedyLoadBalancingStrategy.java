@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Load balancing strategy which converges as fast as it can. Every host works out the same exact assignment of
+ * lease counts to hosts, with any leftover leases going to the hosts whose names sort first, and takes its whole
+ * share in one scan: unowned leases first, then leases stolen from the hosts which are furthest over their share.
+ * <p>
+ * A deployment converges within a few scans of the last host joining, at the cost of moving some partitions which
+ * StickyLoadBalancingStrategy would leave where they are.
+ */
+public final class GreedyLoadBalancingStrategy implements ILoadBalancingStrategy {
+    @Override
+    public List<BaseLease> selectLeasesToTake(String hostName, List<BaseLease> allLeases, boolean isFirstScan) {
+        LeaseDistribution distribution = new LeaseDistribution(hostName, allLeases);
+        if (isFirstScan) {
+            return distribution.selectFirstLease();
+        }
+
+        ArrayList<BaseLease> selected = new ArrayList<BaseLease>();
+        int needed = distribution.getExactShare(hostName) - distribution.getOwnedBy(hostName).size();
+        if (needed <= 0) {
+            return selected;
+        }
+
+        selected.addAll(distribution.pick(distribution.getUnowned(), needed));
+        needed -= selected.size();
+
+        while (needed > 0) {
+            // Steal from whichever host is furthest over its share, as it currently stands.
+            String victim = null;
+            int victimExcess = 0;
+            for (String host : distribution.getHosts()) {
+                int excess = distribution.getOwnedBy(host).size() - distribution.getExactShare(host) - countFrom(selected, host);
+                if (excess > victimExcess) {
+                    victim = host;
+                    victimExcess = excess;
+                }
+            }
+            if (victim == null) {
+                break;
+            }
+
+            List<BaseLease> candidates = new ArrayList<BaseLease>(distribution.getOwnedBy(victim));
+            candidates.removeAll(selected);
+            List<BaseLease> stolen = distribution.pick(candidates, Math.min(needed, victimExcess));
+            selected.addAll(stolen);
+            needed -= stolen.size();
+        }
+
+        return selected;
+    }
+
+    private static int countFrom(List<BaseLease> selected, String owner) {
+        int count = 0;
+        for (BaseLease info : selected) {
+            if (info.getIsOwned() && info.isOwnedBy(owner)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -30,6 +30,16 @@ final class HostContext {
     // Cannot be final because it is not available at HostContext construction time.
     private IEventProcessorFactory<?> processorFactory = null;
 
+    // Cannot be final because it is created by the partition manager when processing starts.
+    private EventHubClientPool clientPool = null;
+
+    // Cannot be final because it is created by the partition manager when processing starts.
+    private LeaseRenewer leaseRenewer = null;
+
+    // Cannot be final because it is created by the partition manager when processing starts. Null unless
+    // EventProcessorOptions.getMaxConcurrentProcessing() is above zero.
+    private ProcessingScheduler processingScheduler = null;
+
 
     HostContext(ScheduledExecutorService executor,
                 EventProcessorHost host, String hostName,
@@ -105,6 +115,33 @@ final class HostContext {
         this.processorFactory = pf;
     }
 
+    // May be null if called too early! Not set until the partition manager is initialized.
+    EventHubClientPool getClientPool() {
+        return this.clientPool;
+    }
+
+    void setClientPool(EventHubClientPool pool) {
+        this.clientPool = pool;
+    }
+
+    // May be null if called too early! Not set until the partition manager is initialized.
+    LeaseRenewer getLeaseRenewer() {
+        return this.leaseRenewer;
+    }
+
+    void setLeaseRenewer(LeaseRenewer renewer) {
+        this.leaseRenewer = renewer;
+    }
+
+    // Null if called too early, or if onEvents is called on the receive threads.
+    ProcessingScheduler getProcessingScheduler() {
+        return this.processingScheduler;
+    }
+
+    void setProcessingScheduler(ProcessingScheduler scheduler) {
+        this.processingScheduler = scheduler;
+    }
+
     //
     // Logging utility functions. They are here rather than on LoggingUtils because they
     // make use of this.hostName.
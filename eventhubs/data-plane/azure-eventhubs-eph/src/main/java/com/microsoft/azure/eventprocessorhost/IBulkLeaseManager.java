@@ -0,0 +1,29 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/***
+ * Optional extension of ILeaseManager for lease stores which can renew many leases in one request.
+ * <p>
+ * The host renews all of the leases it owns in one pass every lease renew interval. If the lease manager implements
+ * this interface, each pass is a single call to renewLeases; otherwise the host calls renewLease for each lease, with
+ * at most PartitionManagerOptions.getMaxConcurrentLeaseRenewals() calls outstanding at a time.
+ */
+public interface IBulkLeaseManager extends ILeaseManager {
+    /**
+     * Renew several leases currently held by this host instance.
+     * <p>
+     * The result for each lease has the same meaning as the result of renewLease: true if the lease was renewed, false
+     * if it has been lost. A lease which is missing from the returned map is treated as a transient failure and is
+     * tried again on the next pass, as is every lease if the returned future completes exceptionally.
+     *
+     * @param leases Leases to be renewed
+     * @return CompletableFuture {@literal ->} map of partition id to renewal result, completes exceptionally on error.
+     */
+    CompletableFuture<Map<String, Boolean>> renewLeases(List<CompleteLease> leases);
+}
@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+/***
+ * Optional extension for lease and checkpoint managers which need details of the host they serve, such as its name or
+ * its executor, and which cannot have them passed to their constructor because the host is constructed after them.
+ * <p>
+ * The host calls initialize once, when the event processor is registered and before it touches the lease or checkpoint
+ * store, and close once, when the event processor is unregistered and the host has stopped using the store. A manager
+ * passed as both the lease manager and the checkpoint manager is initialized and closed once.
+ */
+public interface IHostAwareManager {
+    /**
+     * Prepare the manager to serve the host.
+     *
+     * @param context Details of the host
+     * @throws Exception If the manager cannot be used, for example because its configuration is invalid. Registering
+     *                   the event processor fails with a RuntimeException wrapping this exception.
+     */
+    void initialize(ManagerContext context) throws Exception;
+
+    /**
+     * Release what the manager holds, such as open files, once the host has stopped processing. Does nothing by
+     * default.
+     *
+     * @throws Exception If releasing fails. The host logs it and completes the unregistration regardless.
+     */
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.List;
+
+/***
+ * Decides which partitions a host takes on each lease scan. Set one with
+ * PartitionManagerOptions.setLoadBalancingStrategy to replace the built-in balancing, which takes one lease on the
+ * first scan and then works towards an even share a few leases at a time.
+ * <p>
+ * Each host decides for itself from the lease states it has just listed, and hosts do not coordinate otherwise, so
+ * a strategy should let every host reach the same view of what a balanced assignment is. Taking a lease owned by
+ * another host steals it: that host's pump for the partition shuts down and the new owner restarts processing from
+ * the last checkpoint, so every move costs some events processed twice.
+ * <p>
+ * GreedyLoadBalancingStrategy and StickyLoadBalancingStrategy are provided.
+ */
+public interface ILoadBalancingStrategy {
+    /**
+     * Select the leases this host should try to acquire now. Leases in the list which are owned by another host are
+     * stolen; leases already owned by this host are ignored. Called on the host's executor, so it must not block.
+     * <p>
+     * On the first scan after the host starts, the other hosts which are starting at the same time may not have
+     * taken any leases yet and so cannot be seen. Taking more than one lease then is likely to be undone later.
+     *
+     * @param hostName Name of this host
+     * @param allLeases State of every lease, sorted by partition id
+     * @param isFirstScan True on the first scan after the host starts
+     * @return the leases to acquire, empty if none
+     */
+    List<BaseLease> selectLeasesToTake(String hostName, List<BaseLease> allLeases, boolean isFirstScan);
+}
@@ -7,7 +7,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -33,7 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * call initialize() on this object before starting processing with EventProcessorHost.registerEventProcessor()
  * or EventProcessorHost.registerEventProcessorFactory().
  */
-public class InMemoryLeaseManager implements ILeaseManager {
+public class InMemoryLeaseManager implements IBulkLeaseManager {
     private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(InMemoryLeaseManager.class);
     private HostContext hostContext;
     private long millisecondsLatency = 0;
@@ -206,8 +208,22 @@ public class InMemoryLeaseManager implements ILeaseManager {
 
     @Override
     public CompletableFuture<Boolean> renewLease(CompleteLease lease) {
-        InMemoryLease leaseToRenew = (InMemoryLease) lease;
+        boolean retval = renewLeaseSync((InMemoryLease) lease);
+        latency("renewLease " + lease.getPartitionId());
+        return CompletableFuture.completedFuture(retval);
+    }
 
+    @Override
+    public CompletableFuture<Map<String, Boolean>> renewLeases(List<CompleteLease> leases) {
+        HashMap<String, Boolean> retval = new HashMap<String, Boolean>();
+        for (CompleteLease lease : leases) {
+            retval.put(lease.getPartitionId(), renewLeaseSync((InMemoryLease) lease));
+        }
+        latency("renewLeases " + leases.size());
+        return CompletableFuture.completedFuture(retval);
+    }
+
+    private boolean renewLeaseSync(InMemoryLease leaseToRenew) {
         TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(leaseToRenew, "renewLease()"));
 
         boolean retval = true;
@@ -232,8 +248,7 @@ public class InMemoryLeaseManager implements ILeaseManager {
             retval = false;
         }
 
-        latency("renewLease " + lease.getPartitionId());
-        return CompletableFuture.completedFuture(retval);
+        return retval;
     }
 
     @Override
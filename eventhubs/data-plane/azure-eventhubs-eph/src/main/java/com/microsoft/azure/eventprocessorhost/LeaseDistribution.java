@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+// Who owns what, as seen in one listing of the leases. Shared by the load balancing strategies so that they agree
+// on which hosts exist and what an even share is.
+final class LeaseDistribution {
+    private final String hostName;
+    private final List<String> hosts;
+    private final HashMap<String, List<BaseLease>> owned = new HashMap<String, List<BaseLease>>();
+    private final List<BaseLease> unowned = new ArrayList<BaseLease>();
+    private final int partitionCount;
+
+    LeaseDistribution(String hostName, List<BaseLease> allLeases) {
+        this.hostName = hostName;
+        this.partitionCount = allLeases.size();
+
+        TreeSet<String> sortedHosts = new TreeSet<String>();
+        sortedHosts.add(hostName);
+        for (BaseLease info : allLeases) {
+            if (info.getIsOwned() && (info.getOwner() != null) && !info.getOwner().isEmpty()) {
+                sortedHosts.add(info.getOwner());
+                this.owned.computeIfAbsent(info.getOwner(), (owner) -> new ArrayList<BaseLease>()).add(info);
+            } else {
+                this.unowned.add(info);
+            }
+        }
+        this.hosts = new ArrayList<String>(sortedHosts);
+    }
+
+    // Sorted host names, including this host.
+    List<String> getHosts() {
+        return this.hosts;
+    }
+
+    int getHostIndex() {
+        return this.hosts.indexOf(this.hostName);
+    }
+
+    List<BaseLease> getOwnedBy(String host) {
+        List<BaseLease> leases = this.owned.get(host);
+        return (leases != null) ? leases : Collections.<BaseLease>emptyList();
+    }
+
+    List<BaseLease> getUnowned() {
+        return this.unowned;
+    }
+
+    // Fewest leases any host has in an even share.
+    int getFloorShare() {
+        return this.partitionCount / this.hosts.size();
+    }
+
+    // Most leases any host has in an even share.
+    int getCeilingShare() {
+        return getFloorShare() + (((this.partitionCount % this.hosts.size()) == 0) ? 0 : 1);
+    }
+
+    // The one even share all hosts agree on: the leftover leases go to the hosts which sort first.
+    int getExactShare(String host) {
+        return getFloorShare() + ((this.hosts.indexOf(host) < (this.partitionCount % this.hosts.size())) ? 1 : 0);
+    }
+
+    // On the first scan: one unowned lease, a different one for each host name so that hosts starting together do
+    // not all go for the same lease.
+    List<BaseLease> selectFirstLease() {
+        ArrayList<BaseLease> selected = new ArrayList<BaseLease>();
+        if (getOwnedBy(this.hostName).isEmpty() && !this.unowned.isEmpty()) {
+            selected.add(this.unowned.get(Math.floorMod(this.hostName.hashCode(), this.unowned.size())));
+        }
+        return selected;
+    }
+
+    // Up to count leases from the list, starting at an offset which depends on this host, so that hosts taking from
+    // the same list at the same time tend to take different leases.
+    List<BaseLease> pick(List<BaseLease> from, int count) {
+        ArrayList<BaseLease> picked = new ArrayList<BaseLease>();
+        if (from.isEmpty()) {
+            return picked;
+        }
+        int start = Math.floorMod(getHostIndex() * (from.size() / Math.max(1, this.hosts.size()) + 1), from.size());
+        for (int i = 0; (i < from.size()) && (picked.size() < count); i++) {
+            picked.add(from.get((start + i) % from.size()));
+        }
+        return picked;
+    }
+}
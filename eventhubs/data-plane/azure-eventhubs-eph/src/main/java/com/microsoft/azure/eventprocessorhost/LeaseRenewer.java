@@ -0,0 +1,240 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Renews the leases of all the partitions this host is pumping, in one pass every lease renew interval, instead of
+ * each pump keeping its own timer.
+ * <p>
+ * A pass renews the leases registered when it starts, with at most PartitionManagerOptions.getMaxConcurrentLeaseRenewals()
+ * renewals outstanding, or with a single call if the lease manager is an IBulkLeaseManager. The next pass is scheduled
+ * when a pass finishes, up to a tenth of the interval early so that the passes of hosts started together drift apart.
+ * Lease loss, failures and slow renewals are all traced from here.
+ */
+class LeaseRenewer extends Closable {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(LeaseRenewer.class);
+    private static final Random RANDOMIZER = new Random();
+    private final HostContext hostContext;
+    private final ConcurrentHashMap<String, Registration> registrations = new ConcurrentHashMap<String, Registration>();
+    private final Object passFutureSynchronizer = new Object();
+    private ScheduledFuture<?> passFuture = null;
+
+    LeaseRenewer(HostContext hostContext, Closable parent) {
+        super(parent);
+        this.hostContext = hostContext;
+    }
+
+    void start() {
+        schedulePass(System.nanoTime());
+    }
+
+    void close() {
+        setClosing();
+        synchronized (this.passFutureSynchronizer) {
+            if (this.passFuture != null) {
+                this.passFuture.cancel(false);
+            }
+        }
+        this.registrations.clear();
+        setClosed();
+    }
+
+    // Called by a pump once it is running. The lease is renewed by every pass from the next one on, until it is lost
+    // or unregistered. onLeaseLost is called, once, when the lease manager says the lease has been lost.
+    void register(CompleteLease lease, Runnable onLeaseLost) {
+        if (getIsClosingOrClosed()) {
+            return;
+        }
+        this.registrations.put(lease.getPartitionId(), new Registration(lease, onLeaseLost));
+        TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(lease, "Lease registered for renewal"));
+    }
+
+    // Only removes the registration made for this lease object, so a pump which is shutting down cannot unregister
+    // the lease of the pump which replaced it.
+    void unregister(CompleteLease lease) {
+        this.registrations.computeIfPresent(lease.getPartitionId(), (partitionId, registration) -> (registration.lease == lease) ? null : registration);
+    }
+
+    private void schedulePass(long lastPassStartNanos) {
+        if (getIsClosingOrClosed()) {
+            return;
+        }
+
+        long intervalInMillis = TimeUnit.SECONDS.toMillis(this.hostContext.getPartitionManagerOptions().getLeaseRenewIntervalInSeconds());
+        long jitterInMillis = RANDOMIZER.nextInt((int) (intervalInMillis / 10) + 1);
+        long elapsedInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPassStartNanos);
+        long delayInMillis = Math.max(0, intervalInMillis - elapsedInMillis - jitterInMillis);
+        synchronized (this.passFutureSynchronizer) {
+            try {
+                this.passFuture = this.hostContext.getExecutor().schedule(() -> renewAll(), delayInMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                TRACE_LOGGER.warn(this.hostContext.withHost("Could not schedule lease renewal"), e);
+            }
+        }
+        TRACE_LOGGER.debug(this.hostContext.withHost("Scheduling lease renewal in " + delayInMillis + "ms"));
+    }
+
+    private void renewAll() {
+        if (getIsClosingOrClosed()) {
+            return;
+        }
+
+        final long passStartNanos = System.nanoTime();
+        final PassResults results = new PassResults();
+        final List<Registration> due = new ArrayList<Registration>(this.registrations.values());
+
+        CompletableFuture<Void> pass = null;
+        try {
+            if (due.isEmpty()) {
+                pass = CompletableFuture.completedFuture(null);
+            } else if (this.hostContext.getLeaseManager() instanceof IBulkLeaseManager) {
+                pass = renewInBulk(due, results);
+            } else {
+                pass = renewEach(due, results);
+            }
+        } catch (Exception e) {
+            pass = new CompletableFuture<Void>();
+            pass.completeExceptionally(e);
+        }
+
+        pass.whenCompleteAsync((empty, e) -> {
+            if (e != null) {
+                // Individual failures are handled in onRenewed, so this is unexpected.
+                TRACE_LOGGER.warn(this.hostContext.withHost("Failure renewing leases"), LoggingUtils.unwrapException(e, null));
+            }
+            if (!due.isEmpty()) {
+                TRACE_LOGGER.debug(this.hostContext.withHost("Lease renewal of " + due.size() + " leases took "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - passStartNanos) + "ms: renewed " + results.renewed.get()
+                        + " lost " + results.lost.get() + " failed " + results.failed.get() + " slowest " + results.slowestInMillis.get() + "ms"));
+            }
+            schedulePass(passStartNanos);
+        }, this.hostContext.getExecutor());
+    }
+
+    private CompletableFuture<Void> renewEach(List<Registration> due, PassResults results) {
+        Queue<Registration> queue = new ConcurrentLinkedQueue<Registration>(due);
+        int lanes = Math.min(due.size(), this.hostContext.getPartitionManagerOptions().getMaxConcurrentLeaseRenewals());
+        CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            laneFutures[i] = renewNext(queue, results);
+        }
+        return CompletableFuture.allOf(laneFutures);
+    }
+
+    // Each lane renews one lease at a time, taking the next one off the shared queue when a renewal completes.
+    private CompletableFuture<Void> renewNext(Queue<Registration> queue, PassResults results) {
+        Registration registration = queue.poll();
+        if ((registration == null) || getIsClosingOrClosed()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final long startNanos = System.nanoTime();
+        CompletableFuture<Boolean> renewFuture = null;
+        try {
+            renewFuture = this.hostContext.getLeaseManager().renewLease(registration.lease);
+        } catch (Exception e) {
+            renewFuture = new CompletableFuture<Boolean>();
+            renewFuture.completeExceptionally(e);
+        }
+
+        return renewFuture.handleAsync((renewed, e) -> {
+            onRenewed(registration, renewed, e, startNanos, results);
+            return null;
+        }, this.hostContext.getExecutor())
+                .thenComposeAsync((empty) -> renewNext(queue, results), this.hostContext.getExecutor());
+    }
+
+    private CompletableFuture<Void> renewInBulk(List<Registration> due, PassResults results) {
+        List<CompleteLease> leases = new ArrayList<CompleteLease>(due.size());
+        for (Registration registration : due) {
+            leases.add(registration.lease);
+        }
+
+        final long startNanos = System.nanoTime();
+        return ((IBulkLeaseManager) this.hostContext.getLeaseManager()).renewLeases(leases)
+                .handleAsync((renewedMap, e) -> {
+                    for (Registration registration : due) {
+                        Throwable error = e;
+                        Boolean renewed = null;
+                        if (error == null) {
+                            renewed = (renewedMap != null) ? renewedMap.get(registration.lease.getPartitionId()) : null;
+                            if (renewed == null) {
+                                error = new RuntimeException("Bulk lease renewal returned no result for the partition");
+                            }
+                        }
+                        onRenewed(registration, renewed, error, startNanos, results);
+                    }
+                    return null;
+                }, this.hostContext.getExecutor());
+    }
+
+    private void onRenewed(Registration registration, Boolean renewed, Throwable error, long startNanos, PassResults results) {
+        long latencyInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        results.slowestInMillis.accumulateAndGet(latencyInMillis, Math::max);
+        CompleteLease lease = registration.lease;
+
+        if (this.registrations.get(lease.getPartitionId()) != registration) {
+            // Unregistered while the renewal was in progress, the pump is gone or going.
+            return;
+        }
+
+        if (latencyInMillis > TimeUnit.SECONDS.toMillis(this.hostContext.getPartitionManagerOptions().getLeaseRenewIntervalInSeconds())) {
+            TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(lease, "Renewing lease took " + latencyInMillis + "ms, longer than the renew interval"));
+        } else {
+            TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(lease, "Renewing lease took " + latencyInMillis + "ms"));
+        }
+
+        if (error != null) {
+            // Failure renewing lease due to storage exception or whatever.
+            // Trace error and keep the registration so the next pass tries again.
+            results.failed.incrementAndGet();
+            Exception notifyWith = (Exception) LoggingUtils.unwrapException(error, null);
+            TRACE_LOGGER.info(this.hostContext.withHostAndPartition(lease, "Transient failure renewing lease"), notifyWith);
+            this.hostContext.getEventProcessorOptions().notifyOfException(this.hostContext.getHostName(), notifyWith, EventProcessorHostActionStrings.RENEWING_LEASE,
+                    lease.getPartitionId());
+        } else if (!renewed) {
+            // False return from renewLease means that lease was lost.
+            results.lost.incrementAndGet();
+            if (this.registrations.remove(lease.getPartitionId(), registration)) {
+                TRACE_LOGGER.info(this.hostContext.withHostAndPartition(lease, "Lease lost, shutting down pump"));
+                registration.onLeaseLost.run();
+            }
+        } else {
+            results.renewed.incrementAndGet();
+        }
+    }
+
+    private static final class Registration {
+        final CompleteLease lease;
+        final Runnable onLeaseLost;
+
+        Registration(CompleteLease lease, Runnable onLeaseLost) {
+            this.lease = lease;
+            this.onLeaseLost = onLeaseLost;
+        }
+    }
+
+    private static final class PassResults {
+        final AtomicInteger renewed = new AtomicInteger();
+        final AtomicInteger lost = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong slowestInMillis = new AtomicLong();
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Mutual exclusion between every thread of every process on the machine, for one byte-sized region of a lock file.
+// The OS file lock only excludes other processes: within a JVM, locking a region which is already locked throws
+// instead of waiting, so threads first take a JVM-wide lock for the same file and region.
+final class LocalFileLock {
+    private static final ConcurrentHashMap<String, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<String, ReentrantLock>();
+
+    private final Path lockFile;
+    private final long region;
+    private final ReentrantLock jvmLock;
+    private FileChannel channel = null;
+
+    LocalFileLock(Path lockFile, long region) {
+        this.lockFile = lockFile.toAbsolutePath().normalize();
+        this.region = region;
+        this.jvmLock = JVM_LOCKS.computeIfAbsent(this.lockFile.toString() + "#" + region, (key) -> new ReentrantLock());
+    }
+
+    // Runs the call holding the lock.
+    <T> T call(LockedCall<T> call) throws IOException {
+        this.jvmLock.lock();
+        try {
+            if (this.channel == null) {
+                this.channel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            FileLock fileLock = this.channel.lock(this.region, 1, false);
+            try {
+                return call.call();
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            this.jvmLock.unlock();
+        }
+    }
+
+    void run(LockedRun run) throws IOException {
+        call(() -> {
+            run.run();
+            return null;
+        });
+    }
+
+    void close() throws IOException {
+        this.jvmLock.lock();
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+                this.channel = null;
+            }
+        } finally {
+            this.jvmLock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    interface LockedCall<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface LockedRun {
+        void run() throws IOException;
+    }
+}
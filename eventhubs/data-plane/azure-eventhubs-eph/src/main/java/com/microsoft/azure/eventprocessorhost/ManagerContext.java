@@ -0,0 +1,64 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/***
+ * The details of an EventProcessorHost which a lease or checkpoint manager implementing IHostAwareManager is given
+ * when the host initializes it.
+ */
+public final class ManagerContext {
+    private final HostContext hostContext;
+
+    ManagerContext(HostContext hostContext) {
+        this.hostContext = hostContext;
+    }
+
+    /**
+     * @return The name of the host, which a lease manager records as the owner of the leases the host holds
+     */
+    public String getHostName() {
+        return this.hostContext.getHostName();
+    }
+
+    /**
+     * @return The path of the event hub the host processes
+     */
+    public String getEventHubPath() {
+        return this.hostContext.getEventHubPath();
+    }
+
+    /**
+     * @return The name of the consumer group the host processes
+     */
+    public String getConsumerGroupName() {
+        return this.hostContext.getConsumerGroupName();
+    }
+
+    /**
+     * @return The host's executor, on which the manager may run its work and complete the futures it returns
+     */
+    public ScheduledExecutorService getExecutor() {
+        return this.hostContext.getExecutor();
+    }
+
+    /**
+     * @return The lease duration from the host's PartitionManagerOptions
+     */
+    public int getLeaseDurationInSeconds() {
+        return this.hostContext.getPartitionManagerOptions().getLeaseDurationInSeconds();
+    }
+
+    /**
+     * @return The checkpoint timeout from the host's PartitionManagerOptions
+     */
+    public int getCheckpointTimeoutInSeconds() {
+        return this.hostContext.getPartitionManagerOptions().getCheckpointTimeoutInSeconds();
+    }
+
+    HostContext getHostContext() {
+        return this.hostContext;
+    }
+}
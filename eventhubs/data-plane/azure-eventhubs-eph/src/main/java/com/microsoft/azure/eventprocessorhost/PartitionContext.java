@@ -27,12 +27,18 @@ public class PartitionContext {
     private String offset = null;
     private long sequenceNumber = 0;
     private ReceiverRuntimeInformation runtimeInformation;
+    private final CheckpointRuntimeInformation checkpointRuntimeInformation;
+    private final CheckpointWriter checkpointWriter;
+    private volatile ProcessingScheduler.PartitionQueue processingQueue = null;
 
     PartitionContext(HostContext hostContext, String partitionId) {
         this.hostContext = hostContext;
         this.partitionId = partitionId;
 
         this.runtimeInformation = new ReceiverRuntimeInformation(partitionId);
+        this.checkpointRuntimeInformation = new CheckpointRuntimeInformation(partitionId);
+        this.checkpointWriter = new CheckpointWriter(hostContext, partitionId,
+                hostContext.getPartitionManagerOptions().getCheckpointIntervalInMillis(), this.checkpointRuntimeInformation);
     }
 
     /***
@@ -76,6 +82,32 @@ public class PartitionContext {
         this.runtimeInformation = value;
     }
 
+    /***
+     * Gets how far the persisted checkpoint of this partition lags behind the events received, and how the
+     * checkpoint writes are doing. Always available, unlike the receiver runtime metrics.
+     *
+     * @return See CheckpointRuntimeInformation.
+     */
+    public CheckpointRuntimeInformation getCheckpointRuntimeInformation() {
+        return this.checkpointRuntimeInformation;
+    }
+
+    /***
+     * Gets the number of received batches of this partition which have not yet been passed to onEvents, including
+     * the one being processed. Always 0 unless EventProcessorOptions.setMaxConcurrentProcessing is above zero, as
+     * otherwise batches are processed as they are received.
+     *
+     * @return number of batches waiting for or in onEvents
+     */
+    public int getQueuedBatchCount() {
+        ProcessingScheduler.PartitionQueue captured = this.processingQueue;
+        return (captured != null) ? captured.getDepth() : 0;
+    }
+
+    void setProcessingQueue(ProcessingScheduler.PartitionQueue queue) {
+        this.processingQueue = queue;
+    }
+
     CompleteLease getLease() {
         return this.lease;
     }
@@ -89,6 +121,7 @@ public class PartitionContext {
         if (event.getSystemProperties().getSequenceNumber() >= this.sequenceNumber) {
             this.offset = event.getSystemProperties().getOffset();
             this.sequenceNumber = event.getSystemProperties().getSequenceNumber();
+            this.checkpointRuntimeInformation.setLastReceivedSequenceNumber(this.sequenceNumber);
         } else {
             TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.partitionId,
                     "setOffsetAndSequenceNumber(" + event.getSystemProperties().getOffset() + "//"
@@ -180,6 +213,9 @@ public class PartitionContext {
      * Writes the position of the provided Checkpoint instance to the checkpoint store via the checkpoint manager.
      *
      * It is important to check the result in order to detect failures.
+     * <p>
+     * Checkpoints of a partition are written one at a time, and a checkpoint asked for while an earlier one is still
+     * waiting replaces it. See PartitionManagerOptions.setCheckpointIntervalInMillis.
      *
      * @param checkpoint  a checkpoint
      * @return CompletableFuture {@literal ->} null when the checkpoint has been persisted successfully, completes exceptionally on error.
@@ -192,7 +228,7 @@ public class PartitionContext {
         } else {
             TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(checkpoint.getPartitionId(),
                     "Saving checkpoint: " + checkpoint.getOffset() + "//" + checkpoint.getSequenceNumber()));
-            result = this.hostContext.getCheckpointManager().updateCheckpoint(this.lease, checkpoint);
+            result = this.checkpointWriter.write(this.lease, checkpoint);
         }
         return result;
     }
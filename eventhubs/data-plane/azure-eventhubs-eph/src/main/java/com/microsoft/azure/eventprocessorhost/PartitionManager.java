@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -29,6 +30,10 @@ class PartitionManager extends Closable {
     protected volatile String[] partitionIds = null;
     private ScheduledFuture<?> scanFuture = null;
 
+    // Carried from one scan to the next, only touched by the scan chain.
+    private Map<String, String> lastOwnership = null;
+    private int unchangedScanCount = 0;
+
     PartitionManager(HostContext hostContext) {
         super(null);
         this.hostContext = hostContext;
@@ -113,6 +118,12 @@ class PartitionManager extends Closable {
             }
         }
 
+        // Pumps which are shutting down release their leases, there is no point renewing them.
+        final LeaseRenewer leaseRenewer = this.hostContext.getLeaseRenewer();
+        if (leaseRenewer != null) {
+            leaseRenewer.close();
+        }
+
         // Stop any partition pumps that are running.
         CompletableFuture<Void> stopping = CompletableFuture.completedFuture(null);
 
@@ -133,6 +144,20 @@ class PartitionManager extends Closable {
         }
         // else no pumps to shut down
 
+        // All pumps have given back their clients and processed their last batches, so the shared connections and
+        // processing workers can go.
+        final CompletableFuture<Void> pumpsStopped = stopping;
+        stopping = pumpsStopped.handleAsync((empty, e) -> null, this.hostContext.getExecutor())
+                .thenComposeAsync((empty) -> {
+                    final ProcessingScheduler processingScheduler = this.hostContext.getProcessingScheduler();
+                    if (processingScheduler != null) {
+                        processingScheduler.close();
+                    }
+                    final EventHubClientPool clientPool = this.hostContext.getClientPool();
+                    return (clientPool != null) ? clientPool.close() : CompletableFuture.completedFuture(null);
+                }, this.hostContext.getExecutor())
+                .thenComposeAsync((empty) -> pumpsStopped, this.hostContext.getExecutor());
+
         stopping = stopping.whenCompleteAsync((empty, e) -> {
             TRACE_LOGGER.info(this.hostContext.withHost("Partition manager exiting"));
             setClosed();
@@ -142,6 +167,15 @@ class PartitionManager extends Closable {
     }
 
     public CompletableFuture<Void> initialize() {
+        this.hostContext.setClientPool(new EventHubClientPool(this.hostContext, this.hostContext.getPartitionManagerOptions().getConnectionPoolSize()));
+        LeaseRenewer leaseRenewer = new LeaseRenewer(this.hostContext, this);
+        this.hostContext.setLeaseRenewer(leaseRenewer);
+        leaseRenewer.start();
+        EventProcessorOptions processorOptions = this.hostContext.getEventProcessorOptions();
+        if (processorOptions.getMaxConcurrentProcessing() > 0) {
+            this.hostContext.setProcessingScheduler(new ProcessingScheduler(this.hostContext, processorOptions.getMaxConcurrentProcessing(),
+                    processorOptions.getProcessingExecutor()));
+        }
         this.pumpManager = createPumpTestHook();
 
         // Stage 0: get partition ids and cache
@@ -283,16 +317,25 @@ class PartitionManager extends Closable {
         TRACE_LOGGER.debug(this.hostContext.withHost("Starting lease scan"));
         long start = System.currentTimeMillis();
 
-        (new PartitionScanner(this.hostContext, (lease) -> this.pumpManager.addPump(lease), this)).scan(isFirst)
+        final PartitionScanner scanner = new PartitionScanner(this.hostContext, (lease) -> this.pumpManager.addPump(lease), this);
+        scanner.scan(isFirst, this.lastOwnership)
                 .whenCompleteAsync((didSteal, e) -> {
                     TRACE_LOGGER.debug(this.hostContext.withHost("Scanning took " + (System.currentTimeMillis() - start)));
 
+                    this.lastOwnership = scanner.getOwnershipForNextScan();
+                    this.unchangedScanCount = scanner.wasSkipped() ? this.unchangedScanCount + 1 : 0;
+
                     onPartitionCheckCompleteTestHook();
 
                     // Schedule the next scan unless we are shutting down.
                     if (!this.getIsClosingOrClosed()) {
-                        int seconds = didSteal ? this.hostContext.getPartitionManagerOptions().getFastScanIntervalInSeconds()
-                                : this.hostContext.getPartitionManagerOptions().getSlowScanIntervalInSeconds();
+                        PartitionManagerOptions options = this.hostContext.getPartitionManagerOptions();
+                        int seconds = didSteal ? options.getFastScanIntervalInSeconds() : options.getSlowScanIntervalInSeconds();
+                        if (this.unchangedScanCount > 0) {
+                            // Ownership is stable: back off, doubling the slow interval for each scan which found nothing changed.
+                            long backedOff = (long) options.getSlowScanIntervalInSeconds() << Math.min(this.unchangedScanCount, 16);
+                            seconds = (int) Math.max(options.getSlowScanIntervalInSeconds(), Math.min(backedOff, options.getMaxScanIntervalInSeconds()));
+                        }
                         if (isFirst) {
                             seconds = this.hostContext.getPartitionManagerOptions().getStartupScanDelayInSeconds();
                         }
@@ -25,17 +25,46 @@ public class PartitionManagerOptions {
      */
     public static final int DefaultCheckpointTimeoutInSeconds = 120;
 
+    /**
+     * The default minimum time between two checkpoint writes for a partition. 0 writes each checkpoint as soon as the
+     * previous write for the partition is done.
+     */
+    public static final int DefaultCheckpointIntervalInMillis = 0;
+
+    /**
+     * The default maximum number of lease renewals a host has outstanding at a time.
+     */
+    public static final int DefaultMaxConcurrentLeaseRenewals = 16;
+
     public static final int DefaultStartupScanDelayInSeconds = 30;
     public static final int DefaultFastScanIntervalInSeconds = 3;
     public static final int DefaultSlowScanIntervalInSeconds = 5;
 
+    /**
+     * The default longest interval between scans, reached while lease ownership does not change.
+     */
+    public static final int DefaultMaxScanIntervalInSeconds = 20;
+
+    /**
+     * The default number of connections shared by all the partitions owned by a host: none, every partition gets a
+     * connection of its own.
+     */
+    public static final int DefaultConnectionPoolSize = 0;
+
     protected int leaseDurationInSeconds = PartitionManagerOptions.DefaultLeaseDurationInSeconds;
     protected int leaseRenewIntervalInSeconds = PartitionManagerOptions.DefaultLeaseRenewIntervalInSeconds;
     protected int checkpointTimeoutInSeconds = PartitionManagerOptions.DefaultCheckpointTimeoutInSeconds;
+    protected int checkpointIntervalInMillis = PartitionManagerOptions.DefaultCheckpointIntervalInMillis;
+    protected int maxConcurrentLeaseRenewals = PartitionManagerOptions.DefaultMaxConcurrentLeaseRenewals;
 
     protected int startupScanDelayInSeconds = PartitionManagerOptions.DefaultStartupScanDelayInSeconds;
     protected int fastScanIntervalInSeconds = PartitionManagerOptions.DefaultFastScanIntervalInSeconds;
     protected int slowScanIntervalInSeconds = PartitionManagerOptions.DefaultSlowScanIntervalInSeconds;
+    protected int maxScanIntervalInSeconds = PartitionManagerOptions.DefaultMaxScanIntervalInSeconds;
+
+    protected int connectionPoolSize = PartitionManagerOptions.DefaultConnectionPoolSize;
+
+    protected ILoadBalancingStrategy loadBalancingStrategy = null;
 
     /***
      * The base class automatically sets members to the static defaults.
@@ -109,6 +138,60 @@ public class PartitionManagerOptions {
         this.checkpointTimeoutInSeconds = timeout;
     }
 
+    /**
+     * Gets the minimum time between two checkpoint writes for a partition. Defaults to DefaultCheckpointIntervalInMillis.
+     * 
+     * @return checkpoint interval in milliseconds
+     */
+    public int getCheckpointIntervalInMillis() {
+        return this.checkpointIntervalInMillis;
+    }
+
+    /**
+     * Sets the minimum time between two checkpoint writes for a partition. Must be 0 or greater.
+     * <p>
+     * Checkpoints requested while a write for the partition is in progress, or sooner than this interval after the
+     * last write started, are coalesced: only the latest of them is written, once the interval is up, and all of
+     * their futures complete with the result of that write. With an interval greater than 0 writes run on the
+     * host's executor rather than on the thread which asked for the checkpoint, so an onEvents which waits on the
+     * returned future may wait for up to this long.
+     * Takes effect for partitions whose processing starts after the change.
+     * 
+     * @param interval new checkpoint interval in milliseconds
+     */
+    public void setCheckpointIntervalInMillis(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative");
+        }
+        this.checkpointIntervalInMillis = interval;
+    }
+
+    /**
+     * Gets the maximum number of lease renewals a host has outstanding at a time. Defaults to DefaultMaxConcurrentLeaseRenewals.
+     *
+     * @return maximum number of concurrent lease renewals
+     */
+    public int getMaxConcurrentLeaseRenewals() {
+        return this.maxConcurrentLeaseRenewals;
+    }
+
+    /**
+     * Sets the maximum number of lease renewals a host has outstanding at a time. Must be greater than 0.
+     * <p>
+     * The host renews the leases of all the partitions it owns in one pass every lease renew interval. This limits
+     * how many of those renewals are in progress at once, so that a host which owns many partitions does not flood the
+     * lease store and the executor. Lease managers which implement IBulkLeaseManager renew all the leases in one call
+     * and are not limited by this.
+     *
+     * @param max new value for the maximum number of concurrent lease renewals
+     */
+    public void setMaxConcurrentLeaseRenewals(int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Maximum concurrent lease renewals must be greater than 0");
+        }
+        this.maxConcurrentLeaseRenewals = max;
+    }
+
     /**
      * Gets the delay time between the first scan for available partitions and the second. This is
      * part of a startup optimization which allows individual hosts to become visible to other
@@ -183,4 +266,81 @@ public class PartitionManagerOptions {
         }
         this.slowScanIntervalInSeconds = interval;
     }
+
+    /**
+     * While lease ownership is stable, the interval between scans grows from the slow interval, doubling after each
+     * scan which finds the owners of all leases unchanged, up to this interval. Any change in ownership, including a
+     * lease expiring, returns to the usual intervals. A longer interval costs fewer lease store requests but makes
+     * a host slower to notice partitions left behind by a host which went away.
+     * 
+     * Defaults to DefaultMaxScanIntervalInSeconds.
+     * 
+     * @return interval time in seconds
+     */
+    public int getMaxScanIntervalInSeconds() {
+        return this.maxScanIntervalInSeconds;
+    }
+
+    /**
+     * Sets the longest interval between scans. Set it to no more than the slow interval to scan at the slow interval
+     * even while ownership is stable.
+     * 
+     * @param interval  new maximum interval in seconds
+     */
+    public void setMaxScanIntervalInSeconds(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Maximum scan interval must be greater than 0");
+        }
+        this.maxScanIntervalInSeconds = interval;
+    }
+
+    /**
+     * Gets the number of connections to the event hub which the partitions owned by this host are spread across.
+     * Each partition gets its own receiver on one of these connections, instead of a connection of its own.
+     * 0 means no sharing: every partition gets a connection of its own.
+     * 
+     * Defaults to DefaultConnectionPoolSize.
+     * 
+     * @return number of connections
+     */
+    public int getConnectionPoolSize() {
+        return this.connectionPoolSize;
+    }
+
+    /**
+     * Sets the number of connections shared by the partitions owned by this host, or 0 for a connection per partition.
+     * Every connection has a single reactor thread which receives for all the partitions on it, so with a pool of 1
+     * every partition of the host is received on one connection and one thread: a busy or stalled partition slows down
+     * the others. More connections spread the receive load of many busy partitions; fewer save threads, memory and
+     * handshakes. Takes effect the next time an event processor is registered.
+     * 
+     * @param size  new number of connections; 0 for a connection per partition
+     */
+    public void setConnectionPoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Connection pool size must not be negative");
+        }
+        this.connectionPoolSize = size;
+    }
+
+    /**
+     * Gets the strategy which decides which partitions this host takes on each lease scan, or null for the built-in
+     * balancing. Defaults to null.
+     * 
+     * @return load balancing strategy, or null
+     */
+    public ILoadBalancingStrategy getLoadBalancingStrategy() {
+        return this.loadBalancingStrategy;
+    }
+
+    /**
+     * Sets the strategy which decides which partitions this host takes on each lease scan. Null, the default, keeps
+     * the built-in balancing, which takes a few partitions at a time. All hosts sharing a consumer group should use
+     * the same strategy.
+     * 
+     * @param strategy  new load balancing strategy, or null
+     */
+    public void setLoadBalancingStrategy(ILoadBalancingStrategy strategy) {
+        this.loadBalancingStrategy = strategy;
+    }
 }
@@ -10,16 +10,14 @@ import com.microsoft.azure.eventhubs.PartitionReceiveHandler;
 import com.microsoft.azure.eventhubs.PartitionReceiver;
 import com.microsoft.azure.eventhubs.ReceiverDisconnectedException;
 import com.microsoft.azure.eventhubs.ReceiverOptions;
+import com.microsoft.azure.eventhubs.ReceiverRuntimeInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 class PartitionPump extends Closable implements PartitionReceiveHandler {
@@ -36,7 +34,7 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
     private volatile CompletableFuture<?> internalOperationFuture = null;
     private IEventProcessor processor = null;
     private PartitionContext partitionContext = null;
-    private ScheduledFuture<?> leaseRenewerFuture = null;
+    private final ProcessingScheduler.PartitionQueue processingQueue; // null if onEvents is called on the receive thread
 
     PartitionPump(HostContext hostContext, CompleteLease lease, Closable parent, Consumer<String> pumpManagerCallback) {
         super(parent);
@@ -49,6 +47,15 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
         this.partitionContext = new PartitionContext(this.hostContext, this.lease.getPartitionId());
         this.partitionContext.setLease(this.lease);
 
+        final ProcessingScheduler processingScheduler = this.hostContext.getProcessingScheduler();
+        if (processingScheduler != null) {
+            this.processingQueue = processingScheduler.createQueue(this.lease.getPartitionId(),
+                    this.hostContext.getEventProcessorOptions().getMaxQueuedBatchesPerPartition());
+            this.partitionContext.setProcessingQueue(this.processingQueue);
+        } else {
+            this.processingQueue = null;
+        }
+
         // Set up the shutdown futures. The shutdown process can be triggered just by completing this.shutdownFuture.
         this.shutdownTriggerFuture = new CompletableFuture<Void>();
         this.shutdownFinishedFuture = this.shutdownTriggerFuture
@@ -161,28 +168,19 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
         }, this.hostContext.getExecutor());
     }
 
+    // The lease is renewed by the host's LeaseRenewer, together with the leases of the other pumps.
     protected void scheduleLeaseRenewer() {
         if (!getIsClosingOrClosed()) {
-            int seconds = this.hostContext.getPartitionManagerOptions().getLeaseRenewIntervalInSeconds();
-            this.leaseRenewerFuture = this.hostContext.getExecutor().schedule(() -> leaseRenewer(), seconds, TimeUnit.SECONDS);
-            TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(this.lease, "scheduling leaseRenewer in " + seconds));
+            // Lease lost: start pump shutdown process.
+            this.hostContext.getLeaseRenewer().register(this.lease, () -> internalShutdown(CloseReason.LeaseLost, null));
         }
     }
 
     private CompletableFuture<Boolean> openClients() {
-        // Create new client
+        // Borrow a client - and with it a connection - shared with the other pumps of this host
         TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.partitionContext, "Opening EH client"));
 
-        CompletableFuture<EventHubClient> startOpeningFuture = null;
-        try {
-            startOpeningFuture = EventHubClient.create(this.hostContext.getEventHubConnectionString(),
-                    this.hostContext.getRetryPolicy(), this.hostContext.getExecutor());
-        } catch (EventHubException | IOException e2) {
-            // Marking startOpeningFuture as completed exceptionally will cause all the
-            // following stages to fall through except stage 1 which will report the error.
-            startOpeningFuture = new CompletableFuture<EventHubClient>();
-            startOpeningFuture.completeExceptionally(e2);
-        }
+        CompletableFuture<EventHubClient> startOpeningFuture = this.hostContext.getClientPool().acquire();
         this.internalOperationFuture = startOpeningFuture;
 
         // Stage 0: get EventHubClient
@@ -253,6 +251,10 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
 
     private CompletableFuture<Void> cleanUpAll(CloseReason reason) { // swallows all exceptions
         return cleanUpClients()
+                // The receive handler is gone, so no more batches will be queued. Let the ones already queued finish
+                // before onClose, as they would have if onEvents was called on the receive thread.
+                .thenComposeAsync((empty) -> (this.processingQueue != null) ? this.processingQueue.whenIdle() : CompletableFuture.<Void>completedFuture(null),
+                        this.hostContext.getExecutor())
                 .thenRunAsync(() -> {
                     if (this.processor != null) {
                         try {
@@ -311,24 +313,17 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
                     return null; // stop propagation of exceptions
                 }, this.hostContext.getExecutor())
                 .thenApplyAsync((empty) -> {
-                    TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.partitionContext, "Closing EH client"));
+                    // The client is shared with the other pumps of this host, so give it back rather than closing it
+                    TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.partitionContext, "Releasing EH client"));
                     final EventHubClient eventHubClientTemp = this.eventHubClient;
                     this.eventHubClient = null;
                     if (eventHubClientTemp == null) {
                         TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(this.partitionContext,
                                 "eventHubClient is null in cleanup"));
+                    } else {
+                        this.hostContext.getClientPool().release(eventHubClientTemp);
                     }
-                    return eventHubClientTemp;
-                }, this.hostContext.getExecutor())
-                .thenComposeAsync((eventHubClientTemp) -> {
-                    return (eventHubClientTemp != null) ? eventHubClientTemp.close() : CompletableFuture.completedFuture(null);
-                }, this.hostContext.getExecutor())
-                .handleAsync((empty, e) -> {
-                    if (e != null) {
-                        TRACE_LOGGER.warn(this.hostContext.withHostAndPartition(this.partitionContext, "Closing EH client failed."),
-                                LoggingUtils.unwrapException(e, null));
-                    }
-                    return null; // stop propagation of exceptions
+                    return null;
                 }, this.hostContext.getExecutor());
 
         return cleanupFuture;
@@ -341,9 +336,9 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
             captured.cancel(true);
         }
 
-        ScheduledFuture<?> capturedLeaseRenewer = this.leaseRenewerFuture;
+        LeaseRenewer capturedLeaseRenewer = this.hostContext.getLeaseRenewer();
         if (capturedLeaseRenewer != null) {
-            capturedLeaseRenewer.cancel(true);
+            capturedLeaseRenewer.unregister(this.lease);
         }
         return null;
     }
@@ -386,66 +381,59 @@ class PartitionPump extends Closable implements PartitionReceiveHandler {
         return this.shutdownFinishedFuture;
     }
 
-    private void leaseRenewer() {
-        TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(this.lease, "leaseRenewer()"));
-
-        // Theoretically, if the future is cancelled then this method should never fire, but
-        // there's no harm in being sure.
-        if (this.leaseRenewerFuture.isCancelled()) {
-            return;
-        }
-        if (getIsClosingOrClosed()) {
-            return;
-        }
-
-        // Stage 0: renew the lease
-        this.hostContext.getLeaseManager().renewLease(this.lease)
-                // Stage 1: check result of renewing
-                .thenApplyAsync((renewed) -> {
-                    Boolean scheduleNext = true;
-                    if (!renewed) {
-                        // False return from renewLease means that lease was lost.
-                        // Start pump shutdown process and do not schedule another call to leaseRenewer.
-                        TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.lease, "Lease lost, shutting down pump"));
-                        internalShutdown(CloseReason.LeaseLost, null);
-                        scheduleNext = false;
-                    }
-                    return scheduleNext;
-                }, this.hostContext.getExecutor())
-                // Stage 2: RUN REGARDLESS OF EXCEPTIONS -- trace exceptions, schedule next iteration
-                .whenCompleteAsync((scheduleNext, e) -> {
-                    if (e != null) {
-                        // Failure renewing lease due to storage exception or whatever.
-                        // Trace error and leave scheduleNext as true to schedule another try.
-                        Exception notifyWith = (Exception) LoggingUtils.unwrapException(e, null);
-                        TRACE_LOGGER.info(this.hostContext.withHostAndPartition(this.lease, "Transient failure renewing lease"), notifyWith);
-                        // Notify the general error handler rather than calling this.processor.onError so we can provide context (RENEWING_LEASE)
-                        this.hostContext.getEventProcessorOptions().notifyOfException(this.hostContext.getHostName(), notifyWith, EventProcessorHostActionStrings.RENEWING_LEASE,
-                                this.lease.getPartitionId());
-                    }
-
-                    if ((scheduleNext != null) && scheduleNext.booleanValue() && !this.leaseRenewerFuture.isCancelled() && !getIsClosingOrClosed()) {
-                        scheduleLeaseRenewer();
-                    }
-                }, this.hostContext.getExecutor());
-    }
-
     @Override
     public int getMaxEventCount() {
         return this.hostContext.getEventProcessorOptions().getMaxBatchSize();
     }
 
+    // With a processing scheduler, the receive pump takes no more events off the receiver while the queue is full.
+    @Override
+    public CompletableFuture<Void> whenReadyToReceive() {
+        return (this.processingQueue != null) ? this.processingQueue.whenHasRoom() : CompletableFuture.completedFuture(null);
+    }
+
     @Override
     public void onReceive(Iterable<EventData> events) {
+        ReceiverRuntimeInformation runtimeInformation = null;
         if (this.hostContext.getEventProcessorOptions().getReceiverRuntimeMetricEnabled()) {
-            this.partitionContext.setRuntimeInformation(this.partitionReceiver.getRuntimeInformation());
+            runtimeInformation = this.partitionReceiver.getRuntimeInformation();
         }
 
         // This method is called on the thread that the Java EH client uses to run the pump.
-        // There is one pump per EventHubClient. Since each PartitionPump creates a new EventHubClient,
-        // using that thread to call onEvents does no harm. Even if onEvents is slow, the pump will
+        // Each PartitionReceiver has its own pump, even when the EventHubClient is shared with other partitions,
+        // so using that thread to call onEvents does no harm. Even if onEvents is slow, the pump will
         // get control back each time onEvents returns, and be able to receive a new batch of events
         // with which to make the next onEvents call. The pump gains nothing by running faster than onEvents.
+        //
+        // With a processing scheduler, the batch is queued for the partition instead, and the pump holds off receiving
+        // while the queue is full - see whenReadyToReceive - so this thread never waits. Everything the processor
+        // sees, including the offset for checkpointing, is updated when the batch is processed rather than when it is
+        // received. The receiver keeps updating its runtime information with the batches received after this one, so
+        // the batch is queued with a copy of it as of now.
+        if (this.processingQueue != null) {
+            final ReceiverRuntimeInformation capturedRuntimeInformation = (runtimeInformation != null) ? copyOf(runtimeInformation) : null;
+            this.processingQueue.submit(() -> processEvents(events, capturedRuntimeInformation));
+        } else {
+            processEvents(events, runtimeInformation);
+        }
+    }
+
+    // The retrieval time of the copy is when it was made, which is when the batch was received.
+    private static ReceiverRuntimeInformation copyOf(ReceiverRuntimeInformation runtimeInformation) {
+        ReceiverRuntimeInformation copy = new ReceiverRuntimeInformation(runtimeInformation.getPartitionId());
+        if (runtimeInformation.getRetrievalTime() != null) {
+            copy.setRuntimeInformation(runtimeInformation.getLastEnqueuedSequenceNumber(), runtimeInformation.getLastEnqueuedTime(),
+                    runtimeInformation.getLastEnqueuedOffset());
+        }
+        copy.setPrefetchInformation(runtimeInformation.getCurrentCredit(), runtimeInformation.getPrefetchedEventCount(),
+                runtimeInformation.getPrefetchedBytes());
+        return copy;
+    }
+
+    private void processEvents(Iterable<EventData> events, ReceiverRuntimeInformation runtimeInformation) {
+        if (runtimeInformation != null) {
+            this.partitionContext.setRuntimeInformation(runtimeInformation);
+        }
 
         // The underlying client returns null if there are no events, but the contract for IEventProcessor
         // is different and is expecting an empty iterable if there are no events (and invoke processor after
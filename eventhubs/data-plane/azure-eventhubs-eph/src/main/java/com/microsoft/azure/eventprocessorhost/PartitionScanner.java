@@ -26,6 +26,12 @@ class PartitionScanner extends Closable {
     
     // Populated by getAllLeaseStates()
     private List<BaseLease> allLeaseStates = null;
+    private HashMap<String, String> ownership = null; // partition id to owner, "" if not leased
+
+    // Set by scan(): whether the next scan must look at the leases again because this one acquired or stole leases, tried
+    // to, or failed; and whether this scan found nothing changed and stopped early.
+    private volatile boolean mustRescan = false;
+    private volatile boolean skipped = false;
     
     // Values populated by sortLeasesAndCalculateDesiredCount
     private int desiredCount;
@@ -43,27 +49,32 @@ class PartitionScanner extends Closable {
         this.leasesOwnedByOthers = new ConcurrentHashMap<String, BaseLease>();
     }
 
-    public CompletableFuture<Boolean> scan(boolean isFirst) {
+    // previousOwnership is the ownership seen by the previous scan, if it did not try to acquire or steal anything.
+    // If the ownership of the leases is still the same, this scan would come to the same conclusion, so it stops
+    // after listing the leases. The ownership is all that the scan looks at: the lease ETags would not do, because
+    // checkpoints are written to the same blobs.
+    public CompletableFuture<Boolean> scan(boolean isFirst, Map<String, String> previousOwnership) {
+        final ILoadBalancingStrategy strategy = this.hostContext.getPartitionManagerOptions().getLoadBalancingStrategy();
         return getAllLeaseStates()
                 .thenComposeAsync((unused) -> {
                     throwIfClosingOrClosed("PartitionScanner is shutting down");
-                    int ourLeasesCount = sortLeasesAndCalculateDesiredCount(isFirst);
-                    return acquireExpiredInChunksParallel(0, this.desiredCount - ourLeasesCount);
-                }, this.hostContext.getExecutor())
-                .thenApplyAsync((remainingNeeded) -> {
-                    throwIfClosingOrClosed("PartitionScanner is shutting down");
-                    ArrayList<BaseLease> stealThese = new ArrayList<BaseLease>();
-                    if (remainingNeeded > 0) {
-                        TRACE_LOGGER.debug(this.hostContext.withHost("Looking to steal: " + remainingNeeded));
-                        stealThese = findLeasesToSteal(remainingNeeded);
+                    if (!isFirst && this.ownership.equals(previousOwnership)) {
+                        TRACE_LOGGER.debug(this.hostContext.withHost("Lease ownership unchanged, nothing to do"));
+                        this.skipped = true;
+                        return CompletableFuture.completedFuture(false);
                     }
-                    return stealThese;
-                }, this.hostContext.getExecutor())
-                .thenComposeAsync((stealThese) -> {
-                    throwIfClosingOrClosed("PartitionScanner is shutting down");
-                    return stealLeases(stealThese);
+                    if (strategy != null) {
+                        List<BaseLease> takeThese = strategy.selectLeasesToTake(this.hostContext.getHostName(),
+                                Collections.unmodifiableList(this.allLeaseStates), isFirst);
+                        TRACE_LOGGER.debug(this.hostContext.withHost("Load balancing strategy selected " + takeThese.size() + " leases"));
+                        return takeLeases(takeThese);
+                    }
+                    return balanceIncrementally(isFirst);
                 }, this.hostContext.getExecutor())
                 .handleAsync((didSteal, e) -> {
+                    if (e != null) {
+                        this.mustRescan = true;
+                    }
                     if ((e != null) && !(e instanceof ClosingException)) {
                         StringBuilder outAction = new StringBuilder();
                         Exception notifyWith = (Exception) LoggingUtils.unwrapException(e, outAction);
@@ -76,6 +87,36 @@ class PartitionScanner extends Closable {
                 }, this.hostContext.getExecutor());
     }
 
+    // The built-in balancing, used unless PartitionManagerOptions has a load balancing strategy: take one lease on the
+    // first scan, then work towards an even share a few leases at a time, acquiring expired leases before stealing.
+    private CompletableFuture<Boolean> balanceIncrementally(boolean isFirst) {
+        int ourLeasesCount = sortLeasesAndCalculateDesiredCount(isFirst);
+        return acquireExpiredInChunksParallel(0, this.desiredCount - ourLeasesCount)
+                .thenApplyAsync((remainingNeeded) -> {
+                    throwIfClosingOrClosed("PartitionScanner is shutting down");
+                    ArrayList<BaseLease> stealThese = new ArrayList<BaseLease>();
+                    if (remainingNeeded > 0) {
+                        TRACE_LOGGER.debug(this.hostContext.withHost("Looking to steal: " + remainingNeeded));
+                        stealThese = findLeasesToSteal(remainingNeeded);
+                    }
+                    return stealThese;
+                }, this.hostContext.getExecutor())
+                .thenComposeAsync((stealThese) -> {
+                    throwIfClosingOrClosed("PartitionScanner is shutting down");
+                    return takeLeases(stealThese);
+                }, this.hostContext.getExecutor());
+    }
+
+    // The ownership seen by the last scan, for the next scan to compare with; null if that scan failed or tried to
+    // acquire or steal, as then the next scan must look again in any case.
+    Map<String, String> getOwnershipForNextScan() {
+        return this.mustRescan ? null : this.ownership;
+    }
+
+    boolean wasSkipped() {
+        return this.skipped;
+    }
+
     private CompletableFuture<Void> getAllLeaseStates() {
         throwIfClosingOrClosed("PartitionScanner is shutting down");
         return this.hostContext.getLeaseManager().getAllLeases()
@@ -83,6 +124,11 @@ class PartitionScanner extends Closable {
                     throwIfClosingOrClosed("PartitionScanner is shutting down");
                     this.allLeaseStates = states;
                     Collections.sort(this.allLeaseStates);
+                    HashMap<String, String> newOwnership = new HashMap<String, String>();
+                    for (BaseLease info : this.allLeaseStates) {
+                        newOwnership.put(info.getPartitionId(), (info.getIsOwned() && (info.getOwner() != null)) ? info.getOwner() : "");
+                    }
+                    this.ownership = newOwnership;
                 }, this.hostContext.getExecutor());
     }
 
@@ -185,6 +231,7 @@ class PartitionScanner extends Closable {
                         throwIfClosingOrClosed("PartitionScanner is shutting down");
                         CompletableFuture<Void> acquireFuture = CompletableFuture.completedFuture(null);
                         if (getThese.size() > 0) {
+                            this.mustRescan = true;
                             ArrayList<CompletableFuture<Void>> getFutures = new ArrayList<CompletableFuture<Void>>();
                             for (BaseLease info : getThese) {
                                 throwIfClosingOrClosed("PartitionScanner is shutting down");
@@ -281,13 +328,27 @@ class PartitionScanner extends Closable {
         return stealInfos;
     }
 
-    private CompletableFuture<Boolean> stealLeases(List<BaseLease> stealThese) {
+    // Acquires the given leases, which may be unowned or owned by other hosts. Completes with true if any of them
+    // has another host's name on it, that is if this scan tried to steal.
+    private CompletableFuture<Boolean> takeLeases(List<BaseLease> takeThese) {
         CompletableFuture<Boolean> allSteals = CompletableFuture.completedFuture(false);
 
+        boolean stealing = false;
+        ArrayList<BaseLease> stealThese = new ArrayList<BaseLease>();
+        for (BaseLease info : takeThese) {
+            if (info.getIsOwned() && info.isOwnedBy(this.hostContext.getHostName())) {
+                continue; // already ours
+            }
+            stealing |= hasOtherOwner(info);
+            stealThese.add(info);
+        }
+
         if (stealThese.size() > 0) {
+            this.mustRescan = true;
             ArrayList<CompletableFuture<Void>> steals = new ArrayList<CompletableFuture<Void>>();
             for (BaseLease info : stealThese) {
                 throwIfClosingOrClosed("PartitionScanner is shutting down");
+                final boolean isSteal = hasOtherOwner(info);
 
                 final AcquisitionHolder holder = new AcquisitionHolder();
                 CompletableFuture<Void> oneSteal = this.hostContext.getLeaseManager().getLease(info.getPartitionId())
@@ -299,7 +360,8 @@ class PartitionScanner extends Closable {
                     .thenAcceptAsync((acquired) -> {
                         throwIfClosingOrClosed("PartitionScanner is shutting down");
                         if (acquired) {
-                            TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(holder.getAcquiredLease().getPartitionId(), "Stole lease"));
+                            TRACE_LOGGER.debug(this.hostContext.withHostAndPartition(holder.getAcquiredLease().getPartitionId(),
+                                    isSteal ? "Stole lease" : "Acquired unowned/expired"));
                             this.addPump.accept(holder.getAcquiredLease());
                         }
                     }, this.hostContext.getExecutor());
@@ -307,12 +369,17 @@ class PartitionScanner extends Closable {
             }
 
             CompletableFuture<?>[] dummy = new CompletableFuture<?>[steals.size()];
-            allSteals = CompletableFuture.allOf(steals.toArray(dummy)).thenApplyAsync((empty) -> true, this.hostContext.getExecutor());
+            final boolean didSteal = stealing;
+            allSteals = CompletableFuture.allOf(steals.toArray(dummy)).thenApplyAsync((empty) -> didSteal, this.hostContext.getExecutor());
         }
 
         return allSteals;
     }
     
+    private boolean hasOtherOwner(BaseLease info) {
+        return info.getIsOwned() && (info.getOwner() != null) && !info.getOwner().isEmpty() && !info.isOwnedBy(this.hostContext.getHostName());
+    }
+
     private class AcquisitionHolder {
         private CompleteLease acquiredLease;
 
@@ -0,0 +1,207 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Runs the calls to IEventProcessor.onEvents of all the pumps of a host on a worker pool of its own, instead of on
+ * the threads of the receive pumps, when EventProcessorOptions.setMaxConcurrentProcessing is above zero.
+ * <p>
+ * Each partition has a PartitionQueue, whose batches are run one at a time and in the order they were received. At
+ * most getMaxConcurrentProcessing() partitions run at a time, taking turns batch by batch so that one busy partition
+ * cannot keep the others waiting. A queue holds at most EventProcessorOptions.getMaxQueuedBatchesPerPartition()
+ * batches: the receive pump of a partition whose queue is full receives nothing more until the queue has room, without
+ * holding a thread, which keeps the events buffered per partition bounded and leaves the rest in prefetch.
+ * <p>
+ * The workers run on EventProcessorOptions.getProcessingExecutor() if set, for example an executor which runs each
+ * task on a virtual thread, otherwise on a fixed pool of threads which the scheduler owns and shuts down on close.
+ */
+class ProcessingScheduler {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(ProcessingScheduler.class);
+    private final HostContext hostContext;
+    private final int maxConcurrency;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final ConcurrentLinkedQueue<PartitionQueue> ready = new ConcurrentLinkedQueue<PartitionQueue>();
+    private final AtomicInteger workers = new AtomicInteger();
+
+    ProcessingScheduler(HostContext hostContext, int maxConcurrency, ExecutorService processingExecutor) {
+        this.hostContext = hostContext;
+        this.maxConcurrency = maxConcurrency;
+        if (processingExecutor != null) {
+            this.executor = processingExecutor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = Executors.newFixedThreadPool(maxConcurrency, new EventProcessorHost.EventProcessorHostThreadPoolFactory(
+                    hostContext.getHostName(), hostContext.getEventHubPath(), hostContext.getConsumerGroupName()));
+            this.executor = this.ownedExecutor;
+        }
+    }
+
+    int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    PartitionQueue createQueue(String partitionId, int maxDepth) {
+        return new PartitionQueue(partitionId, maxDepth);
+    }
+
+    // Called once all the pumps have stopped, so there is nothing left to run.
+    void close() {
+        if (this.ownedExecutor != null) {
+            this.ownedExecutor.shutdown();
+        }
+    }
+
+    private void makeReady(PartitionQueue queue) {
+        this.ready.add(queue);
+        startWorkers();
+    }
+
+    private void startWorkers() {
+        while (!this.ready.isEmpty()) {
+            int current = this.workers.get();
+            if (current >= this.maxConcurrency) {
+                return;
+            }
+            if (this.workers.compareAndSet(current, current + 1)) {
+                try {
+                    this.executor.execute(() -> work());
+                } catch (RejectedExecutionException e) {
+                    this.workers.decrementAndGet();
+                    TRACE_LOGGER.warn(this.hostContext.withHost("Could not start event processing worker"), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    // A worker runs one batch from the queue at the head of the ready list, then puts the queue at the back if it
+    // has more, so that the partitions take turns.
+    private void work() {
+        try {
+            PartitionQueue queue = null;
+            while ((queue = this.ready.poll()) != null) {
+                queue.runOne();
+                if (queue.finishRun()) {
+                    this.ready.add(queue);
+                }
+            }
+        } finally {
+            this.workers.decrementAndGet();
+        }
+        // A queue may have become ready after the poll above came up empty, but before this worker stopped counting.
+        startWorkers();
+    }
+
+    final class PartitionQueue {
+        private final String partitionId;
+        private final int maxDepth;
+        private final ArrayDeque<Runnable> batches = new ArrayDeque<Runnable>();
+        private boolean scheduled = false;
+        private boolean running = false;
+        private CompletableFuture<Void> idleFuture = null;
+        private CompletableFuture<Void> roomFuture = null;
+
+        private PartitionQueue(String partitionId, int maxDepth) {
+            this.partitionId = partitionId;
+            this.maxDepth = maxDepth;
+        }
+
+        // Called on the receive pump's thread. Never waits: the pump only receives a batch once whenHasRoom() completes.
+        void submit(Runnable batch) {
+            boolean schedule = false;
+            synchronized (this) {
+                this.batches.add(batch);
+                if (!this.scheduled) {
+                    this.scheduled = true;
+                    schedule = true;
+                }
+            }
+            if (schedule) {
+                makeReady(this);
+            }
+        }
+
+        // Completes when the queue has room for another batch.
+        synchronized CompletableFuture<Void> whenHasRoom() {
+            if (this.batches.size() < this.maxDepth) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (this.roomFuture == null) {
+                this.roomFuture = new CompletableFuture<Void>();
+            }
+            return this.roomFuture;
+        }
+
+        // Batches received but not yet handed to the processor, plus the one being processed if any.
+        synchronized int getDepth() {
+            return this.batches.size() + (this.running ? 1 : 0);
+        }
+
+        // Completes when every batch submitted so far has been processed.
+        synchronized CompletableFuture<Void> whenIdle() {
+            if (!this.scheduled) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (this.idleFuture == null) {
+                this.idleFuture = new CompletableFuture<Void>();
+            }
+            return this.idleFuture;
+        }
+
+        private void runOne() {
+            Runnable batch = null;
+            CompletableFuture<Void> completeThis = null;
+            synchronized (this) {
+                batch = this.batches.poll();
+                this.running = (batch != null);
+                if (this.batches.size() < this.maxDepth) {
+                    completeThis = this.roomFuture;
+                    this.roomFuture = null;
+                }
+            }
+            // Resumes the receive pump, which runs on its own executor.
+            if (completeThis != null) {
+                completeThis.complete(null);
+            }
+            if (batch != null) {
+                try {
+                    batch.run();
+                } catch (Exception e) {
+                    TRACE_LOGGER.warn(ProcessingScheduler.this.hostContext.withHostAndPartition(this.partitionId, "Failure processing batch"), e);
+                }
+            }
+        }
+
+        // Returns true if the queue has more batches and must go back on the ready list.
+        private boolean finishRun() {
+            CompletableFuture<Void> completeThis = null;
+            synchronized (this) {
+                this.running = false;
+                if (!this.batches.isEmpty()) {
+                    return true;
+                }
+                this.scheduled = false;
+                completeThis = this.idleFuture;
+                this.idleFuture = null;
+            }
+            if (completeThis != null) {
+                completeThis.complete(null);
+            }
+            return false;
+        }
+    }
+}
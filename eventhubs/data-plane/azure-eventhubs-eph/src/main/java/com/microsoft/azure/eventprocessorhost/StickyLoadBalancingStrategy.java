@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Load balancing strategy which moves as few partitions as it can. Any count between the floor and the ceiling of
+ * an even share is good enough: a host takes unowned leases up to the ceiling, but only steals while it has less
+ * than the floor, and only from hosts over the ceiling - or, if there are none, one lease from a host at the
+ * ceiling. Partitions never move between two hosts which are both within the band.
+ * <p>
+ * Converges in about as many scans as GreedyLoadBalancingStrategy when hosts join, while stealing about as few
+ * leases as any balancing could.
+ */
+public final class StickyLoadBalancingStrategy implements ILoadBalancingStrategy {
+    @Override
+    public List<BaseLease> selectLeasesToTake(String hostName, List<BaseLease> allLeases, boolean isFirstScan) {
+        LeaseDistribution distribution = new LeaseDistribution(hostName, allLeases);
+        if (isFirstScan) {
+            return distribution.selectFirstLease();
+        }
+
+        ArrayList<BaseLease> selected = new ArrayList<BaseLease>();
+        int ownedCount = distribution.getOwnedBy(hostName).size();
+        int floor = distribution.getFloorShare();
+        int ceiling = distribution.getCeilingShare();
+
+        if (ownedCount < ceiling) {
+            selected.addAll(distribution.pick(distribution.getUnowned(), ceiling - ownedCount));
+        }
+
+        int needed = floor - ownedCount - selected.size();
+        if (needed > 0) {
+            for (String host : distribution.getHosts()) {
+                int excess = distribution.getOwnedBy(host).size() - ceiling;
+                if ((excess > 0) && (needed > 0)) {
+                    List<BaseLease> stolen = distribution.pick(distribution.getOwnedBy(host), Math.min(needed, excess));
+                    selected.addAll(stolen);
+                    needed -= stolen.size();
+                }
+            }
+        }
+
+        if ((needed > 0) && (ceiling > floor)) {
+            // Nobody is over the ceiling, so some hosts at the ceiling have this host's share.
+            for (String host : distribution.getHosts()) {
+                if (distribution.getOwnedBy(host).size() == ceiling) {
+                    selected.addAll(distribution.pick(distribution.getOwnedBy(host), 1));
+                    break;
+                }
+            }
+        }
+
+        return selected;
+    }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class CheckpointWriterTest {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final RecordingCheckpointManager checkpointManager = new RecordingCheckpointManager();
+    private final CheckpointRuntimeInformation runtimeInformation = new CheckpointRuntimeInformation("0");
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void checkpointsAreCoalescedWhileAWriteIsInProgress() throws Exception {
+        CheckpointWriter writer = createWriter(0);
+
+        CompletableFuture<Void> first = writer.write(null, new Checkpoint("0", "100", 10));
+        CompletableFuture<Void> second = writer.write(null, new Checkpoint("0", "200", 20));
+        CompletableFuture<Void> third = writer.write(null, new Checkpoint("0", "300", 30));
+        Assert.assertEquals(1, this.checkpointManager.written.size());
+
+        this.checkpointManager.writes.get(0).complete(null);
+        first.get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(second.isDone());
+
+        // only the latest of the waiting checkpoints is written
+        Assert.assertEquals(2, this.checkpointManager.written.size());
+        Assert.assertEquals(30, this.checkpointManager.written.get(1).getSequenceNumber());
+
+        this.checkpointManager.writes.get(1).complete(null);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(30, this.runtimeInformation.getLastPersistedSequenceNumber());
+        Assert.assertEquals(1, this.runtimeInformation.getCoalescedCount());
+        Assert.assertEquals(2, this.runtimeInformation.getWriteCount());
+    }
+
+    @Test
+    public void writesAreSpacedByTheInterval() throws Exception {
+        CheckpointWriter writer = createWriter(200);
+        this.checkpointManager.completeImmediately = true;
+
+        writer.write(null, new Checkpoint("0", "100", 10)).get(5, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        CompletableFuture<Void> second = writer.write(null, new Checkpoint("0", "200", 20));
+        CompletableFuture<Void> third = writer.write(null, new Checkpoint("0", "300", 30));
+
+        third.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        Assert.assertEquals(2, this.checkpointManager.written.size());
+        Assert.assertEquals(30, this.checkpointManager.written.get(1).getSequenceNumber());
+    }
+
+    @Test
+    public void failureCompletesAllCoalescedCheckpoints() throws Exception {
+        CheckpointWriter writer = createWriter(0);
+
+        writer.write(null, new Checkpoint("0", "100", 10));
+        CompletableFuture<Void> second = writer.write(null, new Checkpoint("0", "200", 20));
+        CompletableFuture<Void> third = writer.write(null, new Checkpoint("0", "300", 30));
+        this.checkpointManager.writes.get(0).complete(null);
+
+        RuntimeException leaseLost = new RuntimeException("Lease lost while updating checkpoint");
+        this.checkpointManager.writes.get(1).completeExceptionally(leaseLost);
+        for (CompletableFuture<Void> future : Arrays.asList(second, third)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("checkpoint should fail");
+            } catch (ExecutionException e) {
+                Assert.assertSame(leaseLost, e.getCause());
+            }
+        }
+
+        Assert.assertEquals(10, this.runtimeInformation.getLastPersistedSequenceNumber());
+        Assert.assertEquals(1, this.runtimeInformation.getFailedWriteCount());
+    }
+
+    @Test
+    public void lagCountsEventsPastThePersistedCheckpoint() {
+        Assert.assertEquals(0, this.runtimeInformation.getLagInEvents());
+
+        this.runtimeInformation.setLastReceivedSequenceNumber(9);
+        Assert.assertEquals(10, this.runtimeInformation.getLagInEvents());
+
+        this.runtimeInformation.onWritten(4, Duration.ZERO, true);
+        Assert.assertEquals(5, this.runtimeInformation.getLagInEvents());
+    }
+
+    private CheckpointWriter createWriter(int intervalInMillis) {
+        HostContext hostContext = new HostContext(this.executor, null, "host", "hub", "$Default", null, null, null, this.checkpointManager);
+        return new CheckpointWriter(hostContext, "0", intervalInMillis, this.runtimeInformation);
+    }
+
+    private static final class RecordingCheckpointManager implements ICheckpointManager {
+        private final List<Checkpoint> written = new CopyOnWriteArrayList<Checkpoint>();
+        private final List<CompletableFuture<Void>> writes = new CopyOnWriteArrayList<CompletableFuture<Void>>();
+        private volatile boolean completeImmediately = false;
+
+        @Override
+        public CompletableFuture<Void> updateCheckpoint(CompleteLease lease, Checkpoint checkpoint) {
+            this.written.add(checkpoint);
+            CompletableFuture<Void> write = this.completeImmediately ? CompletableFuture.completedFuture(null) : new CompletableFuture<Void>();
+            this.writes.add(write);
+            return write;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> checkpointStoreExists() {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Void> createCheckpointStoreIfNotExists() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteCheckpointStore() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Checkpoint> getCheckpoint(String partitionId) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> createAllCheckpointsIfNotExists(List<String> partitionIds) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteCheckpoint(String partitionId) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
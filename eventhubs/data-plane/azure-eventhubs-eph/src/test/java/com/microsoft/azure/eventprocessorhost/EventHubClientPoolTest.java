@@ -0,0 +1,192 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import com.microsoft.azure.eventhubs.EventHubClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventHubClientPoolTest {
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void partitionsAreSpreadOverTheLeastUsedClients() throws Exception {
+        FakeClientPool pool = new FakeClientPool(createHostContext(), 3);
+
+        Map<EventHubClient, Integer> borrowers = new HashMap<EventHubClient, Integer>();
+        List<EventHubClient> borrowed = new ArrayList<EventHubClient>();
+        for (int i = 0; i < 6; i++) {
+            EventHubClient client = pool.acquire().get(10, TimeUnit.SECONDS);
+            borrowed.add(client);
+            borrowers.merge(client, 1, Integer::sum);
+        }
+
+        Assert.assertEquals(3, pool.created.size());
+        for (int count : borrowers.values()) {
+            Assert.assertEquals(2, count);
+        }
+
+        // the client given back is now the least used, and is lent out next - still open
+        pool.release(borrowed.get(4));
+        Assert.assertSame(borrowed.get(4), pool.acquire().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, pool.created.size());
+        Assert.assertEquals(0, pool.closedCount());
+    }
+
+    @Test
+    public void failedClientIsCreatedAgainOnNextAcquire() throws Exception {
+        FakeClientPool pool = new FakeClientPool(createHostContext(), 1);
+        pool.failNextCreate = true;
+
+        try {
+            pool.acquire().get(10, TimeUnit.SECONDS);
+            Assert.fail("acquire should fail when the client cannot be created");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        EventHubClient client = pool.acquire().get(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(client);
+        Assert.assertEquals(2, pool.createCount.get());
+    }
+
+    @Test
+    public void poolSizeZeroGivesEveryPartitionItsOwnClient() throws Exception {
+        FakeClientPool pool = new FakeClientPool(createHostContext(), 0);
+
+        EventHubClient first = pool.acquire().get(10, TimeUnit.SECONDS);
+        EventHubClient second = pool.acquire().get(10, TimeUnit.SECONDS);
+        EventHubClient third = pool.acquire().get(10, TimeUnit.SECONDS);
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(second, third);
+
+        // a dedicated client is closed as soon as it is given back
+        pool.release(first);
+        waitForClosed(pool, 1);
+        Assert.assertEquals(1, pool.closeCount(first));
+
+        // closing the pool closes the ones still lent out
+        pool.close().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(3, pool.closedCount());
+        Assert.assertEquals(1, pool.closeCount(second));
+        Assert.assertEquals(1, pool.closeCount(third));
+    }
+
+    @Test
+    public void closeClosesEveryClientOnceAndRejectsFurtherAcquires() throws Exception {
+        FakeClientPool pool = new FakeClientPool(createHostContext(), 2);
+        EventHubClient first = pool.acquire().get(10, TimeUnit.SECONDS);
+        EventHubClient second = pool.acquire().get(10, TimeUnit.SECONDS);
+        pool.release(first);
+
+        pool.close().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, pool.closeCount(first));
+        Assert.assertEquals(1, pool.closeCount(second));
+
+        // giving back a client after close does not close it again
+        pool.release(second);
+        Assert.assertEquals(1, pool.closeCount(second));
+
+        try {
+            pool.acquire().get(10, TimeUnit.SECONDS);
+            Assert.fail("acquire should fail once the pool is closed");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(2, pool.created.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePoolSizeIsRejected() {
+        new PartitionManagerOptions().setConnectionPoolSize(-1);
+    }
+
+    private static void waitForClosed(FakeClientPool pool, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && pool.closedCount() < expected; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(expected, pool.closedCount());
+    }
+
+    private HostContext createHostContext() {
+        EventProcessorHost host = new EventProcessorHost("host", RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default",
+                RealEventHubUtilities.syntacticallyCorrectDummyConnectionString, new InMemoryCheckpointManager(), new InMemoryLeaseManager(),
+                this.executor, null);
+        return host.getHostContext();
+    }
+
+    private static class FakeClientPool extends EventHubClientPool {
+        final List<EventHubClient> created = new ArrayList<EventHubClient>();
+        final Map<EventHubClient, AtomicInteger> closes = new HashMap<EventHubClient, AtomicInteger>();
+        final AtomicInteger createCount = new AtomicInteger();
+        volatile boolean failNextCreate = false;
+
+        FakeClientPool(HostContext hostContext, int poolSize) {
+            super(hostContext, poolSize);
+        }
+
+        @Override
+        CompletableFuture<EventHubClient> createClientTestHook() {
+            this.createCount.incrementAndGet();
+            CompletableFuture<EventHubClient> clientFuture = new CompletableFuture<EventHubClient>();
+            if (this.failNextCreate) {
+                this.failNextCreate = false;
+                clientFuture.completeExceptionally(new IllegalStateException("client creation failed"));
+                return clientFuture;
+            }
+
+            AtomicInteger closeCount = new AtomicInteger();
+            EventHubClient client = (EventHubClient) Proxy.newProxyInstance(EventHubClient.class.getClassLoader(),
+                    new Class<?>[] {EventHubClient.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closeCount.incrementAndGet();
+                                return CompletableFuture.completedFuture(null);
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+            synchronized (this) {
+                this.created.add(client);
+                this.closes.put(client, closeCount);
+            }
+            clientFuture.complete(client);
+            return clientFuture;
+        }
+
+        synchronized int closeCount(EventHubClient client) {
+            return this.closes.get(client).get();
+        }
+
+        synchronized int closedCount() {
+            int closed = 0;
+            for (AtomicInteger closeCount : this.closes.values()) {
+                closed += Math.min(1, closeCount.get());
+            }
+            return closed;
+        }
+    }
+}
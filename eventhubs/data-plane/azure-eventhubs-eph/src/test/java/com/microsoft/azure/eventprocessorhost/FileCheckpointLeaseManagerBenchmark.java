@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Measures FileCheckpointLeaseManager.updateCheckpoint - one checkpoint per operation, each thread checkpointing a
+ * partition of its own, with a lease renewal rewriting the lease table every 10000 checkpoints, as the host's renewals
+ * would.
+ * Not run by the build - run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath org.openjdk.jmh.Main FileCheckpointLeaseManagerBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class FileCheckpointLeaseManagerBenchmark {
+    private static final int PARTITION_COUNT = 4;
+
+    @Benchmark
+    public Object updateCheckpoint(final Store store, final Partition partition) throws Exception {
+        partition.sequenceNumber++;
+        if (partition.sequenceNumber % Partition.LEASE_OPERATION_INTERVAL == 0) {
+            store.manager.renewLease(partition.lease).get();
+        }
+        return store.manager.updateCheckpoint(partition.lease,
+                new Checkpoint(partition.lease.getPartitionId(), String.valueOf(partition.sequenceNumber * 100), partition.sequenceNumber)).get();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        private final AtomicInteger nextPartition = new AtomicInteger();
+        private final List<CompleteLease> leases = new ArrayList<CompleteLease>();
+        private ScheduledExecutorService executor;
+        private Path directory;
+        private FileCheckpointLeaseManager manager;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            this.executor = Executors.newScheduledThreadPool(2);
+            this.directory = Files.createTempDirectory("checkpoints");
+            this.manager = new FileCheckpointLeaseManager(this.directory.toString());
+            EventProcessorHost host = new EventProcessorHost("host", RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default",
+                    RealEventHubUtilities.syntacticallyCorrectDummyConnectionString, this.manager, this.manager, this.executor, null);
+            this.manager.initialize(new ManagerContext(host.getHostContext()));
+            List<String> partitionIds = new ArrayList<String>();
+            for (int p = 0; p < PARTITION_COUNT; p++) {
+                partitionIds.add(String.valueOf(p));
+            }
+            this.manager.createLeaseStoreIfNotExists().get();
+            this.manager.createAllLeasesIfNotExists(partitionIds).get();
+            this.manager.createCheckpointStoreIfNotExists().get();
+            for (String partitionId : partitionIds) {
+                CompleteLease lease = this.manager.getLease(partitionId).get();
+                this.manager.acquireLease(lease).get();
+                this.leases.add(lease);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            this.manager.close();
+            this.executor.shutdownNow();
+            try (Stream<Path> files = Files.walk(this.directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach((file) -> file.toFile().delete());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Partition {
+        private static final int LEASE_OPERATION_INTERVAL = 10000;
+
+        private CompleteLease lease;
+        private long sequenceNumber;
+
+        @Setup(Level.Trial)
+        public void setup(final Store store) {
+            this.lease = store.leases.get(store.nextPartition.getAndIncrement() % PARTITION_COUNT);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class FileCheckpointLeaseManagerTest {
+    private static final List<String> PARTITION_IDS = Arrays.asList("0", "1", "2", "3");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void checkpointsSurviveCompactionAndReopening() throws Exception {
+        FileCheckpointLeaseManager manager = createManager("host", 4096);
+        manager.createLeaseStoreIfNotExists().get();
+        manager.createAllLeasesIfNotExists(PARTITION_IDS).get();
+        manager.createCheckpointStoreIfNotExists().get();
+        Assert.assertTrue(manager.checkpointStoreExists().get());
+        Assert.assertNull(manager.getCheckpoint("0").get());
+
+        CompleteLease[] leases = new CompleteLease[PARTITION_IDS.size()];
+        for (int p = 0; p < leases.length; p++) {
+            leases[p] = manager.getLease(PARTITION_IDS.get(p)).get();
+            Assert.assertTrue(manager.acquireLease(leases[p]).get());
+        }
+        for (int i = 0; i < 20000; i++) {
+            int p = i % leases.length;
+            manager.updateCheckpoint(leases[p], new Checkpoint(PARTITION_IDS.get(p), String.valueOf(i * 100), i)).get();
+        }
+        manager.deleteCheckpoint("3").get();
+        Assert.assertTrue(manager.getCheckpointLogCompactionCount() > 0);
+        manager.close();
+
+        FileCheckpointLeaseManager reopened = createManager("host", 4096);
+        for (int p = 0; p < 3; p++) {
+            Checkpoint checkpoint = reopened.getCheckpoint(PARTITION_IDS.get(p)).get();
+            Assert.assertEquals(19996 + p, checkpoint.getSequenceNumber());
+            Assert.assertEquals(String.valueOf((19996 + p) * 100), checkpoint.getOffset());
+        }
+        Assert.assertNull(reopened.getCheckpoint("3").get());
+        reopened.close();
+    }
+
+    @Test
+    public void checkpointsAreSharedBetweenManagers() throws Exception {
+        FileCheckpointLeaseManager first = createManager("first", 4096);
+        FileCheckpointLeaseManager second = createManager("second", 4096);
+        first.createLeaseStoreIfNotExists().get();
+        first.createAllLeasesIfNotExists(PARTITION_IDS).get();
+        first.createCheckpointStoreIfNotExists().get();
+
+        CompleteLease lease = first.getLease("0").get();
+        Assert.assertTrue(first.acquireLease(lease).get());
+        first.updateCheckpoint(lease, new Checkpoint("0", "100", 1)).get();
+        Assert.assertEquals(1, second.getCheckpoint("0").get().getSequenceNumber());
+
+        // Enough updates to compact the log the second manager has mapped.
+        for (int i = 2; i < 1000; i++) {
+            first.updateCheckpoint(lease, new Checkpoint("0", String.valueOf(i * 100), i)).get();
+        }
+        Assert.assertTrue(first.getCheckpointLogCompactionCount() > 0);
+        Assert.assertEquals(999, second.getCheckpoint("0").get().getSequenceNumber());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void stolenLeaseCannotBeRenewedOrCheckpointed() throws Exception {
+        FileCheckpointLeaseManager first = createManager("first", 4096);
+        FileCheckpointLeaseManager second = createManager("second", 4096);
+        first.createLeaseStoreIfNotExists().get();
+        Assert.assertTrue(second.leaseStoreExists().get());
+        first.createAllLeasesIfNotExists(PARTITION_IDS).get();
+        first.createCheckpointStoreIfNotExists().get();
+
+        CompleteLease firstLease = first.getLease("1").get();
+        Assert.assertTrue(first.acquireLease(firstLease).get());
+        Assert.assertEquals(1, firstLease.getEpoch());
+        BaseLease state = second.getAllLeases().get().get(1);
+        Assert.assertTrue(state.getIsOwned());
+        Assert.assertEquals("first", state.getOwner());
+
+        // A lease read before the first manager acquired it is out of date.
+        CompleteLease outOfDate = new FileLease("1");
+        Assert.assertFalse(second.acquireLease(outOfDate).get());
+
+        CompleteLease secondLease = second.getLease("1").get();
+        Assert.assertTrue(second.acquireLease(secondLease).get());
+        Assert.assertEquals(2, secondLease.getEpoch());
+
+        Assert.assertFalse(first.renewLease(firstLease).get());
+        try {
+            first.updateCheckpoint(firstLease, new Checkpoint("1", "100", 1)).get();
+            Assert.fail("checkpoint with a lost lease should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof LeaseLostException);
+        }
+
+        Assert.assertTrue(second.renewLeases(Arrays.asList(secondLease)).get().get("1"));
+        second.releaseLease(secondLease).get();
+        Assert.assertFalse(first.getAllLeases().get().get(1).getIsOwned());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void checkpointIsRefusedOnceAnotherManagerTookTheLease() throws Exception {
+        FileCheckpointLeaseManager first = createManager("first", 4096);
+        FileCheckpointLeaseManager second = createManager("second", 4096);
+        first.createLeaseStoreIfNotExists().get();
+        first.createAllLeasesIfNotExists(PARTITION_IDS).get();
+        first.createCheckpointStoreIfNotExists().get();
+
+        CompleteLease firstLease = first.getLease("2").get();
+        Assert.assertTrue(first.acquireLease(firstLease).get());
+        CompleteLease secondLease = second.getLease("2").get();
+        Assert.assertTrue(second.acquireLease(secondLease).get());
+
+        // The first manager has not renewed since, so only the lease table tells it the lease is gone.
+        try {
+            first.updateCheckpoint(firstLease, new Checkpoint("2", "100", 1)).get();
+            Assert.fail("checkpoint with a lost lease should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof LeaseLostException);
+        }
+        Assert.assertNull(second.getCheckpoint("2").get());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void compactionKeepsOneGenerationAndUnfinishedCompactionIsTakenBack() throws Exception {
+        FileCheckpointLeaseManager manager = createManager("host", 4096);
+        manager.createLeaseStoreIfNotExists().get();
+        manager.createAllLeasesIfNotExists(PARTITION_IDS).get();
+        manager.createCheckpointStoreIfNotExists().get();
+        CompleteLease lease = manager.getLease("0").get();
+        Assert.assertTrue(manager.acquireLease(lease).get());
+        for (int i = 0; i < 1000; i++) {
+            manager.updateCheckpoint(lease, new Checkpoint("0", String.valueOf(i * 100), i)).get();
+        }
+        Assert.assertTrue(manager.getCheckpointLogCompactionCount() > 0);
+        List<Path> generations = checkpointLogGenerations();
+        Assert.assertEquals(1, generations.size());
+        manager.close();
+
+        // As left by a process which went down in the middle of compacting: superseded, with no next generation.
+        try (FileChannel channel = FileChannel.open(generations.get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 1}), 8);
+        }
+
+        FileCheckpointLeaseManager reopened = createManager("host", 4096);
+        Assert.assertEquals(999, reopened.getCheckpoint("0").get().getSequenceNumber());
+        Assert.assertTrue(reopened.acquireLease(lease).get());
+        reopened.updateCheckpoint(lease, new Checkpoint("0", "100000", 1000)).get();
+        reopened.close();
+
+        FileCheckpointLeaseManager again = createManager("host", 4096);
+        Assert.assertEquals(1000, again.getCheckpoint("0").get().getSequenceNumber());
+        Assert.assertEquals(generations, checkpointLogGenerations());
+        again.close();
+    }
+
+    private List<Path> checkpointLogGenerations() throws IOException {
+        Path storeDirectory = this.folder.getRoot().toPath().resolve(RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath).resolve("$Default");
+        List<Path> generations = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storeDirectory, "checkpoints.log.[0-9]*")) {
+            for (Path file : files) {
+                generations.add(file);
+            }
+        }
+        return generations;
+    }
+
+    private FileCheckpointLeaseManager createManager(String hostName, int logCapacity) throws Exception {
+        FileCheckpointLeaseManager manager = new FileCheckpointLeaseManager(this.folder.getRoot().getPath(), 0, logCapacity);
+        EventProcessorHost host = new EventProcessorHost(hostName, RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default",
+                RealEventHubUtilities.syntacticallyCorrectDummyConnectionString, manager, manager, this.executor, null);
+        manager.initialize(new ManagerContext(host.getHostContext()));
+        return manager;
+    }
+}
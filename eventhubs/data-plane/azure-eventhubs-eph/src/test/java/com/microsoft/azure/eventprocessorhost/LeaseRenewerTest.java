@@ -0,0 +1,198 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LeaseRenewerTest {
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+    private LeaseRenewer renewer = null;
+
+    @After
+    public void shutdown() {
+        if (this.renewer != null) {
+            this.renewer.close();
+        }
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void allLeasesAreRenewedInOnePassWithBoundedConcurrency() throws Exception {
+        RecordingLeaseManager leaseManager = new RecordingLeaseManager();
+        HostContext hostContext = createHostContext(leaseManager);
+        hostContext.getPartitionManagerOptions().setMaxConcurrentLeaseRenewals(3);
+        this.renewer = new LeaseRenewer(hostContext, null);
+
+        for (int i = 0; i < 10; i++) {
+            this.renewer.register(new CompleteLease(String.valueOf(i)), () -> Assert.fail("lease should not be lost"));
+        }
+        leaseManager.expectRenewals(10);
+        this.renewer.start();
+
+        Assert.assertTrue(leaseManager.renewalsDone.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(leaseManager.maxOutstanding.get() <= 3);
+        Assert.assertEquals(10, new HashSet<String>(leaseManager.renewed.subList(0, 10)).size());
+    }
+
+    @Test
+    public void lostLeaseIsReportedAndNoLongerRenewed() throws Exception {
+        RecordingLeaseManager leaseManager = new RecordingLeaseManager();
+        leaseManager.lostPartitionId = "1";
+        HostContext hostContext = createHostContext(leaseManager);
+        this.renewer = new LeaseRenewer(hostContext, null);
+
+        CountDownLatch lost = new CountDownLatch(1);
+        this.renewer.register(new CompleteLease("0"), () -> Assert.fail("lease should not be lost"));
+        this.renewer.register(new CompleteLease("1"), () -> lost.countDown());
+        leaseManager.expectRenewals(3);
+        this.renewer.start();
+
+        // first pass renews both, second pass only the lease which was not lost
+        Assert.assertTrue(lost.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(leaseManager.renewalsDone.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("0", leaseManager.renewed.get(2));
+    }
+
+    @Test
+    public void bulkLeaseManagerRenewsAllLeasesInOneCall() throws Exception {
+        RecordingLeaseManager leaseManager = new RecordingBulkLeaseManager();
+        HostContext hostContext = createHostContext(leaseManager);
+        this.renewer = new LeaseRenewer(hostContext, null);
+
+        for (int i = 0; i < 5; i++) {
+            this.renewer.register(new CompleteLease(String.valueOf(i)), () -> Assert.fail("lease should not be lost"));
+        }
+        leaseManager.expectRenewals(5);
+        this.renewer.start();
+
+        Assert.assertTrue(leaseManager.renewalsDone.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, ((RecordingBulkLeaseManager) leaseManager).bulkCalls.get());
+    }
+
+    private HostContext createHostContext(ILeaseManager leaseManager) {
+        EventProcessorHost host = new EventProcessorHost("host", RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default", RealEventHubUtilities.syntacticallyCorrectDummyConnectionString,
+                new InMemoryCheckpointManager(), leaseManager, this.executor, null);
+        PartitionManagerOptions options = new PartitionManagerOptions();
+        options.setLeaseRenewIntervalInSeconds(1);
+        host.setPartitionManagerOptions(options);
+        HostContext hostContext = host.getHostContext();
+        hostContext.setEventProcessorOptions(EventProcessorOptions.getDefaultOptions());
+        return hostContext;
+    }
+
+    private class RecordingLeaseManager implements ILeaseManager {
+        final List<String> renewed = new CopyOnWriteArrayList<String>();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        volatile String lostPartitionId = null;
+        volatile CountDownLatch renewalsDone = null;
+
+        void expectRenewals(int count) {
+            this.renewalsDone = new CountDownLatch(count);
+        }
+
+        boolean renew(CompleteLease lease) {
+            this.renewed.add(lease.getPartitionId());
+            this.renewalsDone.countDown();
+            return !lease.getPartitionId().equals(this.lostPartitionId);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> renewLease(CompleteLease lease) {
+            this.maxOutstanding.accumulateAndGet(this.outstanding.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    // Don't care
+                }
+                this.outstanding.decrementAndGet();
+                return renew(lease);
+            }, LeaseRenewerTest.this.executor);
+        }
+
+        @Override
+        public int getLeaseDurationInMilliseconds() {
+            return 30000;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> leaseStoreExists() {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Void> createLeaseStoreIfNotExists() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteLeaseStore() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<CompleteLease> getLease(String partitionId) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<List<BaseLease>> getAllLeases() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> createAllLeasesIfNotExists(List<String> partitionIds) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> acquireLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Void> releaseLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> updateLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    private class RecordingBulkLeaseManager extends RecordingLeaseManager implements IBulkLeaseManager {
+        final AtomicInteger bulkCalls = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Map<String, Boolean>> renewLeases(List<CompleteLease> leases) {
+            this.bulkCalls.incrementAndGet();
+            Map<String, Boolean> results = new HashMap<String, Boolean>();
+            for (CompleteLease lease : leases) {
+                results.put(lease.getPartitionId(), renew(lease));
+            }
+            return CompletableFuture.completedFuture(results);
+        }
+    }
+}
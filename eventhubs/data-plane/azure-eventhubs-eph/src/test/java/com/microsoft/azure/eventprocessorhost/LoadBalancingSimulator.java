@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Deterministic model of a set of hosts balancing leases with an ILoadBalancingStrategy, without any lease store.
+// In each round every host decides from the same snapshot of the leases, as hosts scanning at about the same time
+// would. The takes are then applied in a seeded random order and a take only succeeds if the lease has not changed
+// owner since the snapshot, like a conditional acquire against the store.
+class LoadBalancingSimulator {
+    private final ILoadBalancingStrategy strategy;
+    private final Random random;
+    private final List<String> hosts = new ArrayList<String>();
+    private final String[] owners;
+    private int moves = 0;
+    private int steals = 0;
+
+    LoadBalancingSimulator(ILoadBalancingStrategy strategy, int partitionCount, long seed) {
+        this.strategy = strategy;
+        this.random = new Random(seed);
+        this.owners = new String[partitionCount];
+    }
+
+    // Adds a host which scans for the first time in the next round.
+    void addHost(String hostName) {
+        this.hosts.add(hostName);
+    }
+
+    void removeHost(String hostName) {
+        this.hosts.remove(hostName);
+        for (int i = 0; i < this.owners.length; i++) {
+            if (hostName.equals(this.owners[i])) {
+                this.owners[i] = null;
+            }
+        }
+    }
+
+    // Runs rounds until one after the first passes without any successful take, or maxRounds. The new hosts scan for
+    // the first time in the first round. Returns the number of rounds before the one which changed nothing, or -1 if
+    // the hosts were still moving leases after maxRounds.
+    int runUntilStable(int maxRounds, List<String> newHosts) {
+        for (int round = 0; round < maxRounds; round++) {
+            boolean changed = runRound((round == 0) ? newHosts : Collections.<String>emptyList());
+            if (!changed && (round > 0)) {
+                return round;
+            }
+        }
+        return -1;
+    }
+
+    // Returns true if any lease changed owner.
+    boolean runRound(List<String> firstScanHosts) {
+        List<BaseLease> snapshot = new ArrayList<BaseLease>();
+        for (int i = 0; i < this.owners.length; i++) {
+            snapshot.add(new BaseLease(partitionId(i), (this.owners[i] != null) ? this.owners[i] : "", this.owners[i] != null));
+        }
+
+        List<String[]> takes = new ArrayList<String[]>();
+        for (String host : this.hosts) {
+            for (BaseLease lease : this.strategy.selectLeasesToTake(host, Collections.unmodifiableList(snapshot), firstScanHosts.contains(host))) {
+                takes.add(new String[] {host, lease.getPartitionId(), lease.getIsOwned() ? lease.getOwner() : null});
+            }
+        }
+        Collections.shuffle(takes, this.random);
+
+        boolean changed = false;
+        for (String[] take : takes) {
+            int index = Integer.parseInt(take[1]);
+            String expectedOwner = take[2];
+            boolean unchanged = (expectedOwner == null) ? (this.owners[index] == null) : expectedOwner.equals(this.owners[index]);
+            if (unchanged && !take[0].equals(this.owners[index])) {
+                if (this.owners[index] != null) {
+                    this.steals++;
+                }
+                this.owners[index] = take[0];
+                this.moves++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    Map<String, Integer> getCounts() {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (String host : this.hosts) {
+            counts.put(host, 0);
+        }
+        for (String owner : this.owners) {
+            if (owner != null) {
+                counts.merge(owner, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    int getUnownedCount() {
+        int unowned = 0;
+        for (String owner : this.owners) {
+            if (owner == null) {
+                unowned++;
+            }
+        }
+        return unowned;
+    }
+
+    int getMoves() {
+        return this.moves;
+    }
+
+    int getSteals() {
+        return this.steals;
+    }
+
+    void resetCounters() {
+        this.moves = 0;
+        this.steals = 0;
+    }
+
+    private static String partitionId(int index) {
+        return String.valueOf(index);
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class LoadBalancingStrategyTest {
+    @Test
+    public void greedyConvergesQuicklyWhenManyHostsStartTogether() {
+        LoadBalancingSimulator simulator = new LoadBalancingSimulator(new GreedyLoadBalancingStrategy(), 1024, 1);
+        List<String> hosts = hostNames(0, 32);
+        hosts.forEach(simulator::addHost);
+
+        int rounds = simulator.runUntilStable(20, hosts);
+        Assert.assertTrue("did not converge", rounds > 0);
+        Assert.assertTrue("took " + rounds + " rounds", rounds <= 6);
+        Assert.assertEquals(0, simulator.getUnownedCount());
+        for (int count : simulator.getCounts().values()) {
+            Assert.assertEquals(32, count);
+        }
+    }
+
+    @Test
+    public void stickyMovesOnlyTheNewHostsShareWhenAHostJoins() {
+        LoadBalancingSimulator simulator = new LoadBalancingSimulator(new StickyLoadBalancingStrategy(), 64, 2);
+        List<String> hosts = hostNames(0, 4);
+        hosts.forEach(simulator::addHost);
+        Assert.assertTrue(simulator.runUntilStable(20, hosts) > 0);
+        for (int count : simulator.getCounts().values()) {
+            Assert.assertEquals(16, count);
+        }
+
+        simulator.resetCounters();
+        simulator.addHost("host4");
+        Assert.assertTrue(simulator.runUntilStable(40, Collections.singletonList("host4")) > 0);
+
+        // 64 over 5 hosts is 12 or 13 each, so the new host needs 12 and nothing else has to move.
+        Assert.assertEquals(simulator.getCounts().toString(), 12, (int) simulator.getCounts().get("host4"));
+        Assert.assertEquals(simulator.getCounts() + " moves " + simulator.getMoves(), 12, simulator.getMoves());
+        for (int count : simulator.getCounts().values()) {
+            Assert.assertTrue(count == 12 || count == 13);
+        }
+    }
+
+    @Test
+    public void leasesOfAHostWhichLeftAreTakenOver() {
+        for (ILoadBalancingStrategy strategy : new ILoadBalancingStrategy[] {new GreedyLoadBalancingStrategy(), new StickyLoadBalancingStrategy()}) {
+            LoadBalancingSimulator simulator = new LoadBalancingSimulator(strategy, 30, 3);
+            List<String> hosts = hostNames(0, 3);
+            hosts.forEach(simulator::addHost);
+            Assert.assertTrue(simulator.runUntilStable(40, hosts) > 0);
+
+            simulator.removeHost("host1");
+            Assert.assertTrue(simulator.runUntilStable(40, Collections.<String>emptyList()) > 0);
+            Assert.assertEquals(0, simulator.getUnownedCount());
+            for (int count : simulator.getCounts().values()) {
+                Assert.assertEquals(15, count);
+            }
+        }
+    }
+
+    private static List<String> hostNames(int from, int to) {
+        List<String> names = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            names.add("host" + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PartitionScannerTest {
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void scanStopsEarlyWhileOwnershipIsUnchanged() throws Exception {
+        FixedLeaseManager leaseManager = new FixedLeaseManager();
+        leaseManager.leases.add(new BaseLease("0", "host", true));
+        leaseManager.leases.add(new BaseLease("1", "otherHost", true));
+        HostContext hostContext = createHostContext(leaseManager);
+
+        PartitionScanner first = new PartitionScanner(hostContext, (lease) -> Assert.fail("nothing to acquire"), null);
+        first.scan(false, null).get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(first.wasSkipped());
+        Map<String, String> ownership = first.getOwnershipForNextScan();
+        Assert.assertNotNull(ownership);
+
+        PartitionScanner second = new PartitionScanner(hostContext, (lease) -> Assert.fail("nothing to acquire"), null);
+        second.scan(false, ownership).get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(second.wasSkipped());
+        Assert.assertEquals(ownership, second.getOwnershipForNextScan());
+
+        // The other host's lease expired: look again and try to take it.
+        leaseManager.leases.set(1, new BaseLease("1", "otherHost", false));
+        PartitionScanner third = new PartitionScanner(hostContext, (lease) -> Assert.fail("acquire fails"), null);
+        third.scan(false, ownership).get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(third.wasSkipped());
+        Assert.assertEquals(1, leaseManager.acquireCalls.get());
+        Assert.assertNull(third.getOwnershipForNextScan());
+    }
+
+    private HostContext createHostContext(ILeaseManager leaseManager) {
+        EventProcessorHost host = new EventProcessorHost("host", RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default",
+                RealEventHubUtilities.syntacticallyCorrectDummyConnectionString, new InMemoryCheckpointManager(), leaseManager, this.executor, null);
+        HostContext hostContext = host.getHostContext();
+        hostContext.setEventProcessorOptions(EventProcessorOptions.getDefaultOptions());
+        return hostContext;
+    }
+
+    private static class FixedLeaseManager implements ILeaseManager {
+        final List<BaseLease> leases = new ArrayList<BaseLease>();
+        final AtomicInteger acquireCalls = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<List<BaseLease>> getAllLeases() {
+            return CompletableFuture.completedFuture(new ArrayList<BaseLease>(this.leases));
+        }
+
+        @Override
+        public CompletableFuture<CompleteLease> getLease(String partitionId) {
+            return CompletableFuture.completedFuture(new CompleteLease(partitionId));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> acquireLease(CompleteLease lease) {
+            this.acquireCalls.incrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        @Override
+        public int getLeaseDurationInMilliseconds() {
+            return 30000;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> leaseStoreExists() {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Void> createLeaseStoreIfNotExists() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteLeaseStore() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> createAllLeasesIfNotExists(List<String> partitionIds) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> renewLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Void> releaseLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> updateLease(CompleteLease lease) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventprocessorhost;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProcessingSchedulerTest {
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private ProcessingScheduler scheduler = null;
+
+    @After
+    public void shutdown() {
+        if (this.scheduler != null) {
+            this.scheduler.close();
+        }
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void batchesRunInOrderPerPartitionWithBoundedConcurrency() throws Exception {
+        this.scheduler = new ProcessingScheduler(createHostContext(), 3, null);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<List<Integer>> processed = new ArrayList<List<Integer>>();
+        List<ProcessingScheduler.PartitionQueue> queues = new ArrayList<ProcessingScheduler.PartitionQueue>();
+        for (int p = 0; p < 8; p++) {
+            processed.add(new ArrayList<Integer>());
+            queues.add(this.scheduler.createQueue(String.valueOf(p), 4));
+        }
+
+        for (int batch = 0; batch < 20; batch++) {
+            for (int p = 0; p < 8; p++) {
+                final List<Integer> partitionProcessed = processed.get(p);
+                final int batchNumber = batch;
+                // As the receive pump does: a batch is only received once the queue has room for it.
+                queues.get(p).whenHasRoom().get(30, TimeUnit.SECONDS);
+                Assert.assertTrue(queues.get(p).getDepth() <= 5);
+                queues.get(p).submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    synchronized (partitionProcessed) {
+                        partitionProcessed.add(batchNumber);
+                    }
+                    sleep(1);
+                    running.decrementAndGet();
+                });
+            }
+        }
+        for (ProcessingScheduler.PartitionQueue queue : queues) {
+            queue.whenIdle().get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(0, queue.getDepth());
+        }
+
+        Assert.assertTrue(maxRunning.get() <= 3);
+        for (List<Integer> partitionProcessed : processed) {
+            for (int batch = 0; batch < 20; batch++) {
+                Assert.assertEquals(batch, (int) partitionProcessed.get(batch));
+            }
+        }
+    }
+
+    @Test
+    public void fullQueueHoldsUpOnlyItsOwnPartition() throws Exception {
+        ExecutorService userExecutor = Executors.newCachedThreadPool();
+        try {
+            this.scheduler = new ProcessingScheduler(createHostContext(), 2, userExecutor);
+            CountDownLatch release = new CountDownLatch(1);
+            ProcessingScheduler.PartitionQueue slow = this.scheduler.createQueue("0", 1);
+            ProcessingScheduler.PartitionQueue fast = this.scheduler.createQueue("1", 1);
+
+            slow.submit(() -> await(release));
+            slow.submit(() -> { });
+            Assert.assertEquals(2, slow.getDepth());
+
+            // The slow partition's queue is full, so its next batch has to wait - without a thread waiting for it.
+            CompletableFuture<Void> room = slow.whenHasRoom();
+            Thread.sleep(200);
+            Assert.assertFalse(room.isDone());
+
+            // The other partition still gets processed.
+            CountDownLatch fastDone = new CountDownLatch(1);
+            fast.submit(() -> fastDone.countDown());
+            Assert.assertTrue(fastDone.await(10, TimeUnit.SECONDS));
+
+            release.countDown();
+            room.get(10, TimeUnit.SECONDS);
+            slow.submit(() -> { });
+            slow.whenIdle().get(10, TimeUnit.SECONDS);
+        } finally {
+            userExecutor.shutdownNow();
+        }
+    }
+
+    private HostContext createHostContext() {
+        EventProcessorHost host = new EventProcessorHost("host", RealEventHubUtilities.syntacticallyCorrectDummyEventHubPath, "$Default",
+                RealEventHubUtilities.syntacticallyCorrectDummyConnectionString, new InMemoryCheckpointManager(), new InMemoryLeaseManager(), this.executor, null);
+        HostContext hostContext = host.getHostContext();
+        hostContext.setEventProcessorOptions(EventProcessorOptions.getDefaultOptions());
+        return hostContext;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Don't care
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // Don't care
+        }
+    }
+}
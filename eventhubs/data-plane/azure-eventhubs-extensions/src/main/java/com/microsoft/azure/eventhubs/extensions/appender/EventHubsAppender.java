@@ -18,27 +18,27 @@ import org.apache.logging.log4j.core.util.StringEncoder;
 import java.io.Serializable;
 
 import java.util.Locale;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Sends {@link LogEvent}'s to Microsoft Azure EventHubs.
  * By default, tuned for high performance and hence, pushes a batch of Events.
+ * <p>
+ * Logging threads only serialize the event and put it in a buffer of {@code bufferSize} events; a sender thread of the
+ * appender packs the buffered events into batches and sends them. When the buffer is full, the {@code overflowPolicy}
+ * decides whether the logging thread waits or an event is dropped. With {@code immediateFlush}, every event is sent on
+ * its own as soon as the sender takes it, instead of together with the events buffered behind it.
  */
 @Plugin(name = "EventHub", category = "Core", elementType = "appender", printObject = true)
 public final class EventHubsAppender extends AbstractAppender {
-    private static final int MAX_BATCH_SIZE_BYTES = 200 * 1024;
-
-    // this constant is tuned to use the MaximumAllowedMessageSize(256K) including AMQP-Headers for a LogEvent of 1Char
-    private static final int MAX_BATCH_SIZE = 21312;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final long DEFAULT_DRAIN_TIMEOUT_SECONDS = 10;
     private static final long serialVersionUID = 1L;
 
     private final EventHubsManager eventHubsManager;
-    private final boolean immediateFlush;
-    private final AtomicInteger currentBufferedSizeBytes;
-    private final ConcurrentLinkedQueue<byte[]> logEvents;
+    private final EventHubsBatchSender sender;
 
     private EventHubsAppender(
             final String name,
@@ -46,13 +46,13 @@ public final class EventHubsAppender extends AbstractAppender {
             final Layout<? extends Serializable> layout,
             final boolean ignoreExceptions,
             final EventHubsManager eventHubsManager,
-            final boolean immediateFlush) {
+            final boolean immediateFlush,
+            final int bufferSize,
+            final OverflowPolicy overflowPolicy) {
         super(name, filter, layout, ignoreExceptions);
 
         this.eventHubsManager = eventHubsManager;
-        this.immediateFlush = immediateFlush;
-        this.logEvents = new ConcurrentLinkedQueue<byte[]>();
-        this.currentBufferedSizeBytes = new AtomicInteger();
+        this.sender = new EventHubsBatchSender(name, eventHubsManager, bufferSize, overflowPolicy, immediateFlush);
     }
 
     @PluginFactory
@@ -62,9 +62,17 @@ public final class EventHubsAppender extends AbstractAppender {
             @PluginElement("Layout") final Layout<? extends Serializable> layout,
             @PluginAttribute(value = "ignoreExceptions", defaultBoolean = true) final boolean ignoreExceptions,
             @Required(message = "Provide EventHub connection string to append the events to") @PluginAttribute("eventHubConnectionString") final String connectionString,
-            @PluginAttribute(value = "immediateFlush", defaultBoolean = false) final boolean immediateFlush) {
+            @PluginAttribute(value = "immediateFlush", defaultBoolean = false) final boolean immediateFlush,
+            @PluginAttribute(value = "bufferSize", defaultInt = DEFAULT_BUFFER_SIZE) final int bufferSize,
+            @PluginAttribute(value = "overflowPolicy") final String overflowPolicy) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(String.format(Locale.US, "[%s] bufferSize must be greater than 0", name));
+        }
+        final OverflowPolicy policy = (overflowPolicy == null || overflowPolicy.isEmpty())
+                ? OverflowPolicy.BLOCK
+                : OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT));
         final EventHubsManager eventHubsManager = new EventHubsManager(name, connectionString);
-        return new EventHubsAppender(name, filter, layout, ignoreExceptions, eventHubsManager, immediateFlush);
+        return new EventHubsAppender(name, filter, layout, ignoreExceptions, eventHubsManager, immediateFlush, bufferSize, policy);
     }
 
     @Override
@@ -81,27 +89,11 @@ public final class EventHubsAppender extends AbstractAppender {
             }
 
             if (serializedLogEvent != null) {
-                if (this.immediateFlush) {
-                    this.eventHubsManager.send(serializedLogEvent);
-                    return;
-                } else {
-                    int currentSize = this.currentBufferedSizeBytes.addAndGet(serializedLogEvent.length);
-                    this.logEvents.offer(serializedLogEvent);
-
-                    if (currentSize < EventHubsAppender.MAX_BATCH_SIZE_BYTES
-                            && this.logEvents.size() < EventHubsAppender.MAX_BATCH_SIZE
-                            && !logEvent.isEndOfBatch()) {
-                        return;
-                    }
-
-                    logEvent.setEndOfBatch(true);
-
-                    this.eventHubsManager.send(this.logEvents);
-
-                    this.logEvents.clear();
-                    this.currentBufferedSizeBytes.set(0);
-                }
+                this.sender.offer(serializedLogEvent);
             }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new AppenderLoggingException("Interrupted while waiting for room to buffer logEvent for EventHubs", exception);
         } catch (final Throwable exception) {
             AppenderLoggingException appenderLoggingException = exception instanceof AppenderLoggingException
                     ? (AppenderLoggingException) exception
@@ -109,32 +101,73 @@ public final class EventHubsAppender extends AbstractAppender {
 
             LOGGER.error(String.format(Locale.US, "[%s] Appender failed to logEvent to EventHub.", this.getName()));
 
-            // remove the current LogEvent from the inMem Q - to avoid replay
-            if (serializedLogEvent != null && this.logEvents.remove(serializedLogEvent)) {
-                this.currentBufferedSizeBytes.addAndGet(-1 * serializedLogEvent.length);
-            }
-
             throw appenderLoggingException;
         }
     }
 
+    /**
+     * @return the number of log events waiting to be sent
+     */
+    public int getBufferedEventCount() {
+        return this.sender.getBufferedCount();
+    }
+
+    /**
+     * @return the number of log events dropped by the overflow policy, because the appender was stopped before they
+     * could be sent, or because the appender's sender was not running
+     */
+    public long getDroppedEventCount() {
+        return this.sender.getDroppedCount();
+    }
+
+    /**
+     * @return the number of log events sent to EventHubs
+     */
+    public long getSentEventCount() {
+        return this.sender.getSentCount();
+    }
+
+    /**
+     * @return the number of log events which could not be sent to EventHubs
+     */
+    public long getFailedEventCount() {
+        return this.sender.getFailedCount();
+    }
+
     @Override
     public void start() {
-        super.start();
-
+        // Started only once the sender is, so that log events are not appended while nothing can send them.
         try {
             this.eventHubsManager.startup();
+            this.sender.start();
         } catch (Throwable exception) {
             final String errMsg = String.format(Locale.US, "[%s] Appender initialization failed with error: [%s]", this.getName(), exception.getMessage());
 
             LOGGER.error(errMsg);
             throw new AppenderLoggingException(errMsg, exception);
         }
+
+        super.start();
     }
 
     @Override
-    public void stop() {
-        super.stop();
-        this.eventHubsManager.release();
+    public boolean stop(final long timeout, final TimeUnit timeUnit) {
+        setStopping();
+        super.stop(timeout, timeUnit, false);
+
+        boolean stopped = true;
+        try {
+            // Events buffered so far are still sent, for up to the timeout.
+            stopped = timeout > 0
+                    ? this.sender.stop(timeout, timeUnit)
+                    : this.sender.stop(DEFAULT_DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            stopped = false;
+        }
+        stopped &= this.eventHubsManager.stop(timeout, timeUnit);
+
+        setStopped();
+        return stopped;
     }
 }
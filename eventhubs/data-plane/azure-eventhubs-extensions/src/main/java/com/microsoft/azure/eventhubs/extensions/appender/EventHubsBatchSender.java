@@ -0,0 +1,184 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.extensions.appender;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
+import com.microsoft.azure.eventhubs.PayloadSizeExceededException;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.status.StatusLogger;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers serialized log events in a bounded queue and sends them to Event Hubs from a thread of its own, so that the
+ * logging threads never wait for Event Hubs unless the buffer is full and the {@link OverflowPolicy} says to wait.
+ * <p>
+ * The sender packs whatever has been buffered into an {@link EventDataBatch}, up to the largest message Event Hubs
+ * accepts, and sends it; under load, batches fill up while the previous one is being sent. An event which cannot be
+ * sent - too large for a message, or the send failed after the client's retries - is counted as failed and dropped.
+ * Events offered while the sender thread is not running, before it was started or after it ended, are dropped under
+ * every policy: nothing would take them out of the buffer.
+ */
+final class EventHubsBatchSender implements Runnable {
+    private static final Logger LOGGER = StatusLogger.getLogger();
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final String name;
+    private final EventHubsManager eventHubsManager;
+    private final ArrayBlockingQueue<byte[]> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean immediateFlush;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean stopping = false;
+
+    EventHubsBatchSender(final String name, final EventHubsManager eventHubsManager, final int bufferSize,
+                         final OverflowPolicy overflowPolicy, final boolean immediateFlush) {
+        this.name = name;
+        this.eventHubsManager = eventHubsManager;
+        this.buffer = new ArrayBlockingQueue<byte[]>(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.immediateFlush = immediateFlush;
+        this.thread = new Thread(this, "EventHubsAppender-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    // Sends what is buffered, for up to the timeout; whatever is left after that is dropped.
+    boolean stop(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        this.stopping = true;
+        this.thread.join(Math.max(1, timeUnit.toMillis(timeout)));
+        if (this.thread.isAlive()) {
+            this.thread.interrupt();
+            this.thread.join();
+        }
+        final int left = this.buffer.size();
+        if (left > 0) {
+            this.dropped.addAndGet(left);
+            this.buffer.clear();
+            LOGGER.warn(String.format(Locale.US, "[%s] Appender stopped with %d log events not sent.", this.name, left));
+            return false;
+        }
+        return true;
+    }
+
+    // Called on the logging thread. Returns false if an event was dropped.
+    boolean offer(final byte[] event) throws InterruptedException {
+        if (!this.thread.isAlive()) {
+            this.dropped.incrementAndGet();
+            return false;
+        }
+        switch (this.overflowPolicy) {
+            case BLOCK:
+                // Waits for room only as long as the sender thread is there to make it.
+                while (!this.buffer.offer(event, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (!this.thread.isAlive()) {
+                        this.dropped.incrementAndGet();
+                        return false;
+                    }
+                }
+                return true;
+
+            case DROP_OLDEST:
+                boolean droppedOne = false;
+                while (!this.buffer.offer(event)) {
+                    if (this.buffer.poll() != null) {
+                        this.dropped.incrementAndGet();
+                        droppedOne = true;
+                    }
+                }
+                return !droppedOne;
+
+            default:
+                if (this.buffer.offer(event)) {
+                    return true;
+                }
+                this.dropped.incrementAndGet();
+                return false;
+        }
+    }
+
+    int getBufferedCount() {
+        return this.buffer.size();
+    }
+
+    long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    long getSentCount() {
+        return this.sent.get();
+    }
+
+    long getFailedCount() {
+        return this.failed.get();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!this.stopping || !this.buffer.isEmpty()) {
+                final byte[] first = this.buffer.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    sendFrom(first);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stop timed out, what is left will be counted as dropped
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Sends the given event and, unless flushing immediately, everything else buffered by now, in as few batches as fit.
+    private void sendFrom(final byte[] first) {
+        EventDataBatch batch = null;
+        byte[] next = first;
+        try {
+            batch = this.eventHubsManager.createBatch();
+            while (next != null) {
+                if (!tryAdd(batch, next)) {
+                    send(batch);
+                    // sent and counted: not to be counted as failed if no batch can be created for the rest
+                    batch = null;
+                    batch = this.eventHubsManager.createBatch();
+                    tryAdd(batch, next);
+                }
+                next = this.immediateFlush ? null : this.buffer.poll();
+            }
+            send(batch);
+        } catch (Throwable exception) {
+            final int lost = ((batch != null) ? batch.getSize() : 0) + ((next != null) ? 1 : 0);
+            this.failed.addAndGet(lost);
+            LOGGER.error(String.format(Locale.US, "[%s] Appender failed to send %d log events to EventHub: %s", this.name, lost, exception.getMessage()));
+        }
+    }
+
+    // Returns false if the batch is full. An event too large to send on its own is counted as failed, not added.
+    private boolean tryAdd(final EventDataBatch batch, final byte[] event) {
+        try {
+            return batch.tryAdd(EventData.create(event));
+        } catch (PayloadSizeExceededException exception) {
+            this.failed.incrementAndGet();
+            LOGGER.error(String.format(Locale.US, "[%s] Appender dropped a log event of %d bytes, too large for EventHub.", this.name, event.length));
+            return true;
+        }
+    }
+
+    private void send(final EventDataBatch batch) throws Exception {
+        final int size = batch.getSize();
+        if (size > 0) {
+            this.eventHubsManager.send(batch);
+            this.sent.addAndGet(size);
+        }
+    }
+}
@@ -4,6 +4,7 @@
 package com.microsoft.azure.eventhubs.extensions.appender;
 
 import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
 import com.microsoft.azure.eventhubs.EventHubClient;
 import com.microsoft.azure.eventhubs.EventHubException;
 import org.apache.logging.log4j.core.LoggerContext;
@@ -13,6 +14,7 @@ import java.io.IOException;
 import java.util.LinkedList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public final class EventHubsManager extends AbstractManager {
     private static final ScheduledExecutorService EXECUTOR_SERVICE = Executors.newScheduledThreadPool(1);
@@ -24,6 +26,12 @@ public final class EventHubsManager extends AbstractManager {
         this.eventHubConnectionString = eventHubConnectionString;
     }
 
+    // Lets tests send through a client of their own instead of connecting on startup.
+    EventHubsManager(final String name, final EventHubClient eventHubSender) {
+        this(name, (String) null);
+        this.eventHubSender = eventHubSender;
+    }
+
     public void send(final byte[] msg) throws EventHubException {
         if (msg != null) {
             EventData data = EventData.create(msg);
@@ -42,7 +50,30 @@ public final class EventHubsManager extends AbstractManager {
         }
     }
 
+    public EventDataBatch createBatch() throws EventHubException {
+        return this.eventHubSender.createBatch();
+    }
+
+    public void send(final EventDataBatch batch) throws EventHubException {
+        if (batch != null) {
+            this.eventHubSender.sendSync(batch);
+        }
+    }
+
     public void startup() throws EventHubException, IOException {
         this.eventHubSender = EventHubClient.createSync(this.eventHubConnectionString, EXECUTOR_SERVICE);
     }
+
+    @Override
+    protected boolean releaseSub(final long timeout, final TimeUnit timeUnit) {
+        if (this.eventHubSender != null) {
+            try {
+                this.eventHubSender.close().get(timeout > 0 ? timeout : Long.MAX_VALUE, timeout > 0 ? timeUnit : TimeUnit.MILLISECONDS);
+            } catch (Exception exception) {
+                LOGGER.warn("Closing EventHub client of {} failed: {}", getName(), exception.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
 }
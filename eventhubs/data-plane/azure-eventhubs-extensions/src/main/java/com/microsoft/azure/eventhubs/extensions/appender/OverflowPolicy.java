@@ -0,0 +1,25 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.extensions.appender;
+
+/**
+ * What {@link EventHubsAppender} does with a log event when its buffer is full, because events are logged faster than
+ * they can be sent to Event Hubs.
+ */
+public enum OverflowPolicy {
+    /**
+     * The logging thread waits until there is room in the buffer. No event is lost, but logging is as slow as sending.
+     */
+    BLOCK,
+
+    /**
+     * The oldest buffered event is dropped to make room. Logging never waits; the most recent events are kept.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new event is dropped. Logging never waits; the events already buffered are kept.
+     */
+    DROP_NEWEST
+}
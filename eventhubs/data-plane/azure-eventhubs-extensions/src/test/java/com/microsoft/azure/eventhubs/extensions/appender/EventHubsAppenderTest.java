@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.extensions.appender;
+
+import org.apache.logging.log4j.core.appender.AppenderLoggingException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventHubsAppenderTest {
+
+    @Test
+    public void appenderIsNotStartedWhenTheManagerFailsToStart() {
+        EventHubsAppender appender = EventHubsAppender.createAppender("test", null, null, true, "not a connection string",
+                false, 1, "BLOCK");
+        try {
+            appender.start();
+            Assert.fail("start with an invalid connection string should fail");
+        } catch (AppenderLoggingException e) {
+            Assert.assertFalse(appender.isStarted());
+        }
+    }
+}
@@ -0,0 +1,295 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.extensions.appender;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventHubsBatchSenderTest {
+
+    @Test
+    public void dropNewestKeepsTheBufferedEvents() throws Exception {
+        FakeClient client = new FakeClient(10);
+        EventHubsBatchSender sender = createSender(client, 2, OverflowPolicy.DROP_NEWEST, false);
+        startHeld(sender, client, "a");
+
+        Assert.assertTrue(sender.offer(event("b")));
+        Assert.assertTrue(sender.offer(event("c")));
+        Assert.assertFalse(sender.offer(event("d")));
+        Assert.assertFalse(sender.offer(event("e")));
+        Assert.assertEquals(2, sender.getBufferedCount());
+        Assert.assertEquals(2, sender.getDroppedCount());
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), client.sentEvents());
+        Assert.assertEquals(3, sender.getSentCount());
+        Assert.assertEquals(2, sender.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestKeepsTheMostRecentEvents() throws Exception {
+        FakeClient client = new FakeClient(10);
+        EventHubsBatchSender sender = createSender(client, 2, OverflowPolicy.DROP_OLDEST, false);
+        startHeld(sender, client, "a");
+
+        Assert.assertTrue(sender.offer(event("b")));
+        Assert.assertTrue(sender.offer(event("c")));
+        Assert.assertFalse(sender.offer(event("d")));
+        Assert.assertFalse(sender.offer(event("e")));
+        Assert.assertEquals(2, sender.getBufferedCount());
+        Assert.assertEquals(2, sender.getDroppedCount());
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a", "d", "e"), client.sentEvents());
+        Assert.assertEquals(3, sender.getSentCount());
+        Assert.assertEquals(2, sender.getDroppedCount());
+    }
+
+    @Test
+    public void blockWaitsForRoomAndDropsNothing() throws Exception {
+        FakeClient client = new FakeClient(10);
+        EventHubsBatchSender sender = createSender(client, 1, OverflowPolicy.BLOCK, false);
+        startHeld(sender, client, "a");
+        Assert.assertTrue(sender.offer(event("b")));
+
+        Thread logger = new Thread(() -> {
+            try {
+                sender.offer(event("c"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        logger.start();
+
+        // the buffer is full and the sender is held
+        logger.join(200);
+        Assert.assertTrue(logger.isAlive());
+
+        client.release();
+        logger.join(10000);
+        Assert.assertFalse(logger.isAlive());
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), client.sentEvents());
+        Assert.assertEquals(0, sender.getDroppedCount());
+    }
+
+    @Test
+    public void stopSendsWhatIsBufferedInFullBatches() throws Exception {
+        FakeClient client = new FakeClient(3);
+        EventHubsBatchSender sender = createSender(client, 10, OverflowPolicy.DROP_NEWEST, false);
+        startHeld(sender, client, "0");
+        List<String> expected = new ArrayList<String>(Arrays.asList("0"));
+        for (int i = 1; i < 7; i++) {
+            expected.add(String.valueOf(i));
+            Assert.assertTrue(sender.offer(event(String.valueOf(i))));
+        }
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(expected, client.sentEvents());
+        Assert.assertEquals(Arrays.asList(3, 3, 1), client.batchSizes());
+        Assert.assertEquals(7, sender.getSentCount());
+        Assert.assertEquals(0, sender.getBufferedCount());
+        Assert.assertEquals(0, sender.getDroppedCount());
+        Assert.assertEquals(0, sender.getFailedCount());
+    }
+
+    @Test
+    public void immediateFlushSendsEveryEventOnItsOwn() throws Exception {
+        FakeClient client = new FakeClient(3);
+        EventHubsBatchSender sender = createSender(client, 10, OverflowPolicy.DROP_NEWEST, true);
+        startHeld(sender, client, "0");
+        for (int i = 1; i < 4; i++) {
+            Assert.assertTrue(sender.offer(event(String.valueOf(i))));
+        }
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("0", "1", "2", "3"), client.sentEvents());
+        Assert.assertEquals(Arrays.asList(1, 1, 1, 1), client.batchSizes());
+    }
+
+    @Test
+    public void failedSendIsCountedAsFailed() throws Exception {
+        FakeClient client = new FakeClient(3);
+        client.failSends = true;
+        EventHubsBatchSender sender = createSender(client, 10, OverflowPolicy.DROP_NEWEST, false);
+        startHeld(sender, client, "0");
+        for (int i = 1; i < 5; i++) {
+            Assert.assertTrue(sender.offer(event(String.valueOf(i))));
+        }
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, sender.getSentCount());
+        Assert.assertEquals(5, sender.getFailedCount());
+        Assert.assertEquals(0, sender.getDroppedCount());
+    }
+
+    @Test
+    public void sentBatchIsNotCountedAsFailedWhenTheNextCannotBeCreated() throws Exception {
+        FakeClient client = new FakeClient(3);
+        client.batchesBeforeFailing = 1;
+        EventHubsBatchSender sender = createSender(client, 10, OverflowPolicy.DROP_NEWEST, false);
+        startHeld(sender, client, "0");
+        for (int i = 1; i < 5; i++) {
+            Assert.assertTrue(sender.offer(event(String.valueOf(i))));
+        }
+
+        client.release();
+        Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("0", "1", "2"), client.sentEvents());
+        Assert.assertEquals(3, sender.getSentCount());
+        Assert.assertEquals(2, sender.getFailedCount());
+    }
+
+    @Test
+    public void everyPolicyDropsWhileTheSenderIsNotRunning() throws Exception {
+        for (OverflowPolicy overflowPolicy : OverflowPolicy.values()) {
+            FakeClient client = new FakeClient(10);
+            EventHubsBatchSender sender = createSender(client, 1, overflowPolicy, false);
+            Assert.assertFalse(sender.offer(event("before start")));
+
+            sender.start();
+            Assert.assertTrue(sender.stop(10, TimeUnit.SECONDS));
+            Assert.assertFalse(sender.offer(event("after stop")));
+            Assert.assertEquals(2, sender.getDroppedCount());
+            Assert.assertEquals(0, sender.getBufferedCount());
+            Assert.assertTrue(client.sentEvents().isEmpty());
+        }
+    }
+
+    @Test
+    public void blockStopsWaitingWhenTheSenderEnds() throws Exception {
+        FakeClient client = new FakeClient(10);
+        EventHubsBatchSender sender = createSender(client, 1, OverflowPolicy.BLOCK, false);
+        startHeld(sender, client, "a");
+        Assert.assertTrue(sender.offer(event("b")));
+
+        // the sender stays held beyond the stop timeout, so it is interrupted and ends with "b" still buffered
+        Assert.assertFalse(sender.stop(100, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(sender.offer(event("c")));
+        Assert.assertEquals(2, sender.getDroppedCount());
+    }
+
+    private static EventHubsBatchSender createSender(FakeClient client, int bufferSize, OverflowPolicy overflowPolicy,
+                                                     boolean immediateFlush) {
+        EventHubsManager manager = new EventHubsManager("test", client.proxy);
+        return new EventHubsBatchSender("test", manager, bufferSize, overflowPolicy, immediateFlush);
+    }
+
+    // Starts the sender and has it take the first event, holding it in createBatch until the client is released, so
+    // that the test decides what is buffered by then.
+    private static void startHeld(EventHubsBatchSender sender, FakeClient client, String first) throws InterruptedException {
+        sender.start();
+        Assert.assertTrue(sender.offer(event(first)));
+        Assert.assertTrue(client.batchRequested.await(10, TimeUnit.SECONDS));
+    }
+
+    private static byte[] event(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // An EventHubClient whose batches hold up to a number of events, and which records the batches sent. Creating a
+    // batch waits until the client is released.
+    private static class FakeClient {
+        final EventHubClient proxy;
+        final int batchCapacity;
+        final List<List<String>> sentBatches = new ArrayList<List<String>>();
+        final CountDownLatch batchRequested = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final AtomicInteger batchesCreated = new AtomicInteger();
+        volatile boolean failSends = false;
+        volatile int batchesBeforeFailing = Integer.MAX_VALUE;
+
+        FakeClient(int batchCapacity) {
+            this.batchCapacity = batchCapacity;
+            this.proxy = (EventHubClient) Proxy.newProxyInstance(EventHubClient.class.getClassLoader(),
+                    new Class<?>[] {EventHubClient.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "createBatch":
+                                this.batchRequested.countDown();
+                                try {
+                                    this.released.await();
+                                } catch (InterruptedException e) {
+                                    // like a client interrupted while sending: the sender is to see the interrupt
+                                    Thread.currentThread().interrupt();
+                                    throw new IllegalStateException("interrupted", e);
+                                }
+                                if (this.batchesCreated.getAndIncrement() >= this.batchesBeforeFailing) {
+                                    throw new IllegalStateException("createBatch failed");
+                                }
+                                return new FakeBatch(this.batchCapacity);
+                            case "sendSync":
+                                if (this.failSends) {
+                                    throw new IllegalStateException("send failed");
+                                }
+                                synchronized (this) {
+                                    this.sentBatches.add(((FakeBatch) args[0]).events);
+                                }
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        void release() {
+            this.released.countDown();
+        }
+
+        synchronized List<String> sentEvents() {
+            List<String> events = new ArrayList<String>();
+            for (List<String> batch : this.sentBatches) {
+                events.addAll(batch);
+            }
+            return events;
+        }
+
+        synchronized List<Integer> batchSizes() {
+            List<Integer> sizes = new ArrayList<Integer>();
+            for (List<String> batch : this.sentBatches) {
+                sizes.add(batch.size());
+            }
+            return sizes;
+        }
+    }
+
+    private static class FakeBatch implements EventDataBatch {
+        final int capacity;
+        final List<String> events = new ArrayList<String>();
+
+        FakeBatch(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int getSize() {
+            return this.events.size();
+        }
+
+        @Override
+        public boolean tryAdd(EventData eventData) {
+            if (this.events.size() == this.capacity) {
+                return false;
+            }
+            this.events.add(new String(eventData.getBytes(), StandardCharsets.UTF_8));
+            return true;
+        }
+    }
+}
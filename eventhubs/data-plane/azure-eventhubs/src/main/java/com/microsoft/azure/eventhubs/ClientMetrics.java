@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs;
+
+/**
+ * Receives the measurements taken on the hot paths of an {@link EventHubClient} - its senders, receivers and the Reactor
+ * thread serving its connection. Pass an implementation to {@link EventHubClient#create(String, RetryPolicy, java.util.concurrent.ScheduledExecutorService, ClientMetrics)}.
+ * <p>
+ * The methods are called inline - mostly on the Reactor thread - for every send, delivery and Reactor iteration, and
+ * only ever with primitives and the entity path of the link. Implementations should not block or allocate, and should
+ * be thread-safe; {@link LatencyHistogram} can be used to aggregate the latencies. An exception thrown by a method is
+ * logged and the measurement dropped. All methods do nothing by default.
+ */
+public interface ClientMetrics {
+
+    /**
+     * Discards all measurements. Used when no {@link ClientMetrics} is given.
+     */
+    ClientMetrics NO_OP = new ClientMetrics() {
+    };
+
+    /**
+     * @param entityPath    path of the sender
+     * @param pendingSends  number of sends queued or waiting for their delivery to be acknowledged
+     * @param inFlightBytes total encoded size of those sends
+     */
+    default void recordPendingSends(final String entityPath, final int pendingSends, final long inFlightBytes) {
+    }
+
+    /**
+     * @param entityPath   path of the sender
+     * @param latencyNanos time from the send call until the service acknowledged the delivery - across retries
+     */
+    default void recordSendLatency(final String entityPath, final long latencyNanos) {
+    }
+
+    /**
+     * Called when a send rejected by the service is scheduled to be sent again.
+     *
+     * @param entityPath path of the sender
+     */
+    default void recordSendRetry(final String entityPath) {
+    }
+
+    /**
+     * Called when sends are queued but the link has no credit left to put them on the wire.
+     *
+     * @param entityPath path of the sender
+     */
+    default void recordCreditStall(final String entityPath) {
+    }
+
+    /**
+     * @param entityPath      path of the receiver
+     * @param prefetchedCount number of events received but not yet handed to a receive call
+     * @param linkCredit      credit flowed to the service but not yet used up by a delivery
+     */
+    default void recordPrefetch(final String entityPath, final int prefetchedCount, final int linkCredit) {
+    }
+
+    /**
+     * @param entityPath   path of the receiver
+     * @param latencyNanos time from the receive call until it completed with events
+     */
+    default void recordReceiveLatency(final String entityPath, final long latencyNanos) {
+    }
+
+    /**
+     * @param queueDepth number of work items - sends, flows, timers - waiting for the Reactor thread when it woke up
+     */
+    default void recordDispatcherQueueDepth(final int queueDepth) {
+    }
+
+    /**
+     * @param durationNanos time the Reactor thread spent processing one batch of events
+     */
+    default void recordReactorIteration(final long durationNanos) {
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs;
+
+import java.time.Instant;
+
+/**
+ * Point-in-time view of one of the connections of a {@link PooledEventHubClient}.
+ */
+public final class ConnectionHealth {
+
+    private final int connectionIndex;
+    private final boolean isOpen;
+    private final int pendingSendCount;
+    private final long completedSendCount;
+    private final long failedSendCount;
+    private final Exception lastError;
+    private final Instant lastErrorTime;
+
+    public ConnectionHealth(
+            final int connectionIndex,
+            final boolean isOpen,
+            final int pendingSendCount,
+            final long completedSendCount,
+            final long failedSendCount,
+            final Exception lastError,
+            final Instant lastErrorTime) {
+
+        this.connectionIndex = connectionIndex;
+        this.isOpen = isOpen;
+        this.pendingSendCount = pendingSendCount;
+        this.completedSendCount = completedSendCount;
+        this.failedSendCount = failedSendCount;
+        this.lastError = lastError;
+        this.lastErrorTime = lastErrorTime;
+    }
+
+    /**
+     * @return position of the connection in the pool - from 0 to poolSize - 1
+     */
+    public int getConnectionIndex() {
+        return this.connectionIndex;
+    }
+
+    /**
+     * @return whether the connection is open right now - false after a connection error until the connection is
+     * re-established, and once the pooled client was closed
+     */
+    public boolean getIsOpen() {
+        return this.isOpen;
+    }
+
+    /**
+     * @return number of sends routed to this connection by the pooled client, which are not yet acknowledged
+     */
+    public int getPendingSendCount() {
+        return this.pendingSendCount;
+    }
+
+    /**
+     * @return number of sends routed to this connection by the pooled client, which succeeded
+     */
+    public long getCompletedSendCount() {
+        return this.completedSendCount;
+    }
+
+    /**
+     * @return number of sends routed to this connection by the pooled client, which failed
+     */
+    public long getFailedSendCount() {
+        return this.failedSendCount;
+    }
+
+    /**
+     * @return error of the most recent failed send on this connection - or null if none failed
+     */
+    public Exception getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * @return when the most recent send on this connection failed - or null if none failed
+     */
+    public Instant getLastErrorTime() {
+        return this.lastErrorTime;
+    }
+}
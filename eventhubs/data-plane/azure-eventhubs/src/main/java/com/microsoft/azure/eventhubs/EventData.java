@@ -123,6 +123,21 @@ public interface EventData extends Serializable, Comparable<EventData> {
      */
     byte[] getBytes();
 
+    /**
+     * Get a read-only view over the Actual Payload/Data wrapped by EventData - without copying it.
+     * <p>On an {@link EventData} received with {@link ReceiverOptions#setZeroCopyReceiveEnabled(boolean)} turned on,
+     * the view is over the bytes of the AMQP delivery itself; where {@link #getBytes()} has to copy the payload out.
+     * <p>By default, the view is over what {@link #getBytes()} returns.
+     *
+     * @return read-only {@link ByteBuffer} positioned at the start of the payload
+     * <p>null if the body of the message has other inter-operable AMQP messages, whose body does not represent byte[].
+     * In that case use {@link #getObject()}.
+     */
+    default ByteBuffer getBodyAsByteBuffer() {
+        final byte[] bytes = this.getBytes();
+        return (bytes != null) ? ByteBuffer.wrap(bytes).asReadOnlyBuffer() : null;
+    }
+
     /**
      * Application property bag
      *
@@ -5,6 +5,8 @@ package com.microsoft.azure.eventhubs;
 
 import com.microsoft.azure.eventhubs.impl.EventHubClientImpl;
 import com.microsoft.azure.eventhubs.impl.ExceptionUtil;
+import com.microsoft.azure.eventhubs.impl.PooledEventHubClientImpl;
+import com.microsoft.azure.eventhubs.impl.SendSubscriberImpl;
 
 import java.io.IOException;
 import java.nio.channels.UnresolvedAddressException;
@@ -80,7 +82,81 @@ public interface EventHubClient {
     static CompletableFuture<EventHubClient> create(
             final String connectionString, final RetryPolicy retryPolicy, final ScheduledExecutorService executor)
             throws EventHubException, IOException {
-        return EventHubClientImpl.create(connectionString, retryPolicy, executor);
+        return EventHubClient.create(connectionString, retryPolicy, executor, null);
+    }
+
+    /**
+     * Factory method to create an instance of {@link EventHubClient} using the supplied connectionString - which reports
+     * the measurements taken on its hot paths to the supplied {@link ClientMetrics}.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param retryPolicy      A custom {@link RetryPolicy} to be used when communicating with EventHub.
+     * @param executor         An {@link ScheduledExecutorService} to run all tasks performed by {@link EventHubClient}.
+     * @param metrics          Receives the measurements of the senders, receivers and Reactor thread of this client.
+     * @return CompletableFuture{@literal <EventHubClient>} which can be used to create Senders and Receivers to EventHub
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException       If the underlying Proton-J layer encounter network errors.
+     */
+    static CompletableFuture<EventHubClient> create(
+            final String connectionString, final RetryPolicy retryPolicy, final ScheduledExecutorService executor, final ClientMetrics metrics)
+            throws EventHubException, IOException {
+        return EventHubClientImpl.create(connectionString, retryPolicy, executor, metrics);
+    }
+
+    /**
+     * Factory method to create a {@link PooledEventHubClient} - which spreads its work across {@code poolSize} connections
+     * to the Azure ServiceBus EventHubs service, each served by its own Reactor thread. Use it when a single connection
+     * limits the throughput of a producer.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param poolSize         Number of connections to open - must be greater than 0.
+     * @param executor         An {@link ScheduledExecutorService} to run all tasks performed by {@link EventHubClient}.
+     * @return CompletableFuture{@literal <PooledEventHubClient>} which completes once all the connections are created
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException       If the underlying Proton-J layer encounter network errors.
+     */
+    static CompletableFuture<PooledEventHubClient> createPooled(final String connectionString, final int poolSize, final ScheduledExecutorService executor)
+            throws EventHubException, IOException {
+        return EventHubClient.createPooled(connectionString, null, poolSize, executor);
+    }
+
+    /**
+     * Factory method to create a {@link PooledEventHubClient} - which spreads its work across {@code poolSize} connections
+     * to the Azure ServiceBus EventHubs service, each served by its own Reactor thread.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param retryPolicy      A custom {@link RetryPolicy} to be used when communicating with EventHub.
+     * @param poolSize         Number of connections to open - must be greater than 0.
+     * @param executor         An {@link ScheduledExecutorService} to run all tasks performed by {@link EventHubClient}.
+     * @return CompletableFuture{@literal <PooledEventHubClient>} which completes once all the connections are created
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException       If the underlying Proton-J layer encounter network errors.
+     */
+    static CompletableFuture<PooledEventHubClient> createPooled(
+            final String connectionString, final RetryPolicy retryPolicy, final int poolSize, final ScheduledExecutorService executor)
+            throws EventHubException, IOException {
+        return EventHubClient.createPooled(connectionString, retryPolicy, poolSize, executor, null);
+    }
+
+    /**
+     * Factory method to create a {@link PooledEventHubClient} - which spreads its work across {@code poolSize} connections
+     * to the Azure ServiceBus EventHubs service, each served by its own Reactor thread. All the connections report to the
+     * supplied {@link ClientMetrics}.
+     *
+     * @param connectionString The connection string to be used. See {@link ConnectionStringBuilder} to construct a connectionString.
+     * @param retryPolicy      A custom {@link RetryPolicy} to be used when communicating with EventHub.
+     * @param poolSize         Number of connections to open - must be greater than 0.
+     * @param executor         An {@link ScheduledExecutorService} to run all tasks performed by {@link EventHubClient}.
+     * @param metrics          Receives the measurements of the senders, receivers and Reactor threads of the pool.
+     * @return CompletableFuture{@literal <PooledEventHubClient>} which completes once all the connections are created
+     * @throws EventHubException If Service Bus service encountered problems during connection creation.
+     * @throws IOException       If the underlying Proton-J layer encounter network errors.
+     */
+    static CompletableFuture<PooledEventHubClient> createPooled(
+            final String connectionString, final RetryPolicy retryPolicy, final int poolSize, final ScheduledExecutorService executor,
+            final ClientMetrics metrics)
+            throws EventHubException, IOException {
+        return PooledEventHubClientImpl.create(connectionString, retryPolicy, poolSize, executor, metrics);
     }
 
     /**
@@ -223,6 +299,18 @@ public interface EventHubClient {
      */
     CompletableFuture<Void> send(EventDataBatch eventDatas);
 
+    /**
+     * Creates a Reactive Streams {@link org.reactivestreams.Subscriber} which sends the events it is given to this EventHub,
+     * packed into {@link EventDataBatch}es created with the given options - use {@link BatchOptions#partitionKey} to keep them on one partition.
+     *
+     * @param options            see {@link BatchOptions} for more details
+     * @param maxInFlightBatches the maximum number of batches being sent at any time - events are only requested from upstream below it
+     * @return the subscriber; see {@link SendSubscriber#getCompletion()} for the outcome of the sends
+     */
+    default SendSubscriber createSendSubscriber(final BatchOptions options, final int maxInFlightBatches) {
+        return new SendSubscriberImpl(() -> this.createBatch(options), this::send, maxInFlightBatches);
+    }
+
     /**
      * Synchronous version of {@link #send(EventData, String)}.
      *
@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies - for {@link ClientMetrics} implementations.
+ * Bucket {@code i} counts the latencies in {@code [2^i, 2^(i+1))} nanoseconds - bucket 0 also counts 0 - so recording is
+ * one atomic increment, without allocating; percentiles are accurate to a factor of 2.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = Long.SIZE - 1;
+
+    private final AtomicLongArray buckets;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    /**
+     * @param latencyNanos latency to record - negative values are counted as 0
+     */
+    public void record(final long latencyNanos) {
+        this.buckets.incrementAndGet(bucketOf(latencyNanos));
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            count += this.buckets.get(index);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound - in nanoseconds - of the bucket holding the given percentile; 0 if nothing was recorded
+     */
+    public long getPercentileNanos(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile should be between 0 and 100");
+        }
+
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshot[index] = this.buckets.get(index);
+            count += snapshot[index];
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += snapshot[index];
+            if (seen >= rank) {
+                return upperBoundOf(index);
+            }
+        }
+
+        return upperBoundOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Clears all the recorded latencies - latencies recorded concurrently may or may not be kept.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            this.buckets.set(index, 0);
+        }
+    }
+
+    private static int bucketOf(final long latencyNanos) {
+        return latencyNanos <= 1 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(latencyNanos);
+    }
+
+    private static long upperBoundOf(final int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+    }
+}
@@ -3,6 +3,9 @@
 
 package com.microsoft.azure.eventhubs;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The handler to invoke after receiving {@link EventData}s from Microsoft Azure EventHubs. Use any implementation of this abstract class to specify
  * user action when using PartitionReceiver's setReceiveHandler().
@@ -19,6 +22,28 @@ public interface PartitionReceiveHandler {
      */
     int getMaxEventCount();
 
+    /**
+     * Maximum time to wait for more {@link EventData} to arrive - before invoking {@link #onReceive(Iterable)} with fewer than
+     * {@link #getMaxEventCount()} events. Waiting trades latency for fewer and fuller batches.
+     * <p>By default {@link Duration#ZERO} - events are handed over as soon as they are available
+     *
+     * @return value indicating the maximum time to wait for a batch to fill up
+     */
+    default Duration getMaxLingerTime() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Completes when the handler is ready for the next {@link #onReceive(Iterable)} call. Until then the pump receives no
+     * events - they stay in prefetch - and no thread waits for the handler.
+     * <p>By default the handler is always ready
+     *
+     * @return a future which completes when the handler can take more events
+     */
+    default CompletableFuture<Void> whenReadyToReceive() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * user should implement this method to specify the action to be performed on the received events.
      *
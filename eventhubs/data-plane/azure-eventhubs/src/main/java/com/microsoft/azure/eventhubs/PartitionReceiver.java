@@ -4,6 +4,8 @@
 package com.microsoft.azure.eventhubs;
 
 import com.microsoft.azure.eventhubs.impl.ExceptionUtil;
+import com.microsoft.azure.eventhubs.impl.ReceiverPublisher;
+import org.reactivestreams.Publisher;
 
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
@@ -137,6 +139,20 @@ public interface PartitionReceiver {
      */
     CompletableFuture<Void> setReceiveHandler(PartitionReceiveHandler receiveHandler, boolean invokeWhenNoEvents);
 
+    /**
+     * Returns a Reactive Streams {@link Publisher} of the events received by this receiver - for a single {@link org.reactivestreams.Subscriber}.
+     * Events are taken from the receiver only as the subscriber requests them; as the receiver replenishes its credit with the
+     * Event Hubs service only for the events taken, a slow subscriber slows down the service instead of piling up events in memory.
+     * <p>The publisher signals onError when the receiver encounters a non-transient error; it never completes on its own.
+     * Don't combine it with {@link #receive(int)} or {@link #setReceiveHandler(PartitionReceiveHandler)} on the same receiver.
+     * <p>By default, the publisher takes the events with {@link #receive(int)}, up to {@link #DEFAULT_PREFETCH_COUNT} at a time.
+     *
+     * @return the publisher of received events
+     */
+    default Publisher<EventData> receiveAsPublisher() {
+        return ReceiverPublisher.of(this);
+    }
+
     CompletableFuture<Void> close();
 
     void closeSync() throws EventHubException;
@@ -4,6 +4,7 @@
 package com.microsoft.azure.eventhubs;
 
 import com.microsoft.azure.eventhubs.impl.ExceptionUtil;
+import com.microsoft.azure.eventhubs.impl.SendSubscriberImpl;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -153,6 +154,18 @@ public interface PartitionSender {
      */
     CompletableFuture<Void> send(EventDataBatch eventDatas);
 
+    /**
+     * Creates a Reactive Streams {@link org.reactivestreams.Subscriber} which sends the events it is given to this sender's partition,
+     * packed into {@link EventDataBatch}es created with the given options.
+     *
+     * @param options            see {@link BatchOptions} for more usage details
+     * @param maxInFlightBatches the maximum number of batches being sent at any time - events are only requested from upstream below it
+     * @return the subscriber; see {@link SendSubscriber#getCompletion()} for the outcome of the sends
+     */
+    default SendSubscriber createSendSubscriber(final BatchOptions options, final int maxInFlightBatches) {
+        return new SendSubscriberImpl(() -> this.createBatch(options), this::send, maxInFlightBatches);
+    }
+
     CompletableFuture<Void> close();
 
     void closeSync() throws EventHubException;
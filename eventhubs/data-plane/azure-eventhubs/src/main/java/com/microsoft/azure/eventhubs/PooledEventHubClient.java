@@ -0,0 +1,28 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * {@link EventHubClient} spread across multiple connections - each with its own Reactor thread - to the Event Hubs service.
+ * Sends without a partition key are round-robined across the connections; sends with a partition key always use the
+ * same connection, so that they stay in order. {@link PartitionSender}s and {@link PartitionReceiver}s are handed out
+ * across the connections in turn.
+ *
+ * @see EventHubClient#createPooled(String, int, ScheduledExecutorService)
+ */
+public interface PooledEventHubClient extends EventHubClient {
+
+    /**
+     * @return number of connections in the pool
+     */
+    int getPoolSize();
+
+    /**
+     * @return health of each connection in the pool - ordered by connection index
+     */
+    List<ConnectionHealth> getConnectionHealth();
+}
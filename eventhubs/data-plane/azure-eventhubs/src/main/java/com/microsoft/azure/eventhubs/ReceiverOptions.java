@@ -15,6 +15,8 @@ public final class ReceiverOptions {
     private boolean receiverRuntimeMetricEnabled;
     private String identifier;
     private int prefetchCount;
+    private long prefetchSizeInBytes;
+    private boolean zeroCopyReceiveEnabled;
 
     public ReceiverOptions() {
         this.prefetchCount = PartitionReceiver.DEFAULT_PREFETCH_COUNT;
@@ -119,4 +121,55 @@ public final class ReceiverOptions {
 
         this.prefetchCount = prefetchCount;
     }
+
+    /**
+     * Get the upper limit on the total size of the events pre-fetched and cached at the {@link PartitionReceiver}.
+     *
+     * @return the limit in bytes; 0 if the pre-fetched events are only limited by {@link #getPrefetchCount()}
+     * @see #setPrefetchSizeInBytes
+     */
+    public long getPrefetchSizeInBytes() {
+        return this.prefetchSizeInBytes;
+    }
+
+    /**
+     * Set the upper limit on the total size of the events that can be pre-fetched and cached at the {@link PartitionReceiver}.
+     * <p>The receiver sizes its pre-fetch to how fast the events are consumed - never beyond {@link #getPrefetchCount()} events,
+     * and - with this limit set - never beyond the number of average sized events that fit into this many bytes.
+     * Use it to bound the memory a receiver of large events can hold on to.
+     * <p>By default the value is 0 - i.e., no limit in bytes
+     *
+     * @param prefetchSizeInBytes the limit in bytes; 0 to only limit the pre-fetch by event count
+     */
+    public void setPrefetchSizeInBytes(final long prefetchSizeInBytes) {
+        if (prefetchSizeInBytes < 0) {
+            throw new IllegalArgumentException("PrefetchSizeInBytes cannot be negative");
+        }
+
+        this.prefetchSizeInBytes = prefetchSizeInBytes;
+    }
+
+    /**
+     * Gets whether the received {@link EventData}s are backed by the bytes of their AMQP deliveries.
+     *
+     * @return the {@link boolean} indicating, whether zero-copy receive is enabled
+     * @see #setZeroCopyReceiveEnabled
+     */
+    public boolean getZeroCopyReceiveEnabled() {
+        return this.zeroCopyReceiveEnabled;
+    }
+
+    /**
+     * Set whether received {@link EventData}s should be backed by the bytes of their AMQP deliveries.
+     * <p>When enabled, the body of an event is not copied out of its delivery - {@link EventData#getBodyAsByteBuffer()}
+     * returns a read-only view over it - and application properties & system properties are only decoded, when first accessed.
+     * This cuts the heap usage and decode cost of receiving large events - at the cost of every received event
+     * holding on to its whole delivery for as long as it is referenced.
+     * <p>By default the value is false
+     *
+     * @param value the {@link boolean} to indicate, whether zero-copy receive needs to be enabled
+     */
+    public void setZeroCopyReceiveEnabled(final boolean value) {
+        this.zeroCopyReceiveEnabled = value;
+    }
 }
@@ -16,6 +16,9 @@ public final class ReceiverRuntimeInformation {
     private Instant lastEnqueuedTime;
     private String lastEnqueuedOffset;
     private Instant retrievalTime;
+    private int currentCredit;
+    private int prefetchedEventCount;
+    private long prefetchedBytes;
 
     public ReceiverRuntimeInformation(final String partitionId) {
 
@@ -72,6 +75,44 @@ public final class ReceiverRuntimeInformation {
         return this.retrievalTime;
     }
 
+    /**
+     * The link credit of the receiver - i.e., the number of events the Event Hubs service may still send to it without
+     * being asked again - as of the last receive
+     *
+     * @return current credit
+     */
+    public int getCurrentCredit() {
+
+        return this.currentCredit;
+    }
+
+    /**
+     * The number of events pre-fetched by the receiver but not yet returned from a receive - as of the last receive
+     *
+     * @return pre-fetched event count
+     */
+    public int getPrefetchedEventCount() {
+
+        return this.prefetchedEventCount;
+    }
+
+    /**
+     * The total size of the events pre-fetched by the receiver but not yet returned from a receive - as of the last receive
+     *
+     * @return pre-fetched bytes
+     */
+    public long getPrefetchedBytes() {
+
+        return this.prefetchedBytes;
+    }
+
+    public void setPrefetchInformation(final int currentCredit, final int prefetchedEventCount, final long prefetchedBytes) {
+
+        this.currentCredit = currentCredit;
+        this.prefetchedEventCount = prefetchedEventCount;
+        this.prefetchedBytes = prefetchedBytes;
+    }
+
     public void setRuntimeInformation(final long sequenceNumber, final Instant enqueuedTime, final String offset) {
 
         this.lastSequenceNumber = sequenceNumber;
@@ -0,0 +1,26 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs;
+
+import org.reactivestreams.Subscriber;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reactive Streams {@link Subscriber} which sends the {@link EventData}s it is given - packed into {@link EventDataBatch}es.
+ * <p>Events are requested from the upstream {@link org.reactivestreams.Publisher} only while fewer than the configured number of batches
+ * are being sent, so a pipeline ending in a {@link SendSubscriber} never buffers more than that many batches.
+ * A batch is sent as soon as it is full - or, when no send is in progress, right away with what it has.
+ *
+ * @see EventHubClient#createSendSubscriber(BatchOptions, int)
+ * @see PartitionSender#createSendSubscriber(BatchOptions, int)
+ */
+public interface SendSubscriber extends Subscriber<EventData> {
+
+    /**
+     * @return a completableFuture which completes once the upstream completed and all its events are sent;
+     * completes exceptionally with the first send failure - upon which the subscription is cancelled - or with the upstream's error
+     */
+    CompletableFuture<Void> getCompletion();
+}
@@ -11,10 +11,15 @@ import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.message.Message;
 
+import java.nio.BufferOverflowException;
 import java.util.Locale;
 
 public final class AmqpUtil {
 
+    // described-type constructor (0x00), smallulong descriptor (0x53) of the Data section (0x75),
+    // followed by a vbin32 (0xb0) constructor & its 4 byte length
+    static final int DATA_SECTION_HEADER_SIZE = 8;
+
     private AmqpUtil() {
     }
 
@@ -88,6 +93,32 @@ public final class AmqpUtil {
         return annotationsSize + applicationPropertiesSize + payloadSize;
     }
 
+    /**
+     * Encodes amqpMessage, wrapped in a Data section, straight into buffer - without encoding it into an intermediate byte[] first.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the encoded section doesn't fit in length bytes
+     */
+    static int encodeAsDataSection(final Message amqpMessage, final byte[] buffer, final int offset, final int length) {
+
+        if (length < DATA_SECTION_HEADER_SIZE) {
+            throw new BufferOverflowException();
+        }
+
+        final int messageSize = amqpMessage.encode(buffer, offset + DATA_SECTION_HEADER_SIZE, length - DATA_SECTION_HEADER_SIZE);
+
+        buffer[offset] = 0x00;
+        buffer[offset + 1] = 0x53;
+        buffer[offset + 2] = 0x75;
+        buffer[offset + 3] = (byte) 0xb0;
+        buffer[offset + 4] = (byte) (messageSize >>> 24);
+        buffer[offset + 5] = (byte) (messageSize >>> 16);
+        buffer[offset + 6] = (byte) (messageSize >>> 8);
+        buffer[offset + 7] = (byte) messageSize;
+
+        return DATA_SECTION_HEADER_SIZE + messageSize;
+    }
+
     private static int sizeof(Object obj) {
         if (obj instanceof String) {
             return obj.toString().length() << 1;
@@ -23,7 +23,12 @@ public final class ClientConstants {
     public static final int MAX_MESSAGE_LENGTH_BYTES = 256 * 1024;
     public static final int MAX_FRAME_SIZE_BYTES = 64 * 1024;
     public static final int MAX_EVENTHUB_AMQP_HEADER_SIZE_BYTES = 512;
+    public static final long SEND_BUFFER_POOL_MAX_BYTES = 32 * 1024 * 1024;
     public static final Duration TIMER_TOLERANCE = Duration.ofSeconds(1);
+    public static final Duration TIMER_WHEEL_TICK = Duration.ofMillis(100);
+    public static final Duration CREDIT_SAMPLE_INTERVAL = Duration.ofMillis(250);
+    public static final Duration CREDIT_MIN_HORIZON = Duration.ofMillis(50);
+    public static final Duration CREDIT_MAX_ROUND_TRIP = Duration.ofSeconds(1);
     public static final Duration DEFAULT_RETRY_MIN_BACKOFF = Duration.ofSeconds(0);
     public static final Duration DEFAULT_RETRY_MAX_BACKOFF = Duration.ofSeconds(30);
     public static final Duration TOKEN_REFRESH_INTERVAL = Duration.ofMinutes(10); // renew every 10 mins, which expires 20 mins
@@ -0,0 +1,216 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+/**
+ * Decides how much link credit a {@link MessageReceiver} flows to the service.
+ * <p>
+ * The prefetch window - credit outstanding on the link plus messages buffered at the receiver - is sized to what the
+ * consumer drains within a couple of round trips, so that a slow consumer doesn't hoard a full prefetchCount of events
+ * while a fast one is never starved. The window never exceeds prefetchCount and - when a byte limit is set - never
+ * exceeds the number of average sized messages which fit into that limit.
+ * <p>
+ * Mostly invoked on the Reactor thread; methods are synchronized as link errors may clear the buffer from elsewhere.
+ */
+final class CreditController {
+
+    // credit is not flowed in smaller chunks than this (unless the window itself is smaller) - to keep the protocol less chatty
+    static final int MAX_CREDIT_BATCH = 100;
+
+    private static final long SAMPLE_INTERVAL_NANOS = ClientConstants.CREDIT_SAMPLE_INTERVAL.toNanos();
+    private static final long MIN_HORIZON_NANOS = ClientConstants.CREDIT_MIN_HORIZON.toNanos();
+    private static final long MAX_ROUND_TRIP_NANOS = ClientConstants.CREDIT_MAX_ROUND_TRIP.toNanos();
+    private static final double SMOOTHING = 0.5;
+
+    private final int maxPrefetchCount;
+    private final long maxPrefetchBytes;
+
+    // sizes of the buffered messages - in arrival order
+    private int[] bufferedSizes;
+    private int bufferedHead;
+    private volatile int bufferedCount;
+    private volatile long bufferedBytes;
+    private volatile int linkCredit;
+    private volatile int window;
+
+    private int minWindow;
+    private double averageMessageSize;
+    private double drainRatePerNano;
+    private double roundTripNanos;
+    private long flowSentAt;
+    private long sampleStartedAt;
+    private int drainedInSample;
+    private boolean starvedInSample;
+
+    CreditController(final int maxPrefetchCount, final long maxPrefetchBytes) {
+        this.maxPrefetchCount = maxPrefetchCount;
+        this.maxPrefetchBytes = maxPrefetchBytes;
+        this.bufferedSizes = new int[Math.max(16, Integer.highestOneBit(maxPrefetchCount) << 1)];
+        this.minWindow = 1;
+        this.window = maxPrefetchCount;
+        this.roundTripNanos = MIN_HORIZON_NANOS;
+        this.flowSentAt = -1;
+        this.sampleStartedAt = -1;
+    }
+
+    /**
+     * @return credit flowed to the service which is not yet used up by a delivery
+     */
+    int getLinkCredit() {
+        return this.linkCredit;
+    }
+
+    /**
+     * @return number of messages received but not yet handed to the consumer
+     */
+    int getBufferedCount() {
+        return this.bufferedCount;
+    }
+
+    /**
+     * @return total size of the messages received but not yet handed to the consumer
+     */
+    long getBufferedBytes() {
+        return this.bufferedBytes;
+    }
+
+    /**
+     * @return number of messages the controller currently lets be outstanding or buffered
+     */
+    int getWindow() {
+        return this.effectiveWindow();
+    }
+
+    /**
+     * The consumer asked for up to {@code maxMessageCount} messages; the window won't shrink below the largest ask.
+     */
+    synchronized void onReceiveRequested(final int maxMessageCount, final boolean bufferEmpty) {
+        this.minWindow = Math.min(this.maxPrefetchCount, Math.max(this.minWindow, maxMessageCount));
+        if (bufferEmpty) {
+            this.starvedInSample = true;
+        }
+    }
+
+    synchronized void onLinkOpened() {
+        // a new link starts without credit
+        this.linkCredit = 0;
+        this.flowSentAt = -1;
+    }
+
+    synchronized void onDelivery(final int messageSize, final long nowNanos) {
+        if (this.bufferedCount == this.bufferedSizes.length) {
+            this.growBuffer();
+        }
+
+        this.bufferedSizes[(this.bufferedHead + this.bufferedCount) & (this.bufferedSizes.length - 1)] = messageSize;
+        this.bufferedCount++;
+        this.bufferedBytes += messageSize;
+        this.linkCredit = Math.max(0, this.linkCredit - 1);
+
+        this.averageMessageSize = this.averageMessageSize == 0
+                ? messageSize
+                : SMOOTHING * messageSize + (1 - SMOOTHING) * this.averageMessageSize;
+
+        if (this.flowSentAt >= 0) {
+            final long roundTrip = Math.min(MAX_ROUND_TRIP_NANOS, nowNanos - this.flowSentAt);
+            this.roundTripNanos = SMOOTHING * roundTrip + (1 - SMOOTHING) * this.roundTripNanos;
+            this.flowSentAt = -1;
+        }
+    }
+
+    synchronized void onDrained() {
+        if (this.bufferedCount == 0) {
+            return;
+        }
+
+        this.bufferedBytes -= this.bufferedSizes[this.bufferedHead];
+        this.bufferedHead = (this.bufferedHead + 1) & (this.bufferedSizes.length - 1);
+        this.bufferedCount--;
+        this.drainedInSample++;
+    }
+
+    synchronized void clear() {
+        this.bufferedHead = 0;
+        this.bufferedCount = 0;
+        this.bufferedBytes = 0;
+    }
+
+    /**
+     * Computes the credit to flow now - and accounts for it as flowed.
+     *
+     * @param force    flow even if the credit is below the batching threshold, e.g. right after the link opened
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return credit to flow on the link; 0 if none should be flowed now
+     */
+    synchronized int nextCredit(final boolean force, final long nowNanos) {
+        this.updateWindow(nowNanos);
+
+        final int effectiveWindow = this.effectiveWindow();
+        if (this.maxPrefetchBytes > 0 && this.bufferedBytes >= this.maxPrefetchBytes) {
+            return 0;
+        }
+
+        final int credit = effectiveWindow - this.bufferedCount - this.linkCredit;
+        final int threshold = force ? 1 : Math.max(1, Math.min(MAX_CREDIT_BATCH, effectiveWindow / 2));
+        if (credit < threshold) {
+            return 0;
+        }
+
+        this.linkCredit += credit;
+        if (this.flowSentAt < 0) {
+            this.flowSentAt = nowNanos;
+        }
+
+        return credit;
+    }
+
+    private int effectiveWindow() {
+        int effectiveWindow = this.window;
+        if (this.maxPrefetchBytes > 0) {
+            // until the first delivery tells otherwise - assume messages of the maximum size
+            final double messageSize = this.averageMessageSize > 0 ? this.averageMessageSize : ClientConstants.MAX_MESSAGE_LENGTH_BYTES;
+            effectiveWindow = (int) Math.min(effectiveWindow, Math.max(1, (long) (this.maxPrefetchBytes / messageSize)));
+        }
+
+        return effectiveWindow;
+    }
+
+    private void updateWindow(final long nowNanos) {
+        if (this.sampleStartedAt < 0) {
+            this.sampleStartedAt = nowNanos;
+            return;
+        }
+
+        final long elapsed = nowNanos - this.sampleStartedAt;
+        if (elapsed < SAMPLE_INTERVAL_NANOS) {
+            return;
+        }
+
+        final double drainRate = (double) this.drainedInSample / elapsed;
+        this.drainRatePerNano = SMOOTHING * drainRate + (1 - SMOOTHING) * this.drainRatePerNano;
+
+        // Little's law: keep enough in the pipe to cover what the consumer drains during two round trips
+        final double horizon = 2 * Math.max(MIN_HORIZON_NANOS, this.roundTripNanos);
+        long target = (long) Math.ceil(this.drainRatePerNano * horizon);
+        if (this.starvedInSample) {
+            // the consumer waited on an empty buffer - the drain rate is capped by the window itself
+            target = Math.max(target, 2L * this.window);
+        }
+
+        this.window = (int) Math.max(this.minWindow, Math.min(this.maxPrefetchCount, target));
+        this.sampleStartedAt = nowNanos;
+        this.drainedInSample = 0;
+        this.starvedInSample = false;
+    }
+
+    private void growBuffer() {
+        final int[] grown = new int[this.bufferedSizes.length << 1];
+        for (int index = 0; index < this.bufferedCount; index++) {
+            grown[index] = this.bufferedSizes[(this.bufferedHead + index) & (this.bufferedSizes.length - 1)];
+        }
+
+        this.bufferedSizes = grown;
+        this.bufferedHead = 0;
+    }
+}
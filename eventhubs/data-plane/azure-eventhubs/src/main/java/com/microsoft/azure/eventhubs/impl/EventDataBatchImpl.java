@@ -6,26 +6,39 @@ package com.microsoft.azure.eventhubs.impl;
 import com.microsoft.azure.eventhubs.EventData;
 import com.microsoft.azure.eventhubs.EventDataBatch;
 import com.microsoft.azure.eventhubs.PayloadSizeExceededException;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.engine.impl.DeliveryImpl;
 import org.apache.qpid.proton.message.Message;
 
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * EventDataBatch which encodes every event exactly once - into the wire format of the AMQP batch message.
+ * {@link #tryAdd(EventData)} appends each event, wrapped in a Data section, to a single growing buffer;
+ * send hands that buffer to {@link MessageSender} as-is.
+ */
 final class EventDataBatchImpl implements EventDataBatch {
 
     private final int maxMessageSize;
+    private final int batchCapacity;
     private final String partitionKey;
     private final List<EventData> events;
     private final byte[] eventBytes;
-    private int currentSize = 0;
+    private int encodedSize = 0;
+    private int firstEventOffset = 0;
+    private int firstEventSize = 0;
 
     EventDataBatchImpl(final int maxMessageSize, final String partitionKey) {
 
         this.maxMessageSize = maxMessageSize;
         this.partitionKey = partitionKey;
         this.events = new LinkedList<>();
-        this.currentSize = (maxMessageSize / 65536) * 1024; // reserve 1KB for every 64KB
+        this.batchCapacity = maxMessageSize - (maxMessageSize / 65536) * 1024; // reserve 1KB for every 64KB
         this.eventBytes = new byte[maxMessageSize];
     }
 
@@ -40,19 +53,37 @@ final class EventDataBatchImpl implements EventDataBatch {
         }
 
         final EventDataImpl eventDataImpl = (EventDataImpl) eventData;
+        final Message amqpMessage = this.partitionKey != null ? eventDataImpl.toAmqpMessage(this.partitionKey) : eventDataImpl.toAmqpMessage();
+        final boolean isFirst = this.events.isEmpty();
 
-        final int size;
+        int offset = this.encodedSize;
         try {
-            size = getSize(eventDataImpl, events.isEmpty());
-        } catch (java.nio.BufferOverflowException exception) {
-            throw new PayloadSizeExceededException(String.format("Size of the payload exceeded Maximum message size: %s kb", this.maxMessageSize / 1024));
-        }
+            if (isFirst) {
+                // proton-j doesn't support multiple dataSections to be part of AmqpMessage
+                // the batch envelope carries the MessageAnnotations of the first message & is followed by the Data sections
+                final Message batchMessage = Proton.message();
+                batchMessage.setMessageAnnotations(amqpMessage.getMessageAnnotations());
+                offset += batchMessage.encode(this.eventBytes, offset, this.batchCapacity - offset);
+            }
+
+            final int sectionSize = AmqpUtil.encodeAsDataSection(amqpMessage, this.eventBytes, offset, this.batchCapacity - offset);
+
+            if (isFirst) {
+                this.firstEventOffset = offset + AmqpUtil.DATA_SECTION_HEADER_SIZE;
+                this.firstEventSize = sectionSize - AmqpUtil.DATA_SECTION_HEADER_SIZE;
+            }
+
+            offset += sectionSize;
+        } catch (BufferOverflowException exception) {
+            if (isFirst || AmqpUtil.getDataSerializedSize(amqpMessage) > this.maxMessageSize) {
+                throw new PayloadSizeExceededException(String.format("Size of the payload exceeded Maximum message size: %s kb", this.maxMessageSize / 1024));
+            }
 
-        if (this.currentSize + size > this.maxMessageSize)
             return false;
+        }
 
         this.events.add(eventDataImpl);
-        this.currentSize += size;
+        this.encodedSize = offset;
         return true;
     }
 
@@ -61,31 +92,32 @@ final class EventDataBatchImpl implements EventDataBatch {
         return this.events.iterator();
     }
 
-    Iterable<EventData> getInternalIterable() {
+    String getPartitionKey() {
 
-        return this.events;
+        return this.partitionKey;
     }
 
-    String getPartitionKey() {
+    byte[] getEncodedBytes() {
 
-        return this.partitionKey;
+        return this.eventBytes;
     }
 
-    private int getSize(final EventDataImpl eventData, final boolean isFirst) {
+    int getEncodedSize() {
 
-        final Message amqpMessage = this.partitionKey != null ? eventData.toAmqpMessage(this.partitionKey) : eventData.toAmqpMessage();
-        int eventSize = amqpMessage.encode(this.eventBytes, 0, maxMessageSize); // actual encoded bytes size
-        eventSize += 16; // data section overhead
+        return this.encodedSize;
+    }
 
-        if (isFirst) {
-            amqpMessage.setBody(null);
-            amqpMessage.setApplicationProperties(null);
-            amqpMessage.setProperties(null);
-            amqpMessage.setDeliveryAnnotations(null);
+    // sends the already encoded batch; the buffer is append-only, so a send in flight is not affected by subsequent tryAdd calls
+    CompletableFuture<Void> sendUsing(final MessageSender sender) {
 
-            eventSize += amqpMessage.encode(this.eventBytes, 0, maxMessageSize);
+        if (this.events.size() == 1) {
+            // a single event goes out as a regular message - exactly as sending it individually would
+            return sender.send(
+                    Arrays.copyOfRange(this.eventBytes, this.firstEventOffset, this.firstEventOffset + this.firstEventSize),
+                    this.firstEventSize,
+                    DeliveryImpl.DEFAULT_MESSAGE_FORMAT);
         }
 
-        return eventSize;
+        return sender.send(this.eventBytes, this.encodedSize, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT);
     }
 }
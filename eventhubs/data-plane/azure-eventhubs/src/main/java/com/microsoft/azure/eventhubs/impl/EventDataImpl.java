@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ public final class EventDataImpl implements EventData {
 
     private transient Binary bodyData;
     private transient Object amqpBody;
+    private transient volatile Message lazyMessage;
 
     private Map<String, Object> properties;
     private SystemProperties systemProperties;
@@ -36,12 +38,34 @@ public final class EventDataImpl implements EventData {
     private EventDataImpl() {
     }
 
-    @SuppressWarnings("unchecked")
     EventDataImpl(Message amqpMessage) {
         if (amqpMessage == null) {
             throw new IllegalArgumentException("amqpMessage cannot be null");
         }
 
+        final Section bodySection = amqpMessage.getBody();
+        if (bodySection != null) {
+            if (bodySection instanceof Data) {
+                this.bodyData = ((Data) bodySection).getValue();
+                this.amqpBody = this.bodyData;
+            } else if (bodySection instanceof AmqpValue) {
+                this.amqpBody = ((AmqpValue) bodySection).getValue();
+            } else if (bodySection instanceof AmqpSequence) {
+                this.amqpBody = ((AmqpSequence) bodySection).getValue();
+            }
+        }
+
+        if (amqpMessage instanceof ReceivedMessage) {
+            // zero-copy receive: properties are read from the message only when asked for
+            this.lazyMessage = amqpMessage;
+        } else {
+            this.readProperties(amqpMessage);
+            amqpMessage.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readProperties(final Message amqpMessage) {
         final Map<Symbol, Object> messageAnnotations = amqpMessage.getMessageAnnotations().getValue();
         final HashMap<String, Object> receiveProperties = new HashMap<>();
 
@@ -80,20 +104,18 @@ public final class EventDataImpl implements EventData {
 
         this.systemProperties = new SystemProperties(receiveProperties);
         this.properties = amqpMessage.getApplicationProperties() == null ? null : amqpMessage.getApplicationProperties().getValue();
+    }
 
-        final Section bodySection = amqpMessage.getBody();
-        if (bodySection != null) {
-            if (bodySection instanceof Data) {
-                this.bodyData = ((Data) bodySection).getValue();
-                this.amqpBody = this.bodyData;
-            } else if (bodySection instanceof AmqpValue) {
-                this.amqpBody = ((AmqpValue) bodySection).getValue();
-            } else if (bodySection instanceof AmqpSequence) {
-                this.amqpBody = ((AmqpSequence) bodySection).getValue();
+    private void readLazyProperties() {
+        if (this.lazyMessage != null) {
+            synchronized (this) {
+                final Message amqpMessage = this.lazyMessage;
+                if (amqpMessage != null) {
+                    this.readProperties(amqpMessage);
+                    this.lazyMessage = null;
+                }
             }
         }
-
-        amqpMessage.clear();
     }
 
     public EventDataImpl(byte[] data) {
@@ -135,10 +157,25 @@ public final class EventDataImpl implements EventData {
         if (this.bodyData == null)
             return null;
 
-        return this.bodyData.getArray();
+        final byte[] bodyArray = this.bodyData.getArray();
+        if (this.bodyData.getArrayOffset() == 0 && this.bodyData.getLength() == bodyArray.length) {
+            return bodyArray;
+        }
+
+        // the body is a slice of a bigger array (ex: of a zero-copy delivery) - which must not leak to the caller
+        return Arrays.copyOfRange(bodyArray, this.bodyData.getArrayOffset(), this.bodyData.getArrayOffset() + this.bodyData.getLength());
+    }
+
+    public ByteBuffer getBodyAsByteBuffer() {
+
+        if (this.bodyData == null)
+            return null;
+
+        return ByteBuffer.wrap(this.bodyData.getArray(), this.bodyData.getArrayOffset(), this.bodyData.getLength()).slice().asReadOnlyBuffer();
     }
 
     public Map<String, Object> getProperties() {
+        this.readLazyProperties();
         if (this.properties == null) {
             this.properties = new HashMap<>();
         }
@@ -147,11 +184,13 @@ public final class EventDataImpl implements EventData {
     }
 
     public SystemProperties getSystemProperties() {
+        this.readLazyProperties();
         return this.systemProperties;
     }
 
     // This is intended to be used while sending EventData - so EventData.SystemProperties will not be copied over to the AmqpMessage
     Message toAmqpMessage() {
+        this.readLazyProperties();
         final Message amqpMessage = Proton.message();
 
         if (this.properties != null && !this.properties.isEmpty()) {
@@ -244,6 +283,7 @@ public final class EventDataImpl implements EventData {
     }
 
     private void writeObject(ObjectOutputStream out) throws IOException {
+        this.readLazyProperties();
         out.defaultWriteObject();
 
         out.writeInt(this.bodyData == null ? BODY_DATA_NULL : this.bodyData.getLength());
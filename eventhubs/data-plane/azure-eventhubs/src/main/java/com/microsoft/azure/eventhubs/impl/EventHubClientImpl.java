@@ -4,6 +4,7 @@
 package com.microsoft.azure.eventhubs.impl;
 
 import com.microsoft.azure.eventhubs.BatchOptions;
+import com.microsoft.azure.eventhubs.ClientMetrics;
 import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
 import com.microsoft.azure.eventhubs.EventData;
 import com.microsoft.azure.eventhubs.EventDataBatch;
@@ -59,10 +60,17 @@ public final class EventHubClientImpl extends ClientEntity implements EventHubCl
     public static CompletableFuture<EventHubClient> create(
         final String connectionString, final RetryPolicy retryPolicy, final ScheduledExecutorService executor)
             throws EventHubException, IOException {
+        return create(connectionString, retryPolicy, executor, null);
+    }
+
+    public static CompletableFuture<EventHubClient> create(
+        final String connectionString, final RetryPolicy retryPolicy, final ScheduledExecutorService executor, final ClientMetrics metrics)
+            throws EventHubException, IOException {
         final ConnectionStringBuilder connStr = new ConnectionStringBuilder(connectionString);
         final EventHubClientImpl eventHubClient = new EventHubClientImpl(connStr, executor);
 
-        return MessagingFactory.createFromConnectionString(connectionString.toString(), retryPolicy, executor)
+        return MessagingFactory.createFromConnectionString(connectionString.toString(), retryPolicy, executor,
+                new MessagingFactory.ReactorFactory(), ClientConstants.TIMER_WHEEL_TICK, metrics)
                 .thenApplyAsync(new Function<MessagingFactory, EventHubClient>() {
                     @Override
                     public EventHubClient apply(MessagingFactory factory) {
@@ -73,6 +81,11 @@ public final class EventHubClientImpl extends ClientEntity implements EventHubCl
                 }, executor);
     }
 
+    boolean isConnectionOpen() {
+        final MessagingFactory factory = this.underlyingFactory;
+        return factory != null && !this.getIsClosingOrClosed() && factory.isConnectionOpen();
+    }
+
     public String getEventHubName() {
         return eventHubName;
     }
@@ -132,9 +145,12 @@ public final class EventHubClientImpl extends ClientEntity implements EventHubCl
         }
 
         final EventDataBatchImpl eventDataBatch = (EventDataBatchImpl) eventDatas;
-        return eventDataBatch.getPartitionKey() != null
-                ? this.send(eventDataBatch.getInternalIterable(), eventDataBatch.getPartitionKey())
-                : this.send(eventDataBatch.getInternalIterable());
+        return this.createInternalSender().thenComposeAsync(new Function<Void, CompletableFuture<Void>>() {
+            @Override
+            public CompletableFuture<Void> apply(Void voidArg) {
+                return eventDataBatch.sendUsing(EventHubClientImpl.this.sender);
+            }
+        }, this.executor);
     }
 
     @Override
@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.ClientMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps the {@link ClientMetrics} given by the user, so that an exception thrown by one of its methods - called inline,
+ * mostly on the Reactor thread - is logged instead of failing the send, delivery or Reactor iteration it measured.
+ * The first failure is logged as a warning and the ones after it at debug level, as they can come with every send.
+ */
+final class GuardedClientMetrics implements ClientMetrics {
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(GuardedClientMetrics.class);
+
+    private final ClientMetrics metrics;
+    private final AtomicBoolean warned;
+
+    private GuardedClientMetrics(final ClientMetrics metrics) {
+        this.metrics = metrics;
+        this.warned = new AtomicBoolean();
+    }
+
+    static ClientMetrics guard(final ClientMetrics metrics) {
+        return (metrics == null || metrics == ClientMetrics.NO_OP)
+                ? ClientMetrics.NO_OP
+                : (metrics instanceof GuardedClientMetrics ? metrics : new GuardedClientMetrics(metrics));
+    }
+
+    @Override
+    public void recordPendingSends(final String entityPath, final int pendingSends, final long inFlightBytes) {
+        try {
+            this.metrics.recordPendingSends(entityPath, pendingSends, inFlightBytes);
+        } catch (RuntimeException exception) {
+            this.onError("recordPendingSends", exception);
+        }
+    }
+
+    @Override
+    public void recordSendLatency(final String entityPath, final long latencyNanos) {
+        try {
+            this.metrics.recordSendLatency(entityPath, latencyNanos);
+        } catch (RuntimeException exception) {
+            this.onError("recordSendLatency", exception);
+        }
+    }
+
+    @Override
+    public void recordSendRetry(final String entityPath) {
+        try {
+            this.metrics.recordSendRetry(entityPath);
+        } catch (RuntimeException exception) {
+            this.onError("recordSendRetry", exception);
+        }
+    }
+
+    @Override
+    public void recordCreditStall(final String entityPath) {
+        try {
+            this.metrics.recordCreditStall(entityPath);
+        } catch (RuntimeException exception) {
+            this.onError("recordCreditStall", exception);
+        }
+    }
+
+    @Override
+    public void recordPrefetch(final String entityPath, final int prefetchedCount, final int linkCredit) {
+        try {
+            this.metrics.recordPrefetch(entityPath, prefetchedCount, linkCredit);
+        } catch (RuntimeException exception) {
+            this.onError("recordPrefetch", exception);
+        }
+    }
+
+    @Override
+    public void recordReceiveLatency(final String entityPath, final long latencyNanos) {
+        try {
+            this.metrics.recordReceiveLatency(entityPath, latencyNanos);
+        } catch (RuntimeException exception) {
+            this.onError("recordReceiveLatency", exception);
+        }
+    }
+
+    @Override
+    public void recordDispatcherQueueDepth(final int queueDepth) {
+        try {
+            this.metrics.recordDispatcherQueueDepth(queueDepth);
+        } catch (RuntimeException exception) {
+            this.onError("recordDispatcherQueueDepth", exception);
+        }
+    }
+
+    @Override
+    public void recordReactorIteration(final long durationNanos) {
+        try {
+            this.metrics.recordReactorIteration(durationNanos);
+        } catch (RuntimeException exception) {
+            this.onError("recordReactorIteration", exception);
+        }
+    }
+
+    private void onError(final String method, final RuntimeException exception) {
+        final String message = String.format(Locale.US, "ClientMetrics.%s threw - the measurement is dropped", method);
+        if (this.warned.compareAndSet(false, true)) {
+            if (TRACE_LOGGER.isWarnEnabled()) {
+                TRACE_LOGGER.warn(message, exception);
+            }
+        } else if (TRACE_LOGGER.isDebugEnabled()) {
+            TRACE_LOGGER.debug(message, exception);
+        }
+    }
+}
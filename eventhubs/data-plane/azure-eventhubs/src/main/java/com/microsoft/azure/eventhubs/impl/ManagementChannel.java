@@ -8,7 +8,7 @@ import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
 import org.apache.qpid.proton.message.Message;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -20,10 +20,12 @@ final class ManagementChannel {
     final FaultTolerantObject<RequestResponseChannel> innerChannel;
     final SessionProvider sessionProvider;
     final AmqpConnection connectionEventDispatcher;
+    final Timer timer;
 
-    ManagementChannel(final SessionProvider sessionProvider, final AmqpConnection connection) {
+    ManagementChannel(final SessionProvider sessionProvider, final AmqpConnection connection, final SchedulerProvider schedulerProvider) {
         this.sessionProvider = sessionProvider;
         this.connectionEventDispatcher = connection;
+        this.timer = new Timer(schedulerProvider);
 
         final RequestResponseCloser closer = new RequestResponseCloser();
         this.innerChannel = new FaultTolerantObject<>(
@@ -46,34 +48,38 @@ final class ManagementChannel {
         final ApplicationProperties applicationProperties = new ApplicationProperties(request);
         requestMessage.setApplicationProperties(applicationProperties);
         final CompletableFuture<Map<String, Object>> resultFuture = new CompletableFuture<Map<String, Object>>();
-        try {
-            // schedule client-timeout on the request
-            dispatcher.invoke((int) timeoutInMillis,
-                    new DispatchHandler() {
-                        @Override
-                        public void onEvent() {
-                            final RequestResponseChannel channel = innerChannel.unsafeGetIfOpened();
-                            final String errorMessage;
-                            if (channel != null && channel.getState() == IOObject.IOObjectState.OPENED) {
-                                final String remoteContainerId = channel.getSendLink().getSession().getConnection().getRemoteContainer();
-                                errorMessage = String.format("Management request timed out (%sms), after not receiving response from service. TrackingId: %s",
-                                        timeoutInMillis, StringUtil.isNullOrEmpty(remoteContainerId) ? "n/a" : remoteContainerId);
-                            } else {
-                                errorMessage = "Management request timed out on the client - enable info level tracing to diagnose.";
-                            }
-
-                            resultFuture.completeExceptionally(new TimeoutException(errorMessage));
+        // schedule client-timeout on the request
+        final CompletableFuture<?> timeoutTask = this.timer.schedule(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        final RequestResponseChannel channel = innerChannel.unsafeGetIfOpened();
+                        final String errorMessage;
+                        if (channel != null && channel.getState() == IOObject.IOObjectState.OPENED) {
+                            final String remoteContainerId = channel.getSendLink().getSession().getConnection().getRemoteContainer();
+                            errorMessage = String.format("Management request timed out (%sms), after not receiving response from service. TrackingId: %s",
+                                    timeoutInMillis, StringUtil.isNullOrEmpty(remoteContainerId) ? "n/a" : remoteContainerId);
+                        } else {
+                            errorMessage = "Management request timed out on the client - enable info level tracing to diagnose.";
                         }
-                    });
-        } catch (final IOException ioException) {
-            resultFuture.completeExceptionally(
+
+                        resultFuture.completeExceptionally(new TimeoutException(errorMessage));
+                    }
+                },
+                Duration.ofMillis(timeoutInMillis));
+
+        if (timeoutTask.isCompletedExceptionally()) {
+            timeoutTask.whenComplete((unUsed, schedulerException) -> resultFuture.completeExceptionally(
                     new OperationCancelledException(
                             "Sending request failed while dispatching to Reactor, see cause for more details.",
-                            ioException));
+                            schedulerException)));
 
             return resultFuture;
         }
 
+        // the response settles the request - its timeout no longer needs to be tracked
+        resultFuture.whenComplete((unUsed, exception) -> timeoutTask.cancel(false));
+
         // if there isn't even 5 millis left - request will not make the round-trip
         // to the event hubs service. so don't schedule the request - let it timeout
         if (timeoutInMillis > ClientConstants.MGMT_CHANNEL_MIN_RETRY_IN_MILLIS) {
@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.eventhubs.impl;
 
+import com.microsoft.azure.eventhubs.ClientMetrics;
 import com.microsoft.azure.eventhubs.ErrorContext;
 import com.microsoft.azure.eventhubs.EventHubException;
 import com.microsoft.azure.eventhubs.TimeoutException;
@@ -29,6 +30,7 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -60,6 +62,7 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
     private final Duration operationTimeout;
     private final CompletableFuture<Void> linkClose;
     private final ReceiverSettingsProvider settingsProvider;
+    private final boolean zeroCopyReceive;
     private final String tokenAudience;
     private final ActiveClientTokenManager activeClientTokenManager;
     private final WorkItem<MessageReceiver> linkOpen;
@@ -68,7 +71,8 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
     private final CreateAndReceive createAndReceive;
     private final Object errorConditionLock;
     private final Timer timer;
-    private volatile int nextCreditToFlow;
+    private final CreditController creditController;
+    private final ClientMetrics metrics;
     private volatile Receiver receiveLink;
     private volatile Duration receiveTimeout;
     private volatile Message lastReceivedMessage;
@@ -83,13 +87,17 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
                             final String name,
                             final String recvPath,
                             final int prefetchCount,
-                            final ReceiverSettingsProvider settingsProvider) {
+                            final long prefetchSizeInBytes,
+                            final ReceiverSettingsProvider settingsProvider,
+                            final boolean zeroCopyReceive) {
         super(name, factory, factory.executor);
 
         this.underlyingFactory = factory;
         this.operationTimeout = factory.getOperationTimeout();
         this.receivePath = recvPath;
         this.prefetchCount = prefetchCount;
+        this.zeroCopyReceive = zeroCopyReceive;
+        this.creditController = new CreditController(prefetchCount, prefetchSizeInBytes);
         this.prefetchedMessages = new ConcurrentLinkedQueue<>();
         this.linkClose = new CompletableFuture<>();
         this.lastKnownLinkError = null;
@@ -97,6 +105,7 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
         this.settingsProvider = settingsProvider;
         this.linkOpen = new WorkItem<>(new CompletableFuture<>(), factory.getOperationTimeout());
         this.timer = new Timer(factory);
+        this.metrics = factory.getMetrics();
 
         this.pendingReceives = new ConcurrentLinkedQueue<>();
         this.errorConditionLock = new Object();
@@ -197,12 +206,29 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
             final String recvPath,
             final int prefetchCount,
             final ReceiverSettingsProvider settingsProvider) {
+        return create(factory, name, recvPath, prefetchCount, 0, settingsProvider, false);
+    }
+
+    /**
+     * @param prefetchSizeInBytes upper limit on the size of the prefetched messages - 0 for no limit - see {@link CreditController}
+     * @param zeroCopyReceive     keep each received message backed by the bytes of its delivery - see {@link ReceivedMessage}
+     */
+    public static CompletableFuture<MessageReceiver> create(
+            final MessagingFactory factory,
+            final String name,
+            final String recvPath,
+            final int prefetchCount,
+            final long prefetchSizeInBytes,
+            final ReceiverSettingsProvider settingsProvider,
+            final boolean zeroCopyReceive) {
         MessageReceiver msgReceiver = new MessageReceiver(
                 factory,
                 name,
                 recvPath,
                 prefetchCount,
-                settingsProvider);
+                prefetchSizeInBytes,
+                settingsProvider,
+                zeroCopyReceive);
         return msgReceiver.createLink();
     }
 
@@ -210,6 +236,27 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
         return this.receivePath;
     }
 
+    /**
+     * @return link credit flowed to the service but not yet used up by a delivery
+     */
+    public int getCurrentCredit() {
+        return this.creditController.getLinkCredit();
+    }
+
+    /**
+     * @return number of messages received but not yet handed to a receive call
+     */
+    public int getPrefetchedCount() {
+        return this.creditController.getBufferedCount();
+    }
+
+    /**
+     * @return total size of the messages received but not yet handed to a receive call
+     */
+    public long getPrefetchedBytes() {
+        return this.creditController.getBufferedBytes();
+    }
+
     private CompletableFuture<MessageReceiver> createLink() {
         try {
             this.underlyingFactory.scheduleOnReactorThread(new DispatchHandler() {
@@ -243,6 +290,35 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
         return returnMessages;
     }
 
+    /**
+     * Takes up to {@code maxMessageCount} messages which are already prefetched - without waiting for more to arrive.
+     * Unlike {@link #receive(int)}, completes on the calling thread; only replenishing link credit hops to the Reactor thread.
+     *
+     * @param maxMessageCount upper limit on the number of messages to take
+     * @return the prefetched messages; null if there are none
+     */
+    public Collection<Message> receivePrefetched(final int maxMessageCount) {
+        this.throwIfClosed();
+
+        List<Message> messages = null;
+        Message message;
+        while ((messages == null || messages.size() < maxMessageCount) && (message = this.prefetchedMessages.poll()) != null) {
+            if (messages == null) {
+                messages = new ArrayList<>(Math.min(maxMessageCount, this.creditController.getBufferedCount() + 1));
+            }
+
+            messages.add(message);
+            this.lastReceivedMessage = message;
+            this.creditController.onDrained();
+        }
+
+        if (messages != null) {
+            this.scheduleFlow();
+        }
+
+        return messages;
+    }
+
     public Duration getReceiveTimeout() {
         return this.receiveTimeout;
     }
@@ -278,6 +354,7 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
             timer.schedule(this.onOperationTimedout, this.receiveTimeout);
         }
 
+        this.creditController.onReceiveRequested(maxMessageCount, this.prefetchedMessages.isEmpty());
         pendingReceives.offer(new ReceiveWorkItem(onReceive, receiveTimeout, maxMessageCount));
 
         try {
@@ -310,12 +387,12 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
 
             this.underlyingFactory.getRetryPolicy().resetRetryCount(this.underlyingFactory.getClientId());
 
-            this.nextCreditToFlow = 0;
-            this.sendFlow(this.prefetchCount - this.prefetchedMessages.size());
+            this.creditController.onLinkOpened();
+            final int sentCredits = this.sendFlow(true);
 
             if (TRACE_LOGGER.isInfoEnabled()) {
                 TRACE_LOGGER.info(String.format("onOpenComplete - clientId[%s], receiverPath[%s], linkName[%s], updated-link-credit[%s], sentCredits[%s]",
-                        this.getClientId(), this.receivePath, this.receiveLink.getName(), this.receiveLink.getCredit(), this.prefetchCount));
+                        this.getClientId(), this.receivePath, this.receiveLink.getName(), this.receiveLink.getCredit(), sentCredits));
             }
         } else {
             synchronized (this.errorConditionLock) {
@@ -378,12 +455,19 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
 
         int read = receiveLink.recv(buffer, 0, msgSize);
 
-        Message message = Proton.message();
-        message.decode(buffer, 0, read);
+        final Message message;
+        if (this.zeroCopyReceive) {
+            message = ReceivedMessage.decode(buffer, read);
+        } else {
+            message = Proton.message();
+            message.decode(buffer, 0, read);
+        }
 
         delivery.settle();
 
+        this.creditController.onDelivery(read, System.nanoTime());
         this.prefetchedMessages.add(message);
+        this.metrics.recordPrefetch(this.receivePath, this.creditController.getBufferedCount(), this.creditController.getLinkCredit());
         this.underlyingFactory.getRetryPolicy().resetRetryCount(this.getClientId());
 
         this.receiveWork.onEvent();
@@ -392,6 +476,7 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
     @Override
     public void onError(final Exception exception) {
         this.prefetchedMessages.clear();
+        this.creditController.clear();
 
         if (this.getIsClosingOrClosed()) {
             if (this.closeTimer != null)
@@ -604,27 +689,60 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
         if (message != null) {
             // message lastReceivedOffset should be up-to-date upon each poll - as recreateLink will depend on this
             this.lastReceivedMessage = message;
-            this.sendFlow(1);
+            this.creditController.onDrained();
+            this.sendFlow(false);
         }
 
         return message;
     }
 
-    private void sendFlow(final int credits) {
-        // slow down sending the flow - to make the protocol less-chat'y
-        this.nextCreditToFlow += credits;
-        if (this.nextCreditToFlow >= this.prefetchCount || this.nextCreditToFlow >= 100) {
-            final int tempFlow = this.nextCreditToFlow;
-            this.receiveLink.flow(tempFlow);
-            this.nextCreditToFlow = 0;
+    // the credit controller batches up credit - to make the protocol less-chat'y - and sizes the prefetch window
+    private int sendFlow(final boolean force) {
+        final int credits = this.creditController.nextCredit(force, System.nanoTime());
+        if (credits > 0) {
+            this.flow(this.receiveLink, credits);
+        }
 
-            if (TRACE_LOGGER.isDebugEnabled()) {
-                TRACE_LOGGER.debug(String.format("clientId[%s], receiverPath[%s], linkName[%s], updated-link-credit[%s], sentCredits[%s], ThreadId[%s]",
-                        this.getClientId(), this.receivePath, this.receiveLink.getName(), this.receiveLink.getCredit(), tempFlow, Thread.currentThread().getId()));
+        return credits;
+    }
+
+    // same as sendFlow - for callers off the Reactor thread
+    private void scheduleFlow() {
+        final int credits = this.creditController.nextCredit(false, System.nanoTime());
+        if (credits == 0) {
+            return;
+        }
+
+        final Receiver link = this.receiveLink;
+        try {
+            this.underlyingFactory.scheduleOnReactorThread(new DispatchHandler() {
+                @Override
+                public void onEvent() {
+                    // a link re-created meanwhile was given its credit when it opened
+                    if (MessageReceiver.this.receiveLink == link) {
+                        MessageReceiver.this.flow(link, credits);
+                    }
+                }
+            });
+        } catch (IOException | RejectedExecutionException schedulerException) {
+            if (TRACE_LOGGER.isWarnEnabled()) {
+                TRACE_LOGGER.warn(String.format(Locale.US, "clientId[%s], receiverPath[%s], scheduling flow of credits[%s] encountered error: %s",
+                        this.getClientId(), this.receivePath, credits, schedulerException.getLocalizedMessage()));
             }
         }
     }
 
+    private void flow(final Receiver link, final int credits) {
+        link.flow(credits);
+        this.metrics.recordPrefetch(this.receivePath, this.creditController.getBufferedCount(), this.creditController.getLinkCredit());
+
+        if (TRACE_LOGGER.isDebugEnabled()) {
+            TRACE_LOGGER.debug(String.format("clientId[%s], receiverPath[%s], linkName[%s], updated-link-credit[%s], sentCredits[%s], prefetch-window[%s], ThreadId[%s]",
+                    this.getClientId(), this.receivePath, link.getName(), link.getCredit(), credits,
+                    this.creditController.getWindow(), Thread.currentThread().getId()));
+        }
+    }
+
     private void scheduleLinkOpenTimeout(final TimeoutTracker timeout) {
         // timer to signal a timeout if exceeds the operationTimeout on MessagingFactory
         this.openTimer = timer.schedule(
@@ -789,10 +907,12 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
 
     private static class ReceiveWorkItem extends WorkItem<Collection<Message>> {
         private final int maxMessageCount;
+        private final long startNanos;
 
         ReceiveWorkItem(CompletableFuture<Collection<Message>> completableFuture, Duration timeout, final int maxMessageCount) {
             super(completableFuture, timeout);
             this.maxMessageCount = maxMessageCount;
+            this.startNanos = System.nanoTime();
         }
     }
 
@@ -805,6 +925,7 @@ public final class MessageReceiver extends ClientEntity implements AmqpReceiver,
             while (!prefetchedMessages.isEmpty() && pendingReceive != null) {
                 if (pendingReceive.getWork() != null && !pendingReceive.getWork().isDone()) {
                     Collection<Message> receivedMessages = receiveCore(pendingReceive.maxMessageCount);
+                    metrics.recordReceiveLatency(receivePath, System.nanoTime() - pendingReceive.startNanos);
                     pendingReceive.getWork().complete(receivedMessages);
                 }
                 pendingReceive = pendingReceives.poll();
@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.eventhubs.impl;
 
+import com.microsoft.azure.eventhubs.ClientMetrics;
 import com.microsoft.azure.eventhubs.ErrorContext;
 import com.microsoft.azure.eventhubs.EventHubException;
 import com.microsoft.azure.eventhubs.OperationCancelledException;
@@ -11,10 +12,8 @@ import com.microsoft.azure.eventhubs.RetryPolicy;
 import com.microsoft.azure.eventhubs.ServerBusyException;
 import com.microsoft.azure.eventhubs.TimeoutException;
 import org.apache.qpid.proton.Proton;
-import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.UnsignedLong;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
-import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.messaging.Released;
 import org.apache.qpid.proton.amqp.messaging.Source;
@@ -39,23 +38,13 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 /**
  * Abstracts all amqp related details
  * translates event-driven reactor model into async send Api
@@ -70,14 +59,13 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
     private final Duration operationTimeout;
     private final RetryPolicy retryPolicy;
     private final CompletableFuture<Void> linkClose;
-    private final Object pendingSendLock;
-    private final ConcurrentHashMap<String, ReplayableWorkItem<Void>> pendingSendsData;
-    private final PriorityQueue<WeightedDeliveryTag> pendingSends;
+    private final PendingSends<Void> pendingSends;
     private final DispatchHandler sendWork;
     private final ActiveClientTokenManager activeClientTokenManager;
     private final String tokenAudience;
     private final Object errorConditionLock;
     private final Timer timer;
+    private final ClientMetrics metrics;
     private volatile int maxMessageSize;
     private volatile Sender sendLink;
     private volatile CompletableFuture<MessageSender> linkFirstOpen;
@@ -96,14 +84,13 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         this.underlyingFactory = factory;
         this.operationTimeout = factory.getOperationTimeout();
         this.timer = new Timer(factory);
+        this.metrics = factory.getMetrics();
         this.lastKnownLinkError = null;
         this.lastKnownErrorReportedAt = Instant.EPOCH;
         this.retryPolicy = factory.getRetryPolicy();
         this.maxMessageSize = ClientConstants.MAX_MESSAGE_LENGTH_BYTES;
         this.errorConditionLock = new Object();
-        this.pendingSendLock = new Object();
-        this.pendingSendsData = new ConcurrentHashMap<>();
-        this.pendingSends = new PriorityQueue<>(1000, new DeliveryTagComparator());
+        this.pendingSends = new PendingSends<>();
         this.linkClose = new CompletableFuture<>();
         this.linkFirstOpen = new CompletableFuture<>();
         this.openLinkTracker = TimeoutTracker.create(factory.getOperationTimeout());
@@ -184,18 +171,21 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         return this.maxMessageSize;
     }
 
-    private CompletableFuture<Void> send(byte[] bytes, int arrayOffset, int messageFormat) {
-        return this.send(bytes, arrayOffset, messageFormat, null, null);
+    // bytes are expected to be fully encoded & are held on to (for replay) until the send completes
+    CompletableFuture<Void> send(byte[] bytes, int arrayOffset, int messageFormat) {
+        return this.send(bytes, arrayOffset, messageFormat, null, null, null);
     }
 
     private CompletableFuture<Void> sendCore(
             final byte[] bytes,
             final int arrayOffset,
             final int messageFormat,
+            final SendBufferPool bufferPool,
             final CompletableFuture<Void> onSend,
             final TimeoutTracker tracker,
             final Exception lastKnownError,
-            final CompletableFuture<?> timeoutTask) {
+            final CompletableFuture<?> timeoutTask,
+            final long sendStartNanos) {
         this.throwIfClosed();
 
         final boolean isRetrySend = (onSend != null);
@@ -205,9 +195,11 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         final ReplayableWorkItem<Void> sendWaiterData = (tracker == null)
                 ? new ReplayableWorkItem<>(bytes, arrayOffset, messageFormat, onSendFuture, this.operationTimeout)
                 : new ReplayableWorkItem<>(bytes, arrayOffset, messageFormat, onSendFuture, tracker);
+        sendWaiterData.setBufferPool(bufferPool);
+        sendWaiterData.setSendStartNanos(sendStartNanos);
 
         final TimeoutTracker currentSendTracker = sendWaiterData.getTimeoutTracker();
-        final String deliveryTag = UUID.randomUUID().toString().replace("-", StringUtil.EMPTY) + "_" + currentSendTracker.elapsed().getSeconds();
+        sendWaiterData.setDeliveryTag(this.pendingSends.nextDeliveryTag());
 
         if (lastKnownError != null) {
             sendWaiterData.setLastKnownException(lastKnownError);
@@ -217,11 +209,12 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             timeoutTask.cancel(false);
 
         final CompletableFuture<?> timeoutTimerTask = this.timer.schedule(
-                new SendTimeout(deliveryTag, sendWaiterData),
+                new SendTimeout(sendWaiterData),
                 currentSendTracker.remaining());
 
         // if the timeoutTask completed with scheduling error - notify sender
         if (timeoutTimerTask.isCompletedExceptionally()) {
+            sendWaiterData.clearMessage();
             timeoutTimerTask.handleAsync(
                 (unUsed, exception) -> {
                     if (exception != null && !(exception instanceof CancellationException))
@@ -238,14 +231,13 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
 
         sendWaiterData.setTimeoutTask(timeoutTimerTask);
 
-        synchronized (this.pendingSendLock) {
-            this.pendingSendsData.put(deliveryTag, sendWaiterData);
-            this.pendingSends.offer(new WeightedDeliveryTag(deliveryTag, isRetrySend ? 1 : 0));
-        }
+        this.pendingSends.offer(sendWaiterData, isRetrySend);
+        this.metrics.recordPendingSends(this.sendPath, this.pendingSends.size(), this.pendingSends.getInFlightBytes());
 
         try {
             this.underlyingFactory.scheduleOnReactorThread(this.sendWork);
         } catch (IOException | RejectedExecutionException schedulerException) {
+            sendWaiterData.clearMessage();
             onSendFuture.completeExceptionally(
                     new OperationCancelledException(String.format(Locale.US,
                             "Entity(%s): send failed while dispatching to Reactor, see cause for more details.",
@@ -259,9 +251,10 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             final byte[] bytes,
             final int arrayOffset,
             final int messageFormat,
+            final SendBufferPool bufferPool,
             final CompletableFuture<Void> onSend,
             final TimeoutTracker tracker) {
-        return this.sendCore(bytes, arrayOffset, messageFormat, onSend, tracker, null, null);
+        return this.sendCore(bytes, arrayOffset, messageFormat, bufferPool, onSend, tracker, null, null, System.nanoTime());
     }
 
     public CompletableFuture<Void> send(final Iterable<Message> messages) {
@@ -281,24 +274,17 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         batchMessage.setMessageAnnotations(firstMessage.getMessageAnnotations());
 
         final int maxMessageSizeTemp = this.maxMessageSize;
+        final SendBufferPool bufferPool = this.underlyingFactory.getSendBufferPool();
 
-        final byte[] bytes = new byte[maxMessageSizeTemp];
+        final byte[] bytes = bufferPool.acquire(maxMessageSizeTemp);
         int encodedSize = batchMessage.encode(bytes, 0, maxMessageSizeTemp);
         int byteArrayOffset = encodedSize;
 
         for (final Message amqpMessage : messages) {
-            final Message messageWrappedByData = Proton.message();
-
-            int payloadSize = AmqpUtil.getDataSerializedSize(amqpMessage);
-            int allocationSize = Math.min(payloadSize + ClientConstants.MAX_EVENTHUB_AMQP_HEADER_SIZE_BYTES, maxMessageSizeTemp);
-
-            byte[] messageBytes = new byte[allocationSize];
-            int messageSizeBytes = amqpMessage.encode(messageBytes, 0, allocationSize);
-            messageWrappedByData.setBody(new Data(new Binary(messageBytes, 0, messageSizeBytes)));
-
             try {
-                encodedSize = messageWrappedByData.encode(bytes, byteArrayOffset, maxMessageSizeTemp - byteArrayOffset - 1);
+                encodedSize = AmqpUtil.encodeAsDataSection(amqpMessage, bytes, byteArrayOffset, maxMessageSizeTemp - byteArrayOffset - 1);
             } catch (BufferOverflowException exception) {
+                bufferPool.release(bytes);
                 final CompletableFuture<Void> sendTask = new CompletableFuture<>();
                 sendTask.completeExceptionally(new PayloadSizeExceededException(String.format(Locale.US,
                         "Entity(%s): size of the payload exceeded Maximum message size: %s kb",
@@ -309,7 +295,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             byteArrayOffset = byteArrayOffset + encodedSize;
         }
 
-        return this.send(bytes, byteArrayOffset, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT);
+        return this.send(bytes, byteArrayOffset, AmqpConstants.AMQP_BATCH_MESSAGE_FORMAT, bufferPool, null, null);
     }
 
     public CompletableFuture<Void> send(Message msg) {
@@ -317,12 +303,14 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
 
         final int maxMessageSizeTemp = this.maxMessageSize;
         int allocationSize = Math.min(payloadSize + ClientConstants.MAX_EVENTHUB_AMQP_HEADER_SIZE_BYTES, maxMessageSizeTemp);
+        final SendBufferPool bufferPool = this.underlyingFactory.getSendBufferPool();
 
-        final byte[] bytes = new byte[allocationSize];
+        final byte[] bytes = bufferPool.acquire(allocationSize);
         int encodedSize = 0;
         try {
             encodedSize = msg.encode(bytes, 0, allocationSize);
         } catch (BufferOverflowException exception) {
+            bufferPool.release(bytes);
             final CompletableFuture<Void> sendTask = new CompletableFuture<Void>();
             sendTask.completeExceptionally(new PayloadSizeExceededException(String.format(Locale.US,
                     "Entity(%s): size of the payload exceeded Maximum message size: %s kb",
@@ -330,7 +318,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             return sendTask;
         }
 
-        return this.send(bytes, encodedSize, DeliveryImpl.DEFAULT_MESSAGE_FORMAT);
+        return this.send(bytes, encodedSize, DeliveryImpl.DEFAULT_MESSAGE_FORMAT, bufferPool, null, null);
     }
 
     @Override
@@ -364,22 +352,9 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             if (!this.linkFirstOpen.isDone()) {
                 this.linkFirstOpen.complete(this);
             } else {
-                synchronized (this.pendingSendLock) {
-                    if (!this.pendingSendsData.isEmpty()) {
-                        final List<String> unacknowledgedSends = new LinkedList<>();
-                        unacknowledgedSends.addAll(this.pendingSendsData.keySet());
-
-                        if (unacknowledgedSends.size() > 0) {
-                            final Iterator<String> reverseReader = unacknowledgedSends.iterator();
-                            while (reverseReader.hasNext()) {
-                                final String unacknowledgedSend = reverseReader.next();
-                                if (this.pendingSendsData.get(unacknowledgedSend).isWaitingForAck()) {
-                                    this.pendingSends.offer(new WeightedDeliveryTag(unacknowledgedSend, 1));
-                                }
-                            }
-                        }
-
-                        unacknowledgedSends.clear();
+                for (final ReplayableWorkItem<Void> unacknowledgedSend : this.pendingSends.getAll()) {
+                    if (unacknowledgedSend.isWaitingForAck()) {
+                        this.pendingSends.replay(unacknowledgedSend);
                     }
                 }
             }
@@ -450,21 +425,19 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             if (this.closeTimer != null && !this.closeTimer.isDone())
                 this.closeTimer.cancel(false);
 
-            synchronized (this.pendingSendLock) {
-                for (Map.Entry<String, ReplayableWorkItem<Void>> pendingSend : this.pendingSendsData.entrySet()) {
-                    ExceptionUtil.completeExceptionally(pendingSend.getValue().getWork(),
-                            completionException == null
-                                    ? new OperationCancelledException(String.format(Locale.US,
-                                    "Entity(%s): send cancelled as the Sender instance is Closed before the sendOperation completed.",
-                                    this.sendPath))
-                                    : completionException,
-                            this);
-                }
-
-                this.pendingSendsData.clear();
-                this.pendingSends.clear();
+            for (final ReplayableWorkItem<Void> pendingSend : this.pendingSends.getAll()) {
+                pendingSend.clearMessage();
+                ExceptionUtil.completeExceptionally(pendingSend.getWork(),
+                        completionException == null
+                                ? new OperationCancelledException(String.format(Locale.US,
+                                "Entity(%s): send cancelled as the Sender instance is Closed before the sendOperation completed.",
+                                this.sendPath))
+                                : completionException,
+                        this);
             }
 
+            this.pendingSends.clear();
+
             this.linkClose.complete(null);
 
             return;
@@ -481,9 +454,9 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
 
             this.onOpenComplete(finalCompletionException);
 
-            final Map.Entry<String, ReplayableWorkItem<Void>> pendingSendEntry = IteratorUtil.getFirst(this.pendingSendsData.entrySet());
-            if (pendingSendEntry != null && pendingSendEntry.getValue() != null) {
-                final TimeoutTracker tracker = pendingSendEntry.getValue().getTimeoutTracker();
+            final ReplayableWorkItem<Void> pendingSend = IteratorUtil.getFirst(this.pendingSends.getAll());
+            if (pendingSend != null) {
+                final TimeoutTracker tracker = pendingSend.getTimeoutTracker();
                 if (tracker != null) {
                     final Duration nextRetryInterval = this.retryPolicy.getNextRetryInterval(this.getClientId(), finalCompletionException, tracker.remaining());
                     boolean scheduledRecreate = true;
@@ -505,14 +478,11 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                     }
 
                     if (nextRetryInterval == null || !scheduledRecreate) {
-                        synchronized (this.pendingSendLock) {
-                            for (Map.Entry<String, ReplayableWorkItem<Void>> pendingSend : this.pendingSendsData.entrySet()) {
-                                this.cleanupFailedSend(pendingSend.getValue(), finalCompletionException);
-                            }
-
-                            this.pendingSendsData.clear();
-                            this.pendingSends.clear();
+                        for (final ReplayableWorkItem<Void> failedSend : this.pendingSends.getAll()) {
+                            this.cleanupFailedSend(failedSend, finalCompletionException);
                         }
+
+                        this.pendingSends.clear();
                     }
                 }
             }
@@ -522,7 +492,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
     @Override
     public void onSendComplete(final Delivery delivery) {
         final DeliveryState outcome = delivery.getRemoteState();
-        final String deliveryTag = new String(delivery.getTag(), UTF_8);
+        final long deliveryTag = PendingSends.fromDeliveryTagBytes(delivery.getTag());
 
         if (TRACE_LOGGER.isTraceEnabled())
             TRACE_LOGGER.trace(
@@ -531,9 +501,11 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                             "clientId[%s], path[%s], linkName[%s], deliveryTag[%s]",
                             this.getClientId(), this.sendPath, this.sendLink.getName(), deliveryTag));
 
-        final ReplayableWorkItem<Void> pendingSendWorkItem = this.pendingSendsData.remove(deliveryTag);
+        final ReplayableWorkItem<Void> pendingSendWorkItem = this.pendingSends.remove(deliveryTag);
 
         if (pendingSendWorkItem != null) {
+            this.metrics.recordPendingSends(this.sendPath, this.pendingSends.size(), this.pendingSends.getInFlightBytes());
+
             if (outcome instanceof Accepted) {
                 synchronized (this.errorConditionLock) {
                     this.lastKnownLinkError = null;
@@ -542,7 +514,8 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                 this.retryPolicy.resetRetryCount(this.getClientId());
 
                 pendingSendWorkItem.getTimeoutTask().cancel(false);
-                pendingSendWorkItem.clearMessage();
+                pendingSendWorkItem.releaseMessage();
+                this.metrics.recordSendLatency(this.sendPath, System.nanoTime() - pendingSendWorkItem.getSendStartNanos());
                 pendingSendWorkItem.getWork().complete(null);
             } else if (outcome instanceof Rejected) {
                 final Rejected rejected = (Rejected) outcome;
@@ -563,6 +536,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                     this.cleanupFailedSend(pendingSendWorkItem, exception);
                 } else {
                     pendingSendWorkItem.setLastKnownException(exception);
+                    this.metrics.recordSendRetry(this.sendPath);
                     try {
                         this.underlyingFactory.scheduleOnReactorThread((int) retryInterval.toMillis(),
                                 new DispatchHandler() {
@@ -572,10 +546,12 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                                                 pendingSendWorkItem.getMessage(),
                                                 pendingSendWorkItem.getEncodedMessageSize(),
                                                 pendingSendWorkItem.getMessageFormat(),
+                                                pendingSendWorkItem.getBufferPool(),
                                                 pendingSendWorkItem.getWork(),
                                                 pendingSendWorkItem.getTimeoutTracker(),
                                                 pendingSendWorkItem.getLastKnownException(),
-                                                pendingSendWorkItem.getTimeoutTask());
+                                                pendingSendWorkItem.getTimeoutTask(),
+                                                pendingSendWorkItem.getSendStartNanos());
                                     }
                                 });
                     } catch (IOException | RejectedExecutionException schedulerException) {
@@ -605,6 +581,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         if (failedSend.getTimeoutTask() != null)
             failedSend.getTimeoutTask().cancel(false);
 
+        failedSend.clearMessage();
         ExceptionUtil.completeExceptionally(failedSend.getWork(), exception, this);
     }
 
@@ -785,10 +762,10 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
             return;
 
         if (TRACE_LOGGER.isDebugEnabled()) {
-            int numberOfSendsWaitingforCredit = this.pendingSends.size();
+            int numberOfSendsWaitingforCredit = this.pendingSends.getQueuedCount();
             TRACE_LOGGER.debug(String.format(Locale.US,
                     "clientId[%s], path[%s], linkName[%s], remoteLinkCredit[%s], pendingSendsWaitingForCredit[%s], pendingSendsWaitingDelivery[%s]",
-                    this.getClientId(), this.sendPath, this.sendLink.getName(), creditIssued, numberOfSendsWaitingforCredit, this.pendingSendsData.size() - numberOfSendsWaitingforCredit));
+                    this.getClientId(), this.sendPath, this.sendLink.getName(), creditIssued, numberOfSendsWaitingforCredit, this.pendingSends.size() - numberOfSendsWaitingforCredit));
         }
 
         this.sendWork.onEvent();
@@ -810,25 +787,15 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
 
         while (this.sendLink.getLocalState() == EndpointState.ACTIVE && this.sendLink.getRemoteState() == EndpointState.ACTIVE
                 && this.sendLink.getCredit() > 0) {
-            final WeightedDeliveryTag weightedDelivery;
-            final ReplayableWorkItem<Void> sendData;
-            final String deliveryTag;
-            synchronized (this.pendingSendLock) {
-                weightedDelivery = this.pendingSends.poll();
-                if (weightedDelivery != null) {
-                    deliveryTag = weightedDelivery.getDeliveryTag();
-                    sendData = this.pendingSendsData.get(deliveryTag);
-                } else {
-                    sendData = null;
-                    deliveryTag = null;
-                }
-            }
+            final ReplayableWorkItem<Void> sendData = this.pendingSends.poll();
 
             if (sendData != null) {
+                final long deliveryTag = sendData.getDeliveryTag();
                 if (sendData.getWork() != null && sendData.getWork().isDone()) {
                     // CoreSend could enque Sends into PendingSends Queue and can fail the SendCompletableFuture
                     // (when It fails to schedule the ProcessSendWork on reactor Thread)
-                    this.pendingSendsData.remove(deliveryTag);
+                    this.pendingSends.remove(deliveryTag);
+                    sendData.clearMessage();
                     continue;
                 }
 
@@ -838,7 +805,7 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                 Exception sendException = null;
 
                 try {
-                    delivery = this.sendLink.delivery(deliveryTag.getBytes(UTF_8));
+                    delivery = this.sendLink.delivery(sendData.getDeliveryTagBytes());
                     delivery.setMessageFormat(sendData.getMessageFormat());
 
                     sentMsgSize = this.sendLink.send(sendData.getMessage(), 0, sendData.getEncodedMessageSize());
@@ -862,6 +829,8 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                         delivery.free();
                     }
 
+                    sendData.clearMessage();
+
                     sendData.getWork().completeExceptionally(sendException != null
                             ? new OperationCancelledException(String.format(Locale.US,
                             "Entity(%s): send operation failed. Please see cause for more details", this.sendPath), sendException)
@@ -869,17 +838,14 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
                             String.format(Locale.US, "Entity(%s): send operation failed while advancing delivery(tag: %s).", this.sendPath, deliveryTag)));
                 }
             } else {
-                if (deliveryTag != null) {
-                    if (TRACE_LOGGER.isDebugEnabled()) {
-                        TRACE_LOGGER.debug(
-                                String.format(Locale.US, "clientId[%s], path[%s], linkName[%s], deliveryTag[%s] - sendData not found for this delivery.",
-                                        this.getClientId(), this.sendPath, this.sendLink.getName(), deliveryTag));
-                    }
-                }
-
                 break;
             }
         }
+
+        if (this.sendLink.getLocalState() == EndpointState.ACTIVE && this.sendLink.getRemoteState() == EndpointState.ACTIVE
+                && this.sendLink.getCredit() <= 0 && this.pendingSends.hasQueued()) {
+            this.metrics.recordCreditStall(this.sendPath);
+        }
     }
 
     private void throwSenderTimeout(final CompletableFuture<Void> pendingSendWork, final Exception lastKnownException) {
@@ -983,46 +949,18 @@ public final class MessageSender extends ClientEntity implements AmqpSender, Err
         }
     }
 
-    private static class WeightedDeliveryTag {
-        private final String deliveryTag;
-        private final int priority;
-
-        WeightedDeliveryTag(final String deliveryTag, final int priority) {
-            this.deliveryTag = deliveryTag;
-            this.priority = priority;
-        }
-
-        public String getDeliveryTag() {
-            return this.deliveryTag;
-        }
-
-        public int getPriority() {
-            return this.priority;
-        }
-    }
-
-    private static class DeliveryTagComparator implements Comparator<WeightedDeliveryTag> {
-        @Override
-        public int compare(WeightedDeliveryTag deliveryTag0, WeightedDeliveryTag deliveryTag1) {
-            return deliveryTag1.getPriority() - deliveryTag0.getPriority();
-        }
-    }
-
     private class SendTimeout implements Runnable {
-        private final String deliveryTag;
         private final ReplayableWorkItem<Void> sendWaiterData;
 
-        SendTimeout(
-                final String deliveryTag,
-                final ReplayableWorkItem<Void> sendWaiterData) {
+        SendTimeout(final ReplayableWorkItem<Void> sendWaiterData) {
             this.sendWaiterData = sendWaiterData;
-            this.deliveryTag = deliveryTag;
         }
 
         @Override
         public void run() {
             if (!sendWaiterData.getWork().isDone()) {
-                MessageSender.this.pendingSendsData.remove(deliveryTag);
+                MessageSender.this.pendingSends.remove(sendWaiterData.getDeliveryTag());
+                sendWaiterData.clearMessage();
                 MessageSender.this.throwSenderTimeout(sendWaiterData.getWork(), sendWaiterData.getLastKnownException());
             }
         }
@@ -4,6 +4,7 @@
 package com.microsoft.azure.eventhubs.impl;
 
 
+import com.microsoft.azure.eventhubs.ClientMetrics;
 import com.microsoft.azure.eventhubs.CommunicationException;
 import com.microsoft.azure.eventhubs.ConnectionStringBuilder;
 import com.microsoft.azure.eventhubs.EventHubException;
@@ -55,10 +56,14 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
     private final Object mgmtChannelCreateLock;
     private final SharedAccessSignatureTokenProvider tokenProvider;
     private final ReactorFactory reactorFactory;
+    private final SendBufferPool sendBufferPool;
+    private final TimerWheel timerWheel;
+    private final ClientMetrics metrics;
 
     private Reactor reactor;
     private ReactorDispatcher reactorDispatcher;
     private Connection connection;
+    private volatile boolean isConnectionOpen;
     private CBSChannel cbsChannel;
     private ManagementChannel mgmtChannel;
     private Duration operationTimeout;
@@ -71,7 +76,9 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
     MessagingFactory(final ConnectionStringBuilder builder,
                      final RetryPolicy retryPolicy,
                      final ScheduledExecutorService executor,
-                     final ReactorFactory reactorFactory) {
+                     final ReactorFactory reactorFactory,
+                     final Duration timerTickDuration,
+                     final ClientMetrics metrics) {
         super("MessagingFactory".concat(StringUtil.getRandomString()), null, executor);
 
         this.hostName = builder.getEndpoint().getHost();
@@ -87,6 +94,9 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
                 ? new SharedAccessSignatureTokenProvider(builder.getSasKeyName(), builder.getSasKey())
                 : new SharedAccessSignatureTokenProvider(builder.getSharedAccessSignature());
 
+        this.sendBufferPool = new SendBufferPool(ClientConstants.SEND_BUFFER_POOL_MAX_BYTES);
+        this.timerWheel = new TimerWheel(this, timerTickDuration);
+        this.metrics = GuardedClientMetrics.guard(metrics);
         this.closeTask = new CompletableFuture<>();
     }
 
@@ -106,11 +116,39 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
             final RetryPolicy retryPolicy,
             final ScheduledExecutorService executor,
             final ReactorFactory reactorFactory) throws IOException {
+        return createFromConnectionString(connectionString, retryPolicy, executor, reactorFactory, ClientConstants.TIMER_WHEEL_TICK);
+    }
+
+    /**
+     * @param timerTickDuration granularity of the operation timeouts of all the entities on this factory - timeouts fire
+     *                          up to one tick late; finer ticks cost more wakeups of the Reactor thread
+     */
+    public static CompletableFuture<MessagingFactory> createFromConnectionString(
+            final String connectionString,
+            final RetryPolicy retryPolicy,
+            final ScheduledExecutorService executor,
+            final ReactorFactory reactorFactory,
+            final Duration timerTickDuration) throws IOException {
+        return createFromConnectionString(connectionString, retryPolicy, executor, reactorFactory, timerTickDuration, null);
+    }
+
+    /**
+     * @param metrics receives the measurements of all the entities on this factory and of its Reactor thread
+     */
+    public static CompletableFuture<MessagingFactory> createFromConnectionString(
+            final String connectionString,
+            final RetryPolicy retryPolicy,
+            final ScheduledExecutorService executor,
+            final ReactorFactory reactorFactory,
+            final Duration timerTickDuration,
+            final ClientMetrics metrics) throws IOException {
         final ConnectionStringBuilder builder = new ConnectionStringBuilder(connectionString);
         final MessagingFactory messagingFactory = new MessagingFactory(builder,
                 (retryPolicy != null) ? retryPolicy : RetryPolicy.getDefault(),
                 executor,
-                reactorFactory);
+                reactorFactory,
+                timerTickDuration,
+                metrics);
 
         messagingFactory.createConnection();
 
@@ -158,6 +196,10 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
         }
     }
 
+    public TimerWheel getTimerWheel() {
+        return this.timerWheel;
+    }
+
     public SharedAccessSignatureTokenProvider getTokenProvider() {
         return this.tokenProvider;
     }
@@ -171,10 +213,12 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
         final Reactor newReactor = this.reactorFactory.create(reactorHandler, this.connectionHandler.getMaxFrameSize());
         synchronized (this.reactorLock) {
             this.reactor = newReactor;
-            this.reactorDispatcher = new ReactorDispatcher(newReactor);
+            this.reactorDispatcher = new ReactorDispatcher(newReactor, this.metrics);
             reactorHandler.unsafeSetReactorDispatcher(this.reactorDispatcher);
         }
 
+        this.timerWheel.onReactorRestarted();
+
         this.reactorCreationTime = Instant.now().toString();
 
         executor.execute(new RunReactor(newReactor, executor));
@@ -193,7 +237,7 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
     public ManagementChannel getManagementChannel() {
         synchronized (this.mgmtChannelCreateLock) {
             if (this.mgmtChannel == null) {
-                this.mgmtChannel = new ManagementChannel(this, this);
+                this.mgmtChannel = new ManagementChannel(this, this, this);
             }
         }
 
@@ -230,9 +274,23 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
         return this.retryPolicy;
     }
 
+    public ClientMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public SendBufferPool getSendBufferPool() {
+        return this.sendBufferPool;
+    }
+
+    // whether the current connection is open - false from a connection error until the connection is re-established
+    boolean isConnectionOpen() {
+        return this.isConnectionOpen && !this.getIsClosingOrClosed();
+    }
+
     @Override
     public void onOpenComplete(Exception exception) {
         if (exception == null) {
+            this.isConnectionOpen = true;
             this.open.complete(this);
 
             // if connection creation is in progress and then msgFactory.close call came thru
@@ -248,6 +306,8 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
 
     @Override
     public void onConnectionError(ErrorCondition error) {
+        this.isConnectionOpen = false;
+
         if (TRACE_LOGGER.isWarnEnabled()) {
             TRACE_LOGGER.warn(String.format(Locale.US, "onConnectionError: messagingFactory[%s], hostname[%s], error[%s]",
                     this.getClientId(),
@@ -507,7 +567,7 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
                     this.hasStarted = true;
                 }
 
-                if (!Thread.interrupted() && this.rctr.process()) {
+                if (!Thread.interrupted() && this.process()) {
                     try {
                         this.executor.execute(this);
                         reScheduledReactor = true;
@@ -581,6 +641,15 @@ public final class MessagingFactory extends ClientEntity implements AmqpConnecti
             }
         }
 
+        private boolean process() {
+            final long startNanos = System.nanoTime();
+            try {
+                return this.rctr.process();
+            } finally {
+                metrics.recordReactorIteration(System.nanoTime() - startNanos);
+            }
+        }
+
         private void scheduleCompletePendingTasks() {
             this.executor.schedule(new Runnable() {
                 @Override
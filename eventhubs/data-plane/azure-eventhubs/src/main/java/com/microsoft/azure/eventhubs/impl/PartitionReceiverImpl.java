@@ -13,6 +13,7 @@ import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.UnknownDescribedType;
 import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
 import org.apache.qpid.proton.message.Message;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,7 +106,10 @@ final class PartitionReceiverImpl extends ClientEntity implements ReceiverSettin
         return MessageReceiver.create(this.underlyingFactory,
                 this.getClientId().concat("-InternalReceiver"),
                 String.format("%s/ConsumerGroups/%s/Partitions/%s", this.eventHubName, this.consumerGroupName, this.partitionId),
-                this.receiverOptions.getPrefetchCount(), this)
+                this.receiverOptions.getPrefetchCount(),
+                this.receiverOptions.getPrefetchSizeInBytes(),
+                this,
+                this.receiverOptions.getZeroCopyReceiveEnabled())
                 .thenAcceptAsync(new Consumer<MessageReceiver>() {
                     public void accept(MessageReceiver r) {
                         PartitionReceiverImpl.this.internalReceiver = r;
@@ -145,28 +149,42 @@ final class PartitionReceiverImpl extends ClientEntity implements ReceiverSettin
         return this.internalReceiver.receive(maxEventCount).thenApplyAsync(new Function<Collection<Message>, Iterable<EventData>>() {
             @Override
             public Iterable<EventData> apply(Collection<Message> amqpMessages) {
-                PassByRef<MessageWrapper> lastMessageRef = null;
-                if (PartitionReceiverImpl.this.receiverOptions != null && PartitionReceiverImpl.this.receiverOptions.getReceiverRuntimeMetricEnabled())
-                    lastMessageRef = new PassByRef<>();
-
-                final Iterable<EventData> events = EventDataUtil.toEventDataCollection(amqpMessages, lastMessageRef);
-
-                if (lastMessageRef != null && lastMessageRef.get() != null) {
-                    final DeliveryAnnotations deliveryAnnotations = lastMessageRef.get().getMessage().getDeliveryAnnotations();
-                    if (deliveryAnnotations != null && deliveryAnnotations.getValue() != null) {
-                        final Map<Symbol, Object> deliveryAnnotationsMap = deliveryAnnotations.getValue();
-                        PartitionReceiverImpl.this.runtimeInformation.setRuntimeInformation(
-                                (long) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_SEQUENCE_NUMBER),
-                                ((Date) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_TIME_UTC)).toInstant(),
-                                (String) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_OFFSET));
-                    }
+                return PartitionReceiverImpl.this.toEvents(amqpMessages);
+            }
+        }, this.executor);
+    }
 
-                    PartitionReceiverImpl.this.currentEventPosition = lastMessageRef.get().getEventPosition();
-                }
+    private Iterable<EventData> receivePrefetched(final int maxEventCount) {
+        return this.toEvents(this.internalReceiver.receivePrefetched(maxEventCount));
+    }
 
-                return events;
+    private Iterable<EventData> toEvents(final Collection<Message> amqpMessages) {
+        PassByRef<MessageWrapper> lastMessageRef = null;
+        if (this.receiverOptions != null && this.receiverOptions.getReceiverRuntimeMetricEnabled())
+            lastMessageRef = new PassByRef<>();
+
+        final Iterable<EventData> events = EventDataUtil.toEventDataCollection(amqpMessages, lastMessageRef);
+
+        if (lastMessageRef != null && lastMessageRef.get() != null) {
+            final DeliveryAnnotations deliveryAnnotations = lastMessageRef.get().getMessage().getDeliveryAnnotations();
+            if (deliveryAnnotations != null && deliveryAnnotations.getValue() != null) {
+                final Map<Symbol, Object> deliveryAnnotationsMap = deliveryAnnotations.getValue();
+                this.runtimeInformation.setRuntimeInformation(
+                        (long) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_SEQUENCE_NUMBER),
+                        ((Date) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_TIME_UTC)).toInstant(),
+                        (String) deliveryAnnotationsMap.get(ClientConstants.LAST_ENQUEUED_OFFSET));
             }
-        }, this.executor);
+
+            this.currentEventPosition = lastMessageRef.get().getEventPosition();
+        }
+
+        if (this.runtimeInformation != null) {
+            final MessageReceiver receiver = this.internalReceiver;
+            this.runtimeInformation.setPrefetchInformation(
+                    receiver.getCurrentCredit(), receiver.getPrefetchedCount(), receiver.getPrefetchedBytes());
+        }
+
+        return events;
     }
 
     public CompletableFuture<Void> setReceiveHandler(final PartitionReceiveHandler receiveHandler) {
@@ -188,17 +206,7 @@ final class PartitionReceiverImpl extends ClientEntity implements ReceiverSettin
                 this.receivePump = new ReceivePump(
                         this.eventHubName,
                         this.consumerGroupName,
-                        new ReceivePump.IPartitionReceiver() {
-                            @Override
-                            public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
-                                return PartitionReceiverImpl.this.receive(maxBatchSize);
-                            }
-
-                            @Override
-                            public String getPartitionId() {
-                                return PartitionReceiverImpl.this.getPartitionId();
-                            }
-                        },
+                        this.asPumpReceiver(),
                         receiveHandler,
                         invokeWhenNoEvents,
                         this.executor);
@@ -210,6 +218,29 @@ final class PartitionReceiverImpl extends ClientEntity implements ReceiverSettin
         }
     }
 
+    public Publisher<EventData> receiveAsPublisher() {
+        return new ReceiverPublisher(this.asPumpReceiver(), this.receiverOptions.getPrefetchCount(), this.executor);
+    }
+
+    private ReceivePump.IPartitionReceiver asPumpReceiver() {
+        return new ReceivePump.IPartitionReceiver() {
+            @Override
+            public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                return PartitionReceiverImpl.this.receive(maxBatchSize);
+            }
+
+            @Override
+            public Iterable<EventData> receivePrefetched(int maxBatchSize) {
+                return PartitionReceiverImpl.this.receivePrefetched(maxBatchSize);
+            }
+
+            @Override
+            public String getPartitionId() {
+                return PartitionReceiverImpl.this.getPartitionId();
+            }
+        };
+    }
+
     @Override
     public CompletableFuture<Void> onClose() {
         synchronized (this.receiveHandlerLock) {
@@ -98,7 +98,7 @@ final class PartitionSenderImpl extends ClientEntity implements PartitionSender
                     + "continue using PartitionSenderImpl with EventDataBatches, then please do not set a partition key in your BatchOptions");
         }
 
-        return this.internalSender.send(EventDataUtil.toAmqpMessages(((EventDataBatchImpl) eventDatas).getInternalIterable()));
+        return ((EventDataBatchImpl) eventDatas).sendUsing(this.internalSender);
     }
 
     @Override
@@ -0,0 +1,212 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks the sends of a MessageSender from the time they are queued until their delivery is settled.
+ * Any thread can queue a send; the queues are drained by the Reactor thread only. Retries go to a separate lane,
+ * which is always drained ahead of the new sends.
+ * Delivery tags are numbers handed out in sequence - which are unique for the lifetime of the sender.
+ * As the tags in flight at any time are mostly consecutive, sends are tracked in a ring indexed by the low bits of
+ * their tag - no boxing, hashing or allocation per send; a send whose slot is still held by an older one goes to an
+ * overflow map, which is only looked at while it is not empty.
+ */
+final class PendingSends<T> {
+    private static final int DELIVERY_TAG_SIZE = Long.BYTES;
+    private static final int RING_SIZE = 4096;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final AtomicLong lastDeliveryTag;
+    private final AtomicReferenceArray<ReplayableWorkItem<T>> ring;
+    private final ConcurrentHashMap<Long, ReplayableWorkItem<T>> overflow;
+    private final AtomicInteger size;
+    private final ConcurrentLinkedQueue<ReplayableWorkItem<T>> sendLane;
+    private final ConcurrentLinkedQueue<ReplayableWorkItem<T>> retryLane;
+    private final AtomicLong inFlightBytes;
+
+    PendingSends() {
+        this.lastDeliveryTag = new AtomicLong();
+        this.ring = new AtomicReferenceArray<>(RING_SIZE);
+        this.overflow = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+        this.sendLane = new ConcurrentLinkedQueue<>();
+        this.retryLane = new ConcurrentLinkedQueue<>();
+        this.inFlightBytes = new AtomicLong();
+    }
+
+    static byte[] toDeliveryTagBytes(final long deliveryTag) {
+        final byte[] tagBytes = new byte[DELIVERY_TAG_SIZE];
+        for (int index = DELIVERY_TAG_SIZE - 1; index >= 0; index--) {
+            tagBytes[index] = (byte) (deliveryTag >>> ((DELIVERY_TAG_SIZE - 1 - index) * Byte.SIZE));
+        }
+
+        return tagBytes;
+    }
+
+    // returns -1 for tags not issued by PendingSends
+    static long fromDeliveryTagBytes(final byte[] tagBytes) {
+        if (tagBytes == null || tagBytes.length != DELIVERY_TAG_SIZE) {
+            return -1;
+        }
+
+        long deliveryTag = 0;
+        for (final byte tagByte : tagBytes) {
+            deliveryTag = (deliveryTag << Byte.SIZE) | (tagByte & 0xFF);
+        }
+
+        return deliveryTag;
+    }
+
+    long nextDeliveryTag() {
+        return this.lastDeliveryTag.incrementAndGet();
+    }
+
+    /**
+     * Starts tracking the send - by its delivery tag - & queues it for the Reactor thread.
+     *
+     * @param isRetry retries are sent before any send queued on the first attempt
+     */
+    void offer(final ReplayableWorkItem<T> send, final boolean isRetry) {
+        if (this.track(send) == null) {
+            this.size.incrementAndGet();
+            this.inFlightBytes.addAndGet(send.getEncodedMessageSize());
+        }
+
+        (isRetry ? this.retryLane : this.sendLane).offer(send);
+    }
+
+    /**
+     * Queues an already tracked send again - with its current delivery tag. Used to resend unacknowledged deliveries
+     * on a new link.
+     */
+    void replay(final ReplayableWorkItem<T> send) {
+        this.retryLane.offer(send);
+    }
+
+    /**
+     * @return the next send to put on the wire - retries first - or null if there are none queued
+     */
+    ReplayableWorkItem<T> poll() {
+        final ReplayableWorkItem<T> retry = this.retryLane.poll();
+        return retry != null ? retry : this.sendLane.poll();
+    }
+
+    ReplayableWorkItem<T> remove(final long deliveryTag) {
+        final int slot = (int) deliveryTag & RING_MASK;
+        final ReplayableWorkItem<T> tracked = this.ring.get(slot);
+
+        ReplayableWorkItem<T> send = null;
+        if (tracked != null && tracked.getDeliveryTag() == deliveryTag && this.ring.compareAndSet(slot, tracked, null)) {
+            send = tracked;
+        } else if (!this.overflow.isEmpty()) {
+            send = this.overflow.remove(deliveryTag);
+        }
+
+        if (send != null) {
+            this.untracked(send);
+        }
+
+        return send;
+    }
+
+    /**
+     * @return snapshot of all tracked sends - queued or waiting for their delivery to be settled
+     */
+    Collection<ReplayableWorkItem<T>> getAll() {
+        final ArrayList<ReplayableWorkItem<T>> all = new ArrayList<>(this.size.get());
+        for (int slot = 0; slot < RING_SIZE; slot++) {
+            final ReplayableWorkItem<T> send = this.ring.get(slot);
+            if (send != null) {
+                all.add(send);
+            }
+        }
+
+        all.addAll(this.overflow.values());
+        return all;
+    }
+
+    boolean isEmpty() {
+        return this.size.get() == 0;
+    }
+
+    int size() {
+        return this.size.get();
+    }
+
+    /**
+     * @return total encoded size of all tracked sends
+     */
+    long getInFlightBytes() {
+        return this.inFlightBytes.get();
+    }
+
+    boolean hasQueued() {
+        return !this.retryLane.isEmpty() || !this.sendLane.isEmpty();
+    }
+
+    // walks the queues - not meant for the hot path
+    int getQueuedCount() {
+        return this.retryLane.size() + this.sendLane.size();
+    }
+
+    void clear() {
+        this.retryLane.clear();
+        this.sendLane.clear();
+
+        // untrack one by one - so the counts stay right for sends tracked while clearing
+        for (int slot = 0; slot < RING_SIZE; slot++) {
+            final ReplayableWorkItem<T> send = this.ring.getAndSet(slot, null);
+            if (send != null) {
+                this.untracked(send);
+            }
+        }
+
+        for (final Long deliveryTag : this.overflow.keySet()) {
+            final ReplayableWorkItem<T> send = this.overflow.remove(deliveryTag);
+            if (send != null) {
+                this.untracked(send);
+            }
+        }
+    }
+
+    // returns the send tracked before with the same delivery tag, if any
+    private ReplayableWorkItem<T> track(final ReplayableWorkItem<T> send) {
+        final long deliveryTag = send.getDeliveryTag();
+        if (!this.overflow.isEmpty()) {
+            final ReplayableWorkItem<T> overflown = this.overflow.replace(deliveryTag, send);
+            if (overflown != null) {
+                return overflown;
+            }
+        }
+
+        final int slot = (int) deliveryTag & RING_MASK;
+        while (true) {
+            final ReplayableWorkItem<T> tracked = this.ring.get(slot);
+            if (tracked == null) {
+                if (this.ring.compareAndSet(slot, null, send)) {
+                    return null;
+                }
+            } else if (tracked.getDeliveryTag() == deliveryTag) {
+                if (this.ring.compareAndSet(slot, tracked, send)) {
+                    return tracked;
+                }
+            } else {
+                return this.overflow.put(deliveryTag, send);
+            }
+        }
+    }
+
+    private void untracked(final ReplayableWorkItem<T> send) {
+        this.size.decrementAndGet();
+        this.inFlightBytes.addAndGet(-send.getEncodedMessageSize());
+    }
+}
@@ -0,0 +1,285 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.BatchOptions;
+import com.microsoft.azure.eventhubs.ClientMetrics;
+import com.microsoft.azure.eventhubs.ConnectionHealth;
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+import com.microsoft.azure.eventhubs.EventHubRuntimeInformation;
+import com.microsoft.azure.eventhubs.EventPosition;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import com.microsoft.azure.eventhubs.PartitionRuntimeInformation;
+import com.microsoft.azure.eventhubs.PartitionSender;
+import com.microsoft.azure.eventhubs.PooledEventHubClient;
+import com.microsoft.azure.eventhubs.ReceiverOptions;
+import com.microsoft.azure.eventhubs.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link PooledEventHubClient} over a fixed set of {@link EventHubClientImpl}s - each owning its own {@link MessagingFactory},
+ * i.e., its own connection & Reactor thread.
+ */
+public final class PooledEventHubClientImpl extends ClientEntity implements PooledEventHubClient {
+
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(PooledEventHubClientImpl.class);
+
+    private final EventHubClientImpl[] clients;
+    private final ConnectionStats[] connectionStats;
+    private final AtomicInteger nextSendConnection;
+    private final AtomicInteger nextEntityConnection;
+
+    private PooledEventHubClientImpl(final EventHubClientImpl[] clients, final ScheduledExecutorService executor) {
+        super("PooledEventHubClientImpl".concat(StringUtil.getRandomString()), null, executor);
+
+        this.clients = clients;
+        this.connectionStats = new ConnectionStats[clients.length];
+        for (int index = 0; index < clients.length; index++) {
+            this.connectionStats[index] = new ConnectionStats();
+        }
+
+        this.nextSendConnection = new AtomicInteger();
+        this.nextEntityConnection = new AtomicInteger();
+    }
+
+    public static CompletableFuture<PooledEventHubClient> create(
+            final String connectionString, final RetryPolicy retryPolicy, final int poolSize, final ScheduledExecutorService executor)
+            throws EventHubException, IOException {
+        return create(connectionString, retryPolicy, poolSize, executor, null);
+    }
+
+    public static CompletableFuture<PooledEventHubClient> create(
+            final String connectionString, final RetryPolicy retryPolicy, final int poolSize, final ScheduledExecutorService executor,
+            final ClientMetrics metrics)
+            throws EventHubException, IOException {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize should be greater than 0");
+        }
+
+        final List<CompletableFuture<EventHubClient>> clientFutures = new ArrayList<>(poolSize);
+        try {
+            for (int index = 0; index < poolSize; index++) {
+                clientFutures.add(EventHubClientImpl.create(connectionString, retryPolicy, executor, metrics));
+            }
+        } catch (EventHubException | IOException | RuntimeException exception) {
+            closeCreated(clientFutures, executor);
+            throw exception;
+        }
+
+        return CompletableFuture.allOf(clientFutures.toArray(new CompletableFuture<?>[0]))
+                .handleAsync((unused, exception) -> {
+                    if (exception != null) {
+                        if (TRACE_LOGGER.isWarnEnabled()) {
+                            TRACE_LOGGER.warn(String.format(Locale.US, "creating connection pool of size[%s] failed, closing the connections already opened", poolSize),
+                                    exception);
+                        }
+
+                        closeCreated(clientFutures, executor);
+                        throw exception instanceof CompletionException ? (CompletionException) exception : new CompletionException(exception);
+                    }
+
+                    final EventHubClientImpl[] clients = new EventHubClientImpl[poolSize];
+                    for (int index = 0; index < poolSize; index++) {
+                        clients[index] = (EventHubClientImpl) clientFutures.get(index).join();
+                    }
+
+                    return new PooledEventHubClientImpl(clients, executor);
+                }, executor);
+    }
+
+    private static void closeCreated(final List<CompletableFuture<EventHubClient>> clientFutures, final ScheduledExecutorService executor) {
+        for (final CompletableFuture<EventHubClient> clientFuture : clientFutures) {
+            clientFuture.thenComposeAsync(EventHubClient::close, executor);
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        return this.clients.length;
+    }
+
+    @Override
+    public List<ConnectionHealth> getConnectionHealth() {
+        final List<ConnectionHealth> connectionHealth = new ArrayList<>(this.clients.length);
+        for (int index = 0; index < this.clients.length; index++) {
+            final ConnectionStats stats = this.connectionStats[index];
+            final ErrorRecord lastError = stats.lastError;
+            connectionHealth.add(new ConnectionHealth(
+                    index,
+                    this.clients[index].isConnectionOpen(),
+                    stats.pendingSends.get(),
+                    stats.completedSends.get(),
+                    stats.failedSends.get(),
+                    lastError != null ? lastError.error : null,
+                    lastError != null ? lastError.time : null));
+        }
+
+        return connectionHealth;
+    }
+
+    @Override
+    public String getEventHubName() {
+        return this.clients[0].getEventHubName();
+    }
+
+    @Override
+    public EventDataBatch createBatch(final BatchOptions options) throws EventHubException {
+        // all connections are to the same entity - so they agree on the max message size
+        return this.clients[0].createBatch(options);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(final EventData data) {
+        final int index = this.roundRobin(this.nextSendConnection);
+        return this.trackSend(index, () -> this.clients[index].send(data));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(final Iterable<EventData> eventDatas) {
+        final int index = this.roundRobin(this.nextSendConnection);
+        return this.trackSend(index, () -> this.clients[index].send(eventDatas));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(final EventDataBatch eventDatas) {
+        final String partitionKey = eventDatas instanceof EventDataBatchImpl ? ((EventDataBatchImpl) eventDatas).getPartitionKey() : null;
+        final int index = partitionKey != null ? this.byPartitionKey(partitionKey) : this.roundRobin(this.nextSendConnection);
+        return this.trackSend(index, () -> this.clients[index].send(eventDatas));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(final EventData eventData, final String partitionKey) {
+        if (partitionKey == null) {
+            throw new IllegalArgumentException("partitionKey cannot be null");
+        }
+
+        final int index = this.byPartitionKey(partitionKey);
+        return this.trackSend(index, () -> this.clients[index].send(eventData, partitionKey));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(final Iterable<EventData> eventDatas, final String partitionKey) {
+        if (partitionKey == null) {
+            throw new IllegalArgumentException("partitionKey cannot be null");
+        }
+
+        final int index = this.byPartitionKey(partitionKey);
+        return this.trackSend(index, () -> this.clients[index].send(eventDatas, partitionKey));
+    }
+
+    @Override
+    public CompletableFuture<PartitionSender> createPartitionSender(final String partitionId) throws EventHubException {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].createPartitionSender(partitionId);
+    }
+
+    @Override
+    public CompletableFuture<PartitionReceiver> createReceiver(final String consumerGroupName, final String partitionId, final EventPosition eventPosition)
+            throws EventHubException {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].createReceiver(consumerGroupName, partitionId, eventPosition);
+    }
+
+    @Override
+    public CompletableFuture<PartitionReceiver> createReceiver(final String consumerGroupName, final String partitionId, final EventPosition eventPosition, final ReceiverOptions receiverOptions)
+            throws EventHubException {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].createReceiver(consumerGroupName, partitionId, eventPosition, receiverOptions);
+    }
+
+    @Override
+    public CompletableFuture<PartitionReceiver> createEpochReceiver(final String consumerGroupName, final String partitionId, final EventPosition eventPosition, final long epoch)
+            throws EventHubException {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].createEpochReceiver(consumerGroupName, partitionId, eventPosition, epoch);
+    }
+
+    @Override
+    public CompletableFuture<PartitionReceiver> createEpochReceiver(final String consumerGroupName, final String partitionId, final EventPosition eventPosition, final long epoch, final ReceiverOptions receiverOptions)
+            throws EventHubException {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].createEpochReceiver(consumerGroupName, partitionId, eventPosition, epoch, receiverOptions);
+    }
+
+    @Override
+    public CompletableFuture<EventHubRuntimeInformation> getRuntimeInformation() {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].getRuntimeInformation();
+    }
+
+    @Override
+    public CompletableFuture<PartitionRuntimeInformation> getPartitionRuntimeInformation(final String partitionId) {
+        return this.clients[this.roundRobin(this.nextEntityConnection)].getPartitionRuntimeInformation(partitionId);
+    }
+
+    @Override
+    protected CompletableFuture<Void> onClose() {
+        final CompletableFuture<?>[] closeTasks = new CompletableFuture<?>[this.clients.length];
+        for (int index = 0; index < this.clients.length; index++) {
+            closeTasks[index] = this.clients[index].close();
+        }
+
+        return CompletableFuture.allOf(closeTasks);
+    }
+
+    private int roundRobin(final AtomicInteger counter) {
+        return Math.floorMod(counter.getAndIncrement(), this.clients.length);
+    }
+
+    // sends with the same partition key always take the same connection - to keep them in order
+    private int byPartitionKey(final String partitionKey) {
+        return Math.floorMod(partitionKey.hashCode(), this.clients.length);
+    }
+
+    private CompletableFuture<Void> trackSend(final int index, final Supplier<CompletableFuture<Void>> send) {
+        final ConnectionStats stats = this.connectionStats[index];
+        stats.pendingSends.incrementAndGet();
+
+        final CompletableFuture<Void> sendFuture;
+        try {
+            sendFuture = send.get();
+        } catch (RuntimeException exception) {
+            stats.pendingSends.decrementAndGet();
+            throw exception;
+        }
+
+        return sendFuture.whenComplete((unused, exception) -> {
+            stats.pendingSends.decrementAndGet();
+            if (exception == null) {
+                stats.completedSends.incrementAndGet();
+            } else {
+                stats.failedSends.incrementAndGet();
+                final Throwable cause = exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+                stats.lastError = new ErrorRecord(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            }
+        });
+    }
+
+    private static final class ConnectionStats {
+        private final AtomicInteger pendingSends = new AtomicInteger();
+        private final AtomicLong completedSends = new AtomicLong();
+        private final AtomicLong failedSends = new AtomicLong();
+        private volatile ErrorRecord lastError;
+    }
+
+    private static final class ErrorRecord {
+        private final Exception error;
+        private final Instant time;
+
+        ErrorRecord(final Exception error) {
+            this.error = error;
+            this.time = Instant.now();
+        }
+    }
+}
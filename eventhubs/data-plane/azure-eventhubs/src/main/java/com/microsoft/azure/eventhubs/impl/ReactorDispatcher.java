@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.eventhubs.impl;
 
+import com.microsoft.azure.eventhubs.ClientMetrics;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.BaseHandler;
 import org.apache.qpid.proton.engine.Event;
@@ -18,6 +19,9 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.Pipe;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link Reactor} is not thread-safe - all calls to {@link Proton} API's should be - on the Reactor Thread.
@@ -27,6 +31,8 @@ import java.util.concurrent.RejectedExecutionException;
  * It uses a {@link Pipe} as the IO on which Reactor Listens to.
  * Cardinality: multiple {@link ReactorDispatcher}'s could be attached to 1 {@link Reactor}.
  * Each {@link ReactorDispatcher} should be initialized Synchronously - as it calls API in {@link Reactor} which is not thread-safe.
+ * Wakeups are coalesced: only the first work item queued after the Reactor drained the queue writes to the {@link Pipe},
+ * the items queued behind it ride on the same wakeup.
  */
 public final class ReactorDispatcher {
     private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(ReactorDispatcher.class);
@@ -34,12 +40,30 @@ public final class ReactorDispatcher {
     private final Pipe ioSignal;
     private final ConcurrentLinkedQueue<BaseHandler> workQueue;
     private final ScheduleHandler workScheduler;
+    private final AtomicBoolean signalPending;
+    private final ByteBuffer signalBuffer;
+    private final ByteBuffer drainBuffer;
+    private final AtomicLong wakeupCount;
+    private final AtomicLong workItemCount;
+    private final AtomicInteger queueDepth;
+    private final ClientMetrics metrics;
 
     public ReactorDispatcher(final Reactor reactor) throws IOException {
+        this(reactor, ClientMetrics.NO_OP);
+    }
+
+    public ReactorDispatcher(final Reactor reactor, final ClientMetrics metrics) throws IOException {
         this.reactor = reactor;
         this.ioSignal = Pipe.open();
         this.workQueue = new ConcurrentLinkedQueue<>();
         this.workScheduler = new ScheduleHandler();
+        this.signalPending = new AtomicBoolean();
+        this.signalBuffer = ByteBuffer.allocate(1);
+        this.drainBuffer = ByteBuffer.allocate(1024);
+        this.wakeupCount = new AtomicLong();
+        this.workItemCount = new AtomicLong();
+        this.queueDepth = new AtomicInteger();
+        this.metrics = metrics;
 
         initializeSelectable();
     }
@@ -59,6 +83,7 @@ public final class ReactorDispatcher {
         this.throwIfSchedulerError();
 
         this.workQueue.offer(timerCallback);
+        this.queueDepth.incrementAndGet();
         this.signalWorkQueue();
     }
 
@@ -66,10 +91,32 @@ public final class ReactorDispatcher {
         this.throwIfSchedulerError();
 
         this.workQueue.offer(new DelayHandler(this.reactor, delay, timerCallback));
+        this.queueDepth.incrementAndGet();
         this.signalWorkQueue();
     }
 
-    private void throwIfSchedulerError() {
+    /**
+     * @return number of times the Reactor was woken up through the {@link Pipe}
+     */
+    public long getWakeupCount() {
+        return this.wakeupCount.get();
+    }
+
+    /**
+     * @return number of work items dispatched to the Reactor
+     */
+    public long getWorkItemCount() {
+        return this.workItemCount.get();
+    }
+
+    /**
+     * @return number of work items waiting for the Reactor thread
+     */
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    void throwIfSchedulerError() {
         // throw when the scheduler on which Reactor is running is already closed
         final RejectedExecutionException rejectedException = this.reactor.attachments()
                 .get(RejectedExecutionException.class, RejectedExecutionException.class);
@@ -85,13 +132,27 @@ public final class ReactorDispatcher {
     }
 
     private void signalWorkQueue() throws IOException {
+        this.workItemCount.incrementAndGet();
+
+        // a wakeup is already on its way - the Reactor will pick this work item up while draining the queue
+        if (!this.signalPending.compareAndSet(false, true)) {
+            return;
+        }
+
         try {
-            ByteBuffer oneByteBuffer = ByteBuffer.allocate(1);
-            while (this.ioSignal.sink().write(oneByteBuffer) == 0) {
-                oneByteBuffer = ByteBuffer.allocate(1);
+            synchronized (this.signalBuffer) {
+                this.signalBuffer.clear();
+                while (this.ioSignal.sink().write(this.signalBuffer) == 0) {
+                    this.signalBuffer.rewind();
+                }
             }
+
+            this.wakeupCount.incrementAndGet();
         } catch (ClosedChannelException ignorePipeClosedDuringReactorShutdown) {
             TRACE_LOGGER.info("signalWorkQueue failed with an error", ignorePipeClosedDuringReactorShutdown);
+        } catch (IOException ioException) {
+            this.signalPending.set(false);
+            throw ioException;
         }
     }
 
@@ -116,10 +177,10 @@ public final class ReactorDispatcher {
         @Override
         public void run(Selectable selectable) {
             try {
-                ByteBuffer oneKbByteBuffer = ByteBuffer.allocate(1024);
-                while (ioSignal.source().read(oneKbByteBuffer) > 0) {
+                drainBuffer.clear();
+                while (ioSignal.source().read(drainBuffer) > 0) {
                     // read until the end of the stream
-                    oneKbByteBuffer = ByteBuffer.allocate(1024);
+                    drainBuffer.clear();
                 }
             } catch (ClosedChannelException ignorePipeClosedDuringReactorShutdown) {
                 TRACE_LOGGER.info("ScheduleHandler.run() failed with an error", ignorePipeClosedDuringReactorShutdown);
@@ -128,8 +189,14 @@ public final class ReactorDispatcher {
                 throw new RuntimeException(ioException);
             }
 
+            // cleared before draining - work queued from here on needs a new wakeup,
+            // work queued before is picked up by the loop below
+            signalPending.set(false);
+            metrics.recordDispatcherQueueDepth(queueDepth.get());
+
             BaseHandler topWork;
             while ((topWork = workQueue.poll()) != null) {
+                queueDepth.decrementAndGet();
                 topWork.onTimerTask(null);
             }
         }
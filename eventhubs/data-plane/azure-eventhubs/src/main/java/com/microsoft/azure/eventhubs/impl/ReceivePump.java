@@ -8,20 +8,36 @@ import com.microsoft.azure.eventhubs.PartitionReceiveHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 
+/**
+ * Pumps events from a partition receiver to a {@link PartitionReceiveHandler}.
+ * <p>
+ * Events which are already prefetched are handed to the handler right away - on the pump's thread, without a receive
+ * call per batch; only when none are prefetched does the pump wait on {@link IPartitionReceiver#receive(int)}.
+ * As the pump never takes more events than the handler gets through, a slow handler leaves the prefetched events
+ * where they are - which holds back link credit and so slows down the service's sending. A handler which is not
+ * {@link PartitionReceiveHandler#whenReadyToReceive() ready} pauses the pump, without holding its thread, until it is.
+ */
 public class ReceivePump implements Runnable {
     private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(ReceivePump.class);
 
+    // batches handed over in one go - before giving other work on the executor a turn
+    private static final int MAX_BATCHES_PER_RUN = 16;
+
     private final IPartitionReceiver receiver;
     private final PartitionReceiveHandler onReceiveHandler;
     private final boolean invokeOnTimeout;
     private final CompletableFuture<Void> stopPump;
-    private final Executor executor;
+    private final ScheduledExecutorService executor;
     private final ProcessAndReschedule processAndReschedule;
     private final String eventHubName;
     private final String consumerGroupName;
@@ -29,13 +45,20 @@ public class ReceivePump implements Runnable {
     private AtomicBoolean stopPumpRaised;
     private volatile boolean isPumpHealthy = true;
 
+    // events collected for the next onReceive - while lingering for the batch to fill up
+    private List<EventData> batch;
+    private long batchDeadlineNanos;
+    private volatile ScheduledFuture<?> lingerTask;
+    // completed to run the pump again - once the handler is ready, or the pump is stopped
+    private volatile CompletableFuture<Void> resumeTask;
+
     public ReceivePump(
             final String eventHubName,
             final String consumerGroupName,
             final IPartitionReceiver receiver,
             final PartitionReceiveHandler receiveHandler,
             final boolean invokeOnReceiveWithNoEvents,
-            final Executor executor) {
+            final ScheduledExecutorService executor) {
         this.eventHubName = eventHubName;
         this.consumerGroupName = consumerGroupName;
         this.receiver = receiver;
@@ -66,22 +89,68 @@ public class ReceivePump implements Runnable {
 
     // receives and invokes user-callback if success or stops pump if fails
     public void receiveAndProcess() {
-        if (this.shouldContinue()) {
-            this.receiver.receive(this.onReceiveHandler.getMaxEventCount())
-                    .handleAsync(this.processAndReschedule, this.executor);
-        } else {
-            if (TRACE_LOGGER.isInfoEnabled()) {
-                TRACE_LOGGER.info(String.format("Stopping receive pump for eventHub (%s), consumerGroup (%s), partition (%s) as %s",
-                        this.eventHubName, this.consumerGroupName, this.receiver.getPartitionId(),
-                        this.stopPumpRaised.get() ? "per the request." : "pump ran into errors."));
+        for (int batches = 0; this.shouldContinue(); batches++) {
+            if (batches == MAX_BATCHES_PER_RUN) {
+                this.schedulePump();
+                return;
+            }
+
+            final CompletableFuture<Void> ready = this.onReceiveHandler.whenReadyToReceive();
+            if (!ready.isDone()) {
+                this.pauseUntil(ready);
+                return;
+            }
+
+            final int maxEventCount = this.onReceiveHandler.getMaxEventCount();
+            final int room = this.batch == null ? maxEventCount : maxEventCount - this.batch.size();
+            if (room > 0) {
+                this.collect(this.receiver.receivePrefetched(room), maxEventCount);
             }
 
-            this.stopPump.complete(null);
+            if (this.batch == null) {
+                // nothing prefetched - wait for events
+                this.receiver.receive(maxEventCount)
+                        .handleAsync(this.processAndReschedule, this.executor);
+                return;
+            }
+
+            if (!this.isBatchReady(maxEventCount)) {
+                this.scheduleLinger();
+                return;
+            }
+
+            this.dispatch(this.takeBatch());
+        }
+
+        // the events collected while lingering were taken off the receiver - hand them over rather than lose them
+        if (this.batch != null && this.isPumpHealthy) {
+            this.dispatch(this.takeBatch());
+        }
+
+        if (TRACE_LOGGER.isInfoEnabled()) {
+            TRACE_LOGGER.info(String.format("Stopping receive pump for eventHub (%s), consumerGroup (%s), partition (%s) as %s",
+                    this.eventHubName, this.consumerGroupName, this.receiver.getPartitionId(),
+                    this.stopPumpRaised.get() ? "per the request." : "pump ran into errors."));
         }
+
+        this.stopPump.complete(null);
     }
 
     public CompletableFuture<Void> stop() {
         this.stopPumpRaised.set(true);
+
+        // don't wait out the linger - run the pump now, so it hands over the partial batch & stops
+        final ScheduledFuture<?> linger = this.lingerTask;
+        if (linger != null && linger.cancel(false)) {
+            this.schedulePump();
+        }
+
+        // nor wait for the handler to be ready
+        final CompletableFuture<Void> resume = this.resumeTask;
+        if (resume != null) {
+            resume.complete(null);
+        }
+
         return this.stopPump;
     }
 
@@ -93,6 +162,39 @@ public class ReceivePump implements Runnable {
         return this.isPumpHealthy && !this.stopPumpRaised.get();
     }
 
+    private void collect(final Iterable<EventData> events, final int maxEventCount) {
+        if (events == null) {
+            return;
+        }
+
+        if (this.batch == null) {
+            this.batch = new ArrayList<>(maxEventCount);
+            this.batchDeadlineNanos = System.nanoTime() + this.onReceiveHandler.getMaxLingerTime().toNanos();
+        }
+
+        for (final EventData event : events) {
+            this.batch.add(event);
+        }
+    }
+
+    private boolean isBatchReady(final int maxEventCount) {
+        return this.batch.size() >= maxEventCount || System.nanoTime() - this.batchDeadlineNanos >= 0;
+    }
+
+    private List<EventData> takeBatch() {
+        final List<EventData> events = this.batch;
+        this.batch = null;
+        return events;
+    }
+
+    private void dispatch(final Iterable<EventData> events) {
+        try {
+            this.onReceiveHandler.onReceive(events);
+        } catch (final Throwable userCodeError) {
+            this.handleUserCodeExceptions(userCodeError);
+        }
+    }
+
     private void handleClientExceptions(final Throwable clientException) {
         if (clientException != null) {
             this.isPumpHealthy = false;
@@ -132,16 +234,40 @@ public class ReceivePump implements Runnable {
         try {
             this.executor.execute(this);
         } catch (final RejectedExecutionException rejectedException) {
-            this.isPumpHealthy = false;
+            this.handleSchedulingError(rejectedException);
+        }
+    }
 
-            if (TRACE_LOGGER.isWarnEnabled()) {
-                TRACE_LOGGER.warn(String.format(
-                        "Receive pump for eventHub (%s), consumerGroup (%s), partition (%s) exiting with error: %s",
-                        this.eventHubName, this.consumerGroupName, ReceivePump.this.receiver.getPartitionId(), rejectedException.toString()));
-            }
+    private void scheduleLinger() {
+        try {
+            this.lingerTask = this.executor.schedule(this, this.batchDeadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException rejectedException) {
+            this.handleSchedulingError(rejectedException);
+        }
+    }
+
+    private void pauseUntil(final CompletableFuture<Void> ready) {
+        final CompletableFuture<Void> resume = new CompletableFuture<>();
+        this.resumeTask = resume;
+        resume.thenRun(this::schedulePump);
+        ready.whenComplete((result, error) -> resume.complete(null));
+
+        // stop() may have looked for the resume task before it was set
+        if (this.stopPumpRaised.get()) {
+            resume.complete(null);
+        }
+    }
+
+    private void handleSchedulingError(final RejectedExecutionException rejectedException) {
+        this.isPumpHealthy = false;
 
-            this.onReceiveHandler.onError(rejectedException);
+        if (TRACE_LOGGER.isWarnEnabled()) {
+            TRACE_LOGGER.warn(String.format(
+                    "Receive pump for eventHub (%s), consumerGroup (%s), partition (%s) exiting with error: %s",
+                    this.eventHubName, this.consumerGroupName, ReceivePump.this.receiver.getPartitionId(), rejectedException.toString()));
         }
+
+        this.onReceiveHandler.onError(rejectedException);
     }
 
     // partition receiver contract against which this pump works
@@ -149,6 +275,11 @@ public class ReceivePump implements Runnable {
         String getPartitionId();
 
         CompletableFuture<Iterable<EventData>> receive(int maxBatchSize);
+
+        // events which are already prefetched - without waiting; null if there are none
+        default Iterable<EventData> receivePrefetched(int maxBatchSize) {
+            return null;
+        }
     }
 
     private final class ProcessAndReschedule implements BiFunction<Iterable<EventData>, Throwable, Void> {
@@ -158,15 +289,20 @@ public class ReceivePump implements Runnable {
 
             ReceivePump.this.handleClientExceptions(clientException);
 
-            try {
-                // don't invoke user call back - if stop is already raised / pump is unhealthy
-                if (ReceivePump.this.shouldContinue()
-                        && (receivedEvents != null
-                                || (receivedEvents == null && ReceivePump.this.invokeOnTimeout))) {
-                    ReceivePump.this.onReceiveHandler.onReceive(receivedEvents);
+            // don't invoke user call back - if stop is already raised / pump is unhealthy
+            if (ReceivePump.this.shouldContinue()) {
+                if (receivedEvents != null) {
+                    final int maxEventCount = ReceivePump.this.onReceiveHandler.getMaxEventCount();
+                    ReceivePump.this.collect(receivedEvents, maxEventCount);
+                    if (!ReceivePump.this.isBatchReady(maxEventCount)) {
+                        ReceivePump.this.scheduleLinger();
+                        return null;
+                    }
+
+                    ReceivePump.this.dispatch(ReceivePump.this.takeBatch());
+                } else if (ReceivePump.this.invokeOnTimeout) {
+                    ReceivePump.this.dispatch(null);
                 }
-            } catch (final Throwable userCodeError) {
-                ReceivePump.this.handleUserCodeExceptions(userCodeError);
             }
 
             ReceivePump.this.schedulePump();
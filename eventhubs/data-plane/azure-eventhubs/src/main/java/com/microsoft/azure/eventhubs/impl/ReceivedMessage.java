@@ -0,0 +1,236 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.AmqpSequence;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Received AMQP message which stays backed by the bytes of its delivery - used by receivers in zero-copy mode.
+ * The Data body is a {@link Binary} view over the delivery bytes instead of a copy, and the application properties
+ * are decoded only if somebody asks for them. The small sections the receive path itself needs (annotations, properties)
+ * are decoded upfront.
+ */
+final class ReceivedMessage extends MessageImpl {
+
+    private static final int DESCRIBED_TYPE_MARKER = 0x00;
+    private static final int SMALL_ULONG = 0x53;
+    private static final int ULONG = 0x80;
+
+    private static final long HEADER = 0x70L;
+    private static final long DELIVERY_ANNOTATIONS = 0x71L;
+    private static final long MESSAGE_ANNOTATIONS = 0x72L;
+    private static final long PROPERTIES = 0x73L;
+    private static final long APPLICATION_PROPERTIES = 0x74L;
+    private static final long DATA = 0x75L;
+    private static final long AMQP_SEQUENCE = 0x76L;
+    private static final long AMQP_VALUE = 0x77L;
+    private static final long FOOTER = 0x78L;
+
+    private static final int VBIN8 = 0xa0;
+    private static final int VBIN32 = 0xb0;
+
+    private static final ThreadLocal<DecoderImpl> DECODER = ThreadLocal.withInitial(() -> {
+        final DecoderImpl decoder = new DecoderImpl();
+        AMQPDefinedTypes.registerAllTypes(decoder, new EncoderImpl(decoder));
+        return decoder;
+    });
+
+    private final byte[] deliveryBytes;
+    private int applicationPropertiesOffset = -1;
+    private int applicationPropertiesLength;
+
+    private ReceivedMessage(final byte[] deliveryBytes) {
+        this.deliveryBytes = deliveryBytes;
+    }
+
+    /**
+     * @param deliveryBytes bytes of one delivery - owned by the returned message from now on
+     * @param length        number of bytes of the delivery
+     * @return the message backed by {@code deliveryBytes}; a regularly decoded message if the encoding has any surprises
+     */
+    static Message decode(final byte[] deliveryBytes, final int length) {
+        final ReceivedMessage message = new ReceivedMessage(deliveryBytes);
+        if (message.scanSections(length)) {
+            return message;
+        }
+
+        final Message decodedMessage = Proton.message();
+        decodedMessage.decode(deliveryBytes, 0, length);
+        return decodedMessage;
+    }
+
+    @Override
+    public ApplicationProperties getApplicationProperties() {
+        if (this.applicationPropertiesOffset >= 0) {
+            super.setApplicationProperties((ApplicationProperties) decodeSection(this.applicationPropertiesOffset, this.applicationPropertiesLength));
+            this.applicationPropertiesOffset = -1;
+        }
+
+        return super.getApplicationProperties();
+    }
+
+    @Override
+    public void setApplicationProperties(final ApplicationProperties applicationProperties) {
+        this.applicationPropertiesOffset = -1;
+        super.setApplicationProperties(applicationProperties);
+    }
+
+    @Override
+    public String toString() {
+        this.getApplicationProperties();
+        return super.toString();
+    }
+
+    @Override
+    public void clear() {
+        this.applicationPropertiesOffset = -1;
+        super.clear();
+    }
+
+    // walks the sections using the AMQP type widths - without decoding the values of the lazy ones
+    private boolean scanSections(final int length) {
+        int position = 0;
+        while (position < length) {
+            final int sectionStart = position;
+            if ((this.deliveryBytes[position++] & 0xff) != DESCRIBED_TYPE_MARKER) {
+                return false;
+            }
+
+            if (position + 1 >= length) {
+                return false;
+            }
+
+            final long descriptor;
+            final int descriptorConstructor = this.deliveryBytes[position++] & 0xff;
+            if (descriptorConstructor == SMALL_ULONG) {
+                descriptor = this.deliveryBytes[position++] & 0xff;
+            } else if (descriptorConstructor == ULONG) {
+                if (position + Long.BYTES > length) {
+                    return false;
+                }
+
+                descriptor = ByteBuffer.wrap(this.deliveryBytes, position, Long.BYTES).getLong();
+                position += Long.BYTES;
+            } else {
+                return false;
+            }
+
+            final int valueStart = position;
+            final int valueEnd = skipValue(valueStart, length);
+            if (valueEnd < 0) {
+                return false;
+            }
+
+            final int sectionLength = valueEnd - sectionStart;
+            if (descriptor == APPLICATION_PROPERTIES) {
+                this.applicationPropertiesOffset = sectionStart;
+                this.applicationPropertiesLength = sectionLength;
+            } else if (descriptor == DATA) {
+                if (this.getBody() != null) {
+                    // proton-j only supports a single body section
+                    return false;
+                }
+
+                final int constructor = this.deliveryBytes[valueStart] & 0xff;
+                final int headerSize = constructor == VBIN8 ? 2 : constructor == VBIN32 ? 5 : -1;
+                if (headerSize < 0) {
+                    return false;
+                }
+
+                super.setBody(new Data(new Binary(this.deliveryBytes, valueStart + headerSize, valueEnd - valueStart - headerSize)));
+            } else if (descriptor == HEADER) {
+                super.setHeader((Header) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == DELIVERY_ANNOTATIONS) {
+                super.setDeliveryAnnotations((DeliveryAnnotations) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == MESSAGE_ANNOTATIONS) {
+                super.setMessageAnnotations((MessageAnnotations) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == PROPERTIES) {
+                super.setProperties((Properties) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == AMQP_VALUE) {
+                super.setBody((AmqpValue) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == AMQP_SEQUENCE) {
+                super.setBody((AmqpSequence) decodeSection(sectionStart, sectionLength));
+            } else if (descriptor == FOOTER) {
+                super.setFooter((Footer) decodeSection(sectionStart, sectionLength));
+            } else {
+                return false;
+            }
+
+            position = valueEnd;
+        }
+
+        return true;
+    }
+
+    // returns the end of the value starting at position, or -1 if it cannot be determined
+    private int skipValue(final int position, final int length) {
+        if (position >= length) {
+            return -1;
+        }
+
+        final int constructor = this.deliveryBytes[position] & 0xff;
+        final int end;
+        switch (constructor >> 4) {
+            case 0x4:
+                end = position + 1;
+                break;
+            case 0x5:
+                end = position + 2;
+                break;
+            case 0x6:
+                end = position + 3;
+                break;
+            case 0x7:
+                end = position + 5;
+                break;
+            case 0x8:
+                end = position + 9;
+                break;
+            case 0x9:
+                end = position + 17;
+                break;
+            case 0xa:
+            case 0xc:
+            case 0xe:
+                end = position + 2 <= length ? position + 2 + (this.deliveryBytes[position + 1] & 0xff) : -1;
+                break;
+            case 0xb:
+            case 0xd:
+            case 0xf:
+                end = position + 5 <= length ? position + 5 + ByteBuffer.wrap(this.deliveryBytes, position + 1, Integer.BYTES).getInt() : -1;
+                break;
+            default:
+                end = -1;
+        }
+
+        return end >= position && end <= length ? end : -1;
+    }
+
+    private Object decodeSection(final int offset, final int length) {
+        final DecoderImpl decoder = DECODER.get();
+        decoder.setByteBuffer(ByteBuffer.wrap(this.deliveryBytes, offset, length));
+        try {
+            return decoder.readObject();
+        } finally {
+            decoder.setByteBuffer(null);
+        }
+    }
+}
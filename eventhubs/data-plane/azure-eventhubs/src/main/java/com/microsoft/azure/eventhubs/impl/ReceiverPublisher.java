@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Publisher} of the events of one partition receiver - for a single {@link Subscriber}.
+ * <p>
+ * Only as many events are taken from the receiver as the subscriber requested. As the receiver replenishes its link
+ * credit only for the events taken, the subscriber's demand is what paces the service.
+ */
+public final class ReceiverPublisher implements Publisher<EventData> {
+
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(ReceiverPublisher.class);
+
+    private final ReceivePump.IPartitionReceiver receiver;
+    private final int maxBatchSize;
+    private final Executor executor;
+    private final AtomicBoolean subscribed;
+
+    ReceiverPublisher(final ReceivePump.IPartitionReceiver receiver, final int maxBatchSize, final Executor executor) {
+        this.receiver = receiver;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+        this.subscribed = new AtomicBoolean();
+    }
+
+    /**
+     * The publisher of a {@link PartitionReceiver} which only implements {@link PartitionReceiver#receive(int)} - the
+     * default of {@link PartitionReceiver#receiveAsPublisher()}. Without an executor of the receiver's own, the
+     * subscriber's requests are served on the thread making them, and the events on the thread completing the receive.
+     *
+     * @param receiver the receiver to take the events from
+     * @return the publisher of the events received
+     */
+    public static Publisher<EventData> of(final PartitionReceiver receiver) {
+        return new ReceiverPublisher(new ReceivePump.IPartitionReceiver() {
+            @Override
+            public String getPartitionId() {
+                return receiver.getPartitionId();
+            }
+
+            @Override
+            public CompletableFuture<Iterable<EventData>> receive(final int maxBatchSize) {
+                return receiver.receive(maxBatchSize);
+            }
+        }, PartitionReceiver.DEFAULT_PREFETCH_COUNT, Runnable::run);
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super EventData> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber cannot be null");
+        }
+
+        if (!this.subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(String.format(Locale.US,
+                    "partition (%s) publisher supports only one subscriber", this.receiver.getPartitionId())));
+            return;
+        }
+
+        subscriber.onSubscribe(new ReceiveSubscription(subscriber));
+    }
+
+    private final class ReceiveSubscription implements Subscription, Runnable {
+        private final Subscriber<? super EventData> subscriber;
+        private final AtomicLong requested;
+        private final AtomicInteger pendingDrains;
+
+        private volatile boolean cancelled;
+        private volatile boolean receiving;
+        private volatile Iterator<EventData> received;
+        private volatile Throwable receiveError;
+        private boolean done;
+
+        ReceiveSubscription(final Subscriber<? super EventData> subscriber) {
+            this.subscriber = subscriber;
+            this.requested = new AtomicLong();
+            this.pendingDrains = new AtomicInteger();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                this.receiveError = new IllegalArgumentException("number of requested events should be greater than 0");
+            } else {
+                long current;
+                long next;
+                do {
+                    current = this.requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!this.requested.compareAndSet(current, next));
+            }
+
+            this.drain();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        private void drain() {
+            if (this.pendingDrains.getAndIncrement() == 0) {
+                try {
+                    ReceiverPublisher.this.executor.execute(this);
+                } catch (RejectedExecutionException exception) {
+                    this.receiveError = exception;
+                    this.run();
+                }
+            }
+        }
+
+        // emits - on one thread at a time - as many events as requested; re-runs if more was requested or received meanwhile
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                long demand = this.requested.get();
+                long emitted = 0;
+                while (!this.cancelled && !this.done) {
+                    if (this.receiveError != null) {
+                        this.done = true;
+                        this.subscriber.onError(this.receiveError);
+                        break;
+                    }
+
+                    if (emitted == demand) {
+                        break;
+                    }
+
+                    final Iterator<EventData> events = this.received;
+                    if (events != null && events.hasNext()) {
+                        this.emit(events.next());
+                        emitted++;
+                        continue;
+                    }
+
+                    this.received = null;
+                    if (this.receiving) {
+                        break;
+                    }
+
+                    final int maxEventCount = (int) Math.min(demand - emitted, ReceiverPublisher.this.maxBatchSize);
+                    try {
+                        final Iterable<EventData> prefetched = ReceiverPublisher.this.receiver.receivePrefetched(maxEventCount);
+                        if (prefetched != null) {
+                            this.received = prefetched.iterator();
+                            continue;
+                        }
+
+                        // nothing prefetched - wait for events
+                        this.receiving = true;
+                        ReceiverPublisher.this.receiver.receive(maxEventCount).whenComplete(this::onReceived);
+                    } catch (RuntimeException exception) {
+                        this.receiving = false;
+                        this.receiveError = exception;
+                    }
+                }
+
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    this.requested.addAndGet(-emitted);
+                }
+
+                missed = this.pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void onReceived(final Iterable<EventData> events, final Throwable error) {
+            if (error != null) {
+                this.receiveError = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            } else if (events != null) {
+                this.received = events.iterator();
+            }
+
+            // a receive timing out without events is simply retried
+            this.receiving = false;
+            this.drain();
+        }
+
+        private void emit(final EventData event) {
+            try {
+                this.subscriber.onNext(event);
+            } catch (Throwable subscriberError) {
+                this.cancelled = true;
+                if (TRACE_LOGGER.isWarnEnabled()) {
+                    TRACE_LOGGER.warn(String.format(Locale.US, "partition (%s) publisher cancelled after subscriber threw: %s",
+                            ReceiverPublisher.this.receiver.getPartitionId(), subscriberError));
+                }
+            }
+        }
+    }
+}
@@ -8,9 +8,13 @@ import java.util.concurrent.CompletableFuture;
 
 public class ReplayableWorkItem<T> extends WorkItem<T> {
     private byte[] amqpMessage;
+    private SendBufferPool bufferPool;
     private int messageFormat;
     private int encodedMessageSize;
+    private long deliveryTag;
+    private byte[] deliveryTagBytes;
     private boolean waitingForAck;
+    private long sendStartNanos;
 
     private Exception lastKnownException;
     private CompletableFuture<?> timeoutTask;
@@ -35,7 +39,30 @@ public class ReplayableWorkItem<T> extends WorkItem<T> {
         return this.amqpMessage;
     }
 
-    public void clearMessage() {
+    // amqpMessage, if acquired from a bufferPool, is handed back to it when the send completes
+    public void setBufferPool(final SendBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    public SendBufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    // reuse the message buffer - only safe once the delivery carrying it is settled
+    public synchronized void releaseMessage() {
+        if (this.amqpMessage != null && this.bufferPool != null) {
+            this.bufferPool.release(this.amqpMessage);
+        }
+
+        this.amqpMessage = null;
+    }
+
+    // drop the message buffer - without reusing it, as it could still be referenced by an in-flight send
+    public synchronized void clearMessage() {
+        if (this.amqpMessage != null && this.bufferPool != null) {
+            this.bufferPool.discard(this.amqpMessage);
+        }
+
         this.amqpMessage = null;
     }
 
@@ -43,6 +70,24 @@ public class ReplayableWorkItem<T> extends WorkItem<T> {
         return this.encodedMessageSize;
     }
 
+    public long getDeliveryTag() {
+        return this.deliveryTag;
+    }
+
+    public void setDeliveryTag(final long deliveryTag) {
+        this.deliveryTag = deliveryTag;
+        this.deliveryTagBytes = null;
+    }
+
+    // the encoded tag is made on the first delivery - & reused when the send is replayed on a new link
+    public byte[] getDeliveryTagBytes() {
+        if (this.deliveryTagBytes == null) {
+            this.deliveryTagBytes = PendingSends.toDeliveryTagBytes(this.deliveryTag);
+        }
+
+        return this.deliveryTagBytes;
+    }
+
     public int getMessageFormat() {
         return this.messageFormat;
     }
@@ -63,6 +108,15 @@ public class ReplayableWorkItem<T> extends WorkItem<T> {
         this.timeoutTask = timeoutTask;
     }
 
+    // when the first attempt of the send started - kept across retries
+    public long getSendStartNanos() {
+        return this.sendStartNanos;
+    }
+
+    public void setSendStartNanos(final long sendStartNanos) {
+        this.sendStartNanos = sendStartNanos;
+    }
+
     public void setWaitingForAck() {
         this.waitingForAck = true;
     }
@@ -6,4 +6,6 @@ package com.microsoft.azure.eventhubs.impl;
 interface SchedulerProvider {
 
     ReactorDispatcher getReactorDispatcher();
+
+    TimerWheel getTimerWheel();
 }
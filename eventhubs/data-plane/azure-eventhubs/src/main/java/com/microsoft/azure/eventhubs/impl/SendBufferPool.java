@@ -0,0 +1,153 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of the byte[]s MessageSender encodes outgoing messages into.
+ * Buffers are handed out in power-of-two size classes, are held by the send until its delivery is settled
+ * and only then go back to the pool - so, steady state sending doesn't allocate a buffer per send.
+ * Requests larger than the biggest size class are served by plain allocations which are never pooled.
+ */
+public final class SendBufferPool {
+    static final int MIN_BUFFER_SIZE = 1024;
+    static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicInteger inUse;
+
+    public SendBufferPool(final long maxPooledBytes) {
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("maxPooledBytes cannot be negative");
+        }
+
+        final int classCount = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE) + 1;
+        final long maxPooledBytesPerClass = maxPooledBytes / classCount;
+
+        this.sizeClasses = new SizeClass[classCount];
+        for (int index = 0; index < classCount; index++) {
+            final int bufferSize = MIN_BUFFER_SIZE << index;
+            this.sizeClasses[index] = new SizeClass(bufferSize, (int) Math.min(Integer.MAX_VALUE, maxPooledBytesPerClass / bufferSize));
+        }
+
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.inUse = new AtomicInteger();
+    }
+
+    /**
+     * @param minimumSize minimum length of the returned buffer
+     * @return a buffer of at least {@code minimumSize} bytes - which is not zeroed
+     */
+    public byte[] acquire(final int minimumSize) {
+        this.inUse.incrementAndGet();
+
+        final SizeClass sizeClass = this.getSizeClass(minimumSize);
+        if (sizeClass == null) {
+            this.misses.incrementAndGet();
+            return new byte[minimumSize];
+        }
+
+        final byte[] buffer = sizeClass.buffers.poll();
+        if (buffer == null) {
+            this.misses.incrementAndGet();
+            return new byte[sizeClass.bufferSize];
+        }
+
+        sizeClass.pooledCount.decrementAndGet();
+        this.hits.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer, acquired from this pool, for reuse. The caller must not touch the buffer afterwards.
+     *
+     * @param buffer buffer returned by {@link #acquire(int)}
+     */
+    public void release(final byte[] buffer) {
+        this.inUse.decrementAndGet();
+
+        final SizeClass sizeClass = this.getSizeClass(buffer.length);
+        if (sizeClass == null || sizeClass.bufferSize != buffer.length) {
+            return;
+        }
+
+        if (sizeClass.pooledCount.incrementAndGet() <= sizeClass.maxPooledCount) {
+            sizeClass.buffers.offer(buffer);
+        } else {
+            sizeClass.pooledCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops tracking a buffer acquired from this pool without reusing it - for the buffers, which could still be
+     * referenced by an in-flight send (for ex: when the send timed out) - and are left to the garbage collector.
+     *
+     * @param buffer buffer returned by {@link #acquire(int)}
+     */
+    public void discard(final byte[] buffer) {
+        this.inUse.decrementAndGet();
+    }
+
+    /**
+     * @return number of {@link #acquire(int)} calls served by a pooled buffer
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return number of {@link #acquire(int)} calls which had to allocate a new buffer
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return number of buffers acquired and not yet released or discarded
+     */
+    public int getInUseCount() {
+        return this.inUse.get();
+    }
+
+    /**
+     * @return number of buffers currently available for reuse
+     */
+    public int getPooledCount() {
+        int pooledCount = 0;
+        for (final SizeClass sizeClass : this.sizeClasses) {
+            pooledCount += Math.max(0, sizeClass.pooledCount.get());
+        }
+
+        return pooledCount;
+    }
+
+    private SizeClass getSizeClass(final int size) {
+        if (size > MAX_BUFFER_SIZE) {
+            return null;
+        }
+
+        final int roundedSize = size <= MIN_BUFFER_SIZE ? MIN_BUFFER_SIZE : Integer.highestOneBit(size - 1) << 1;
+        return this.sizeClasses[Integer.numberOfTrailingZeros(roundedSize) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE)];
+    }
+
+    private static final class SizeClass {
+        private final int bufferSize;
+        private final int maxPooledCount;
+        private final ConcurrentLinkedQueue<byte[]> buffers;
+        private final AtomicInteger pooledCount;
+
+        SizeClass(final int bufferSize, final int maxPooledCount) {
+            this.bufferSize = bufferSize;
+            this.maxPooledCount = maxPooledCount;
+            this.buffers = new ConcurrentLinkedQueue<>();
+            this.pooledCount = new AtomicInteger();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
+import com.microsoft.azure.eventhubs.EventHubException;
+import com.microsoft.azure.eventhubs.SendSubscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+public final class SendSubscriberImpl implements SendSubscriber {
+
+    private static final Logger TRACE_LOGGER = LoggerFactory.getLogger(SendSubscriberImpl.class);
+
+    // events requested from the upstream at a time
+    static final int REQUEST_SIZE = 128;
+
+    private final BatchFactory batchFactory;
+    private final Function<EventDataBatch, CompletableFuture<Void>> sender;
+    private final int maxInFlightBatches;
+    private final CompletableFuture<Void> completion;
+    private final Object stateLock;
+
+    // guarded by stateLock
+    private final ArrayDeque<EventDataBatch> fullBatches;
+    private Subscription subscription;
+    private EventDataBatch currentBatch;
+    private int inFlightBatches;
+    private long outstandingRequests;
+    private boolean upstreamDone;
+    private Throwable upstreamError;
+
+    public SendSubscriberImpl(final BatchFactory batchFactory, final Function<EventDataBatch, CompletableFuture<Void>> sender, final int maxInFlightBatches) {
+        if (maxInFlightBatches <= 0) {
+            throw new IllegalArgumentException("maxInFlightBatches should be greater than 0");
+        }
+
+        this.batchFactory = batchFactory;
+        this.sender = sender;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.completion = new CompletableFuture<>();
+        this.stateLock = new Object();
+        this.fullBatches = new ArrayDeque<>();
+    }
+
+    @Override
+    public CompletableFuture<Void> getCompletion() {
+        return this.completion;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("subscription cannot be null");
+        }
+
+        synchronized (this.stateLock) {
+            if (this.subscription != null) {
+                // only one upstream is supported
+                subscription.cancel();
+                return;
+            }
+
+            this.subscription = subscription;
+        }
+
+        this.progress(null);
+    }
+
+    @Override
+    public void onNext(final EventData eventData) {
+        if (eventData == null) {
+            throw new NullPointerException("eventData cannot be null");
+        }
+
+        Exception failure = null;
+        synchronized (this.stateLock) {
+            if (this.completion.isDone()) {
+                return;
+            }
+
+            this.outstandingRequests--;
+            try {
+                if (this.currentBatch == null) {
+                    this.currentBatch = this.batchFactory.createBatch();
+                }
+
+                if (!this.currentBatch.tryAdd(eventData)) {
+                    this.fullBatches.add(this.currentBatch);
+                    this.currentBatch = this.batchFactory.createBatch();
+                    this.currentBatch.tryAdd(eventData);
+                }
+            } catch (EventHubException | RuntimeException exception) {
+                failure = exception;
+            }
+        }
+
+        this.progress(failure);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("throwable cannot be null");
+        }
+
+        synchronized (this.stateLock) {
+            this.upstreamDone = true;
+            this.upstreamError = throwable;
+        }
+
+        this.progress(null);
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this.stateLock) {
+            this.upstreamDone = true;
+        }
+
+        this.progress(null);
+    }
+
+    private void onSendComplete(final Throwable sendError) {
+        synchronized (this.stateLock) {
+            this.inFlightBatches--;
+        }
+
+        this.progress(sendError);
+    }
+
+    // decides - under the lock - what to send, whether to request more & whether all is done; acts on it outside the lock
+    private void progress(final Throwable failure) {
+        final List<EventDataBatch> toSend = new ArrayList<>();
+        final Subscription upstream;
+        long toRequest = 0;
+        boolean cancel = false;
+        boolean complete = false;
+        Throwable completionError = null;
+
+        synchronized (this.stateLock) {
+            upstream = this.subscription;
+            if (this.completion.isDone()) {
+                return;
+            }
+
+            if (failure != null) {
+                cancel = !this.upstreamDone;
+                this.upstreamDone = true;
+                this.fullBatches.clear();
+                this.currentBatch = null;
+                completionError = failure;
+            } else {
+                if (this.currentBatch != null && this.currentBatch.getSize() > 0
+                        && (this.upstreamDone || this.inFlightBatches == 0)) {
+                    // nothing is being sent or nothing more to wait for - don't hold back a partial batch
+                    this.fullBatches.add(this.currentBatch);
+                    this.currentBatch = null;
+                }
+
+                while (this.inFlightBatches < this.maxInFlightBatches && !this.fullBatches.isEmpty()) {
+                    toSend.add(this.fullBatches.poll());
+                    this.inFlightBatches++;
+                }
+
+                if (this.upstreamDone) {
+                    if (this.inFlightBatches == 0 && this.fullBatches.isEmpty()) {
+                        complete = true;
+                        completionError = this.upstreamError;
+                    }
+                } else if (upstream != null && this.outstandingRequests == 0
+                        && this.fullBatches.isEmpty() && this.inFlightBatches < this.maxInFlightBatches) {
+                    toRequest = REQUEST_SIZE;
+                    this.outstandingRequests = REQUEST_SIZE;
+                }
+            }
+        }
+
+        if (completionError != null && !complete) {
+            if (TRACE_LOGGER.isWarnEnabled()) {
+                TRACE_LOGGER.warn(String.format(Locale.US, "send subscriber failed, cancelling the subscription: %s", completionError));
+            }
+
+            this.completion.completeExceptionally(unwrap(completionError));
+            if (cancel && upstream != null) {
+                upstream.cancel();
+            }
+
+            return;
+        }
+
+        for (final EventDataBatch batch : toSend) {
+            this.send(batch);
+        }
+
+        if (toRequest > 0) {
+            upstream.request(toRequest);
+        }
+
+        if (complete) {
+            if (completionError == null) {
+                this.completion.complete(null);
+            } else {
+                this.completion.completeExceptionally(completionError);
+            }
+        }
+    }
+
+    private void send(final EventDataBatch batch) {
+        final CompletableFuture<Void> sendFuture;
+        try {
+            sendFuture = this.sender.apply(batch);
+        } catch (RuntimeException exception) {
+            this.onSendComplete(exception);
+            return;
+        }
+
+        sendFuture.whenComplete((unused, exception) -> this.onSendComplete(exception));
+    }
+
+    private static Throwable unwrap(final Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    @FunctionalInterface
+    public interface BatchFactory {
+        EventDataBatch createBatch() throws EventHubException;
+    }
+}
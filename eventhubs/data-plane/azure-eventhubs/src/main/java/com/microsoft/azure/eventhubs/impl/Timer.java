@@ -20,6 +20,14 @@ final class Timer {
             final Runnable runnable,
             final Duration runAfter) {
 
+        // delays of at least one tick - operation timeouts, and the management retry backoff - go on the shared timer wheel,
+        // which fires them within one tick; immediate & sub-tick delays keep the precision of the Reactor's own timer.
+        // sender & receiver retry backoffs don't come through here - they are scheduled on the Reactor directly.
+        final TimerWheel timerWheel = this.schedulerProvider.getTimerWheel();
+        if (timerWheel != null && runAfter.compareTo(timerWheel.getTickDuration()) >= 0) {
+            return timerWheel.schedule(runnable, runAfter);
+        }
+
         final ScheduledTask scheduledTask = new ScheduledTask(runnable);
         final CompletableFuture<?> taskHandle = scheduledTask.getScheduledFuture();
         try {
@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel - shared by all the entities of a {@link MessagingFactory} - for operation timeouts.
+ * Timeouts can be scheduled and cancelled from any thread in O(1); they fire on the Reactor thread -
+ * rounded up to the tick granularity. The wheel only ticks (i.e., only occupies the Reactor) while it has timeouts to track.
+ */
+final class TimerWheel {
+    private static final int WHEEL_SIZE = 512;
+
+    private final SchedulerProvider schedulerProvider;
+    private final long tickNanos;
+    private final int tickMillis;
+    private final long startNanos;
+    private final Bucket[] wheel;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts;
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts;
+    private final AtomicInteger liveTimeouts;
+    private final AtomicBoolean ticking;
+    private volatile TickHandler tickHandler;
+
+    // accessed only on the Reactor thread
+    private long lastProcessedTick;
+
+    TimerWheel(final SchedulerProvider schedulerProvider, final Duration tickDuration) {
+        if (tickDuration.toMillis() < 1) {
+            throw new IllegalArgumentException("tickDuration should be at least 1 millisecond");
+        }
+
+        this.schedulerProvider = schedulerProvider;
+        this.tickMillis = (int) tickDuration.toMillis();
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(this.tickMillis);
+        this.startNanos = System.nanoTime();
+        this.wheel = new Bucket[WHEEL_SIZE];
+        for (int index = 0; index < WHEEL_SIZE; index++) {
+            this.wheel[index] = new Bucket();
+        }
+
+        this.pendingTimeouts = new ConcurrentLinkedQueue<>();
+        this.cancelledTimeouts = new ConcurrentLinkedQueue<>();
+        this.liveTimeouts = new AtomicInteger();
+        this.ticking = new AtomicBoolean();
+        this.tickHandler = new TickHandler();
+    }
+
+    /**
+     * @return handle to the timeout - cancelling it removes the timeout from the wheel. The handle completes exceptionally,
+     * if the timeout cannot be scheduled on the Reactor or if the runnable throws.
+     */
+    CompletableFuture<?> schedule(final Runnable runnable, final Duration runAfter) {
+        final long deadlineTick = (System.nanoTime() - this.startNanos + runAfter.toNanos() + this.tickNanos - 1) / this.tickNanos;
+        final Timeout timeout = new Timeout(runnable, deadlineTick);
+
+        this.liveTimeouts.incrementAndGet();
+        this.pendingTimeouts.offer(timeout);
+
+        try {
+            // fail fast - even if the wheel is already ticking - when the Reactor can no longer run the timeout
+            this.schedulerProvider.getReactorDispatcher().throwIfSchedulerError();
+            this.ensureTicking();
+        } catch (IOException | RejectedExecutionException schedulerException) {
+            if (timeout.tryFinish()) {
+                timeout.completeExceptionally(schedulerException);
+            }
+        }
+
+        return timeout;
+    }
+
+    Duration getTickDuration() {
+        return Duration.ofMillis(this.tickMillis);
+    }
+
+    int getLiveTimeoutCount() {
+        return this.liveTimeouts.get();
+    }
+
+    /**
+     * The tick scheduled on a faulted Reactor never fires - so start ticking afresh on the new one.
+     */
+    void onReactorRestarted() {
+        this.tickHandler = new TickHandler();
+        this.ticking.set(false);
+
+        if (this.hasWork()) {
+            try {
+                this.ensureTicking();
+            } catch (IOException | RejectedExecutionException ignore) {
+                // timeouts will be picked up by the next schedule call
+            }
+        }
+    }
+
+    private boolean hasWork() {
+        return this.liveTimeouts.get() > 0 || !this.cancelledTimeouts.isEmpty();
+    }
+
+    private void ensureTicking() throws IOException {
+        if (this.ticking.compareAndSet(false, true)) {
+            try {
+                this.schedulerProvider.getReactorDispatcher().invoke(this.tickMillis, this.tickHandler);
+            } catch (IOException | RejectedExecutionException schedulerException) {
+                this.ticking.set(false);
+                throw schedulerException;
+            }
+        }
+    }
+
+    private void onCancelled(final Timeout timeout) {
+        this.cancelledTimeouts.offer(timeout);
+
+        try {
+            this.ensureTicking();
+        } catch (IOException | RejectedExecutionException ignore) {
+            // the Reactor is gone - and the cancelled timeout with it
+        }
+    }
+
+    private void tick(final TickHandler handler) {
+        final long currentTick = (System.nanoTime() - this.startNanos) / this.tickNanos;
+
+        Timeout cancelled;
+        while ((cancelled = this.cancelledTimeouts.poll()) != null) {
+            if (cancelled.bucket != null) {
+                cancelled.bucket.remove(cancelled);
+            }
+        }
+
+        Timeout pending;
+        while ((pending = this.pendingTimeouts.poll()) != null) {
+            if (!pending.isFinished()) {
+                final long bucketTick = Math.max(pending.deadlineTick, this.lastProcessedTick + 1);
+                this.wheel[(int) (bucketTick & (WHEEL_SIZE - 1))].add(pending);
+            }
+        }
+
+        final long ticksToProcess = Math.min(currentTick - this.lastProcessedTick, WHEEL_SIZE);
+        for (long tick = currentTick - ticksToProcess + 1; tick <= currentTick; tick++) {
+            this.wheel[(int) (tick & (WHEEL_SIZE - 1))].expire(currentTick);
+        }
+
+        this.lastProcessedTick = Math.max(this.lastProcessedTick, currentTick);
+
+        if (handler != this.tickHandler) {
+            return;
+        }
+
+        if (this.hasWork()) {
+            this.scheduleNextTick(handler);
+        } else {
+            this.ticking.set(false);
+
+            // a timeout could have been added - after hasWork() & before ticking was reset
+            if (this.hasWork() && this.ticking.compareAndSet(false, true)) {
+                this.scheduleNextTick(handler);
+            }
+        }
+    }
+
+    private void scheduleNextTick(final TickHandler handler) {
+        try {
+            this.schedulerProvider.getReactorDispatcher().invoke(this.tickMillis, handler);
+        } catch (IOException | RejectedExecutionException ignore) {
+            this.ticking.set(false);
+        }
+    }
+
+    private final class TickHandler extends DispatchHandler {
+        @Override
+        public void onEvent() {
+            // ticks of a handler, which was replaced on Reactor restart, are ignored
+            if (this == TimerWheel.this.tickHandler) {
+                TimerWheel.this.tick(this);
+            }
+        }
+    }
+
+    // doubly-linked list of timeouts - accessed only on the Reactor thread
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (this.tail == null) {
+                this.head = timeout;
+                this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.previous = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        void remove(final Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                this.head = timeout.next;
+            }
+
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                this.tail = timeout.previous;
+            }
+
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        void expire(final long currentTick) {
+            Timeout timeout = this.head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.isFinished()) {
+                    this.remove(timeout);
+                } else if (timeout.deadlineTick <= currentTick) {
+                    this.remove(timeout);
+                    if (timeout.tryFinish()) {
+                        timeout.run();
+                    }
+                }
+
+                timeout = next;
+            }
+        }
+    }
+
+    private final class Timeout extends CompletableFuture<Void> {
+        private static final int PENDING = 0;
+        private static final int FINISHED = 1;
+
+        private final Runnable runnable;
+        private final long deadlineTick;
+        private final AtomicInteger state;
+
+        // accessed only on the Reactor thread
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        Timeout(final Runnable runnable, final long deadlineTick) {
+            this.runnable = runnable;
+            this.deadlineTick = deadlineTick;
+            this.state = new AtomicInteger(PENDING);
+        }
+
+        boolean isFinished() {
+            return this.state.get() == FINISHED;
+        }
+
+        // transitions the timeout out of the wheel exactly once - either by expiring or by being cancelled
+        boolean tryFinish() {
+            if (this.state.compareAndSet(PENDING, FINISHED)) {
+                TimerWheel.this.liveTimeouts.decrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+
+        void run() {
+            try {
+                this.runnable.run();
+                this.complete(null);
+            } catch (Exception exception) {
+                this.completeExceptionally(exception);
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            final boolean removedFromWheel = this.tryFinish();
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (removedFromWheel) {
+                TimerWheel.this.onCancelled(this);
+            }
+
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CreditControllerTest {
+
+    private static final long SAMPLE = ClientConstants.CREDIT_SAMPLE_INTERVAL.toNanos();
+
+    @Test
+    public void initialCreditIsPrefetchCount() {
+        final CreditController controller = new CreditController(500, 0);
+
+        Assert.assertEquals(500, controller.nextCredit(true, 0));
+        Assert.assertEquals(500, controller.getLinkCredit());
+        Assert.assertEquals(0, controller.nextCredit(true, 0));
+    }
+
+    @Test
+    public void creditIsFlowedInBatches() {
+        final CreditController controller = new CreditController(500, 0);
+        controller.nextCredit(true, 0);
+
+        for (int count = 0; count < CreditController.MAX_CREDIT_BATCH; count++) {
+            controller.onDelivery(10, 0);
+        }
+
+        for (int count = 0; count < CreditController.MAX_CREDIT_BATCH - 1; count++) {
+            controller.onDrained();
+            Assert.assertEquals(0, controller.nextCredit(false, 0));
+        }
+
+        controller.onDrained();
+        Assert.assertEquals(CreditController.MAX_CREDIT_BATCH, controller.nextCredit(false, 0));
+    }
+
+    @Test
+    public void bufferedBytesAreTracked() {
+        final CreditController controller = new CreditController(10, 0);
+        controller.nextCredit(true, 0);
+        controller.onDelivery(100, 0);
+        controller.onDelivery(200, 0);
+
+        Assert.assertEquals(2, controller.getBufferedCount());
+        Assert.assertEquals(300, controller.getBufferedBytes());
+        Assert.assertEquals(8, controller.getLinkCredit());
+
+        controller.onDrained();
+        Assert.assertEquals(1, controller.getBufferedCount());
+        Assert.assertEquals(200, controller.getBufferedBytes());
+
+        controller.clear();
+        Assert.assertEquals(0, controller.getBufferedCount());
+        Assert.assertEquals(0, controller.getBufferedBytes());
+    }
+
+    @Test
+    public void byteLimitCapsTheWindow() {
+        final int eventSize = 1024 * 1024;
+        final CreditController controller = new CreditController(999, 10L * eventSize);
+
+        // before any delivery the largest events are assumed
+        final int initialCredit = controller.nextCredit(true, 0);
+        Assert.assertEquals(10L * eventSize / ClientConstants.MAX_MESSAGE_LENGTH_BYTES, initialCredit);
+
+        for (int count = 0; count < initialCredit; count++) {
+            controller.onDelivery(eventSize, 0);
+        }
+
+        Assert.assertEquals(10, controller.getWindow());
+        Assert.assertEquals(0, controller.nextCredit(true, 0));
+
+        for (int count = 0; count < initialCredit; count++) {
+            controller.onDrained();
+        }
+
+        Assert.assertEquals(10, controller.nextCredit(true, 0));
+    }
+
+    @Test
+    public void slowConsumerShrinksTheWindow() {
+        final CreditController controller = new CreditController(500, 0);
+        controller.onReceiveRequested(10, false);
+        long now = 0;
+        controller.nextCredit(true, now);
+
+        for (int count = 0; count < 500; count++) {
+            controller.onDelivery(10, now);
+        }
+
+        // one event per second
+        for (int second = 0; second < 10; second++) {
+            now += TimeUnit.SECONDS.toNanos(1);
+            controller.onDrained();
+            controller.nextCredit(false, now);
+        }
+
+        Assert.assertEquals(10, controller.getWindow());
+    }
+
+    @Test
+    public void starvedConsumerGrowsTheWindow() {
+        final CreditController controller = new CreditController(500, 0);
+        long now = 0;
+        controller.nextCredit(true, now);
+        for (int count = 0; count < 500; count++) {
+            controller.onDelivery(10, now);
+        }
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        controller.onDrained();
+        controller.nextCredit(false, now);
+        Assert.assertEquals(1, controller.getWindow());
+
+        int previousWindow = controller.getWindow();
+        for (int sample = 0; sample < 12; sample++) {
+            while (controller.getBufferedCount() > 0) {
+                controller.onDrained();
+            }
+
+            controller.onReceiveRequested(1, true);
+            now += SAMPLE;
+            final int credit = controller.nextCredit(false, now);
+            for (int count = 0; count < credit; count++) {
+                controller.onDelivery(10, now);
+            }
+
+            Assert.assertTrue(controller.getWindow() >= previousWindow);
+            previousWindow = controller.getWindow();
+        }
+
+        Assert.assertEquals(500, controller.getWindow());
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.PayloadSizeExceededException;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class EventDataBatchImplTest {
+
+    @Test
+    public void encodedBatchHasEnvelopeFollowedByDataSections() throws PayloadSizeExceededException {
+        final EventDataBatchImpl batch = new EventDataBatchImpl(ClientConstants.MAX_MESSAGE_LENGTH_BYTES, "pk");
+        for (int i = 0; i < 3; i++) {
+            final EventData eventData = EventData.create(("event" + i).getBytes(UTF_8));
+            eventData.getProperties().put("index", i);
+            Assert.assertTrue(batch.tryAdd(eventData));
+        }
+
+        final DecoderImpl decoder = new DecoderImpl();
+        final EncoderImpl encoder = new EncoderImpl(decoder);
+        AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+        final ByteBuffer buffer = ByteBuffer.wrap(batch.getEncodedBytes(), 0, batch.getEncodedSize());
+        decoder.setByteBuffer(buffer);
+
+        final MessageAnnotations envelopeAnnotations = (MessageAnnotations) decoder.readObject();
+        Assert.assertEquals("pk", envelopeAnnotations.getValue().get(AmqpConstants.PARTITION_KEY));
+
+        for (int i = 0; i < 3; i++) {
+            final Data dataSection = (Data) decoder.readObject();
+            final Message message = Proton.message();
+            message.decode(dataSection.getValue().getArray(), dataSection.getValue().getArrayOffset(), dataSection.getValue().getLength());
+
+            final EventData eventData = new EventDataImpl(message);
+            Assert.assertEquals("event" + i, new String(eventData.getBytes(), UTF_8));
+            Assert.assertEquals(i, eventData.getProperties().get("index"));
+            Assert.assertEquals("pk", eventData.getSystemProperties().getPartitionKey());
+        }
+
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void tryAddReturnsFalseOnceBatchIsFull() throws PayloadSizeExceededException {
+        final EventDataBatchImpl batch = new EventDataBatchImpl(ClientConstants.MAX_MESSAGE_LENGTH_BYTES, null);
+        int added = 0;
+        while (batch.tryAdd(EventData.create(new byte[1024]))) {
+            added++;
+        }
+
+        Assert.assertEquals(added, batch.getSize());
+        Assert.assertTrue(added > 200);
+        Assert.assertTrue(batch.getEncodedSize() <= ClientConstants.MAX_MESSAGE_LENGTH_BYTES);
+    }
+
+    @Test(expected = PayloadSizeExceededException.class)
+    public void tryAddThrowsWhenEventCanNeverFit() throws PayloadSizeExceededException {
+        final EventDataBatchImpl batch = new EventDataBatchImpl(ClientConstants.MAX_MESSAGE_LENGTH_BYTES, null);
+        Assert.assertTrue(batch.tryAdd(EventData.create(new byte[1024])));
+        batch.tryAdd(EventData.create(new byte[ClientConstants.MAX_MESSAGE_LENGTH_BYTES * 2]));
+    }
+}
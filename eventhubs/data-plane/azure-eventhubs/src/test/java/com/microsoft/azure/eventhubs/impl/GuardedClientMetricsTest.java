@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.ClientMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GuardedClientMetricsTest {
+
+    @Test
+    public void exceptionsThrownByTheMetricsAreNotPassedOn() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ClientMetrics metrics = GuardedClientMetrics.guard(new ClientMetrics() {
+            @Override
+            public void recordPendingSends(final String entityPath, final int pendingSends, final long inFlightBytes) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("recordPendingSends");
+            }
+
+            @Override
+            public void recordSendLatency(final String entityPath, final long latencyNanos) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("recordSendLatency");
+            }
+
+            @Override
+            public void recordReactorIteration(final long durationNanos) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("recordReactorIteration");
+            }
+        });
+
+        metrics.recordPendingSends("path", 1, 100);
+        metrics.recordPendingSends("path", 2, 200);
+        metrics.recordSendLatency("path", 1000);
+        metrics.recordReactorIteration(1000);
+        metrics.recordCreditStall("path");
+        Assert.assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void metricsAreGuardedOnce() {
+        Assert.assertSame(ClientMetrics.NO_OP, GuardedClientMetrics.guard(null));
+        Assert.assertSame(ClientMetrics.NO_OP, GuardedClientMetrics.guard(ClientMetrics.NO_OP));
+
+        final ClientMetrics guarded = GuardedClientMetrics.guard(new ClientMetrics() {
+        });
+        Assert.assertSame(guarded, GuardedClientMetrics.guard(guarded));
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the ways MessageSender tracked its sends - one send per operation, from being queued to its delivery being
+ * settled, with up to inFlightPerThread sends of every sending thread waiting for their settlement:
+ * <ul>
+ * <li>locked - a PriorityQueue of string delivery tags under a lock, with a ConcurrentHashMap from tag to send</li>
+ * <li>boxed - lock-free queues, with a ConcurrentHashMap from the boxed numeric tag to send; the tag encoded per delivery</li>
+ * <li>ring - PendingSends</li>
+ * </ul>
+ * Not run by the build - run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath org.openjdk.jmh.Main PendingSendsBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class PendingSendsBenchmark {
+
+    private static ReplayableWorkItem<Void> newSend() {
+        return new ReplayableWorkItem<>(null, 256, 0, new CompletableFuture<>(), Duration.ofSeconds(60));
+    }
+
+    @Benchmark
+    public Object locked(final LockedSends sends, final Settlements settlements) {
+        final String deliveryTag = UUID.randomUUID().toString().replace("-", "") + "_" + 0;
+        final ReplayableWorkItem<Void> send = newSend();
+        synchronized (sends.lock) {
+            sends.sends.put(deliveryTag, send);
+            sends.queue.offer(new WeightedTag(deliveryTag, 0));
+        }
+
+        final WeightedTag next;
+        synchronized (sends.lock) {
+            next = sends.queue.poll();
+        }
+
+        settlements.deliveries.add(next.deliveryTag.getBytes(StandardCharsets.UTF_8));
+        return settlements.deliveries.size() > settlements.inFlightPerThread
+                ? sends.sends.remove(new String(settlements.deliveries.poll(), StandardCharsets.UTF_8))
+                : next;
+    }
+
+    @Benchmark
+    public Object boxed(final BoxedSends sends, final Settlements settlements) {
+        final ReplayableWorkItem<Void> send = newSend();
+        send.setDeliveryTag(sends.lastDeliveryTag.incrementAndGet());
+        sends.sends.put(send.getDeliveryTag(), send);
+        sends.queue.offer(send);
+
+        final ReplayableWorkItem<Void> next = sends.queue.poll();
+        settlements.deliveries.add(PendingSends.toDeliveryTagBytes(next.getDeliveryTag()));
+        return settlements.deliveries.size() > settlements.inFlightPerThread
+                ? sends.sends.remove(PendingSends.fromDeliveryTagBytes(settlements.deliveries.poll()))
+                : next;
+    }
+
+    @Benchmark
+    public Object ring(final RingSends sends, final Settlements settlements) {
+        final ReplayableWorkItem<Void> send = newSend();
+        send.setDeliveryTag(sends.pendingSends.nextDeliveryTag());
+        sends.pendingSends.offer(send, false);
+
+        final ReplayableWorkItem<Void> next = sends.pendingSends.poll();
+        settlements.deliveries.add(next.getDeliveryTagBytes());
+        return settlements.deliveries.size() > settlements.inFlightPerThread
+                ? sends.pendingSends.remove(PendingSends.fromDeliveryTagBytes(settlements.deliveries.poll()))
+                : next;
+    }
+
+    @State(Scope.Thread)
+    public static class Settlements {
+        @Param({"64", "1024"})
+        int inFlightPerThread;
+
+        final ArrayDeque<byte[]> deliveries = new ArrayDeque<>();
+    }
+
+    @State(Scope.Benchmark)
+    public static class LockedSends {
+        final Object lock = new Object();
+        final ConcurrentHashMap<String, ReplayableWorkItem<Void>> sends = new ConcurrentHashMap<>();
+        final PriorityQueue<WeightedTag> queue = new PriorityQueue<>(1000, (left, right) -> Integer.compare(right.weight, left.weight));
+    }
+
+    @State(Scope.Benchmark)
+    public static class BoxedSends {
+        final AtomicLong lastDeliveryTag = new AtomicLong();
+        final ConcurrentHashMap<Long, ReplayableWorkItem<Void>> sends = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<ReplayableWorkItem<Void>> queue = new ConcurrentLinkedQueue<>();
+    }
+
+    @State(Scope.Benchmark)
+    public static class RingSends {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+    }
+
+    private static final class WeightedTag {
+        final String deliveryTag;
+        final int weight;
+
+        WeightedTag(final String deliveryTag, final int weight) {
+            this.deliveryTag = deliveryTag;
+            this.weight = weight;
+        }
+    }
+}
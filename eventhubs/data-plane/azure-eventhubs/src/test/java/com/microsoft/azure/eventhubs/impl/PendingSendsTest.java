@@ -0,0 +1,194 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+public class PendingSendsTest {
+
+    private static ReplayableWorkItem<Void> newSend(final PendingSends<Void> pendingSends) {
+        final ReplayableWorkItem<Void> send = new ReplayableWorkItem<>(new byte[0], 0, 0, new CompletableFuture<>(), Duration.ofSeconds(60));
+        send.setDeliveryTag(pendingSends.nextDeliveryTag());
+        return send;
+    }
+
+    @Test
+    public void deliveryTagRoundTrips() {
+        for (final long deliveryTag : new long[] {1, 255, 256, 0x0102030405060708L, Long.MAX_VALUE}) {
+            final byte[] tagBytes = PendingSends.toDeliveryTagBytes(deliveryTag);
+            Assert.assertEquals(Long.BYTES, tagBytes.length);
+            Assert.assertEquals(deliveryTag, PendingSends.fromDeliveryTagBytes(tagBytes));
+        }
+
+        Assert.assertEquals(-1, PendingSends.fromDeliveryTagBytes("not-a-tag".getBytes()));
+    }
+
+    @Test
+    public void retriesAreDrainedFirst() {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        final ReplayableWorkItem<Void> first = newSend(pendingSends);
+        final ReplayableWorkItem<Void> second = newSend(pendingSends);
+        final ReplayableWorkItem<Void> retry = newSend(pendingSends);
+
+        pendingSends.offer(first, false);
+        pendingSends.offer(second, false);
+        pendingSends.offer(retry, true);
+        pendingSends.replay(first);
+
+        Assert.assertSame(retry, pendingSends.poll());
+        Assert.assertSame(first, pendingSends.poll());
+        Assert.assertSame(first, pendingSends.poll());
+        Assert.assertSame(second, pendingSends.poll());
+        Assert.assertNull(pendingSends.poll());
+
+        Assert.assertEquals(3, pendingSends.size());
+        Assert.assertSame(second, pendingSends.remove(second.getDeliveryTag()));
+        Assert.assertNull(pendingSends.remove(second.getDeliveryTag()));
+        Assert.assertEquals(2, pendingSends.size());
+    }
+
+    @Test
+    public void inFlightBytesFollowTrackedSends() {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        final ReplayableWorkItem<Void> small = new ReplayableWorkItem<>(new byte[100], 100, 0, new CompletableFuture<>(), Duration.ofSeconds(60));
+        small.setDeliveryTag(pendingSends.nextDeliveryTag());
+        final ReplayableWorkItem<Void> large = new ReplayableWorkItem<>(new byte[1000], 1000, 0, new CompletableFuture<>(), Duration.ofSeconds(60));
+        large.setDeliveryTag(pendingSends.nextDeliveryTag());
+
+        pendingSends.offer(small, false);
+        pendingSends.offer(large, false);
+        Assert.assertTrue(pendingSends.hasQueued());
+        Assert.assertEquals(1100, pendingSends.getInFlightBytes());
+
+        // replaying - or retrying with the same delivery tag - does not count the bytes twice
+        pendingSends.replay(small);
+        pendingSends.offer(large, true);
+        Assert.assertEquals(1100, pendingSends.getInFlightBytes());
+
+        pendingSends.remove(small.getDeliveryTag());
+        pendingSends.remove(small.getDeliveryTag());
+        Assert.assertEquals(1000, pendingSends.getInFlightBytes());
+
+        pendingSends.clear();
+        Assert.assertFalse(pendingSends.hasQueued());
+        Assert.assertEquals(0, pendingSends.getInFlightBytes());
+    }
+
+    @Test
+    public void sendsOutlivingTheRingAreStillTracked() {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        final List<ReplayableWorkItem<Void>> sends = new ArrayList<>();
+
+        // more sends in flight than ring slots - the later ones find their slot held & overflow
+        for (int count = 0; count < 10000; count++) {
+            final ReplayableWorkItem<Void> send = new ReplayableWorkItem<>(new byte[1], 1, 0, new CompletableFuture<>(), Duration.ofSeconds(60));
+            send.setDeliveryTag(pendingSends.nextDeliveryTag());
+            pendingSends.offer(send, false);
+            sends.add(send);
+        }
+
+        Assert.assertEquals(10000, pendingSends.size());
+        Assert.assertEquals(10000, pendingSends.getInFlightBytes());
+        Assert.assertEquals(10000, pendingSends.getAll().size());
+
+        // settle out of order - odd tags first
+        for (int index = 0; index < sends.size(); index += 2) {
+            Assert.assertSame(sends.get(index), pendingSends.remove(sends.get(index).getDeliveryTag()));
+        }
+
+        Assert.assertEquals(5000, pendingSends.size());
+        Assert.assertTrue(pendingSends.getAll().containsAll(sends.subList(1, 2)));
+
+        for (int index = 1; index < sends.size(); index += 2) {
+            Assert.assertSame(sends.get(index), pendingSends.remove(sends.get(index).getDeliveryTag()));
+            Assert.assertNull(pendingSends.remove(sends.get(index).getDeliveryTag()));
+        }
+
+        Assert.assertTrue(pendingSends.isEmpty());
+        Assert.assertEquals(0, pendingSends.getInFlightBytes());
+        Assert.assertTrue(pendingSends.getAll().isEmpty());
+    }
+
+    @Test
+    public void clearUntracksEverySend() {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        for (int count = 0; count < 5000; count++) {
+            pendingSends.offer(newSend(pendingSends), false);
+        }
+
+        pendingSends.clear();
+        Assert.assertTrue(pendingSends.isEmpty());
+        Assert.assertTrue(pendingSends.getAll().isEmpty());
+        Assert.assertNull(pendingSends.poll());
+
+        final ReplayableWorkItem<Void> send = newSend(pendingSends);
+        pendingSends.offer(send, false);
+        Assert.assertEquals(1, pendingSends.size());
+        Assert.assertSame(send, pendingSends.remove(send.getDeliveryTag()));
+    }
+
+    @Test
+    public void deliveryTagBytesAreReusedAcrossReplays() {
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        final ReplayableWorkItem<Void> send = newSend(pendingSends);
+
+        final byte[] tagBytes = send.getDeliveryTagBytes();
+        Assert.assertSame(tagBytes, send.getDeliveryTagBytes());
+        Assert.assertEquals(send.getDeliveryTag(), PendingSends.fromDeliveryTagBytes(tagBytes));
+
+        send.setDeliveryTag(pendingSends.nextDeliveryTag());
+        Assert.assertEquals(send.getDeliveryTag(), PendingSends.fromDeliveryTagBytes(send.getDeliveryTagBytes()));
+    }
+
+    @Test
+    public void concurrentProducersSingleConsumer() throws InterruptedException {
+        final int producerCount = 8;
+        final int sendsPerProducer = 10000;
+        final PendingSends<Void> pendingSends = new PendingSends<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] producers = new Thread[producerCount];
+
+        for (int index = 0; index < producerCount; index++) {
+            producers[index] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignore) {
+                    return;
+                }
+
+                for (int count = 0; count < sendsPerProducer; count++) {
+                    pendingSends.offer(newSend(pendingSends), false);
+                }
+            });
+            producers[index].start();
+        }
+
+        start.countDown();
+
+        final Set<Long> drained = new HashSet<>();
+        while (drained.size() < producerCount * sendsPerProducer) {
+            final ReplayableWorkItem<Void> send = pendingSends.poll();
+            if (send != null) {
+                Assert.assertTrue(drained.add(send.getDeliveryTag()));
+                Assert.assertSame(send, pendingSends.remove(send.getDeliveryTag()));
+            }
+        }
+
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertTrue(pendingSends.isEmpty());
+        Assert.assertNull(pendingSends.poll());
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.ClientMetrics;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReactorDispatcherTest {
+    private Reactor reactor;
+    private ReactorDispatcher dispatcher;
+    private Thread reactorThread;
+
+    @Before
+    public void startReactor() throws IOException {
+        this.reactor = Proton.reactor();
+        this.reactor.setTimeout(ClientConstants.REACTOR_IO_POLL_TIMEOUT);
+        this.dispatcher = new ReactorDispatcher(this.reactor);
+
+        this.reactorThread = new Thread(() -> {
+            this.reactor.start();
+            while (this.reactor.process()) {
+                // keep running until stopped
+            }
+        });
+        this.reactorThread.start();
+    }
+
+    @After
+    public void stopReactor() throws Exception {
+        this.dispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                ReactorDispatcherTest.this.reactor.stop();
+            }
+        });
+
+        this.reactorThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Test
+    public void workItemQueuedAfterADrainIsNotStranded() throws Exception {
+        for (int index = 0; index < 10; index++) {
+            final CountDownLatch ran = new CountDownLatch(1);
+            this.dispatcher.invoke(new DispatchHandler() {
+                @Override
+                public void onEvent() {
+                    ran.countDown();
+                }
+            });
+
+            Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals(10, this.dispatcher.getWorkItemCount());
+        // a wakeup may carry an item queued while the previous one was drained, but never more items than were queued
+        Assert.assertTrue(this.dispatcher.getWakeupCount() > 0);
+        Assert.assertTrue(this.dispatcher.getWakeupCount() <= 10);
+    }
+
+    @Test
+    public void wakeupsAreCoalescedUnderLoad() throws Exception {
+        final int threadCount = 4;
+        final int workItemsPerThread = 5000;
+        final AtomicInteger ran = new AtomicInteger();
+        final CountDownLatch allRan = new CountDownLatch(threadCount * workItemsPerThread);
+        final List<Thread> producers = new ArrayList<>();
+
+        for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+            producers.add(new Thread(() -> {
+                for (int index = 0; index < workItemsPerThread; index++) {
+                    try {
+                        this.dispatcher.invoke(new DispatchHandler() {
+                            @Override
+                            public void onEvent() {
+                                ran.incrementAndGet();
+                                allRan.countDown();
+                            }
+                        });
+                    } catch (IOException exception) {
+                        throw new RuntimeException(exception);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread producer : producers) {
+            producer.start();
+        }
+
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertTrue(allRan.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(threadCount * workItemsPerThread, ran.get());
+        Assert.assertEquals(threadCount * workItemsPerThread, this.dispatcher.getWorkItemCount());
+        Assert.assertTrue(this.dispatcher.getWakeupCount() < this.dispatcher.getWorkItemCount());
+        Assert.assertEquals(0, this.dispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void queueDepthIsReportedOnEveryWakeup() throws Exception {
+        final Reactor metricsReactor = Proton.reactor();
+        final AtomicInteger maxQueueDepth = new AtomicInteger();
+        final ReactorDispatcher metricsDispatcher = new ReactorDispatcher(metricsReactor, new ClientMetrics() {
+            @Override
+            public void recordDispatcherQueueDepth(final int queueDepth) {
+                maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+            }
+        });
+
+        // queued before the Reactor runs - all of them are drained on the first wakeup
+        final CountDownLatch allRan = new CountDownLatch(5);
+        for (int index = 0; index < 5; index++) {
+            metricsDispatcher.invoke(new DispatchHandler() {
+                @Override
+                public void onEvent() {
+                    allRan.countDown();
+                }
+            });
+        }
+
+        Assert.assertEquals(5, metricsDispatcher.getQueueDepth());
+        Assert.assertEquals(1, metricsDispatcher.getWakeupCount());
+
+        metricsDispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                metricsReactor.stop();
+            }
+        });
+
+        metricsReactor.setTimeout(ClientConstants.REACTOR_IO_POLL_TIMEOUT);
+        metricsReactor.run();
+
+        Assert.assertTrue(allRan.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(6, maxQueueDepth.get());
+        Assert.assertEquals(0, metricsDispatcher.getQueueDepth());
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ReceivedMessageTest {
+
+    @Test
+    public void bodyIsAViewOverTheDeliveryBytes() {
+        final byte[] payload = payload(1000);
+        final byte[] delivery = encode(receivedMessage(new Data(new Binary(payload))));
+
+        final Message message = ReceivedMessage.decode(delivery, delivery.length);
+
+        Assert.assertTrue(message instanceof ReceivedMessage);
+        final Binary body = ((Data) message.getBody()).getValue();
+        Assert.assertSame(delivery, body.getArray());
+        Assert.assertEquals(ByteBuffer.wrap(payload), body.asByteBuffer());
+    }
+
+    @Test
+    public void sectionsMatchRegularDecode() {
+        final byte[] delivery = encode(receivedMessage(new Data(new Binary(payload(10)))));
+
+        final Message expected = Proton.message();
+        expected.decode(delivery, 0, delivery.length);
+        final Message actual = ReceivedMessage.decode(delivery, delivery.length);
+
+        Assert.assertEquals(expected.getMessageAnnotations().getValue(), actual.getMessageAnnotations().getValue());
+        Assert.assertEquals(expected.getMessageId(), actual.getMessageId());
+        Assert.assertEquals(expected.getSubject(), actual.getSubject());
+        Assert.assertEquals(expected.getApplicationProperties().getValue(), actual.getApplicationProperties().getValue());
+        Assert.assertEquals(expected.getBody().toString(), actual.getBody().toString());
+    }
+
+    @Test
+    public void eventDataReadsPropertiesOnDemand() {
+        final byte[] payload = payload(300);
+        final byte[] delivery = encode(receivedMessage(new Data(new Binary(payload))));
+
+        final EventData eventData = new EventDataImpl(ReceivedMessage.decode(delivery, delivery.length));
+
+        Assert.assertEquals("value", eventData.getProperties().get("app-property"));
+        Assert.assertEquals(42L, eventData.getSystemProperties().getSequenceNumber());
+        Assert.assertEquals("message-id", eventData.getSystemProperties().get(AmqpConstants.AMQP_PROPERTY_MESSAGE_ID));
+
+        final ByteBuffer body = eventData.getBodyAsByteBuffer();
+        Assert.assertTrue(body.isReadOnly());
+        Assert.assertEquals(ByteBuffer.wrap(payload), body);
+        Assert.assertArrayEquals(payload, eventData.getBytes());
+    }
+
+    @Test
+    public void nonDataBodyIsDecoded() {
+        final byte[] delivery = encode(receivedMessage(new AmqpValue("amqp-value-body")));
+
+        final EventData eventData = new EventDataImpl(ReceivedMessage.decode(delivery, delivery.length));
+
+        Assert.assertEquals("amqp-value-body", eventData.getObject());
+        Assert.assertNull(eventData.getBytes());
+        Assert.assertNull(eventData.getBodyAsByteBuffer());
+    }
+
+    @Test
+    public void emptyBody() {
+        final byte[] delivery = encode(receivedMessage(new Data(new Binary(new byte[0]))));
+
+        final EventData eventData = new EventDataImpl(ReceivedMessage.decode(delivery, delivery.length));
+
+        Assert.assertEquals(0, eventData.getBytes().length);
+        Assert.assertEquals(0, eventData.getBodyAsByteBuffer().remaining());
+    }
+
+    @Test
+    public void slicedBodyIsCopiedByGetBytes() {
+        final byte[] data = payload(100);
+        final EventData eventData = EventData.create(data, 10, 20);
+
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 30), eventData.getBytes());
+        Assert.assertEquals(20, eventData.getBodyAsByteBuffer().remaining());
+    }
+
+    private static Message receivedMessage(final org.apache.qpid.proton.amqp.messaging.Section body) {
+        final Message message = Proton.message();
+        final Map<Symbol, Object> annotations = new HashMap<>();
+        annotations.put(Symbol.getSymbol(AmqpConstants.SEQUENCE_NUMBER_ANNOTATION_NAME), 42L);
+        annotations.put(Symbol.getSymbol(AmqpConstants.OFFSET_ANNOTATION_NAME), "1024");
+        message.setMessageAnnotations(new MessageAnnotations(annotations));
+        message.setMessageId("message-id");
+        message.setSubject("subject");
+
+        final Map<String, Object> applicationProperties = new HashMap<>();
+        applicationProperties.put("app-property", "value");
+        message.setApplicationProperties(new ApplicationProperties(applicationProperties));
+        message.setBody(body);
+        return message;
+    }
+
+    private static byte[] encode(final Message message) {
+        final byte[] buffer = new byte[4096];
+        final int length = message.encode(buffer, 0, buffer.length);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static byte[] payload(final int size) {
+        final byte[] payload = new byte[size];
+        for (int index = 0; index < size; index++) {
+            payload[index] = (byte) index;
+        }
+
+        return payload;
+    }
+}
@@ -0,0 +1,191 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.PartitionReceiver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReceiverPublisherTest {
+
+    @Test
+    public void emitsOnlyWhatIsRequested() throws Exception {
+        final FakeReceiver receiver = new FakeReceiver(1000);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ReceiverPublisher(receiver, 100, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+        Assert.assertEquals(5, subscriber.events.size());
+        Assert.assertEquals(995, receiver.prefetched.get());
+
+        subscriber.subscription.request(250);
+        Assert.assertEquals(255, subscriber.events.size());
+        Assert.assertEquals(745, receiver.prefetched.get());
+        Assert.assertEquals(0, receiver.receiveCalls.get());
+    }
+
+    @Test
+    public void waitsForEventsWhenNothingIsPrefetched() throws Exception {
+        final FakeReceiver receiver = new FakeReceiver(0);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ReceiverPublisher(receiver, 100, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        Assert.assertEquals(1, receiver.receiveCalls.get());
+        Assert.assertEquals(0, subscriber.events.size());
+
+        receiver.pendingReceive.complete(events(3));
+        Assert.assertEquals(3, subscriber.events.size());
+
+        // still 7 requested - so the publisher waits on the next receive
+        Assert.assertEquals(2, receiver.receiveCalls.get());
+        Assert.assertEquals(7, receiver.lastReceiveCount);
+    }
+
+    @Test
+    public void receiveFailureIsSignalled() throws Exception {
+        final FakeReceiver receiver = new FakeReceiver(0);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ReceiverPublisher(receiver, 100, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        final RuntimeException receiveError = new RuntimeException("link failed");
+        receiver.pendingReceive.completeExceptionally(receiveError);
+
+        Assert.assertSame(receiveError, subscriber.error.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void nonPositiveRequestIsAnError() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ReceiverPublisher(new FakeReceiver(10), 100, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        Assert.assertTrue(subscriber.error.get(5, TimeUnit.SECONDS) instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void secondSubscriberIsRejected() throws Exception {
+        final ReceiverPublisher publisher = new ReceiverPublisher(new FakeReceiver(10), 100, Runnable::run);
+        publisher.subscribe(new RecordingSubscriber());
+
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        Assert.assertTrue(second.error.get(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void cancelStopsEmitting() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ReceiverPublisher(new FakeReceiver(10), 100, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+        Assert.assertEquals(0, subscriber.events.size());
+    }
+
+    @Test
+    public void defaultPublisherTakesEventsWithReceive() {
+        final List<Integer> receiveCounts = new CopyOnWriteArrayList<>();
+        final PartitionReceiver receiver = (PartitionReceiver) Proxy.newProxyInstance(PartitionReceiver.class.getClassLoader(),
+                new Class<?>[] {PartitionReceiver.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "receive":
+                            receiveCounts.add((Integer) args[0]);
+                            return CompletableFuture.completedFuture(events(Math.min(4, (Integer) args[0])));
+                        case "getPartitionId":
+                            return "0";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        ReceiverPublisher.of(receiver).subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        Assert.assertEquals(10, subscriber.events.size());
+        Assert.assertEquals(Arrays.asList(10, 6, 2), receiveCounts);
+    }
+
+    private static LinkedList<EventData> events(final int count) {
+        final LinkedList<EventData> events = new LinkedList<>();
+        for (int index = 0; index < count; index++) {
+            events.add(EventData.create("event".getBytes()));
+        }
+
+        return events;
+    }
+
+    private static final class FakeReceiver implements ReceivePump.IPartitionReceiver {
+        private final AtomicInteger prefetched;
+        private final AtomicInteger receiveCalls = new AtomicInteger();
+        private volatile CompletableFuture<Iterable<EventData>> pendingReceive;
+        private volatile int lastReceiveCount;
+
+        FakeReceiver(final int prefetched) {
+            this.prefetched = new AtomicInteger(prefetched);
+        }
+
+        @Override
+        public String getPartitionId() {
+            return "0";
+        }
+
+        @Override
+        public CompletableFuture<Iterable<EventData>> receive(final int maxBatchSize) {
+            this.receiveCalls.incrementAndGet();
+            this.lastReceiveCount = maxBatchSize;
+            this.pendingReceive = new CompletableFuture<>();
+            return this.pendingReceive;
+        }
+
+        @Override
+        public Iterable<EventData> receivePrefetched(final int maxBatchSize) {
+            final int count = Math.min(maxBatchSize, this.prefetched.get());
+            if (count == 0) {
+                return null;
+            }
+
+            this.prefetched.addAndGet(-count);
+            return events(count);
+        }
+    }
+
+    private static final class RecordingSubscriber implements Subscriber<EventData> {
+        private final List<EventData> events = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        private volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final EventData eventData) {
+            this.events.add(eventData);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SendBufferPoolTest {
+
+    @Test
+    public void releasedBufferIsReused() {
+        final SendBufferPool pool = new SendBufferPool(ClientConstants.SEND_BUFFER_POOL_MAX_BYTES);
+
+        final byte[] first = pool.acquire(3000);
+        Assert.assertEquals(4096, first.length);
+        Assert.assertEquals(1, pool.getInUseCount());
+        Assert.assertEquals(1, pool.getMissCount());
+
+        pool.release(first);
+        Assert.assertEquals(0, pool.getInUseCount());
+        Assert.assertEquals(1, pool.getPooledCount());
+
+        final byte[] second = pool.acquire(2049);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, pool.getHitCount());
+        Assert.assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    public void discardedBufferIsNotReused() {
+        final SendBufferPool pool = new SendBufferPool(ClientConstants.SEND_BUFFER_POOL_MAX_BYTES);
+
+        final byte[] first = pool.acquire(100);
+        Assert.assertEquals(SendBufferPool.MIN_BUFFER_SIZE, first.length);
+        pool.discard(first);
+
+        Assert.assertEquals(0, pool.getInUseCount());
+        Assert.assertNotSame(first, pool.acquire(100));
+        Assert.assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void poolIsBoundedPerSizeClass() {
+        final int bufferSize = 256 * 1024;
+        // 11 size classes share the budget, so every class gets MAX_BUFFER_SIZE bytes: room for 4 buffers of 256KB
+        final SendBufferPool pool = new SendBufferPool(11L * SendBufferPool.MAX_BUFFER_SIZE);
+
+        final byte[][] buffers = new byte[5][];
+        for (int index = 0; index < buffers.length; index++) {
+            buffers[index] = pool.acquire(bufferSize);
+        }
+
+        for (final byte[] buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        Assert.assertEquals(4, pool.getPooledCount());
+        Assert.assertEquals(0, pool.getInUseCount());
+    }
+
+    @Test
+    public void oversizedBuffersAreNotPooled() {
+        final SendBufferPool pool = new SendBufferPool(ClientConstants.SEND_BUFFER_POOL_MAX_BYTES);
+
+        final byte[] buffer = pool.acquire(SendBufferPool.MAX_BUFFER_SIZE + 1);
+        Assert.assertEquals(SendBufferPool.MAX_BUFFER_SIZE + 1, buffer.length);
+        pool.release(buffer);
+
+        Assert.assertEquals(0, pool.getPooledCount());
+        Assert.assertEquals(0, pool.getInUseCount());
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventDataBatch;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class SendSubscriberImplTest {
+
+    private static final int BATCH_CAPACITY = 10;
+
+    private final List<CountingBatch> sentBatches = new ArrayList<>();
+    private final List<CompletableFuture<Void>> sends = new ArrayList<>();
+    private long requested;
+    private boolean cancelled;
+
+    @Test
+    public void eventsAreBatchedWhileASendIsInFlight() {
+        final SendSubscriberImpl subscriber = this.subscribe(1);
+        Assert.assertEquals(SendSubscriberImpl.REQUEST_SIZE, this.requested);
+
+        // the first event goes out right away - nothing else is being sent
+        subscriber.onNext(event());
+        Assert.assertEquals(1, this.sentBatches.size());
+        Assert.assertEquals(1, this.sentBatches.get(0).getSize());
+
+        for (int count = 0; count < 25; count++) {
+            subscriber.onNext(event());
+        }
+
+        // one batch is full, but only one batch may be in flight
+        Assert.assertEquals(1, this.sentBatches.size());
+
+        this.sends.get(0).complete(null);
+        Assert.assertEquals(2, this.sentBatches.size());
+        Assert.assertEquals(BATCH_CAPACITY, this.sentBatches.get(1).getSize());
+
+        this.sends.get(1).complete(null);
+        Assert.assertEquals(3, this.sentBatches.size());
+        Assert.assertEquals(BATCH_CAPACITY, this.sentBatches.get(2).getSize());
+
+        this.sends.get(2).complete(null);
+        Assert.assertEquals(4, this.sentBatches.size());
+        Assert.assertEquals(5, this.sentBatches.get(3).getSize());
+    }
+
+    @Test
+    public void noMoreIsRequestedWhileInFlightLimitIsReached() {
+        final SendSubscriberImpl subscriber = this.subscribe(1);
+        for (int count = 0; count < SendSubscriberImpl.REQUEST_SIZE; count++) {
+            subscriber.onNext(event());
+        }
+
+        Assert.assertEquals(SendSubscriberImpl.REQUEST_SIZE, this.requested);
+
+        int completed = 0;
+        while (this.requested == SendSubscriberImpl.REQUEST_SIZE) {
+            Assert.assertTrue(completed < this.sends.size());
+            this.sends.get(completed++).complete(null);
+        }
+
+        // more is requested only once everything received is sent
+        Assert.assertEquals(this.sends.size(), completed);
+        Assert.assertEquals(2L * SendSubscriberImpl.REQUEST_SIZE, this.requested);
+    }
+
+    @Test
+    public void completesOnceAllBatchesAreSent() throws Exception {
+        final SendSubscriberImpl subscriber = this.subscribe(2);
+        for (int count = 0; count < 15; count++) {
+            subscriber.onNext(event());
+        }
+
+        subscriber.onComplete();
+        Assert.assertFalse(subscriber.getCompletion().isDone());
+
+        for (int index = 0; index < this.sends.size(); index++) {
+            this.sends.get(index).complete(null);
+        }
+
+        subscriber.getCompletion().get();
+        int sentEvents = 0;
+        for (CountingBatch batch : this.sentBatches) {
+            sentEvents += batch.getSize();
+        }
+
+        Assert.assertEquals(15, sentEvents);
+    }
+
+    @Test
+    public void sendFailureCancelsTheSubscription() {
+        final SendSubscriberImpl subscriber = this.subscribe(1);
+        subscriber.onNext(event());
+
+        final IllegalStateException sendError = new IllegalStateException("send failed");
+        this.sends.get(0).completeExceptionally(sendError);
+
+        Assert.assertTrue(this.cancelled);
+        try {
+            subscriber.getCompletion().get();
+            Assert.fail("completion should fail");
+        } catch (InterruptedException | ExecutionException exception) {
+            Assert.assertSame(sendError, exception.getCause());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void inFlightLimitMustBePositive() {
+        new SendSubscriberImpl(CountingBatch::new, batch -> null, 0);
+    }
+
+    private SendSubscriberImpl subscribe(final int maxInFlightBatches) {
+        final SendSubscriberImpl subscriber = new SendSubscriberImpl(CountingBatch::new, batch -> {
+            final CompletableFuture<Void> send = new CompletableFuture<>();
+            this.sentBatches.add((CountingBatch) batch);
+            this.sends.add(send);
+            return send;
+        }, maxInFlightBatches);
+
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                SendSubscriberImplTest.this.requested += n;
+            }
+
+            @Override
+            public void cancel() {
+                SendSubscriberImplTest.this.cancelled = true;
+            }
+        });
+
+        return subscriber;
+    }
+
+    private static EventData event() {
+        return EventData.create("event".getBytes());
+    }
+
+    private static final class CountingBatch implements EventDataBatch {
+        private int size;
+
+        @Override
+        public int getSize() {
+            return this.size;
+        }
+
+        @Override
+        public boolean tryAdd(final EventData eventData) {
+            if (this.size == BATCH_CAPACITY) {
+                return false;
+            }
+
+            this.size++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.impl;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TimerWheelTest {
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private Reactor reactor;
+    private ReactorDispatcher dispatcher;
+    private Thread reactorThread;
+    private TimerWheel timerWheel;
+
+    @Before
+    public void startReactor() throws IOException {
+        this.reactor = Proton.reactor();
+        this.reactor.setTimeout(ClientConstants.REACTOR_IO_POLL_TIMEOUT);
+        this.dispatcher = new ReactorDispatcher(this.reactor);
+        this.timerWheel = new TimerWheel(new SchedulerProvider() {
+            @Override
+            public ReactorDispatcher getReactorDispatcher() {
+                return TimerWheelTest.this.dispatcher;
+            }
+
+            @Override
+            public TimerWheel getTimerWheel() {
+                return TimerWheelTest.this.timerWheel;
+            }
+        }, TICK);
+
+        this.reactorThread = new Thread(() -> {
+            this.reactor.start();
+            while (this.reactor.process()) {
+                // keep running until stopped
+            }
+        });
+        this.reactorThread.start();
+    }
+
+    @After
+    public void stopReactor() throws Exception {
+        this.dispatcher.invoke(new DispatchHandler() {
+            @Override
+            public void onEvent() {
+                TimerWheelTest.this.reactor.stop();
+            }
+        });
+
+        this.reactorThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Test
+    public void timeoutFiresOnReactorThreadAfterDelay() throws Exception {
+        final AtomicReference<Thread> firedOn = new AtomicReference<>();
+        final long scheduledAt = System.nanoTime();
+
+        final CompletableFuture<?> timeout = this.timerWheel.schedule(() -> firedOn.set(Thread.currentThread()), Duration.ofMillis(50));
+        timeout.get(5, TimeUnit.SECONDS);
+
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt) >= 50);
+        Assert.assertSame(this.reactorThread, firedOn.get());
+        Assert.assertEquals(0, this.timerWheel.getLiveTimeoutCount());
+    }
+
+    @Test
+    public void cancelledTimeoutNeverFires() throws Exception {
+        final AtomicInteger fired = new AtomicInteger();
+        final CompletableFuture<?> cancelled = this.timerWheel.schedule(fired::incrementAndGet, Duration.ofMillis(50));
+        final CompletableFuture<?> expired = this.timerWheel.schedule(() -> { }, Duration.ofMillis(100));
+
+        Assert.assertTrue(cancelled.cancel(false));
+        Assert.assertEquals(1, this.timerWheel.getLiveTimeoutCount());
+
+        expired.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(0, fired.get());
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertFalse(expired.cancel(false));
+    }
+
+    @Test
+    public void failingRunnableCompletesTimeoutExceptionally() throws Exception {
+        final CompletableFuture<?> timeout = this.timerWheel.schedule(() -> {
+            throw new IllegalStateException("expected");
+        }, TICK);
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        timeout.whenComplete((unUsed, exception) -> completed.countDown());
+
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(timeout.isCompletedExceptionally());
+    }
+
+    @Test
+    public void manyTimeoutsFromManyThreads() throws Exception {
+        final int threadCount = 4;
+        final int timeoutsPerThread = 5000;
+        final AtomicInteger fired = new AtomicInteger();
+        final List<Thread> producers = new ArrayList<>();
+        final List<CompletableFuture<?>> timeouts = new ArrayList<>();
+
+        for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+            producers.add(new Thread(() -> {
+                for (int index = 0; index < timeoutsPerThread; index++) {
+                    final CompletableFuture<?> timeout = this.timerWheel.schedule(fired::incrementAndGet, Duration.ofMillis(10 + index % 200));
+                    if (index % 2 == 0) {
+                        timeout.cancel(false);
+                    } else {
+                        synchronized (timeouts) {
+                            timeouts.add(timeout);
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (final Thread producer : producers) {
+            producer.start();
+        }
+
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+
+        CompletableFuture.allOf(timeouts.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(threadCount * timeoutsPerThread / 2, fired.get());
+        Assert.assertEquals(0, this.timerWheel.getLiveTimeoutCount());
+    }
+}
@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.eventhubs.sendrecv;
+
+import com.microsoft.azure.eventhubs.ConnectionHealth;
+import com.microsoft.azure.eventhubs.EventData;
+import com.microsoft.azure.eventhubs.EventHubClient;
+import com.microsoft.azure.eventhubs.EventHubException;
+import com.microsoft.azure.eventhubs.PooledEventHubClient;
+import com.microsoft.azure.eventhubs.lib.ApiTestBase;
+import com.microsoft.azure.eventhubs.lib.TestContext;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class PooledClientSendTest extends ApiTestBase {
+    static final int POOL_SIZE = 3;
+    static PooledEventHubClient ehClient;
+
+    @BeforeClass
+    public static void initialize() throws Exception {
+        ehClient = EventHubClient.createPooled(TestContext.getConnectionString().toString(), POOL_SIZE, TestContext.EXECUTOR_SERVICE).get();
+    }
+
+    @AfterClass
+    public static void cleanupClient() throws EventHubException {
+        if (ehClient != null) {
+            ehClient.closeSync();
+        }
+    }
+
+    @Test
+    public void sendsAreSpreadAcrossAllConnections() throws Exception {
+        // the client is shared by all the tests - so only the sends made here are counted
+        final long[] before = completedSends();
+        final List<CompletableFuture<Void>> sends = new LinkedList<>();
+        for (int count = 0; count < POOL_SIZE * 10; count++) {
+            sends.add(ehClient.send(EventData.create("pooled".getBytes())));
+        }
+
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+
+        final List<ConnectionHealth> connectionHealth = ehClient.getConnectionHealth();
+        Assert.assertEquals(POOL_SIZE, connectionHealth.size());
+        for (final ConnectionHealth health : connectionHealth) {
+            Assert.assertTrue(health.getIsOpen());
+            Assert.assertEquals(10, health.getCompletedSendCount() - before[health.getConnectionIndex()]);
+            Assert.assertEquals(0, health.getPendingSendCount());
+            Assert.assertEquals(0, health.getFailedSendCount());
+        }
+    }
+
+    @Test
+    public void connectionHealthReportsClosedConnections() throws Exception {
+        final PooledEventHubClient client = EventHubClient.createPooled(TestContext.getConnectionString().toString(), 2, TestContext.EXECUTOR_SERVICE).get();
+        try {
+            client.send(EventData.create("pooled".getBytes())).get(60, TimeUnit.SECONDS);
+            for (final ConnectionHealth health : client.getConnectionHealth()) {
+                Assert.assertTrue(health.getIsOpen());
+            }
+        } finally {
+            client.closeSync();
+        }
+
+        for (final ConnectionHealth health : client.getConnectionHealth()) {
+            Assert.assertFalse(health.getIsOpen());
+        }
+    }
+
+    @Test
+    public void sendsWithSamePartitionKeyUseOneConnection() throws Exception {
+        final long[] before = completedSends();
+        for (int count = 0; count < 5; count++) {
+            ehClient.send(EventData.create("keyed".getBytes()), "pooled-key").get(60, TimeUnit.SECONDS);
+        }
+
+        final long[] after = completedSends();
+        int connectionsUsed = 0;
+        for (int index = 0; index < POOL_SIZE; index++) {
+            if (after[index] != before[index]) {
+                connectionsUsed++;
+                Assert.assertEquals(5, after[index] - before[index]);
+            }
+        }
+
+        Assert.assertEquals(1, connectionsUsed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void poolSizeMustBePositive() throws Exception {
+        EventHubClient.createPooled(TestContext.getConnectionString().toString(), 0, TestContext.EXECUTOR_SERVICE);
+    }
+
+    private static long[] completedSends() {
+        final long[] completed = new long[POOL_SIZE];
+        for (final ConnectionHealth health : ehClient.getConnectionHealth()) {
+            completed[health.getConnectionIndex()] = health.getCompletedSendCount();
+        }
+
+        return completed;
+    }
+}
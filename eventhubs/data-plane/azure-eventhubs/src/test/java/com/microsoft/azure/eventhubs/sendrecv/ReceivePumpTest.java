@@ -14,9 +14,17 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReceivePumpTest {
     private final String exceptionMessage = "receive Exception";
@@ -219,6 +227,337 @@ public class ReceivePumpTest {
         Assert.assertTrue(assertion);
     }
 
+    @Test()
+    public void testPumpHandsOverPrefetchedEventsWithoutReceive() throws Exception {
+        final CompletableFuture<Void> pumpRun = new CompletableFuture<>();
+        final AtomicInteger prefetched = new AtomicInteger(95);
+        final AtomicInteger receiveCalls = new AtomicInteger();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final ReceivePump receivePump = new ReceivePump(
+                "eventhub1", "consumerGroup1",
+                new ReceivePump.IPartitionReceiver() {
+                    @Override
+                    public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                        receiveCalls.incrementAndGet();
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public Iterable<EventData> receivePrefetched(int maxBatchSize) {
+                        return takeEvents(prefetched, maxBatchSize);
+                    }
+
+                    @Override
+                    public String getPartitionId() {
+                        return "0";
+                    }
+                },
+                new PartitionReceiveHandler() {
+                    @Override
+                    public int getMaxEventCount() {
+                        return 10;
+                    }
+
+                    @Override
+                    public void onReceive(Iterable<EventData> events) {
+                        int count = 0;
+                        for (EventData ignored : events) {
+                            count++;
+                        }
+
+                        batchSizes.add(count);
+                        if (prefetched.get() == 0) {
+                            throw new PumpClosedException();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        assertion = error instanceof PumpClosedException;
+                        pumpRun.complete(null);
+                    }
+                },
+                false,
+                TestContext.EXECUTOR_SERVICE);
+
+        try {
+            receivePump.receiveAndProcess();
+            pumpRun.get();
+        } finally {
+            receivePump.stop().get();
+        }
+
+        Assert.assertTrue(assertion);
+        Assert.assertEquals(0, receiveCalls.get());
+        Assert.assertEquals(Arrays.asList(10, 10, 10, 10, 10, 10, 10, 10, 10, 5), batchSizes);
+    }
+
+    @Test()
+    public void testPumpLingersForFullBatch() throws Exception {
+        final CompletableFuture<Void> pumpRun = new CompletableFuture<>();
+        final AtomicInteger prefetched = new AtomicInteger(1);
+        final List<Integer> batchSizes = new ArrayList<>();
+        final ReceivePump receivePump = new ReceivePump(
+                "eventhub1", "consumerGroup1",
+                new ReceivePump.IPartitionReceiver() {
+                    @Override
+                    public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public Iterable<EventData> receivePrefetched(int maxBatchSize) {
+                        final Iterable<EventData> events = takeEvents(prefetched, maxBatchSize);
+                        // more events arrive while the pump lingers
+                        prefetched.set(20);
+                        return events;
+                    }
+
+                    @Override
+                    public String getPartitionId() {
+                        return "0";
+                    }
+                },
+                new PartitionReceiveHandler() {
+                    @Override
+                    public int getMaxEventCount() {
+                        return 10;
+                    }
+
+                    @Override
+                    public Duration getMaxLingerTime() {
+                        return Duration.ofMillis(200);
+                    }
+
+                    @Override
+                    public void onReceive(Iterable<EventData> events) {
+                        int count = 0;
+                        for (EventData ignored : events) {
+                            count++;
+                        }
+
+                        batchSizes.add(count);
+                        throw new PumpClosedException();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        assertion = error instanceof PumpClosedException;
+                        pumpRun.complete(null);
+                    }
+                },
+                false,
+                TestContext.EXECUTOR_SERVICE);
+
+        try {
+            receivePump.receiveAndProcess();
+            pumpRun.get();
+        } finally {
+            receivePump.stop().get();
+        }
+
+        Assert.assertTrue(assertion);
+        Assert.assertEquals(Collections.singletonList(10), batchSizes);
+    }
+
+    @Test()
+    public void testPumpHandsOverLingeringBatchWhenStopped() throws Exception {
+        final AtomicInteger prefetched = new AtomicInteger(3);
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final ReceivePump receivePump = new ReceivePump(
+                "eventhub1", "consumerGroup1",
+                new ReceivePump.IPartitionReceiver() {
+                    @Override
+                    public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public Iterable<EventData> receivePrefetched(int maxBatchSize) {
+                        return takeEvents(prefetched, maxBatchSize);
+                    }
+
+                    @Override
+                    public String getPartitionId() {
+                        return "0";
+                    }
+                },
+                new PartitionReceiveHandler() {
+                    @Override
+                    public int getMaxEventCount() {
+                        return 10;
+                    }
+
+                    @Override
+                    public Duration getMaxLingerTime() {
+                        return Duration.ofMinutes(5);
+                    }
+
+                    @Override
+                    public void onReceive(Iterable<EventData> events) {
+                        int count = 0;
+                        for (EventData ignored : events) {
+                            count++;
+                        }
+
+                        batchSizes.add(count);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Assert.fail(error.toString());
+                    }
+                },
+                false,
+                TestContext.EXECUTOR_SERVICE);
+
+        // collects the 3 prefetched events & lingers for the batch to fill up
+        receivePump.receiveAndProcess();
+        Assert.assertTrue(batchSizes.isEmpty());
+        Assert.assertTrue(receivePump.isRunning());
+
+        // stopping doesn't wait out the linger - nor drop the events collected so far
+        receivePump.stop().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(Collections.singletonList(3), batchSizes);
+        Assert.assertFalse(receivePump.isRunning());
+    }
+
+    @Test()
+    public void testPumpWaitsForHandlerToBeReady() throws Exception {
+        final AtomicInteger prefetched = new AtomicInteger(40);
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        final ReceivePump receivePump = new ReceivePump(
+                "eventhub1", "consumerGroup1",
+                new ReceivePump.IPartitionReceiver() {
+                    @Override
+                    public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public Iterable<EventData> receivePrefetched(int maxBatchSize) {
+                        return takeEvents(prefetched, maxBatchSize);
+                    }
+
+                    @Override
+                    public String getPartitionId() {
+                        return "0";
+                    }
+                },
+                new PartitionReceiveHandler() {
+                    @Override
+                    public int getMaxEventCount() {
+                        return 10;
+                    }
+
+                    @Override
+                    public CompletableFuture<Void> whenReadyToReceive() {
+                        // ready for one batch, then for two more once the test says so
+                        if (batchSizes.isEmpty() || ready.isDone() && batchSizes.size() < 3) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+
+                        return batchSizes.size() < 3 ? ready : new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public void onReceive(Iterable<EventData> events) {
+                        int count = 0;
+                        for (EventData ignored : events) {
+                            count++;
+                        }
+
+                        batchSizes.add(count);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Assert.fail(error.toString());
+                    }
+                },
+                false,
+                TestContext.EXECUTOR_SERVICE);
+
+        // hands over one batch, then returns - leaving the rest in prefetch
+        receivePump.receiveAndProcess();
+        Assert.assertEquals(Collections.singletonList(10), batchSizes);
+        Assert.assertEquals(30, prefetched.get());
+        Assert.assertTrue(receivePump.isRunning());
+
+        ready.complete(null);
+        for (int i = 0; i < 100 && batchSizes.size() < 3; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(Arrays.asList(10, 10, 10), batchSizes);
+        Assert.assertEquals(10, prefetched.get());
+
+        receivePump.stop().get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(receivePump.isRunning());
+    }
+
+    @Test()
+    public void testPumpStopsWhileWaitingForHandler() throws Exception {
+        final ReceivePump receivePump = new ReceivePump(
+                "eventhub1", "consumerGroup1",
+                new ReceivePump.IPartitionReceiver() {
+                    @Override
+                    public CompletableFuture<Iterable<EventData>> receive(int maxBatchSize) {
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public String getPartitionId() {
+                        return "0";
+                    }
+                },
+                new PartitionReceiveHandler() {
+                    @Override
+                    public int getMaxEventCount() {
+                        return 10;
+                    }
+
+                    @Override
+                    public CompletableFuture<Void> whenReadyToReceive() {
+                        return new CompletableFuture<>();
+                    }
+
+                    @Override
+                    public void onReceive(Iterable<EventData> events) {
+                        Assert.fail("no events were received");
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Assert.fail(error.toString());
+                    }
+                },
+                false,
+                TestContext.EXECUTOR_SERVICE);
+
+        receivePump.receiveAndProcess();
+        Assert.assertTrue(receivePump.isRunning());
+
+        // stopping doesn't wait for the handler to be ready
+        receivePump.stop().get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(receivePump.isRunning());
+    }
+
+    private static Iterable<EventData> takeEvents(final AtomicInteger available, final int maxBatchSize) {
+        final int count = Math.min(available.get(), maxBatchSize);
+        if (count == 0) {
+            return null;
+        }
+
+        available.addAndGet(-count);
+        final LinkedList<EventData> events = new LinkedList<>();
+        for (int index = 0; index < count; index++) {
+            events.add(EventData.create("some".getBytes()));
+        }
+
+        return events;
+    }
+
     public class PumpClosedException extends RuntimeException {
         private static final long serialVersionUID = -5050327636359966016L;
     }
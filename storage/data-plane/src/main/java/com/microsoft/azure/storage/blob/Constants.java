@@ -64,6 +64,19 @@ final class Constants {
      */
     // We chose this to match Go, which followed AWS' default.
     static final int TRANSFER_MANAGER_DEFAULT_PARALLELISM = 5;
+    /**
+     * The default amount of parallelism for TransferManager directory operations.
+     */
+    // Directory transfers are dominated by small files, whose requests spend most of their time waiting on latency.
+    static final int TRANSFER_MANAGER_DEFAULT_DIRECTORY_PARALLELISM = 32;
+    /**
+     * The default limit on the bytes held by the requests of a TransferManager directory operation at any one time.
+     */
+    static final long TRANSFER_MANAGER_DEFAULT_MAX_IN_FLIGHT_BYTES = 256L * MB;
+    /**
+     * The default number of shards listed at once by a sharded blob listing.
+     */
+    static final int LIST_BLOBS_DEFAULT_SHARD_PARALLELISM = 16;
 
     /**
      * Private Default Ctor
@@ -17,12 +17,18 @@ package com.microsoft.azure.storage.blob;
 import com.microsoft.azure.storage.blob.models.*;
 import com.microsoft.rest.v2.Context;
 import com.microsoft.rest.v2.http.HttpPipeline;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Function;
+import io.reactivex.subjects.SingleSubject;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static com.microsoft.azure.storage.blob.Utility.addErrorWrappingToSingle;
 import static com.microsoft.azure.storage.blob.Utility.safeURLEncode;
@@ -923,6 +929,161 @@ public final class ContainerURL extends StorageURL {
                         options.details().toList(), null, null));
     }
 
+    /**
+     * Lists all the blobs in the container, one after the other, requesting as many segments as needed. Blob names are
+     * returned in lexicographic order. For more information, see the
+     * <a href="https://docs.microsoft.com/rest/api/storageservices/list-blobs">Azure Docs</a>.
+     *
+     * Segments are requested as the blobs are consumed, so backpressure is respected; but the next segment is always
+     * requested as soon as the previous one arrives, so the listing does not stall while the blobs of a segment are
+     * processed. At most one segment is requested ahead of the one being consumed. The number of blobs per segment is
+     * set by {@link ListBlobsOptions#maxResults()}.
+     *
+     * @param options
+     *         {@link ListBlobsOptions}
+     * @param context
+     *         {@code Context} offers a means of passing arbitrary data (key/value pairs) to an
+     *         {@link com.microsoft.rest.v2.http.HttpPipeline}'s policy objects. Most applications do not need to pass
+     *         arbitrary data to the pipeline and can pass {@code Context.NONE} or {@code null}. Each context object is
+     *         immutable. The {@code withContext} with data method creates a new {@code Context} object that refers to its
+     *         parent, forming a linked list.
+     *
+     * @return Emits the blobs.
+     */
+    public Flowable<BlobItem> listBlobsFlat(ListBlobsOptions options, Context context) {
+        return listSegments(marker -> this.listBlobsFlatSegment(marker, options, context),
+                response -> response.body().nextMarker(), Single.defer(() -> this.listBlobsFlatSegment(null, options,
+                        context)))
+                .concatMapIterable(response -> response.body().segment() == null
+                        || response.body().segment().blobItems() == null
+                        ? Collections.<BlobItem>emptyList() : response.body().segment().blobItems(), 1);
+    }
+
+    /**
+     * Lists all the blobs and blob prefixes in the container, one segment after the other, requesting as many segments
+     * as needed. Blob names are returned in lexicographic order. For more information, see the
+     * <a href="https://docs.microsoft.com/rest/api/storageservices/list-blobs">Azure Docs</a>.
+     *
+     * Segments are emitted whole, as a segment holds the blobs and the blob prefixes in separate lists. They are
+     * requested as they are consumed, so backpressure is respected; but the next segment is always requested as soon as
+     * the previous one arrives, so the listing does not stall while a segment is processed. At most one segment is
+     * requested ahead of the one being consumed.
+     *
+     * @param delimiter
+     *         The operation returns a BlobPrefix element in the response body that acts as a placeholder for all blobs
+     *         whose names begin with the same substring up to the appearance of the delimiter character. The delimiter may
+     *         be a single character or a string.
+     * @param options
+     *         {@link ListBlobsOptions}
+     * @param context
+     *         {@code Context} offers a means of passing arbitrary data (key/value pairs) to an
+     *         {@link com.microsoft.rest.v2.http.HttpPipeline}'s policy objects. Most applications do not need to pass
+     *         arbitrary data to the pipeline and can pass {@code Context.NONE} or {@code null}. Each context object is
+     *         immutable. The {@code withContext} with data method creates a new {@code Context} object that refers to its
+     *         parent, forming a linked list.
+     *
+     * @return Emits the segments.
+     */
+    public Flowable<BlobHierarchyListSegment> listBlobsHierarchy(String delimiter, ListBlobsOptions options,
+            Context context) {
+        return listSegments(marker -> this.listBlobsHierarchySegment(marker, delimiter, options, context),
+                response -> response.body().nextMarker(), Single.defer(() -> this.listBlobsHierarchySegment(null,
+                        delimiter, options, context)))
+                .concatMapIterable(response -> response.body().segment() == null
+                        ? Collections.<BlobHierarchyListSegment>emptyList()
+                        : Collections.singletonList(response.body().segment()), 1);
+    }
+
+    /**
+     * Lists all the blobs in the container by splitting the listing into shards - ranges of blob names sharing a
+     * prefix - and listing the shards concurrently. A single listing is sequential, as every segment is requested with
+     * the marker returned by the previous one; shards each have their own chain of markers.
+     *
+     * The shards are either given, or discovered with a delimiter: each blob prefix one level under the prefix of the
+     * options is a shard, and the blobs at that level are one more. Blobs are emitted as the shards return them, so
+     * they are not in lexicographic order across shards. If a checkpoint file is given, the shards and the progress of
+     * each are recorded in it, and listing again with the same file resumes where the listing stopped - skipping the
+     * discovery. A resumed listing emits every blob at least once: the blobs of the segments that were in progress
+     * are emitted again. A checkpoint file recorded with another prefix or other sharding options fails the listing
+     * with an {@link IllegalArgumentException}.
+     *
+     * @param options
+     *         {@link ListBlobsOptions} - applied to every shard, whose prefix is appended to the prefix of these
+     *         options. Snapshots cannot be included when the shards are discovered.
+     * @param shardingOptions
+     *         {@link ListBlobsShardingOptions}
+     * @param context
+     *         {@code Context} offers a means of passing arbitrary data (key/value pairs) to an
+     *         {@link com.microsoft.rest.v2.http.HttpPipeline}'s policy objects. Most applications do not need to pass
+     *         arbitrary data to the pipeline and can pass {@code Context.NONE} or {@code null}. Each context object is
+     *         immutable. The {@code withContext} with data method creates a new {@code Context} object that refers to its
+     *         parent, forming a linked list.
+     *
+     * @return Emits the blobs.
+     */
+    public Flowable<BlobItem> listBlobsFlatSharded(ListBlobsOptions options, ListBlobsShardingOptions shardingOptions,
+            Context context) {
+        return ShardedBlobListing.list(this, options == null ? ListBlobsOptions.DEFAULT : options,
+                shardingOptions == null ? ListBlobsShardingOptions.DEFAULT : shardingOptions, context);
+    }
+
+    /*
+    Emits the segment and all the ones after it. Each segment requests the next one as soon as it arrives, whether or
+    not the downstream asked for it yet - but not before the segment two before it was emitted, so the listing runs at
+    most one segment, and one request, ahead of the downstream. Every segment is generated as a request chained
+    on the one before, so a listing of any number of segments runs in constant stack. If the downstream cancels, the
+    requests still in flight are disposed.
+     */
+    static <T> Flowable<T> listSegments(Function<String, Single<T>> listSegment,
+            Function<T, String> nextMarker, Single<T> segment) {
+        return Flowable.<SingleSubject<Optional<T>>, SegmentRequests<T>>generate(SegmentRequests::new,
+                (requests, emitter) -> {
+                    // An empty Optional past the last segment ends the listing.
+                    Single<Optional<T>> request = requests.last == null ? segment.map(Optional::of)
+                            : requests.last.flatMap(previous -> {
+                                String marker = previous.isPresent() ? nextMarker.apply(previous.get()) : null;
+                                return Utility.isNullOrEmpty(marker) ? Single.just(Optional.<T>empty())
+                                        : listSegment.apply(marker).map(Optional::of);
+                            });
+
+                    SingleSubject<Optional<T>> next = SingleSubject.create();
+                    // The subject holds an error until the downstream reaches the segment.
+                    requests.add(next, request.subscribe(next::onSuccess, next::onError));
+                    emitter.onNext(next);
+                    return requests;
+                }, SegmentRequests::dispose)
+                .concatMapSingle(next -> next, 1)
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    /*
+    The requests of listSegments. The segment being emitted and the one after it are the only ones which may still be
+    in flight: a segment is generated only once the one two before it was emitted.
+     */
+    private static final class SegmentRequests<T> {
+        private SingleSubject<Optional<T>> last;
+
+        private Disposable previous;
+
+        private Disposable current;
+
+        private void add(SingleSubject<Optional<T>> request, Disposable subscription) {
+            this.last = request;
+            this.previous = this.current;
+            this.current = subscription;
+        }
+
+        private void dispose() {
+            if (this.previous != null) {
+                this.previous.dispose();
+            }
+            if (this.current != null) {
+                this.current.dispose();
+            }
+        }
+    }
+
     /**
      * Returns the sku name and account kind for the account. For more information, please see the
      * <a href="https://docs.microsoft.com/en-us/rest/api/storageservices/get-account-information">Azure Docs</a>.
@@ -0,0 +1,172 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This type is to support the implementation of the TransferManager delta upload only. It splits a stream of data into
+ * chunks at content-defined boundaries, and names every chunk by the hash of its content.
+ *
+ * A boundary is placed where a gear hash - a rolling hash over roughly the last 64 bytes - has its top bits all zero, so
+ * an edit only moves the boundaries next to it: the chunks before and after it, and therefore their names, stay the
+ * same. Chunks are kept between a minimum and maximum length to bound the number of blocks.
+ */
+final class ContentDefinedChunker {
+
+    /*
+    Tags the block ids made by this type. 4 bytes of tag and 32 bytes of SHA-256 are 36 bytes - the same length as the
+    UUID strings the other uploads use for block ids - as all the block ids of a blob must have the same length.
+     */
+    private static final byte[] BLOCK_ID_TAG = "cdc1".getBytes(StandardCharsets.US_ASCII);
+
+    /*
+    The boundaries, and so the reuse across uploads, depend on this table: it must never change. It is generated by
+    SplitMix64 from a fixed seed rather than spelled out.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long state = 0x6a09e667f3bcc908L;
+        for (int i = 0; i < GEAR.length; i++) {
+            state += 0x9e3779b97f4a7c15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    private final long boundaryMask;
+
+    private final MessageDigest digest;
+
+    private long chunkOffset;
+
+    private int chunkLength;
+
+    private long hash;
+
+    /**
+     * Creates a chunker whose chunks average roughly the given size, between a quarter of it and four times it - capped
+     * to {@link BlockBlobURL#MAX_STAGE_BLOCK_BYTES}.
+     */
+    ContentDefinedChunker(final int averageChunkSize) {
+        this.minChunkSize = Math.max(1, averageChunkSize / 4);
+        this.maxChunkSize = (int) Math.min(4L * averageChunkSize, BlockBlobURL.MAX_STAGE_BLOCK_BYTES);
+
+        // Past the minimum, a boundary comes every 2^bits bytes on average.
+        int bits = 63 - Long.numberOfLeadingZeros(Math.max(1, averageChunkSize - this.minChunkSize));
+        this.boundaryMask = bits == 0 ? 0 : -1L << (64 - bits);
+
+        this.digest = newDigest();
+    }
+
+    /**
+     * Returns a digest of the kind whose hash names a chunk in {@link #blockId(byte[])}.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the block id naming a chunk whose content has the given hash.
+     */
+    static String blockId(final byte[] hash) {
+        byte[] blockId = new byte[BLOCK_ID_TAG.length + hash.length];
+        System.arraycopy(BLOCK_ID_TAG, 0, blockId, 0, BLOCK_ID_TAG.length);
+        System.arraycopy(hash, 0, blockId, BLOCK_ID_TAG.length, hash.length);
+        return Base64.getEncoder().encodeToString(blockId);
+    }
+
+    /**
+     * Consumes the next buffer of data - without changing its position - and returns the chunks it completed.
+     */
+    List<Chunk> update(final ByteBuffer data) {
+        List<Chunk> chunks = Collections.emptyList();
+        ByteBuffer buffer = data.duplicate();
+        int sliceStart = buffer.position();
+
+        while (buffer.hasRemaining()) {
+            this.hash = (this.hash << 1) + GEAR[buffer.get() & 0xff];
+            this.chunkLength++;
+
+            if (this.chunkLength >= this.maxChunkSize
+                    || (this.chunkLength >= this.minChunkSize && (this.hash & this.boundaryMask) == 0)) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(sliceStart).limit(buffer.position());
+                this.digest.update(slice);
+                sliceStart = buffer.position();
+
+                if (chunks.isEmpty()) {
+                    chunks = new ArrayList<>();
+                }
+                chunks.add(this.cut());
+            }
+        }
+
+        buffer.position(sliceStart);
+        this.digest.update(buffer);
+        return chunks;
+    }
+
+    /**
+     * Returns the last, partial chunk - if any - once all the data was consumed.
+     */
+    List<Chunk> finish() {
+        return this.chunkLength == 0 ? Collections.emptyList() : Collections.singletonList(this.cut());
+    }
+
+    private Chunk cut() {
+        Chunk chunk = new Chunk(this.chunkOffset, this.chunkLength, blockId(this.digest.digest()));
+        this.chunkOffset += this.chunkLength;
+        this.chunkLength = 0;
+        this.hash = 0;
+        return chunk;
+    }
+
+    /**
+     * A range of the data, and the block id naming its content.
+     */
+    static final class Chunk {
+        final long offset;
+
+        final int length;
+
+        final String blockId;
+
+        private Chunk(final long offset, final int length, final String blockId) {
+            this.offset = offset;
+            this.length = length;
+            this.blockId = blockId;
+        }
+    }
+}
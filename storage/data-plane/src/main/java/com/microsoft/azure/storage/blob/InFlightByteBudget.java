@@ -0,0 +1,114 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This type is to support the implementation of the TransferManager directory operations only. It bounds the number of
+ * bytes held by the requests of one operation at any one time - on top of the bound on the number of requests, which
+ * the operation gets from the maxConcurrency of its flatMap.
+ *
+ * Waiting is asynchronous: a request which does not fit is parked until enough bytes are released, without holding a
+ * thread. Requests are admitted in the order they asked, so a large block is not starved by a stream of small files. A
+ * request larger than the whole budget is clamped to it, which means it runs once nothing else is in flight.
+ */
+final class InFlightByteBudget {
+
+    private final long limit;
+
+    private final ArrayDeque<Waiter> waiters;
+
+    private long inFlight;
+
+    InFlightByteBudget(final long limit) {
+        this.limit = limit;
+        this.waiters = new ArrayDeque<>();
+    }
+
+    /**
+     * Runs the work once the bytes are available, and hands them back when the work terminates or is disposed.
+     */
+    Completable withBytes(final long bytes, final Completable work) {
+        final long clamped = Math.max(0, Math.min(bytes, this.limit));
+        return this.acquire(clamped).andThen(work.doFinally(() -> this.release(clamped)));
+    }
+
+    private Completable acquire(final long bytes) {
+        return Completable.create(emitter -> {
+            final Waiter waiter = new Waiter(bytes, emitter);
+            final boolean granted;
+            synchronized (this) {
+                granted = this.waiters.isEmpty() && this.inFlight + bytes <= this.limit;
+                if (granted) {
+                    this.inFlight += bytes;
+                } else {
+                    this.waiters.addLast(waiter);
+                }
+            }
+
+            if (granted) {
+                emitter.onComplete();
+            } else {
+                emitter.setCancellable(() -> {
+                    synchronized (this) {
+                        this.waiters.remove(waiter);
+                    }
+                });
+            }
+        });
+    }
+
+    private void release(final long bytes) {
+        final List<Waiter> admitted = new ArrayList<>();
+        synchronized (this) {
+            this.inFlight -= bytes;
+            while (!this.waiters.isEmpty()) {
+                final Waiter head = this.waiters.peekFirst();
+                if (head.emitter.isDisposed()) {
+                    this.waiters.pollFirst();
+                } else if (this.inFlight + head.bytes <= this.limit) {
+                    this.waiters.pollFirst();
+                    this.inFlight += head.bytes;
+                    admitted.add(head);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        // Complete outside the lock, as completing subscribes to the work of the waiter.
+        for (Waiter waiter : admitted) {
+            waiter.emitter.onComplete();
+        }
+    }
+
+    private static final class Waiter {
+        private final long bytes;
+
+        private final CompletableEmitter emitter;
+
+        private Waiter(final long bytes, final CompletableEmitter emitter) {
+            this.bytes = bytes;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This type is to support the implementation of the sharded blob listing only. It records, one line per event, the
+ * shards of a listing and the marker each shard has been listed up to, so a later run of the same listing can resume
+ * every shard where it stopped.
+ *
+ * The file starts with the prefix and sharding options of the listing, and is rejected by a listing with others: the
+ * shards and markers recorded would not be the ones of that listing. The last marker recorded for a shard wins; a
+ * shard recorded as done is skipped. A line torn by a crash is ignored, which only means the shard resumes from its
+ * previous marker, listing some blobs again.
+ */
+final class ListBlobsCheckpoint {
+
+    private static final String LISTING = "listing";
+
+    private static final String SHARDS = "shards";
+
+    private static final String MARKER = "marker";
+
+    private static final String DONE = "done";
+
+    // Ends every line, so a line torn by a crash - a marker cut short, say - is never taken as complete.
+    private static final String END = "$";
+
+    private List<ShardedBlobListing.Shard> shards;
+
+    private final Map<Integer, String> markers;
+
+    private final BufferedWriter writer;
+
+    private boolean closed;
+
+    private ListBlobsCheckpoint(final List<ShardedBlobListing.Shard> shards, final Map<Integer, String> markers,
+            final BufferedWriter writer) {
+        this.shards = shards;
+        this.markers = markers;
+        this.writer = writer;
+    }
+
+    /**
+     * Loads the state already in the checkpoint file and opens it for appending. A null file means no checkpoint.
+     *
+     * @throws IllegalArgumentException
+     *         If the file records a listing with another prefix or other sharding options.
+     */
+    static ListBlobsCheckpoint open(final Path checkpointFile, final String prefix,
+            final ListBlobsShardingOptions shardingOptions) throws IOException {
+        if (checkpointFile == null) {
+            return new ListBlobsCheckpoint(null, new HashMap<>(), null);
+        }
+
+        String listing = listing(prefix, shardingOptions);
+        String recordedListing = null;
+        List<ShardedBlobListing.Shard> shards = new ArrayList<>();
+        Map<Integer, String> markers = new HashMap<>();
+        if (Files.exists(checkpointFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    if (!END.equals(fields[fields.length - 1])) {
+                        continue;
+                    }
+
+                    if (LISTING.equals(fields[0])) {
+                        recordedListing = line.substring(0, line.length() - END.length() - 1);
+                    } else if (fields.length % 2 == 0 && SHARDS.equals(fields[0])) {
+                        shards.clear();
+                        for (int i = 1; i < fields.length - 1; i += 2) {
+                            shards.add(new ShardedBlobListing.Shard(Utility.safeURLDecode(fields[i]),
+                                    fields[i + 1].isEmpty() ? null : Utility.safeURLDecode(fields[i + 1])));
+                        }
+                    } else if (fields.length == 4 && MARKER.equals(fields[0])) {
+                        markers.put(Integer.valueOf(fields[1]), Utility.safeURLDecode(fields[2]));
+                    } else if (fields.length == 3 && DONE.equals(fields[0])) {
+                        markers.put(Integer.valueOf(fields[1]), null);
+                    }
+                }
+            }
+        }
+
+        // A file with no listing recorded - new, or torn on its first line - must not hold anything else either.
+        if (recordedListing != null && !recordedListing.equals(listing)
+                || recordedListing == null && (!shards.isEmpty() || !markers.isEmpty())) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, SR.LIST_BLOBS_CHECKPOINT_MISMATCH,
+                    checkpointFile));
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (endsWithTornLine(checkpointFile)) {
+            // Do not append to the torn line, which would tear the next line too.
+            writer.newLine();
+        }
+        ListBlobsCheckpoint checkpoint = new ListBlobsCheckpoint(shards.isEmpty() ? null : shards, markers, writer);
+        if (recordedListing == null) {
+            checkpoint.write(listing);
+        }
+        return checkpoint;
+    }
+
+    /*
+    The inputs which decide the shards and the blobs of each: the prefix, the delimiter and the shard prefixes.
+     */
+    private static String listing(final String prefix, final ListBlobsShardingOptions shardingOptions) {
+        StringBuilder line = new StringBuilder(LISTING).append('\t').append(Utility.safeURLEncode(prefix))
+                .append('\t').append(Utility.safeURLEncode(shardingOptions.delimiter()));
+        if (shardingOptions.shardPrefixes() != null) {
+            for (String shardPrefix : shardingOptions.shardPrefixes()) {
+                line.append('\t').append(Utility.safeURLEncode(shardPrefix));
+            }
+        }
+        return line.toString();
+    }
+
+    private static boolean endsWithTornLine(final Path checkpointFile) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(checkpointFile, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) != '\n';
+        }
+    }
+
+    /**
+     * The shards recorded by a previous run; null if none were.
+     */
+    List<ShardedBlobListing.Shard> shards() {
+        return this.shards;
+    }
+
+    /**
+     * Whether the shard at this index was listed in full.
+     */
+    boolean isDone(final int shard) {
+        return this.markers.containsKey(shard) && this.markers.get(shard) == null;
+    }
+
+    /**
+     * The marker to resume the shard at this index from; null to list it from the start.
+     */
+    String marker(final int shard) {
+        return this.markers.get(shard);
+    }
+
+    /**
+     * Records the shards of the listing - on one line, so they are recorded either all or none.
+     */
+    synchronized void recordShards(final List<ShardedBlobListing.Shard> shards) {
+        this.shards = shards;
+        StringBuilder line = new StringBuilder(SHARDS);
+        for (ShardedBlobListing.Shard shard : shards) {
+            line.append('\t').append(Utility.safeURLEncode(shard.prefix)).append('\t')
+                    .append(shard.delimiter == null ? "" : Utility.safeURLEncode(shard.delimiter));
+        }
+        this.write(line.toString());
+    }
+
+    /**
+     * Records that the shard at this index was listed up to the marker; a null marker records it as listed in full.
+     */
+    synchronized void recordMarker(final int shard, final String marker) {
+        this.write(marker == null ? DONE + '\t' + shard : MARKER + '\t' + shard + '\t' + Utility.safeURLEncode(marker));
+    }
+
+    synchronized void close() throws IOException {
+        this.closed = true;
+        if (this.writer != null) {
+            this.writer.close();
+        }
+    }
+
+    /*
+    A listing cancelled by its downstream is closed before the blob which was being handed downstream is recorded: that
+    record is dropped, and the segment listed again on resume.
+     */
+    private void write(final String line) {
+        if (this.writer == null || this.closed) {
+            return;
+        }
+
+        try {
+            this.writer.write(line);
+            this.writer.write('\t' + END);
+            this.writer.newLine();
+            this.writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
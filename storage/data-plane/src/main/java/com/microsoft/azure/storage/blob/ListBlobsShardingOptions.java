@@ -0,0 +1,117 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configures how {@link ContainerURL#listBlobsFlatSharded(ListBlobsOptions, ListBlobsShardingOptions,
+ * com.microsoft.rest.v2.Context)} splits a listing into shards.
+ */
+public final class ListBlobsShardingOptions {
+
+    /**
+     * The default sharding options: shards are discovered with the '/' delimiter.
+     */
+    public static final ListBlobsShardingOptions DEFAULT = new ListBlobsShardingOptions(null, null, null, null);
+
+    private final List<String> shardPrefixes;
+
+    private final String delimiter;
+
+    private final int parallelism;
+
+    private final Path checkpointFile;
+
+    /**
+     * Creates a new object that configures the sharding of a listing. Null may be passed to accept the default
+     * behavior.
+     *
+     * @param shardPrefixes
+     *         The prefixes of the shards, appended to the prefix of the {@link ListBlobsOptions}. Every blob to list
+     *         must match exactly one of them - for example "a" to "z" and "0" to "9" for names starting with a letter
+     *         or a digit. May be null to discover the shards with the delimiter.
+     * @param delimiter
+     *         The delimiter with which the shards are discovered when no shard prefixes are given: every blob prefix
+     *         one level under the prefix of the {@link ListBlobsOptions} is a shard, and the blobs at that level are
+     *         one more shard. Defaults to "/".
+     * @param parallelism
+     *         A {@code int} that indicates the maximum number of shards to list at once. Must be greater than 0.
+     * @param checkpointFile
+     *         A file in which the shards and the progress of the listing of each are recorded. Listing again with the
+     *         same checkpoint file resumes every shard where it stopped, and skips the shards that were listed in
+     *         full - if the prefix and sharding options are the same; a checkpoint file of another listing is rejected.
+     *         May be null to not keep a checkpoint.
+     */
+    public ListBlobsShardingOptions(List<String> shardPrefixes, String delimiter, Integer parallelism,
+            Path checkpointFile) {
+        if (shardPrefixes != null && shardPrefixes.isEmpty()) {
+            throw new IllegalArgumentException("shardPrefixes must not be empty. Pass null to discover the shards.");
+        }
+        this.shardPrefixes = shardPrefixes == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(shardPrefixes));
+
+        if (delimiter != null) {
+            if (delimiter.isEmpty()) {
+                throw new IllegalArgumentException("delimiter must not be empty.");
+            }
+            this.delimiter = delimiter;
+        } else {
+            this.delimiter = "/";
+        }
+
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+            this.parallelism = parallelism;
+        } else {
+            this.parallelism = Constants.LIST_BLOBS_DEFAULT_SHARD_PARALLELISM;
+        }
+
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * The prefixes of the shards, appended to the prefix of the {@link ListBlobsOptions}; null if the shards are
+     * discovered.
+     */
+    public List<String> shardPrefixes() {
+        return shardPrefixes;
+    }
+
+    /**
+     * The delimiter with which the shards are discovered when no shard prefixes are given.
+     */
+    public String delimiter() {
+        return delimiter;
+    }
+
+    /**
+     * A {@code int} that indicates the maximum number of shards to list at once.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * The file in which the progress of the listing is recorded; null if no checkpoint is kept.
+     */
+    public Path checkpointFile() {
+        return checkpointFile;
+    }
+}
@@ -43,6 +43,7 @@ final class SR {
     public static final String ETAG_INVALID_FOR_MERGE = "Merge requires a valid ETag (which may be the '*' wildcard).";
     public static final String ETAG_INVALID_FOR_UPDATE = "Replace requires a valid ETag (which may be the '*' wildcard).";
     public static final String ENUM_COULD_NOT_BE_PARSED_INVALID_VALUE = "%s could not be parsed from '%s' due to invalid value %s.";
+    public static final String FILE_CHANGED_DURING_UPLOAD = "The file changed while it was being uploaded. The upload was not committed.";
     public static final String INCORRECT_STREAM_LENGTH = "An incorrect stream length was specified, resulting in an authentication failure. Please specify correct length, or -1.";
     public static final String INPUT_STREAM_SHOULD_BE_MARKABLE = "Input stream must be markable.";
     public static final String INVALID_ACCOUNT_NAME = "Invalid account name.";
@@ -82,6 +83,7 @@ final class SR {
     public static final String ITERATOR_EMPTY = "There are no more elements in this enumeration.";
     public static final String KEY_AND_RESOLVER_MISSING = "Key and Resolver are not initialized. Decryption requires either of them to be initialized.";
     public static final String LEASE_CONDITION_ON_SOURCE = "A lease condition cannot be specified on the source of a copy.";
+    public static final String LIST_BLOBS_CHECKPOINT_MISMATCH = "The checkpoint file %s records a listing with another prefix or other sharding options.";
     public static final String LOG_STREAM_END_ERROR = "Error parsing log record: unexpected end of stream.";
     public static final String LOG_STREAM_DELIMITER_ERROR = "Error parsing log record: unexpected delimiter encountered.";
     public static final String LOG_STREAM_QUOTE_ERROR = "Error parsing log record: unexpected quote character encountered.";
@@ -0,0 +1,185 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.blob.models.BlobItem;
+import com.microsoft.azure.storage.blob.models.BlobPrefix;
+import com.microsoft.rest.v2.Context;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This type is to support the implementation of {@link ContainerURL#listBlobsFlatSharded(ListBlobsOptions,
+ * ListBlobsShardingOptions, Context)} only. Each shard is listed with its own chain of markers, so the shards are
+ * listed concurrently, and their blobs merged as they come.
+ *
+ * A checkpoint is recorded once the last blob of a segment has been handed downstream - or, for a segment with no
+ * blobs, once it is reached - so a resumed listing emits every blob at least once: the blobs of the segment in
+ * progress are emitted again.
+ */
+final class ShardedBlobListing {
+
+    private ShardedBlobListing() {
+        // Private to prevent construction.
+    }
+
+    static Flowable<BlobItem> list(final ContainerURL containerURL, final ListBlobsOptions options,
+            final ListBlobsShardingOptions shardingOptions, final Context context) {
+        String basePrefix = options.prefix() == null ? Constants.EMPTY_STRING : options.prefix();
+
+        return Flowable.using(
+                () -> ListBlobsCheckpoint.open(shardingOptions.checkpointFile(), basePrefix, shardingOptions),
+                checkpoint -> shards(containerURL, options, shardingOptions, basePrefix, checkpoint, context)
+                        .flatMapPublisher(shards -> Flowable.range(0, shards.size())
+                                .filter(shard -> !checkpoint.isDone(shard))
+                                .flatMap(shard -> listShard(containerURL, options, shards.get(shard), shard,
+                                        checkpoint.marker(shard), context), shardingOptions.parallelism()))
+                        .doAfterNext(item -> {
+                            if (item.endsSegment) {
+                                checkpoint.recordMarker(item.shard, item.nextMarker);
+                            }
+                        })
+                        .filter(item -> item.blob != null)
+                        .map(item -> item.blob),
+                ListBlobsCheckpoint::close);
+    }
+
+    /*
+    The shards recorded by a previous run of the same listing, else the given prefixes, else the prefixes found one
+    delimiter under the base prefix - plus the blobs at that level, as a shard listed with the delimiter.
+     */
+    private static Single<List<Shard>> shards(final ContainerURL containerURL, final ListBlobsOptions options,
+            final ListBlobsShardingOptions shardingOptions, final String basePrefix,
+            final ListBlobsCheckpoint checkpoint, final Context context) {
+        if (checkpoint.shards() != null) {
+            return Single.just(checkpoint.shards());
+        }
+
+        Single<List<Shard>> shards;
+        if (shardingOptions.shardPrefixes() != null) {
+            List<Shard> given = new ArrayList<>();
+            for (String shardPrefix : shardingOptions.shardPrefixes()) {
+                given.add(new Shard(basePrefix + shardPrefix, null));
+            }
+            shards = Single.just(given);
+        } else {
+            String delimiter = shardingOptions.delimiter();
+            shards = containerURL.listBlobsHierarchy(delimiter, copyOptions(options, basePrefix), context)
+                    .concatMapIterable(segment -> segment.blobPrefixes() == null
+                            ? Collections.<BlobPrefix>emptyList() : segment.blobPrefixes())
+                    .map(blobPrefix -> new Shard(blobPrefix.name(), null))
+                    .startWith(new Shard(basePrefix, delimiter))
+                    .toList();
+        }
+
+        return shards.doOnSuccess(checkpoint::recordShards);
+    }
+
+    private static Flowable<ShardItem> listShard(final ContainerURL containerURL, final ListBlobsOptions options,
+            final Shard shard, final int index, final String marker, final Context context) {
+        ListBlobsOptions shardOptions = copyOptions(options, shard.prefix);
+
+        return ContainerURL.listSegments(
+                nextMarker -> listSegment(containerURL, shardOptions, shard, nextMarker, context),
+                page -> page.nextMarker,
+                Single.defer(() -> listSegment(containerURL, shardOptions, shard, marker, context)))
+                .concatMapIterable(page -> page.items(index), 1);
+    }
+
+    private static Single<ShardPage> listSegment(final ContainerURL containerURL, final ListBlobsOptions options,
+            final Shard shard, final String marker, final Context context) {
+        if (shard.delimiter == null) {
+            return containerURL.listBlobsFlatSegment(marker, options, context)
+                    .map(response -> new ShardPage(response.body().segment() == null ? null
+                            : response.body().segment().blobItems(), response.body().nextMarker()));
+        }
+
+        // The prefixes are shards of their own - only the blobs at this level belong to this shard.
+        return containerURL.listBlobsHierarchySegment(marker, shard.delimiter, options, context)
+                .map(response -> new ShardPage(response.body().segment() == null ? null
+                        : response.body().segment().blobItems(), response.body().nextMarker()));
+    }
+
+    private static ListBlobsOptions copyOptions(final ListBlobsOptions options, final String prefix) {
+        return new ListBlobsOptions()
+                .withDetails(options.details())
+                .withMaxResults(options.maxResults())
+                .withPrefix(prefix);
+    }
+
+    /**
+     * A part of the listing: the blobs starting with the prefix - or only those at the level of the prefix, if there is
+     * a delimiter.
+     */
+    static final class Shard {
+        final String prefix;
+
+        final String delimiter;
+
+        Shard(final String prefix, final String delimiter) {
+            this.prefix = prefix;
+            this.delimiter = delimiter;
+        }
+    }
+
+    private static final class ShardPage {
+        private final List<BlobItem> blobs;
+
+        private final String nextMarker;
+
+        private ShardPage(final List<BlobItem> blobs, final String nextMarker) {
+            this.blobs = blobs == null ? Collections.<BlobItem>emptyList() : blobs;
+            this.nextMarker = Utility.isNullOrEmpty(nextMarker) ? null : nextMarker;
+        }
+
+        /*
+        A segment with no blobs - which the service may return before the last marker - is one item without a blob, so
+        its marker is recorded all the same.
+         */
+        private List<ShardItem> items(final int shard) {
+            if (this.blobs.isEmpty()) {
+                return Collections.singletonList(new ShardItem(null, shard, true, this.nextMarker));
+            }
+
+            List<ShardItem> items = new ArrayList<>(this.blobs.size());
+            for (int i = 0; i < this.blobs.size(); i++) {
+                items.add(new ShardItem(this.blobs.get(i), shard, i == this.blobs.size() - 1, this.nextMarker));
+            }
+            return items;
+        }
+    }
+
+    private static final class ShardItem {
+        private final BlobItem blob;
+
+        private final int shard;
+
+        private final boolean endsSegment;
+
+        private final String nextMarker;
+
+        private ShardItem(final BlobItem blob, final int shard, final boolean endsSegment, final String nextMarker) {
+            this.blob = blob;
+            this.shard = shard;
+            this.endsSegment = endsSegment;
+            this.nextMarker = nextMarker;
+        }
+    }
+}
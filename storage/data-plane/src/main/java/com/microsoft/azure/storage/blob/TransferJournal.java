@@ -0,0 +1,105 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This type is to support the implementation of the TransferManager directory operations only. It records, one line
+ * per item, the files and blobs a directory operation completed, so a later run of the same operation can skip them.
+ *
+ * An entry identifies the version of the item it was made for - its size and last modified time, or its etag - so an
+ * item which changed since it was recorded is transferred again. A line torn by a crash is simply never matched.
+ */
+final class TransferJournal {
+
+    private static final TransferJournal NONE = new TransferJournal(new HashSet<>(), null);
+
+    private final Set<String> completed;
+
+    private final BufferedWriter writer;
+
+    private TransferJournal(final Set<String> completed, final BufferedWriter writer) {
+        this.completed = completed;
+        this.writer = writer;
+    }
+
+    /**
+     * Loads the entries already in the journal file and opens it for appending. A null file means no journal.
+     */
+    static TransferJournal open(final Path journalFile) throws IOException {
+        if (journalFile == null) {
+            return NONE;
+        }
+
+        Set<String> completed = new HashSet<>();
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    completed.add(line);
+                }
+            }
+        }
+
+        return new TransferJournal(completed, Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Builds the entry for one version of an item. The name is encoded so it cannot break the line format.
+     */
+    static String entry(final String name, final String version) {
+        return Utility.safeURLEncode(name) + '\t' + version;
+    }
+
+    boolean isCompleted(final String entry) {
+        return this.completed.contains(entry);
+    }
+
+    void recordCompleted(final String entry) {
+        if (this.writer == null) {
+            return;
+        }
+
+        synchronized (this) {
+            try {
+                this.writer.write(entry);
+                this.writer.newLine();
+                this.writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    void close() throws IOException {
+        if (this.writer != null) {
+            synchronized (this) {
+                this.writer.close();
+            }
+        }
+    }
+}
@@ -16,9 +16,19 @@
 package com.microsoft.azure.storage.blob;
 
 import com.microsoft.azure.storage.blob.models.BlobDownloadHeaders;
+import com.microsoft.azure.storage.blob.models.BlobItem;
+import com.microsoft.azure.storage.blob.models.Block;
 import com.microsoft.azure.storage.blob.models.BlockBlobCommitBlockListResponse;
+import com.microsoft.azure.storage.blob.models.BlockBlobGetBlockListHeaders;
+import com.microsoft.azure.storage.blob.models.BlockBlobGetBlockListResponse;
+import com.microsoft.azure.storage.blob.models.BlockList;
+import com.microsoft.azure.storage.blob.models.BlockListType;
+import com.microsoft.azure.storage.blob.models.ClearRange;
+import com.microsoft.azure.storage.blob.models.PageList;
+import com.microsoft.azure.storage.blob.models.PageRange;
 import com.microsoft.azure.storage.blob.models.ModifiedAccessConditions;
 import com.microsoft.rest.v2.util.FlowableUtil;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
@@ -26,7 +36,14 @@ import io.reactivex.Single;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -157,6 +174,155 @@ public final class TransferManager {
                 .map(CommonRestResponse::createFromPutBlockListResponse);
     }
 
+    /**
+     * Uploads the contents of a file to a block blob, staging only the parts of the file which the blob does not
+     * already hold. Meant for re-uploading large files which changed little since their last upload.
+     *
+     * The file is split into chunks at boundaries defined by its content, so an edit only changes the chunks around
+     * it, and every chunk is staged as a block named by the hash of its content. The blob's current block list tells
+     * which of those blocks it already holds - from a previous delta upload of the file - and only the others are
+     * staged; the committed block list then reuses the rest. Unless the access conditions already name an ETag, the
+     * commit is conditioned on the blob not having changed since its block list was read. The file is read twice -
+     * to split it, then to stage its chunks - and the upload fails without committing if it changed in between. The
+     * progress receiver is told about the staged bytes only.
+     *
+     * @param file
+     *         The file to upload.
+     * @param blockBlobURL
+     *         Points to the blob to which the data should be uploaded.
+     * @param averageChunkSize
+     *         The average size of the chunks the file is split into. Chunks range from a quarter of it up to four times
+     *         it - capped to {@link BlockBlobURL#MAX_STAGE_BLOCK_BYTES}. Smaller chunks reuse more of the blob but
+     *         mean more blocks; {@code fileLength/averageChunkSize} must stay well under
+     *         {@link BlockBlobURL#MAX_BLOCKS}. Must be between 4 and {@link BlockBlobURL#MAX_STAGE_BLOCK_BYTES}.
+     * @param options
+     *         {@link TransferManagerUploadToBlockBlobOptions}
+     *
+     * @return Emits the successful response.
+     */
+    public static Single<CommonRestResponse> uploadFileToBlockBlobDelta(
+            final AsynchronousFileChannel file, final BlockBlobURL blockBlobURL, final int averageChunkSize,
+            final TransferManagerUploadToBlockBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        Utility.assertNotNull("blockBlobURL", blockBlobURL);
+        Utility.assertInBounds("averageChunkSize", averageChunkSize, 4, BlockBlobURL.MAX_STAGE_BLOCK_BYTES);
+        TransferManagerUploadToBlockBlobOptions optionsReal = options == null ?
+                TransferManagerUploadToBlockBlobOptions.DEFAULT : options;
+
+        // See ProgressReporter for an explanation on why this lock is necessary and why we use AtomicLong.
+        AtomicLong totalProgress = new AtomicLong(0);
+        Lock progressLock = new ReentrantLock();
+
+        /*
+        Latest, as opposed to committed, so blocks staged by an upload which failed before its commit are reused too:
+        committing by id picks the uncommitted block if there is one.
+         */
+        Single<BlockBlobGetBlockListResponse> existingBlocks = blockBlobURL.getBlockList(BlockListType.ALL,
+                optionsReal.accessConditions().leaseAccessConditions(), null)
+                .onErrorResumeNext(e -> e instanceof StorageException
+                        && ((StorageException) e).statusCode() == 404
+                        ? Single.just(new BlockBlobGetBlockListResponse(null, 404,
+                                new BlockBlobGetBlockListHeaders(), null, new BlockList()))
+                        : Single.error(e));
+
+        Single<List<ContentDefinedChunker.Chunk>> chunks = Flowable.defer(() -> {
+            ContentDefinedChunker chunker = new ContentDefinedChunker(averageChunkSize);
+            return FlowableUtil.readFile(file)
+                    .concatMapIterable(chunker::update)
+                    .concatWith(Flowable.defer(() -> Flowable.fromIterable(chunker.finish())));
+        }).toList();
+
+        return Single.zip(existingBlocks, chunks, (existing, chunkList) -> {
+            if (chunkList.size() > BlockBlobURL.MAX_BLOCKS) {
+                throw new IllegalArgumentException(SR.BLOB_OVER_MAX_BLOCK_LIMIT);
+            }
+
+            // A block is reused only if it has the expected length as well as the expected name.
+            Map<String, Integer> heldBlocks = new HashMap<>();
+            BlockList blockList = existing.body();
+            for (List<Block> blocks : Arrays.asList(blockList.committedBlocks(), blockList.uncommittedBlocks())) {
+                if (blocks != null) {
+                    for (Block block : blocks) {
+                        heldBlocks.put(block.name(), block.size());
+                    }
+                }
+            }
+
+            long fileLength = chunkList.isEmpty() ? 0
+                    : chunkList.get(chunkList.size() - 1).offset + chunkList.get(chunkList.size() - 1).length;
+            List<String> blockIds = new ArrayList<>(chunkList.size());
+            Map<String, ContentDefinedChunker.Chunk> toStage = new LinkedHashMap<>();
+            for (ContentDefinedChunker.Chunk chunk : chunkList) {
+                blockIds.add(chunk.blockId);
+                Integer heldLength = heldBlocks.get(chunk.blockId);
+                if (heldLength == null || heldLength != chunk.length) {
+                    // A chunk repeated within the file is staged once.
+                    toStage.putIfAbsent(chunk.blockId, chunk);
+                }
+            }
+
+            BlobAccessConditions commitConditions = withETagIfNoneGiven(optionsReal.accessConditions(),
+                    existing.headers().eTag());
+
+            return Flowable.fromIterable(toStage.values())
+                    .flatMapCompletable(chunk -> {
+                        Flowable<ByteBuffer> data = verifyChunk(
+                                FlowableUtil.readFile(file, chunk.offset, chunk.length), chunk);
+                        data = ProgressReporter.addParallelProgressReporting(data, optionsReal.progressReceiver(),
+                                progressLock, totalProgress);
+                        return blockBlobURL.stageBlock(chunk.blockId, data, chunk.length,
+                                optionsReal.accessConditions().leaseAccessConditions(), null).ignoreElement();
+                    }, false, optionsReal.parallelism())
+                    .andThen(Single.defer(() -> {
+                        // The staged chunks were checked, but the reused ones are only known to fit if the size does.
+                        if (file.size() != fileLength) {
+                            throw new IllegalStateException(SR.FILE_CHANGED_DURING_UPLOAD);
+                        }
+                        return blockBlobURL.commitBlockList(blockIds, optionsReal.httpHeaders(),
+                                optionsReal.metadata(), commitConditions, null);
+                    }));
+        })
+                .flatMap(commit -> commit)
+                .map(CommonRestResponse::createFromPutBlockListResponse);
+    }
+
+    /*
+    Hashes the data of a chunk as it is read to be staged, and fails before its last buffer is passed on - so the block
+    is never staged - if the data no longer has the hash the chunk was named by: the file changed since it was split.
+     */
+    private static Flowable<ByteBuffer> verifyChunk(Flowable<ByteBuffer> data, ContentDefinedChunker.Chunk chunk) {
+        return Flowable.defer(() -> {
+            MessageDigest digest = ContentDefinedChunker.newDigest();
+            AtomicLong hashed = new AtomicLong(0);
+            return data.map(buffer -> {
+                digest.update(buffer.duplicate());
+                if (hashed.addAndGet(buffer.remaining()) == chunk.length
+                        && !ContentDefinedChunker.blockId(digest.digest()).equals(chunk.blockId)) {
+                    throw new IllegalStateException(SR.FILE_CHANGED_DURING_UPLOAD);
+                }
+                return buffer;
+            });
+        });
+    }
+
+    /*
+    Conditions the request on the blob still having the given ETag, unless the caller already conditioned it on one.
+     */
+    private static BlobAccessConditions withETagIfNoneGiven(BlobAccessConditions accessConditions, String eTag) {
+        ModifiedAccessConditions given = accessConditions.modifiedAccessConditions() == null ?
+                new ModifiedAccessConditions() : accessConditions.modifiedAccessConditions();
+        if (eTag == null || given.ifMatch() != null || given.ifNoneMatch() != null) {
+            return accessConditions;
+        }
+
+        return new BlobAccessConditions()
+                .withLeaseAccessConditions(accessConditions.leaseAccessConditions())
+                .withModifiedAccessConditions(new ModifiedAccessConditions()
+                        .withIfModifiedSince(given.ifModifiedSince())
+                        .withIfUnmodifiedSince(given.ifUnmodifiedSince())
+                        .withIfMatch(eTag));
+    }
+
     private static int calculateNumBlocks(long dataSize, long blockLength) {
         // Can successfully cast to an int because MaxBlockSize is an int, which this expression must be less than.
         int numBlocks = toIntExact(dataSize / blockLength);
@@ -245,6 +411,187 @@ public final class TransferManager {
         });
     }
 
+    /**
+     * Backs up a page blob to a local file, transferring only the pages which changed since the previous backup.
+     *
+     * A snapshot of the blob is taken, and its pages are compared with those of the previous snapshot: the changed
+     * pages are downloaded from the new snapshot, in parallel, and written at their offsets in the file, while the
+     * cleared pages are zeroed. The file must hold the previous backup - as made from {@code previousSnapshot}. If
+     * there is no previous snapshot, the file is truncated and all the valid pages of the blob are written, which
+     * leaves the empty pages as holes in a sparse file where the file system supports them.
+     *
+     * The new snapshot is emitted, to be passed as the previous snapshot of the next backup; the previous snapshot is
+     * left for the caller to delete once it is no longer needed. If the backup fails, the new snapshot is deleted.
+     *
+     * @param pageBlobURL
+     *         The page blob to back up.
+     * @param previousSnapshot
+     *         The snapshot the file holds a backup of. May be null to make a full backup.
+     * @param file
+     *         The file to which the backup is written.
+     * @param options
+     *         {@link TransferManagerDownloadFromBlobOptions} - the access conditions apply to taking the snapshot, and
+     *         the chunk size is rounded down to a multiple of {@link PageBlobURL#PAGE_BYTES}.
+     *
+     * @return Emits the snapshot which the file now holds a backup of.
+     */
+    public static Single<String> backupPageBlobToFile(final PageBlobURL pageBlobURL, final String previousSnapshot,
+            final AsynchronousFileChannel file, final TransferManagerDownloadFromBlobOptions options) {
+        Utility.assertNotNull("pageBlobURL", pageBlobURL);
+        Utility.assertNotNull("file", file);
+        TransferManagerDownloadFromBlobOptions optionsReal = options == null ?
+                TransferManagerDownloadFromBlobOptions.DEFAULT : options;
+
+        return backupPageBlob(pageBlobURL, previousSnapshot, optionsReal, Long.MAX_VALUE, new PageRangeSink() {
+            @Override
+            public Completable prepare(long size, boolean full) {
+                return Completable.fromAction(() -> {
+                    if (full || file.size() > size) {
+                        file.truncate(full ? 0 : size);
+                    }
+                }).andThen(Completable.defer(() -> file.size() >= size || size == 0 ? Completable.complete()
+                        // Extend the file to the size of the blob - the last byte is not in a changed page.
+                        : FlowableUtil.writeFile(Flowable.just(ByteBuffer.allocate(1)), file, size - 1)));
+            }
+
+            @Override
+            public Completable write(PageRange range, Flowable<ByteBuffer> data) {
+                return FlowableUtil.writeFile(data, file, range.start());
+            }
+
+            @Override
+            public Completable clear(PageRange range) {
+                return FlowableUtil.writeFile(Flowable.just(ByteBuffer.allocate(
+                        toIntExact(range.end() - range.start() + 1))), file, range.start());
+            }
+        });
+    }
+
+    /**
+     * Backs up a page blob to another page blob, transferring only the pages which changed since the previous backup.
+     *
+     * A snapshot of the blob is taken, and its pages are compared with those of the previous snapshot: the changed
+     * pages are downloaded from the new snapshot, in parallel, and uploaded to the same ranges of the target, while the
+     * cleared pages are cleared on the target. The target must hold the previous backup - as made from
+     * {@code previousSnapshot} - and is resized to the size of the blob. If there is no previous snapshot, the target
+     * is created anew and all the valid pages of the blob are copied.
+     *
+     * The new snapshot is emitted, to be passed as the previous snapshot of the next backup; the previous snapshot is
+     * left for the caller to delete once it is no longer needed. If the backup fails, the new snapshot is deleted.
+     *
+     * @param pageBlobURL
+     *         The page blob to back up.
+     * @param previousSnapshot
+     *         The snapshot the target holds a backup of. May be null to make a full backup.
+     * @param target
+     *         The page blob to which the backup is written.
+     * @param options
+     *         {@link TransferManagerDownloadFromBlobOptions} - the access conditions apply to taking the snapshot, and
+     *         the chunk size is rounded down to a multiple of {@link PageBlobURL#PAGE_BYTES} and capped to
+     *         {@link PageBlobURL#MAX_PUT_PAGES_BYTES}.
+     *
+     * @return Emits the snapshot which the target now holds a backup of.
+     */
+    public static Single<String> backupPageBlobToPageBlob(final PageBlobURL pageBlobURL,
+            final String previousSnapshot, final PageBlobURL target,
+            final TransferManagerDownloadFromBlobOptions options) {
+        Utility.assertNotNull("pageBlobURL", pageBlobURL);
+        Utility.assertNotNull("target", target);
+        TransferManagerDownloadFromBlobOptions optionsReal = options == null ?
+                TransferManagerDownloadFromBlobOptions.DEFAULT : options;
+
+        return backupPageBlob(pageBlobURL, previousSnapshot, optionsReal, PageBlobURL.MAX_PUT_PAGES_BYTES,
+                new PageRangeSink() {
+                    @Override
+                    public Completable prepare(long size, boolean full) {
+                        return full ? target.create(size).ignoreElement() : target.resize(size).ignoreElement();
+                    }
+
+                    @Override
+                    public Completable write(PageRange range, Flowable<ByteBuffer> data) {
+                        // Buffer the chunk, as the request body must be replayable for retries.
+                        return FlowableUtil.collectBytesInBuffer(data)
+                                .flatMap(buffer -> target.uploadPages(range, Flowable.just(buffer)))
+                                .ignoreElement();
+                    }
+
+                    @Override
+                    public Completable clear(PageRange range) {
+                        return target.clearPages(range).ignoreElement();
+                    }
+                });
+    }
+
+    /*
+    Where the pages of a page blob backup are written to.
+     */
+    private interface PageRangeSink {
+        /*
+        Sizes the destination before any page is written. A full backup starts from an empty destination.
+         */
+        Completable prepare(long size, boolean full);
+
+        Completable write(PageRange range, Flowable<ByteBuffer> data);
+
+        Completable clear(PageRange range);
+    }
+
+    private static Single<String> backupPageBlob(PageBlobURL pageBlobURL, String previousSnapshot,
+            TransferManagerDownloadFromBlobOptions options, long maxChunkSize, PageRangeSink sink) {
+        long chunkSize = Math.max(PageBlobURL.PAGE_BYTES, Math.min(options.chunkSize(), maxChunkSize)
+                / PageBlobURL.PAGE_BYTES * PageBlobURL.PAGE_BYTES);
+
+        // See ProgressReporter for an explanation on why this lock is necessary and why we use AtomicLong.
+        AtomicLong totalProgress = new AtomicLong(0);
+        Lock progressLock = new ReentrantLock();
+
+        return pageBlobURL.createSnapshot(null, options.accessConditions(), null).flatMap(snapshotResponse -> {
+            String snapshot = snapshotResponse.headers().snapshot();
+            // A snapshot never changes, so the chunks need no etag to lock on to.
+            PageBlobURL snapshotURL = pageBlobURL.withSnapshot(snapshot);
+
+            Single<PageList> pageList = previousSnapshot == null
+                    ? snapshotURL.getPageRanges(null).map(response -> response.body())
+                    : snapshotURL.getPageRangesDiff(null, previousSnapshot).map(response -> response.body());
+
+            return Single.zip(snapshotURL.getProperties(), pageList, (properties, pages) -> {
+                Flowable<Completable> writes = Flowable.fromIterable(pages.pageRange() == null
+                        ? Collections.<PageRange>emptyList() : pages.pageRange())
+                        .concatMapIterable(range -> splitPageRange(range.start(), range.end(), chunkSize))
+                        .map(range -> snapshotURL.download(new BlobRange().withOffset(range.start())
+                                .withCount(range.end() - range.start() + 1), null, false, null)
+                                .flatMapCompletable(response -> sink.write(range,
+                                        ProgressReporter.addParallelProgressReporting(
+                                                response.body(options.reliableDownloadOptionsPerBlock()),
+                                                options.progressReceiver(), progressLock, totalProgress))));
+
+                Flowable<Completable> clears = Flowable.fromIterable(pages.clearRange() == null
+                        ? Collections.<ClearRange>emptyList() : pages.clearRange())
+                        .concatMapIterable(range -> splitPageRange(range.start(), range.end(), chunkSize))
+                        .map(sink::clear);
+
+                return sink.prepare(properties.headers().contentLength(), previousSnapshot == null)
+                        .andThen(Flowable.concat(clears, writes)
+                                .flatMapCompletable(work -> work, false, options.parallelism()));
+            }).flatMapCompletable(backup -> backup).andThen(Single.just(snapshot))
+                    /*
+                    The snapshot is of no use to a caller which never learns of it. Failing to delete it must not hide
+                    the error which failed the backup.
+                     */
+                    .onErrorResumeNext(e -> snapshotURL.delete(null, null, null).ignoreElement()
+                            .onErrorComplete()
+                            .andThen(Single.<String>error(e)));
+        });
+    }
+
+    private static List<PageRange> splitPageRange(long start, long end, long chunkSize) {
+        List<PageRange> chunks = new ArrayList<>();
+        for (long chunkStart = start; chunkStart <= end; chunkStart += chunkSize) {
+            chunks.add(new PageRange().withStart(chunkStart).withEnd(Math.min(end, chunkStart + chunkSize - 1)));
+        }
+        return chunks;
+    }
+
     private static Single<List<Object>> getSetupSingle(BlobURL blobURL, BlobRange r,
             TransferManagerDownloadFromBlobOptions o) {
         /*
@@ -418,4 +765,256 @@ public final class TransferManager {
                                 optionsReal.accessConditions(), null));
 
     }
+
+    /**
+     * Uploads all the files under a directory - recursively - to block blobs in a container. Each file is uploaded to
+     * the blob named by its path relative to the directory, with '/' as the separator, behind the given prefix.
+     *
+     * All the files share one budget of requests and one budget of in-flight bytes: small files are uploaded with a
+     * single put-blob request each, many at a time; larger files are staged in blocks which compete for the same
+     * budget, and are committed once all their blocks are staged. If a journal file is configured, every uploaded
+     * file is recorded in it, and files recorded there are skipped as long as their size and last modified time did
+     * not change.
+     *
+     * @param directory
+     *         The directory to upload.
+     * @param containerURL
+     *         Points to the container to upload to.
+     * @param blobPrefix
+     *         Prepended to the name of every blob - typically a virtual directory ending in '/'. May be null.
+     * @param options
+     *         {@link TransferManagerDirectoryOptions}
+     *
+     * @return A {@code Completable} that will signal when all the files are uploaded.
+     */
+    public static Completable uploadDirectory(final Path directory, final ContainerURL containerURL,
+            final String blobPrefix, final TransferManagerDirectoryOptions options) {
+        Utility.assertNotNull("directory", directory);
+        Utility.assertNotNull("containerURL", containerURL);
+        TransferManagerDirectoryOptions optionsReal = options == null ?
+                TransferManagerDirectoryOptions.DEFAULT : options;
+        String prefix = blobPrefix == null ? Constants.EMPTY_STRING : blobPrefix;
+
+        return Completable.using(
+                () -> TransferJournal.open(optionsReal.journalFile()),
+                journal -> {
+                    DirectoryTransfer transfer = new DirectoryTransfer(optionsReal, journal);
+                    return Flowable.defer(() -> Flowable.fromIterable(listFiles(directory)))
+                            .concatMap(file -> {
+                                String blobName = prefix + toBlobPath(directory, file);
+                                return uploadFileWork(transfer, file, containerURL.createBlockBlobURL(blobName),
+                                        blobName);
+                            })
+                            // The one place that bounds the number of requests in flight - across all the files.
+                            .flatMapCompletable(work -> work, false, optionsReal.parallelism());
+                },
+                TransferJournal::close);
+    }
+
+    /**
+     * Downloads all the blobs in a container whose names start with a prefix into a directory. Each blob is written to
+     * the file named by the rest of its name - with '/' as the separator - under the directory; missing directories
+     * are created and existing files overwritten.
+     *
+     * All the blobs share one budget of requests and one budget of in-flight bytes: small blobs are downloaded with a
+     * single request each, many at a time; larger blobs are downloaded in chunks which compete for the same budget.
+     * Every chunk is downloaded from the version of the blob that was listed. If a journal file is configured, every
+     * downloaded blob is recorded in it, and blobs recorded there are skipped as long as their etag did not change and
+     * the file is still there.
+     *
+     * @param containerURL
+     *         Points to the container to download from.
+     * @param blobPrefix
+     *         Only the blobs whose names start with this prefix are downloaded. May be null.
+     * @param directory
+     *         The directory to download to.
+     * @param options
+     *         {@link TransferManagerDirectoryOptions}
+     *
+     * @return A {@code Completable} that will signal when all the blobs are downloaded.
+     */
+    public static Completable downloadDirectory(final ContainerURL containerURL, final String blobPrefix,
+            final Path directory, final TransferManagerDirectoryOptions options) {
+        Utility.assertNotNull("containerURL", containerURL);
+        Utility.assertNotNull("directory", directory);
+        TransferManagerDirectoryOptions optionsReal = options == null ?
+                TransferManagerDirectoryOptions.DEFAULT : options;
+        String prefix = blobPrefix == null ? Constants.EMPTY_STRING : blobPrefix;
+        Path root = directory.toAbsolutePath().normalize();
+
+        return Completable.using(
+                () -> TransferJournal.open(optionsReal.journalFile()),
+                journal -> {
+                    DirectoryTransfer transfer = new DirectoryTransfer(optionsReal, journal);
+                    return containerURL.listBlobsFlat(new ListBlobsOptions().withPrefix(prefix), null)
+                            .concatMap(blob -> downloadBlobWork(transfer, containerURL.createBlobURL(blob.name()),
+                                    blob, toFilePath(root, blob.name().substring(prefix.length()))))
+                            // The one place that bounds the number of requests in flight - across all the blobs.
+                            .flatMapCompletable(work -> work, false, optionsReal.parallelism());
+                },
+                TransferJournal::close);
+    }
+
+    /*
+    The state shared by all the requests of one directory operation. Progress is aggregated across all of them, the
+    same way the parallel single-file operations aggregate it across their blocks.
+     */
+    private static final class DirectoryTransfer {
+        private final TransferManagerDirectoryOptions options;
+
+        private final TransferJournal journal;
+
+        private final InFlightByteBudget budget;
+
+        private final AtomicLong totalProgress = new AtomicLong(0);
+
+        private final Lock progressLock = new ReentrantLock();
+
+        private DirectoryTransfer(TransferManagerDirectoryOptions options, TransferJournal journal) {
+            this.options = options;
+            this.journal = journal;
+            this.budget = new InFlightByteBudget(options.maxInFlightBytes());
+        }
+
+        private Flowable<ByteBuffer> reportProgress(Flowable<ByteBuffer> data) {
+            return ProgressReporter.addParallelProgressReporting(data, this.options.progressReceiver(),
+                    this.progressLock, this.totalProgress);
+        }
+    }
+
+    /*
+    Expands one file into the requests needed to upload it - each deferred until the flatMap has room for it.
+     */
+    private static Flowable<Completable> uploadFileWork(DirectoryTransfer transfer, Path file,
+            BlockBlobURL blockBlobURL, String blobName) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        String entry = TransferJournal.entry(blobName,
+                size + "\t" + attributes.lastModifiedTime().toMillis());
+        if (transfer.journal.isCompleted(entry)) {
+            return Flowable.empty();
+        }
+
+        TransferManagerDirectoryOptions options = transfer.options;
+        Completable recordCompleted = Completable.fromAction(() -> transfer.journal.recordCompleted(entry));
+
+        if (size <= options.singleUploadThreshold()) {
+            return Flowable.just(transfer.budget.withBytes(size, Completable.using(
+                    () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ),
+                    channel -> blockBlobURL.upload(transfer.reportProgress(FlowableUtil.readFile(channel)), size,
+                            null, null, null, null).ignoreElement(),
+                    AsynchronousFileChannel::close))
+                    .andThen(recordCompleted));
+        }
+
+        int numBlocks = calculateNumBlocks(size, options.blockSize());
+        if (numBlocks > BlockBlobURL.MAX_BLOCKS) {
+            throw new IllegalArgumentException(SR.BLOB_OVER_MAX_BLOCK_LIMIT);
+        }
+
+        String[] blockIds = new String[numBlocks];
+        AtomicInteger remainingBlocks = new AtomicInteger(numBlocks);
+        // The last block to be staged commits the list - so no request slot waits idle on the other blocks.
+        Completable commit = Completable.defer(() -> blockBlobURL.commitBlockList(Arrays.asList(blockIds),
+                null, null, null, null).ignoreElement())
+                .andThen(recordCompleted);
+
+        return Flowable.range(0, numBlocks).map(i -> {
+            long offset = i * (long) options.blockSize();
+            int count = (int) Math.min((long) options.blockSize(), size - offset);
+            blockIds[i] = Base64.getEncoder().encodeToString(UUID.randomUUID().toString().getBytes());
+
+            return transfer.budget.withBytes(count, Completable.using(
+                    () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ),
+                    channel -> blockBlobURL.stageBlock(blockIds[i],
+                            transfer.reportProgress(FlowableUtil.readFile(channel, offset, count)), count,
+                            null, null).ignoreElement(),
+                    AsynchronousFileChannel::close))
+                    .andThen(Completable.defer(() ->
+                            remainingBlocks.decrementAndGet() == 0 ? commit : Completable.complete()));
+        });
+    }
+
+    /*
+    Expands one blob into the requests needed to download it - each deferred until the flatMap has room for it.
+     */
+    private static Flowable<Completable> downloadBlobWork(DirectoryTransfer transfer, BlobURL blobURL, BlobItem blob,
+            Path file) throws IOException {
+        long size = blob.properties().contentLength() == null ? 0 : blob.properties().contentLength();
+        String etag = blob.properties().etag();
+        String entry = TransferJournal.entry(blob.name(), etag);
+        if (transfer.journal.isCompleted(entry) && Files.isRegularFile(file) && Files.size(file) == size) {
+            return Flowable.empty();
+        }
+
+        // Size the file up front - the chunks are written at their offsets, in any order.
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+
+        Completable recordCompleted = Completable.fromAction(() -> transfer.journal.recordCompleted(entry));
+        if (size == 0) {
+            return Flowable.just(recordCompleted);
+        }
+
+        // Lock on to the listed version of the blob, so all the chunks come from the same one.
+        BlobAccessConditions accessConditions = new BlobAccessConditions().withModifiedAccessConditions(
+                new ModifiedAccessConditions().withIfMatch(etag));
+        long chunkSize = transfer.options.blockSize();
+        int numChunks = calculateNumBlocks(size, chunkSize);
+        AtomicInteger remainingChunks = new AtomicInteger(numChunks);
+
+        return Flowable.range(0, numChunks).map(i -> {
+            long offset = i * chunkSize;
+            long count = Math.min(chunkSize, size - offset);
+
+            return transfer.budget.withBytes(count, Completable.using(
+                    () -> AsynchronousFileChannel.open(file, StandardOpenOption.WRITE),
+                    channel -> blobURL.download(new BlobRange().withOffset(offset).withCount(count),
+                            accessConditions, false, null)
+                            .flatMapCompletable(response -> FlowableUtil.writeFile(transfer.reportProgress(
+                                    response.body(transfer.options.reliableDownloadOptionsPerBlock())),
+                                    channel, offset)),
+                    AsynchronousFileChannel::close))
+                    .andThen(Completable.defer(() ->
+                            remainingChunks.decrementAndGet() == 0 ? recordCompleted : Completable.complete()));
+        });
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (java.util.stream.Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile).sorted().forEach(files::add);
+        }
+        return files;
+    }
+
+    private static String toBlobPath(Path directory, Path file) {
+        StringBuilder blobPath = new StringBuilder();
+        for (Path element : directory.relativize(file)) {
+            if (blobPath.length() > 0) {
+                blobPath.append('/');
+            }
+            blobPath.append(element.toString());
+        }
+        return blobPath.toString();
+    }
+
+    private static Path toFilePath(Path root, String relativeBlobName) {
+        Path file = root;
+        for (String element : relativeBlobName.split("/")) {
+            if (!element.isEmpty()) {
+                file = file.resolve(element);
+            }
+        }
+
+        file = file.normalize();
+        // Reject names such as "../x" - a blob must not be written outside of the directory.
+        if (file.equals(root) || !file.startsWith(root)) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "The blob name '%s' does not map to a file under the directory.", relativeBlobName));
+        }
+        return file;
+    }
 }
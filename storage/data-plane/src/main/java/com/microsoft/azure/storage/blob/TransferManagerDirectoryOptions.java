@@ -0,0 +1,157 @@
+/*
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.microsoft.azure.storage.blob;
+
+import java.nio.file.Path;
+
+/**
+ * Configures the behavior of the directory upload and download methods on the {@link TransferManager}.
+ */
+public final class TransferManagerDirectoryOptions {
+
+    /**
+     * The default directory transfer options.
+     */
+    public static final TransferManagerDirectoryOptions DEFAULT = new TransferManagerDirectoryOptions(null, null,
+            null, null, null, null, null);
+
+    private final int parallelism;
+
+    private final long maxInFlightBytes;
+
+    private final int blockSize;
+
+    private final long singleUploadThreshold;
+
+    private final Path journalFile;
+
+    private final IProgressReceiver progressReceiver;
+
+    private final ReliableDownloadOptions reliableDownloadOptionsPerBlock;
+
+    /**
+     * Creates a new object that configures the directory transfer behavior. Null may be passed to accept the default
+     * behavior.
+     *
+     * @param parallelism
+     *         A {@code int} that indicates the maximum number of requests - across all files - to have in flight at
+     *         any one time. Must be greater than 0.
+     * @param maxInFlightBytes
+     *         The maximum number of bytes held by the requests in flight at any one time. A single block or file
+     *         larger than this limit is still transferred, on its own. Must be greater than 0.
+     * @param blockSize
+     *         The size of the blocks staged for large files, and of the chunks large blobs are downloaded in. Must be
+     *         between 1 and {@link BlockBlobURL#MAX_STAGE_BLOCK_BYTES}.
+     * @param singleUploadThreshold
+     *         Files of up to this size are uploaded with a single put-blob request; larger files are staged in blocks.
+     *         Must be between 0 and {@link BlockBlobURL#MAX_UPLOAD_BLOB_BYTES}. Defaults to the block size.
+     * @param journalFile
+     *         A file in which every completed file or blob is recorded. Running the same transfer again with the same
+     *         journal skips the items recorded as completed, as long as they did not change since. May be null to not
+     *         keep a journal.
+     * @param progressReceiver
+     *         {@link IProgressReceiver} - reports the total number of bytes transferred across all files.
+     * @param reliableDownloadOptions
+     *         {@link ReliableDownloadOptions} - applied to every download request.
+     */
+    public TransferManagerDirectoryOptions(Integer parallelism, Long maxInFlightBytes, Integer blockSize,
+            Long singleUploadThreshold, Path journalFile, IProgressReceiver progressReceiver,
+            ReliableDownloadOptions reliableDownloadOptions) {
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+            this.parallelism = parallelism;
+        } else {
+            this.parallelism = Constants.TRANSFER_MANAGER_DEFAULT_DIRECTORY_PARALLELISM;
+        }
+
+        if (maxInFlightBytes != null) {
+            Utility.assertInBounds("maxInFlightBytes", maxInFlightBytes, 1, Long.MAX_VALUE);
+            this.maxInFlightBytes = maxInFlightBytes;
+        } else {
+            this.maxInFlightBytes = Constants.TRANSFER_MANAGER_DEFAULT_MAX_IN_FLIGHT_BYTES;
+        }
+
+        if (blockSize != null) {
+            Utility.assertInBounds("blockSize", blockSize, 1, BlockBlobURL.MAX_STAGE_BLOCK_BYTES);
+            this.blockSize = blockSize;
+        } else {
+            this.blockSize = TransferManager.BLOB_DEFAULT_DOWNLOAD_BLOCK_SIZE;
+        }
+
+        if (singleUploadThreshold != null) {
+            Utility.assertInBounds("singleUploadThreshold", singleUploadThreshold, 0,
+                    BlockBlobURL.MAX_UPLOAD_BLOB_BYTES);
+            this.singleUploadThreshold = singleUploadThreshold;
+        } else {
+            this.singleUploadThreshold = this.blockSize;
+        }
+
+        this.journalFile = journalFile;
+        this.progressReceiver = progressReceiver;
+        this.reliableDownloadOptionsPerBlock = reliableDownloadOptions == null ?
+                new ReliableDownloadOptions() : reliableDownloadOptions;
+    }
+
+    /**
+     * A {@code int} that indicates the maximum number of requests - across all files - to have in flight at any one
+     * time.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * The maximum number of bytes held by the requests in flight at any one time.
+     */
+    public long maxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    /**
+     * The size of the blocks staged for large files, and of the chunks large blobs are downloaded in.
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Files of up to this size are uploaded with a single put-blob request; larger files are staged in blocks.
+     */
+    public long singleUploadThreshold() {
+        return singleUploadThreshold;
+    }
+
+    /**
+     * The file in which every completed file or blob is recorded; null if no journal is kept.
+     */
+    public Path journalFile() {
+        return journalFile;
+    }
+
+    /**
+     * {@link IProgressReceiver}
+     */
+    public IProgressReceiver progressReceiver() {
+        return progressReceiver;
+    }
+
+    /**
+     * {@link ReliableDownloadOptions}
+     */
+    public ReliableDownloadOptions reliableDownloadOptionsPerBlock() {
+        return reliableDownloadOptionsPerBlock;
+    }
+}
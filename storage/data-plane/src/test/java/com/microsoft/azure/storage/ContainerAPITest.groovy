@@ -1141,6 +1141,84 @@ class ContainerAPITest extends APISpec {
         notThrown(RuntimeException)
     }
 
+    def "List blobs flat all segments"() {
+        setup:
+        for (int i = 0; i < 10; i++) {
+            PageBlobURL bu = cu.createPageBlobURL(generateBlobName())
+            bu.create(512, null, null, null, null, null).blockingGet()
+        }
+
+        when:
+        List<BlobItem> blobs = cu.listBlobsFlat(new ListBlobsOptions().withMaxResults(3), null).toList()
+                .blockingGet()
+        List<BlobItem> firstBlobs = cu.listBlobsFlat(new ListBlobsOptions().withMaxResults(3), null).take(4)
+                .toList().blockingGet()
+
+        then:
+        blobs.size() == 10
+        blobs*.name() == blobs*.name().sort()
+        firstBlobs*.name() == blobs*.name().subList(0, 4)
+    }
+
+    def "List blobs hier all segments"() {
+        setup:
+        def options = new ListBlobsOptions().withMaxResults(2)
+        for (String name : ["a", "b/1", "b/2", "c", "d/1"]) {
+            cu.createBlockBlobURL(name).upload(Flowable.just(defaultData), defaultDataSize).blockingGet()
+        }
+
+        when:
+        List<BlobHierarchyListSegment> segments = cu.listBlobsHierarchy("/", options, null).toList().blockingGet()
+
+        then:
+        segments.size() == 2
+        segments.collectMany { it.blobItems() ?: [] }*.name() == ["a", "c"]
+        segments.collectMany { it.blobPrefixes() ?: [] }*.name() == ["b/", "d/"]
+    }
+
+    @Unroll
+    def "List blobs flat sharded"() {
+        setup:
+        def names = ["a", "b/1", "b/2", "c/d/1", "e"]
+        for (String name : names) {
+            cu.createBlockBlobURL(name).upload(Flowable.just(defaultData), defaultDataSize).blockingGet()
+        }
+
+        when:
+        List<BlobItem> blobs = cu.listBlobsFlatSharded(new ListBlobsOptions().withMaxResults(1),
+                new ListBlobsShardingOptions(shardPrefixes, null, 2, null), null).toList().blockingGet()
+
+        then:
+        blobs*.name().sort() == names
+
+        where:
+        shardPrefixes        | _
+        null                 | _ // Discovered: "", "b/" and "c/"
+        ["a", "b", "c", "e"] | _
+    }
+
+    def "List blobs flat sharded checkpoint"() {
+        setup:
+        def names = ["a/1", "a/2", "a/3", "b/1", "b/2", "b/3"]
+        for (String name : names) {
+            cu.createBlockBlobURL(name).upload(Flowable.just(defaultData), defaultDataSize).blockingGet()
+        }
+        def checkpoint = java.nio.file.Files.createTempDirectory("listing").resolve("checkpoint")
+        def shardingOptions = new ListBlobsShardingOptions(null, "/", 1, checkpoint)
+        def options = new ListBlobsOptions().withMaxResults(1)
+
+        when:
+        // Stop part way, after the first shard was listed in full and the second one partly.
+        List<BlobItem> first = cu.listBlobsFlatSharded(options, shardingOptions, null).take(4).toList()
+                .blockingGet()
+        List<BlobItem> resumed = cu.listBlobsFlatSharded(options, shardingOptions, null).toList().blockingGet()
+
+        then:
+        first*.name() == ["a/1", "a/2", "a/3", "b/1"]
+        // Cancelling drops the record of the last blob, so its segment is listed again.
+        resumed*.name() == ["b/1", "b/2", "b/3"]
+    }
+
     @Unroll
     def "Acquire lease"() {
         setup:
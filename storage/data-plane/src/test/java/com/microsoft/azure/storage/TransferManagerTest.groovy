@@ -17,6 +17,7 @@ import spock.lang.Unroll
 
 import java.nio.ByteBuffer
 import java.nio.channels.AsynchronousFileChannel
+import java.nio.file.Files
 import java.nio.file.StandardOpenOption
 import java.security.MessageDigest
 
@@ -59,6 +60,37 @@ class TransferManagerTest extends APISpec {
         getRandomFile(BlockBlobURL.MAX_UPLOAD_BLOB_BYTES + 1) || BlockBlobCommitBlockListResponse // Multi part
     }
 
+    def "Upload file delta"() {
+        setup:
+        def data = getRandomData(8 * 1024 * 1024).array()
+        def file = getRandomFile(0)
+        file.bytes = data
+        def channel = AsynchronousFileChannel.open(file.toPath())
+        TransferManager.uploadFileToBlockBlobDelta(channel, bu, 256 * 1024, null).blockingGet()
+        def firstIds = bu.getBlockList(BlockListType.COMMITTED).blockingGet().body().committedBlocks()*.name()
+        channel.close()
+
+        // Insert a few bytes in the middle of the file, which shifts everything after them.
+        def edited = new byte[data.length + 3]
+        System.arraycopy(data, 0, edited, 0, 4 * 1024 * 1024)
+        System.arraycopy(data, 4 * 1024 * 1024, edited, 4 * 1024 * 1024 + 3, 4 * 1024 * 1024)
+        file.bytes = edited
+        channel = AsynchronousFileChannel.open(file.toPath())
+
+        when:
+        def response = TransferManager.uploadFileToBlockBlobDelta(channel, bu, 256 * 1024, null).blockingGet()
+        def secondIds = bu.getBlockList(BlockListType.COMMITTED).blockingGet().body().committedBlocks()*.name()
+
+        then:
+        response.response() instanceof BlockBlobCommitBlockListResponse
+        compareDataToFile(bu.download(null, null, false, null).blockingGet().body(null), file)
+        // Only the blocks around the edit are new.
+        secondIds.findAll { !firstIds.contains(it) }.size() <= 2
+
+        cleanup:
+        channel.close()
+    }
+
     def compareDataToFile(Flowable<ByteBuffer> data, File file) {
         FileInputStream fis = new FileInputStream(file)
 
@@ -431,6 +463,44 @@ class TransferManagerTest extends APISpec {
         // Files larger than 2GB to test no integer overflow are left to stress/perf tests to keep test passes short.
     }
 
+    def "Backup page blob incremental"() {
+        setup:
+        def pu = cu.createPageBlobURL(generateBlobName())
+        pu.create(16 * 1024 * 1024).blockingGet()
+        pu.uploadPages(new PageRange().withStart(0).withEnd(PageBlobURL.PAGE_BYTES * 4 - 1),
+                Flowable.just(getRandomData(PageBlobURL.PAGE_BYTES * 4))).blockingGet()
+        def fileChannel = AsynchronousFileChannel.open(getRandomFile(0).toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.READ)
+        def blobChannel = AsynchronousFileChannel.open(getRandomFile(0).toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.READ)
+        def target = cu.createPageBlobURL(generateBlobName())
+        def firstSnapshot = TransferManager.backupPageBlobToFile(pu, null, fileChannel, null).blockingGet()
+        TransferManager.backupPageBlobToPageBlob(pu, null, target, null).blockingGet()
+
+        // Change some pages, clear others and grow the blob.
+        pu.uploadPages(new PageRange().withStart(8 * 1024 * 1024)
+                .withEnd(8 * 1024 * 1024 + PageBlobURL.PAGE_BYTES - 1),
+                Flowable.just(getRandomData(PageBlobURL.PAGE_BYTES))).blockingGet()
+        pu.clearPages(new PageRange().withStart(0).withEnd(PageBlobURL.PAGE_BYTES - 1)).blockingGet()
+        pu.resize(20 * 1024 * 1024).blockingGet()
+
+        when:
+        def secondSnapshot = TransferManager.backupPageBlobToFile(pu, firstSnapshot, fileChannel, null).blockingGet()
+        TransferManager.backupPageBlobToPageBlob(pu, firstSnapshot, target, null).blockingGet()
+        TransferManager.downloadBlobToFile(blobChannel, pu.withSnapshot(secondSnapshot), null, null).blockingGet()
+
+        then:
+        secondSnapshot != firstSnapshot
+        fileChannel.size() == 20 * 1024 * 1024
+        compareFiles(blobChannel, 0, blobChannel.size(), fileChannel)
+        FlowableUtil.collectBytesInBuffer(target.download().blockingGet().body(null)).blockingGet() ==
+                FlowableUtil.collectBytesInBuffer(pu.download().blockingGet().body(null)).blockingGet()
+
+        cleanup:
+        fileChannel.close()
+        blobChannel.close()
+    }
+
     def compareFiles(AsynchronousFileChannel channel1, long offset, long count, AsynchronousFileChannel channel2) {
         int chunkSize = 8 * 1024 * 1024
         long pos = 0
@@ -1005,5 +1075,53 @@ class TransferManagerTest extends APISpec {
         def e = thrown(StorageException)
         e.statusCode() == 500
     }
-}
 
+    @Unroll
+    def "Upload download directory"() {
+        setup:
+        def source = Files.createTempDirectory("tmsource")
+        Files.createDirectories(source.resolve("a").resolve("b"))
+        Files.write(source.resolve("small"), getRandomData(20).array())
+        Files.write(source.resolve("a").resolve("medium"), getRandomData(8 * 1026 * 1024 + 10).array())
+        Files.write(source.resolve("a").resolve("b").resolve("empty"), new byte[0])
+        def destination = Files.createTempDirectory("tmdestination")
+        def options = new TransferManagerDirectoryOptions(parallelism, maxInFlightBytes, 1024 * 1024, null, null,
+                null, null)
+
+        when:
+        TransferManager.uploadDirectory(source, cu, "dir/", options).blockingAwait()
+        TransferManager.downloadDirectory(cu, "dir/", destination, options).blockingAwait()
+
+        then:
+        cu.createBlobURL("dir/a/medium").getProperties().blockingGet().headers().contentLength() ==
+                8 * 1026 * 1024 + 10
+        Files.readAllBytes(destination.resolve("small")) == Files.readAllBytes(source.resolve("small"))
+        Files.readAllBytes(destination.resolve("a").resolve("medium")) ==
+                Files.readAllBytes(source.resolve("a").resolve("medium"))
+        Files.size(destination.resolve("a").resolve("b").resolve("empty")) == 0
+
+        where:
+        parallelism | maxInFlightBytes
+        1           | null
+        8           | 1024L // Smaller than a block - every block runs on its own.
+    }
+
+    def "Upload directory journal"() {
+        setup:
+        def source = Files.createTempDirectory("tmsource")
+        Files.write(source.resolve("first"), getRandomData(20).array())
+        def journal = Files.createTempDirectory("tmjournal").resolve("journal")
+        def options = new TransferManagerDirectoryOptions(null, null, null, null, journal, null, null)
+        TransferManager.uploadDirectory(source, cu, null, options).blockingAwait()
+        cu.createBlobURL("first").delete().blockingGet()
+        Files.write(source.resolve("second"), getRandomData(20).array())
+
+        when:
+        TransferManager.uploadDirectory(source, cu, null, options).blockingAwait()
+
+        then:
+        // The first file was recorded as completed, so it is not uploaded again.
+        cu.listBlobsFlatSegment(null, null, null).blockingGet().body().segment().blobItems()*.name() == ["second"]
+        Files.readAllLines(journal).size() == 2
+    }
+}